@@ -0,0 +1,223 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.lucene.index;
+
+import java.io.IOException;
+import java.util.Calendar;
+
+import org.compass.core.executor.ExecutorManager;
+import org.compass.core.lucene.engine.manager.SearchLoad;
+import org.compass.core.transaction.context.TransactionContext;
+
+/**
+ * An {@link ExecutorMergeScheduler} that yields to the search load of the index, as tracked by
+ * {@link org.compass.core.lucene.engine.manager.SearchLoad}.
+ *
+ * <p>Search is considered saturated when the number of concurrent searches reaches <code>maxSearchConcurrency</code>,
+ * or when the average search time reaches <code>maxSearchTime</code>. While saturated, only a single merge runs
+ * on the executor manager, and large merges (merges of segments of <code>largeMergeSize</code> bytes or more) wait
+ * for the search load to drop (up to <code>maxPauseTime</code>) and then run with the minimum thread priority.
+ * Other merges are not run on the indexing thread while saturated (which would merge at full priority), instead
+ * the indexing thread waits for the running merge to finish. Merges that do run on the indexing thread (when the
+ * executor manager is at its limit and search is not saturated) are never paused, since pausing them would
+ * block indexing.
+ *
+ * <p>Large merges can also be limited to a time of day window (for example, at night). Large merges proposed outside
+ * of the window are aborted (before they are initialized) and left for the merge policy to propose again. Once a
+ * large merge is deferred, large merges are deferred without checking the time of day until the window opens, with
+ * a single message logged for all of them. Merges caused by an explicit optimize, or involving external segments,
+ * are never deferred.
+ *
+ * @author kimchy
+ */
+public class AdaptiveMergeScheduler extends ExecutorMergeScheduler {
+
+    private final SearchLoad searchLoad;
+
+    private volatile int maxSearchConcurrency = Runtime.getRuntime().availableProcessors();
+
+    private volatile long maxSearchTime = 500;
+
+    private volatile long largeMergeSize = 100 * 1024 * 1024;
+
+    private volatile long maxPauseTime = 60000;
+
+    private volatile int largeMergeFromHour = -1;
+
+    private volatile int largeMergeToHour = -1;
+
+    // large merges are deferred until this time (once one was deferred), 0 if not deferring
+    private volatile long deferLargeMergesUntil = 0;
+
+    public AdaptiveMergeScheduler(ExecutorManager executorManager, TransactionContext transactionContext, SearchLoad searchLoad) {
+        super(executorManager, transactionContext);
+        this.searchLoad = searchLoad;
+    }
+
+    public void setMaxSearchConcurrency(int maxSearchConcurrency) {
+        this.maxSearchConcurrency = maxSearchConcurrency;
+    }
+
+    /**
+     * Sets the average search time (in millis) above which search is considered saturated. <code>0</code>
+     * or less disables the check.
+     */
+    public void setMaxSearchTime(long maxSearchTime) {
+        this.maxSearchTime = maxSearchTime;
+    }
+
+    public void setLargeMergeSize(long largeMergeSize) {
+        this.largeMergeSize = largeMergeSize;
+    }
+
+    public void setMaxPauseTime(long maxPauseTime) {
+        this.maxPauseTime = maxPauseTime;
+    }
+
+    /**
+     * Limits large merges to the given hours of the day (<code>fromHour</code> inclusive, <code>toHour</code>
+     * exclusive, can wrap around midnight). Passing <code>-1</code> allows large merges at any time.
+     */
+    public void setLargeMergeHours(int fromHour, int toHour) {
+        this.largeMergeFromHour = fromHour;
+        this.largeMergeToHour = toHour;
+        this.deferLargeMergesUntil = 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the search load is above the configured limits.
+     */
+    public boolean isSearchSaturated() {
+        if (maxSearchConcurrency > 0 && searchLoad.getActiveSearches() >= maxSearchConcurrency) {
+            return true;
+        }
+        return maxSearchTime > 0 && searchLoad.getAverageSearchTimeInMillis() >= maxSearchTime;
+    }
+
+    /**
+     * Returns <code>true</code> if large merges are allowed at the given hour of the day.
+     */
+    public boolean isLargeMergeAllowed(int hourOfDay) {
+        if (largeMergeFromHour < 0 || largeMergeToHour < 0 || largeMergeFromHour == largeMergeToHour) {
+            return true;
+        }
+        if (largeMergeFromHour < largeMergeToHour) {
+            return hourOfDay >= largeMergeFromHour && hourOfDay < largeMergeToHour;
+        }
+        return hourOfDay >= largeMergeFromHour || hourOfDay < largeMergeToHour;
+    }
+
+    protected int getCurrentMaxConcurrentMerges() {
+        if (isSearchSaturated()) {
+            return Math.min(1, getMaxConcurrentMerges());
+        }
+        return getMaxConcurrentMerges();
+    }
+
+    /**
+     * Merges are not run on the indexing thread while search is saturated.
+     */
+    protected boolean isForegroundMergeAllowed() {
+        return !isSearchSaturated();
+    }
+
+    protected boolean shouldDeferMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        if (!isAdaptive(merge)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now < deferLargeMergesUntil) {
+            return true;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        if (isLargeMergeAllowed(calendar.get(Calendar.HOUR_OF_DAY))) {
+            deferLargeMergesUntil = 0;
+            return false;
+        }
+        // back off until the window opens
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (calendar.get(Calendar.HOUR_OF_DAY) >= largeMergeFromHour) {
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        calendar.set(Calendar.HOUR_OF_DAY, largeMergeFromHour);
+        deferLargeMergesUntil = calendar.getTimeInMillis();
+        message("  large merge outside of the allowed hours, deferring large merges until " + calendar.getTime() +
+                ", first deferred " + merge.segString(writer.getDirectory()));
+        return true;
+    }
+
+    protected void doForegroundMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        // the indexing thread is blocked until the merge is done, don't pause it or lower its priority
+        super.doMerge(writer, merge);
+    }
+
+    protected void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        if (!isAdaptive(merge)) {
+            super.doMerge(writer, merge);
+            return;
+        }
+        waitForSearchLoad(writer, merge);
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        boolean lowerPriority = isSearchSaturated();
+        if (lowerPriority) {
+            thread.setPriority(Thread.MIN_PRIORITY);
+        }
+        try {
+            super.doMerge(writer, merge);
+        } finally {
+            if (lowerPriority) {
+                thread.setPriority(priority);
+            }
+        }
+    }
+
+    private boolean isAdaptive(MergePolicy.OneMerge merge) throws IOException {
+        return !merge.optimize && !merge.isExternal && isLargeMerge(merge);
+    }
+
+    private boolean isLargeMerge(MergePolicy.OneMerge merge) throws IOException {
+        if (largeMergeSize <= 0) {
+            return false;
+        }
+        long size = 0;
+        for (int i = 0; i < merge.segments.size(); i++) {
+            size += merge.segments.info(i).sizeInBytes();
+        }
+        return size >= largeMergeSize;
+    }
+
+    private void waitForSearchLoad(IndexWriter writer, MergePolicy.OneMerge merge) {
+        if (!isSearchSaturated()) {
+            return;
+        }
+        message("  search is saturated, pausing large merge " + merge.segString(writer.getDirectory()));
+        long start = System.currentTimeMillis();
+        while (isSearchSaturated() && System.currentTimeMillis() - start < maxPauseTime) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
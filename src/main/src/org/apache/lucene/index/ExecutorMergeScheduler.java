@@ -62,7 +62,49 @@ public class ExecutorMergeScheduler extends MergeScheduler {
         this.maxConcurrentMerges = maxConcurrentMerges;
     }
 
-    private void message(String message) {
+    /**
+     * Returns the maximum number of merges that are allowed to run concurrently right now. Defaults to
+     * {@link #getMaxConcurrentMerges()}.
+     */
+    protected int getCurrentMaxConcurrentMerges() {
+        return maxConcurrentMerges;
+    }
+
+    /**
+     * Performs the actual merge, either on the calling thread or on an executor manager thread.
+     */
+    protected void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        writer.merge(merge);
+    }
+
+    /**
+     * Performs a merge on the thread that called {@link #merge(IndexWriter)} (usually the indexing thread),
+     * when it can not be executed on the executor manager. Defaults to
+     * {@link #doMerge(IndexWriter, MergePolicy.OneMerge)}.
+     */
+    protected void doForegroundMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        doMerge(writer, merge);
+    }
+
+    /**
+     * Returns <code>true</code> if a merge can run on the thread that called {@link #merge(IndexWriter)}
+     * when the executor manager is at its limit. If <code>false</code>, the calling thread waits for a running
+     * merge to finish instead. Defaults to <code>true</code>.
+     */
+    protected boolean isForegroundMergeAllowed() {
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the given (newly proposed) merge should not run now. Called before the
+     * merge is initialized, deferred merges are aborted and left for the merge policy to propose again.
+     * Defaults to <code>false</code>.
+     */
+    protected boolean shouldDeferMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+        return false;
+    }
+
+    protected void message(String message) {
         if (writer != null)
             writer.message("EMS: " + message);
     }
@@ -96,7 +138,7 @@ public class ExecutorMergeScheduler extends MergeScheduler {
             // the BG (eg maybe the "biggest" ones) vs FG, which
             // merges to do first (the easiest ones?), etc.
 
-            MergePolicy.OneMerge merge = writer.getNextMerge();
+            MergePolicy.OneMerge merge = getNextMerge(writer);
             if (merge == null) {
                 message("  no more merges pending; now return");
                 return;
@@ -112,7 +154,18 @@ public class ExecutorMergeScheduler extends MergeScheduler {
                 message("    merge involves segments from an external directory; now run in foreground");
             } else {
                 synchronized (this) {
-                    if (currentConcurrentMerges < maxConcurrentMerges) {
+                    // COMPASS: if not allowed to merge in the foreground, wait for a running merge to finish
+                    while (currentConcurrentMerges > 0 && currentConcurrentMerges >= getCurrentMaxConcurrentMerges()
+                            && !isForegroundMergeAllowed() && !closed) {
+                        message("    too many merge threads running; waiting for one to finish");
+                        try {
+                            wait(100);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                    if (currentConcurrentMerges < getCurrentMaxConcurrentMerges()) {
                         // OK to spawn a new merge thread to handle this
                         // merge:
                         currentConcurrentMerges++;
@@ -127,10 +180,36 @@ public class ExecutorMergeScheduler extends MergeScheduler {
 
             // Too many merge threads already running, so we do
             // this in the foreground of the calling thread
-            writer.merge(merge);
+            doForegroundMerge(writer, merge);
         }
     }
 
+    /**
+     * Returns the next merge pending in the writer (not initialized yet), aborting the ones that should be
+     * deferred.
+     */
+    private MergePolicy.OneMerge getNextMerge(IndexWriter writer) throws IOException {
+        while (true) {
+            MergePolicy.OneMerge merge = writer.getNextMerge();
+            if (merge == null || !shouldDeferMerge(writer, merge)) {
+                return merge;
+            }
+            // the writer discards aborted merges (without initializing them), the merge policy will propose
+            // it again on the next flush
+            merge.abort();
+            try {
+                writer.merge(merge);
+            } catch (MergePolicy.MergeAbortedException e) {
+                // expected
+            }
+        }
+    }
+
+    private synchronized void mergeThreadDone() {
+        currentConcurrentMerges--;
+        notifyAll();
+    }
+
     private class MergeThread implements Runnable {
 
         IndexWriter writer;
@@ -161,6 +240,7 @@ public class ExecutorMergeScheduler extends MergeScheduler {
                 merge = runningMerge;
             }
 
+            boolean rescheduled = false;
             try {
 
                 message("  merge thread: start");
@@ -168,19 +248,18 @@ public class ExecutorMergeScheduler extends MergeScheduler {
 // Compass: No need to execute continous merges, we simply reschedule another merge, if there is any, using executor manager                
 //                while (true) {
                 setRunningMerge(merge);
-                writer.merge(merge);
+                doMerge(writer, merge);
 
                 // Subsequent times through the loop we do any new
                 // merge that writer says is necessary:
-                merge = writer.getNextMerge();
+                merge = getNextMerge(writer);
                 if (merge != null) {
                     writer.mergeInit(merge);
                     message("  merge thread: do another merge " + merge.segString(dir));
                     // COMPASS: Set the running merge so it will be picked up in the next run
                     setRunningMerge(merge);
                     executorManager.submit(new TransactionalRunnable(transactionContext, this));
-                } else {
-                    currentConcurrentMerges--;
+                    rescheduled = true;
                 }
 //                }
 
@@ -203,10 +282,9 @@ public class ExecutorMergeScheduler extends MergeScheduler {
                     }
                 }
             } finally {
-                if (merge == null) { // only decrease if we have no more merges and we actually exit
-                    synchronized (ExecutorMergeScheduler.this) {
-//                    ExecutorMergeScheduler.this.notifyAll();
-                    }
+                // COMPASS: only decrease if we have no more merges and we actually exit (also on failure)
+                if (!rescheduled) {
+                    mergeThreadDone();
                 }
             }
         }
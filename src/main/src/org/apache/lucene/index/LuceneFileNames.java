@@ -32,9 +32,13 @@
 
 package org.apache.lucene.index;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
+import org.apache.lucene.store.Directory;
 import org.compass.core.lucene.engine.manager.IndexHoldersCache;
 import org.compass.core.lucene.engine.spellcheck.DefaultLuceneSpellCheckManager;
 
@@ -69,4 +73,21 @@ public class LuceneFileNames {
         return name.startsWith(IndexFileNames.SEGMENTS) || name.equals(IndexFileNames.SEGMENTS_GEN);
     }
 
+    /**
+     * Returns the names of the files referenced by the latest commit point of the directory (including
+     * the segments file itself).
+     */
+    @SuppressWarnings("unchecked")
+    public static Collection<String> getCommitFiles(Directory directory) throws IOException {
+        SegmentInfos segmentInfos = new SegmentInfos();
+        segmentInfos.read(directory);
+        // segments may share doc stores files
+        Set<String> files = new LinkedHashSet<String>();
+        files.add(segmentInfos.getCurrentSegmentFileName());
+        for (int i = 0; i < segmentInfos.size(); i++) {
+            files.addAll(segmentInfos.info(i).files());
+        }
+        return files;
+    }
+
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+import java.util.ArrayList;
+
+/**
+ * Utilities to access the segment readers that make up a (top level) index reader.
+ *
+ * @author kimchy
+ */
+public abstract class LuceneSegmentReaders {
+
+    /**
+     * Returns the leaf readers (usually segment readers) the given reader is built from, in
+     * document order. A reader that is not composed of other readers is returned as is.
+     */
+    public static IndexReader[] getSegmentReaders(IndexReader reader) {
+        ArrayList<IndexReader> readers = new ArrayList<IndexReader>();
+        gatherSegmentReaders(reader, readers);
+        return readers.toArray(new IndexReader[readers.size()]);
+    }
+
+    /**
+     * Returns a key identifying the (immutable) terms of the given segment reader. Segment readers
+     * reopened only because of new deletions share the same key, so data derived from the terms can
+     * be shared between them.
+     */
+    public static Object getCoreCacheKey(IndexReader reader) {
+        if (reader instanceof SegmentReader && ((SegmentReader) reader).tis != null) {
+            return ((SegmentReader) reader).tis;
+        }
+        return reader;
+    }
+
+    private static void gatherSegmentReaders(IndexReader reader, ArrayList<IndexReader> readers) {
+        if (reader instanceof MultiSegmentReader) {
+            SegmentReader[] subReaders = ((MultiSegmentReader) reader).getSubReaders();
+            for (SegmentReader subReader : subReaders) {
+                readers.add(subReader);
+            }
+        } else if (reader instanceof MultiReader) {
+            IndexReader[] subReaders = ((MultiReader) reader).getSubReaders();
+            for (IndexReader subReader : subReaders) {
+                gatherSegmentReaders(subReader, readers);
+            }
+        } else {
+            readers.add(reader);
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
 import org.compass.core.lucene.engine.all.AllBoostingTermQuery;
 import org.compass.core.lucene.engine.queryparser.QueryParserUtils;
 import org.compass.core.lucene.search.ConstantScorePrefixQuery;
+import org.compass.core.lucene.support.WildcardIndexHelper;
 import org.compass.core.mapping.CompassMapping;
 import org.compass.core.mapping.ResourcePropertyLookup;
 
@@ -85,6 +86,12 @@ public class CompassMultiFieldQueryParser extends MultiFieldQueryParser {
             lookup = mapping.getResourcePropertyLookup(field);
             lookup.setConvertOnlyWithDotPath(false);
             field = lookup.getPath();
+            // properties mapped with a wildcard index are searched using their companion field
+            Query query = WildcardIndexHelper.createWildcardQuery(field, getLowercaseExpandedTerms() ? termStr.toLowerCase() : termStr,
+                    lookup.getResourcePropertyMappings());
+            if (query != null) {
+                return QueryParserUtils.andAliasQueryIfNeeded(query, lookup, addAliasQueryWithDotPath, searchEngineFactory);
+            }
         }
         return QueryParserUtils.andAliasQueryIfNeeded(super.getWildcardQuery(field, termStr), lookup, addAliasQueryWithDotPath, searchEngineFactory);
     }
@@ -38,6 +38,7 @@ import org.apache.lucene.store.MultiDeleteDirectory;
 import org.apache.lucene.store.jdbc.dialect.Dialect;
 import org.apache.lucene.store.jdbc.dialect.DialectResolver;
 import org.apache.lucene.store.jdbc.handler.FileEntryHandler;
+import org.apache.lucene.store.jdbc.index.AbstractJdbcIndexOutput;
 import org.apache.lucene.store.jdbc.lock.JdbcLock;
 import org.apache.lucene.store.jdbc.support.JdbcTable;
 import org.apache.lucene.store.jdbc.support.JdbcTemplate;
@@ -97,6 +98,9 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
 
     private JdbcTemplate jdbcTemplate;
 
+    private JdbcFileMetadataCache fileMetadataCache;
+
+    private final ArrayList pendingOutputs = new ArrayList();
 
     /**
      * Creates a new jdbc directory.  Creates new {@link JdbcDirectorySettings} using it's default values.
@@ -164,6 +168,9 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
         this.table = table;
         this.settings = table.getSettings();
         dialect.processSettings(settings);
+        if (settings.isCacheFileMetadata()) {
+            fileMetadataCache = new JdbcFileMetadataCache(this);
+        }
         Map fileEntrySettings = settings.getFileEntrySettings();
         // go over all the file entry settings and configure them
         for (Iterator it = fileEntrySettings.keySet().iterator(); it.hasNext();) {
@@ -245,6 +252,9 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
      */
     public void deleteContent() throws IOException {
         jdbcTemplate.executeUpdate(table.sqlDeletaAll());
+        if (fileMetadataCache != null) {
+            fileMetadataCache.clear();
+        }
     }
 
     /**
@@ -301,6 +311,10 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
     }
 
     public String[] list() throws IOException {
+        flushPendingOutputs();
+        if (fileMetadataCache != null) {
+            return fileMetadataCache.list();
+        }
         return (String[]) jdbcTemplate.executeSelect(table.sqlSelectNames(), new JdbcTemplate.ExecuteSelectCallback() {
             public void fillPrepareStatement(PreparedStatement ps) throws Exception {
                 ps.setBoolean(1, false);
@@ -317,18 +331,36 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
     }
 
     public boolean fileExists(final String name) throws IOException {
+        flushPendingOutputs();
+        JdbcFileMetadataCache.FileMetadata fileMetadata = getCachedFileMetadata(name);
+        if (fileMetadata != null) {
+            return !fileMetadata.isDeleted();
+        }
         return getFileEntryHandler(name).fileExists(name);
     }
 
     public long fileModified(final String name) throws IOException {
+        flushPendingOutputs();
+        JdbcFileMetadataCache.FileMetadata fileMetadata = getCachedFileMetadata(name);
+        if (fileMetadata != null) {
+            return fileMetadata.getLastModified();
+        }
         return getFileEntryHandler(name).fileModified(name);
     }
 
     public void touchFile(final String name) throws IOException {
+        flushPendingOutputs();
+        if (fileMetadataCache != null) {
+            fileMetadataCache.fileWritten(name);
+        }
         getFileEntryHandler(name).touchFile(name);
     }
 
     public void deleteFile(final String name) throws IOException {
+        discardPendingOutput(name);
+        if (fileMetadataCache != null) {
+            fileMetadataCache.fileDeleted(name);
+        }
         if (LuceneFileNames.isStaticFile(name)) {
             forceDeleteFile(name);
         } else {
@@ -337,6 +369,10 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
     }
 
     public void forceDeleteFile(final String name) throws IOException {
+        discardPendingOutput(name);
+        if (fileMetadataCache != null) {
+            fileMetadataCache.fileDeleted(name);
+        }
         jdbcTemplate.executeUpdate(table.sqlDeleteByName(), new JdbcTemplate.PrepateStatementAwareCallback() {
             public void fillPrepareStatement(PreparedStatement ps) throws Exception {
                 ps.setFetchSize(1);
@@ -349,6 +385,10 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
         HashMap tempMap = new HashMap();
         for (Iterator it = names.iterator(); it.hasNext();) {
             String name = (String) it.next();
+            discardPendingOutput(name);
+            if (fileMetadataCache != null) {
+                fileMetadataCache.fileDeleted(name);
+            }
             FileEntryHandler fileEntryHandler = getFileEntryHandler(name);
             ArrayList tempNames = (ArrayList) tempMap.get(fileEntryHandler);
             if (tempNames == null) {
@@ -370,25 +410,44 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
     }
 
     public void renameFile(final String from, final String to) throws IOException {
+        flushPendingOutputs();
+        if (fileMetadataCache != null) {
+            fileMetadataCache.fileDeleted(from);
+            fileMetadataCache.fileWritten(to);
+        }
         getFileEntryHandler(from).renameFile(from, to);
     }
 
     public long fileLength(final String name) throws IOException {
+        flushPendingOutputs();
+        JdbcFileMetadataCache.FileMetadata fileMetadata = getCachedFileMetadata(name);
+        if (fileMetadata != null) {
+            return fileMetadata.getSize();
+        }
         return getFileEntryHandler(name).fileLength(name);
     }
 
     public IndexInput openInput(String name) throws IOException {
+        flushPendingOutputs();
         return getFileEntryHandler(name).openInput(name);
     }
 
     public IndexOutput createOutput(String name) throws IOException {
+        discardPendingOutput(name);
         if (LuceneFileNames.isStaticFile(name)) {
             forceDeleteFile(name);
         }
+        if (fileMetadataCache != null) {
+            fileMetadataCache.fileWritten(name);
+        }
         return getFileEntryHandler(name).createOutput(name);
     }
 
     public Lock makeLock(final String name) {
+        if (fileMetadataCache != null) {
+            // locks are inserted and deleted directly, never use the snapshot for them
+            fileMetadataCache.exclude(name);
+        }
         try {
             Lock lock = createLock();
             ((JdbcLock) lock).configure(this, name);
@@ -399,10 +458,101 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
         }
     }
 
+    /**
+     * Inserts the files pending insertion (written by any thread, for example merge threads) in a single batch.
+     */
+    public void sync(String name) throws IOException {
+        flushPendingOutputs();
+    }
+
+    /**
+     * Adds a closed index output to the files pending insertion when batch inserts are enabled (see
+     * {@link JdbcDirectorySettings#setBatchInserts(boolean)}). Segments and static files flush the pending
+     * files (including themselves and files written by other threads) right away, so a commit always ends
+     * with all its files inserted.
+     */
+    public void addPendingOutput(AbstractJdbcIndexOutput output) throws IOException {
+        synchronized (pendingOutputs) {
+            pendingOutputs.add(output);
+        }
+        if (LuceneFileNames.isSegmentsFile(output.getName()) || LuceneFileNames.isStaticFile(output.getName())) {
+            flushPendingOutputs();
+        }
+    }
+
+    /**
+     * Inserts all the files pending insertion, regardless of the thread that wrote them, using a single batch
+     * statement executed within the transaction of the current thread. Pending files are flushed automatically
+     * when any of the files of the directory is read or its metadata is needed, on sync, and when a segments
+     * file is written.
+     *
+     * <p>Batching trades the round trip per file written by Lucene (several files per flushed segment) with
+     * a single round trip once the files are needed.
+     */
+    public void flushPendingOutputs() throws IOException {
+        // flushing is done while holding the lock, so a concurrent flush does not return before the files
+        // taken by another thread were inserted
+        synchronized (pendingOutputs) {
+            if (pendingOutputs.isEmpty()) {
+                return;
+            }
+            final ArrayList outputs = new ArrayList(pendingOutputs);
+            pendingOutputs.clear();
+            insertOutputs(outputs);
+        }
+    }
+
+    private void insertOutputs(final ArrayList outputs) throws IOException {
+        try {
+            jdbcTemplate.executeBatch(table.sqlInsert(), new JdbcTemplate.PrepateStatementAwareCallback() {
+                public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                    for (Iterator it = outputs.iterator(); it.hasNext();) {
+                        ((AbstractJdbcIndexOutput) it.next()).fillInsertStatement(ps);
+                        ps.addBatch();
+                    }
+                }
+            });
+        } finally {
+            IOException last = null;
+            for (Iterator it = outputs.iterator(); it.hasNext();) {
+                try {
+                    ((AbstractJdbcIndexOutput) it.next()).afterInsert();
+                } catch (IOException e) {
+                    last = e;
+                }
+            }
+            if (last != null) {
+                throw last;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of files pending insertion.
+     */
+    public int getPendingOutputsCount() {
+        synchronized (pendingOutputs) {
+            return pendingOutputs.size();
+        }
+    }
+
+    private void discardPendingOutput(String name) throws IOException {
+        synchronized (pendingOutputs) {
+            for (Iterator it = pendingOutputs.iterator(); it.hasNext();) {
+                AbstractJdbcIndexOutput output = (AbstractJdbcIndexOutput) it.next();
+                if (output.getName().equals(name)) {
+                    it.remove();
+                    output.afterInsert();
+                }
+            }
+        }
+    }
+
     /**
      * Closes the directory.
      */
     public void close() throws IOException {
+        flushPendingOutputs();
         IOException last = null;
         for (Iterator it = fileEntryHandlers.values().iterator(); it.hasNext();) {
             FileEntryHandler fileEntryHandler = (FileEntryHandler) it.next();
@@ -430,6 +580,13 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
 
     }
 
+    private JdbcFileMetadataCache.FileMetadata getCachedFileMetadata(String name) throws IOException {
+        if (fileMetadataCache == null) {
+            return null;
+        }
+        return fileMetadataCache.getFileMetadata(name);
+    }
+
     protected Lock createLock() throws IOException {
         try {
             return (Lock) settings.getLockClass().newInstance();
@@ -450,6 +607,14 @@ public class JdbcDirectory extends Directory implements MultiDeleteDirectory {
         return this.table;
     }
 
+    /**
+     * Returns the file metadata cache, <code>null</code> if it is not enabled (see
+     * {@link JdbcDirectorySettings#setCacheFileMetadata(boolean)}).
+     */
+    public JdbcFileMetadataCache getFileMetadataCache() {
+        return fileMetadataCache;
+    }
+
     public JdbcDirectorySettings getSettings() {
         return settings;
     }
@@ -82,6 +82,14 @@ public class JdbcDirectorySettings {
 
     private String tableType = "";
 
+    private boolean cacheFileMetadata = false;
+
+    private long fileMetadataRevalidateInterval = 1000;
+
+    private boolean cacheStatements = true;
+
+    private boolean batchInserts = false;
+
     /**
      * Creates a new instance of the Jdbc directory settings with it's default values initialized.
      */
@@ -332,4 +340,74 @@ public class JdbcDirectorySettings {
     public void setTableType(String tableType) {
         this.tableType = tableType;
     }
+
+    /**
+     * Returns <code>true</code> if the directory should keep a snapshot of the files metadata (see
+     * {@link JdbcFileMetadataCache}). Defaults to <code>false</code>.
+     */
+    public boolean isCacheFileMetadata() {
+        return cacheFileMetadata;
+    }
+
+    /**
+     * Sets if the directory should keep a snapshot of the files metadata (see
+     * {@link JdbcFileMetadataCache}). Defaults to <code>false</code>.
+     */
+    public void setCacheFileMetadata(boolean cacheFileMetadata) {
+        this.cacheFileMetadata = cacheFileMetadata;
+    }
+
+    /**
+     * Returns the interval (in milliseconds) after which the files metadata snapshot is validated against
+     * the segments generation when answering <code>fileExists</code>, <code>fileLength</code> and
+     * <code>fileModified</code>. <code>list</code> always validates it. Defaults to <code>1000</code>.
+     */
+    public long getFileMetadataRevalidateInterval() {
+        return fileMetadataRevalidateInterval;
+    }
+
+    /**
+     * Sets the interval (in milliseconds) after which the files metadata snapshot is validated against
+     * the segments generation when answering <code>fileExists</code>, <code>fileLength</code> and
+     * <code>fileModified</code>. <code>list</code> always validates it. Defaults to <code>1000</code>.
+     */
+    public void setFileMetadataRevalidateInterval(long fileMetadataRevalidateInterval) {
+        this.fileMetadataRevalidateInterval = fileMetadataRevalidateInterval;
+    }
+
+    /**
+     * Returns <code>true</code> if prepared statements should be cached and reused for the lifetime
+     * of the (transaction aware) connection. Defaults to <code>true</code>.
+     *
+     * @see org.apache.lucene.store.jdbc.datasource.PreparedStatementCache
+     */
+    public boolean isCacheStatements() {
+        return cacheStatements;
+    }
+
+    /**
+     * Sets if prepared statements should be cached and reused for the lifetime of the (transaction aware)
+     * connection. Defaults to <code>true</code>.
+     *
+     * @see org.apache.lucene.store.jdbc.datasource.PreparedStatementCache
+     */
+    public void setCacheStatements(boolean cacheStatements) {
+        this.cacheStatements = cacheStatements;
+    }
+
+    /**
+     * Returns <code>true</code> if files written to the directory should be inserted in batches
+     * (see {@link JdbcDirectory#flushPendingOutputs()}). Defaults to <code>false</code>.
+     */
+    public boolean isBatchInserts() {
+        return batchInserts;
+    }
+
+    /**
+     * Sets if files written to the directory should be inserted in batches
+     * (see {@link JdbcDirectory#flushPendingOutputs()}). Defaults to <code>false</code>.
+     */
+    public void setBatchInserts(boolean batchInserts) {
+        this.batchInserts = batchInserts;
+    }
 }
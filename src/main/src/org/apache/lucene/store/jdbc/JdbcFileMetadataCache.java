@@ -0,0 +1,238 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.store.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.lucene.index.LuceneFileNames;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.jdbc.support.JdbcTable;
+import org.apache.lucene.store.jdbc.support.JdbcTemplate;
+
+/**
+ * A snapshot of the metadata (name, size, last modified and deleted flag) of all the file entries
+ * of a {@link JdbcDirectory}, loaded using a single query. Allows to answer <code>fileExists</code>,
+ * <code>fileLength</code> and <code>fileModified</code> from memory.
+ * <p/>
+ * Lucene never changes a file once it was written (except for static files, see
+ * {@link LuceneFileNames#isStaticFile(String)}, and locks, which are never answered from the snapshot), and
+ * only deletes files after it commits a new segments generation. Files not found in the snapshot (for example,
+ * written by another process after it was loaded) are looked up in the database. Files written by this directory
+ * are marked as unknown in the snapshot (listed, but looked up in the database), and deleted ones are removed from it.
+ * <p/>
+ * The snapshot is validated against the generation stored in the <code>segments.gen</code> entry, and reloaded
+ * if it changed. The generation is only ever incremented, so (unlike the last modified column, which some
+ * databases only store in seconds precision) a change can not be missed. {@link #list()} always validates
+ * the snapshot, and the other operations validate it if it was not validated within the
+ * {@link JdbcDirectorySettings#getFileMetadataRevalidateInterval() revalidate interval}.
+ *
+ * @author kimchy
+ */
+public class JdbcFileMetadataCache {
+
+    private static final String SEGMENTS_GEN = "segments.gen";
+
+    private static final int SEGMENTS_GEN_FORMAT = -2;
+
+    private static final FileMetadata UNKNOWN = new FileMetadata(-1, -1, false);
+
+    private final JdbcDirectory jdbcDirectory;
+
+    private final JdbcTable table;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long revalidateInterval;
+
+    private HashMap files;
+
+    private long segmentsGeneration = -1;
+
+    private long lastValidated;
+
+    private final HashSet excludedNames = new HashSet();
+
+    public JdbcFileMetadataCache(JdbcDirectory jdbcDirectory) {
+        this.jdbcDirectory = jdbcDirectory;
+        this.table = jdbcDirectory.getTable();
+        this.jdbcTemplate = jdbcDirectory.getJdbcTemplate();
+        this.revalidateInterval = jdbcDirectory.getSettings().getFileMetadataRevalidateInterval();
+    }
+
+    /**
+     * Lists all the (not deleted) files, reloading the snapshot if the segments generation
+     * changed since it was loaded.
+     */
+    public synchronized String[] list() throws IOException {
+        validate();
+        ArrayList names = new ArrayList(files.size());
+        for (Iterator it = files.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (!((FileMetadata) entry.getValue()).deleted) {
+                names.add(entry.getKey());
+            }
+        }
+        return (String[]) names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Returns the known metadata of the file, or <code>null</code> if it should be looked up
+     * in the database.
+     */
+    public synchronized FileMetadata getFileMetadata(String name) throws IOException {
+        if (LuceneFileNames.isStaticFile(name) || excludedNames.contains(name)) {
+            return null;
+        }
+        if (files == null || System.currentTimeMillis() - lastValidated >= revalidateInterval) {
+            validate();
+        }
+        FileMetadata fileMetadata = (FileMetadata) files.get(name);
+        if (fileMetadata == UNKNOWN) {
+            return null;
+        }
+        return fileMetadata;
+    }
+
+    /**
+     * Excludes the given file from the snapshot, its metadata will always be looked up in the database.
+     * Used for entries that are changed without going through the directory (such as locks).
+     */
+    public synchronized void exclude(String name) {
+        excludedNames.add(name);
+    }
+
+    /**
+     * Marks the file as written by this directory. It will be listed, but its metadata will be looked up
+     * in the database. Writing <code>segments.gen</code> clears the snapshot.
+     */
+    public synchronized void fileWritten(String name) {
+        if (SEGMENTS_GEN.equals(name)) {
+            clear();
+            return;
+        }
+        if (files != null) {
+            files.put(name, UNKNOWN);
+        }
+    }
+
+    /**
+     * Removes the file from the snapshot, causing it to be looked up in the database.
+     */
+    public synchronized void fileDeleted(String name) {
+        if (files != null) {
+            files.remove(name);
+        }
+    }
+
+    /**
+     * Clears the snapshot. It will be reloaded on its next usage.
+     */
+    public synchronized void clear() {
+        files = null;
+        segmentsGeneration = -1;
+    }
+
+    private void validate() throws IOException {
+        long generation = readSegmentsGeneration();
+        // no (or a partially written) segments.gen means a new index, always reload it
+        if (files == null || generation == -1 || generation != segmentsGeneration) {
+            // the generation is read before the snapshot, so a commit in between is picked up next time
+            load();
+            segmentsGeneration = generation;
+        }
+        lastValidated = System.currentTimeMillis();
+    }
+
+    private void load() throws IOException {
+        files = (HashMap) jdbcTemplate.executeSelect(table.sqlSelectMetadata(), new JdbcTemplate.ExecuteSelectCallback() {
+            public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                // nothing to fill
+            }
+
+            public Object execute(ResultSet rs) throws Exception {
+                HashMap files = new HashMap();
+                while (rs.next()) {
+                    Timestamp ts = rs.getTimestamp(3);
+                    files.put(rs.getString(1), new FileMetadata(rs.getLong(2), ts == null ? 0 : ts.getTime(), rs.getBoolean(4)));
+                }
+                return files;
+            }
+        });
+    }
+
+    /**
+     * Reads the generation stored in <code>segments.gen</code> (written by Lucene twice, as a
+     * format followed by the same generation twice). Returns <code>-1</code> if it does not exist
+     * or can not be read.
+     */
+    private long readSegmentsGeneration() {
+        try {
+            // read directly using the handler, no need to flush pending outputs of the directory
+            IndexInput input = jdbcDirectory.getFileEntryHandler(SEGMENTS_GEN).openInput(SEGMENTS_GEN);
+            try {
+                if (input.readInt() != SEGMENTS_GEN_FORMAT) {
+                    return -1;
+                }
+                long gen0 = input.readLong();
+                long gen1 = input.readLong();
+                return gen0 == gen1 ? gen0 : -1;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The metadata of a single file entry.
+     */
+    public static class FileMetadata {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final boolean deleted;
+
+        public FileMetadata(long size, long lastModified, boolean deleted) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.deleted = deleted;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.store.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Caches prepared statements per (target) connection, so executing the same sql several times within the
+ * same transaction prepares it only once.
+ *
+ * <p>Only connections created by {@link TransactionAwareDataSourceProxy} are cached, since their lifecycle
+ * is known: the statements are closed when the most outer connection is closed (see
+ * {@link #releaseStatements(java.sql.Connection)}). Other connections always get a newly prepared statement
+ * that is closed on release.
+ *
+ * <p>A statement is removed from the cache while it is in use, so nested executions of the same sql get their
+ * own statement.
+ *
+ * @author kimchy
+ */
+public abstract class PreparedStatementCache {
+
+    private static final ThreadLocal statementHolder = new ThreadLocal();
+
+    /**
+     * Returns the cached prepared statement for the given sql, <code>null</code> if there is none (and the
+     * statement should be prepared). The statement should be returned using
+     * {@link #release(java.sql.Connection, String, java.sql.PreparedStatement, boolean)}.
+     */
+    public static PreparedStatement acquire(Connection connection, String sql) {
+        if (!(connection instanceof ConnectionProxy)) {
+            return null;
+        }
+        HashMap statements = getStatements(connection, false);
+        if (statements == null) {
+            return null;
+        }
+        return (PreparedStatement) statements.remove(sql);
+    }
+
+    /**
+     * Releases a prepared statement (either acquired from the cache or newly prepared). The statement is cached
+     * if the connection can be cached and the statement was used successfully, otherwise it is closed.
+     */
+    public static void release(Connection connection, String sql, PreparedStatement ps, boolean success) {
+        if (ps == null) {
+            return;
+        }
+        if (!success || !(connection instanceof ConnectionProxy)) {
+            DataSourceUtils.closeStatement(ps);
+            return;
+        }
+        try {
+            ps.clearParameters();
+        } catch (SQLException e) {
+            DataSourceUtils.closeStatement(ps);
+            return;
+        }
+        HashMap statements = getStatements(connection, true);
+        if (statements.containsKey(sql)) {
+            DataSourceUtils.closeStatement(ps);
+        } else {
+            statements.put(sql, ps);
+        }
+    }
+
+    /**
+     * Closes all the statements cached for the given connection. Called automatically when a connection
+     * created by {@link TransactionAwareDataSourceProxy} is closed.
+     */
+    public static void releaseStatements(Connection connection) {
+        HashMap statementsPerConn = (HashMap) statementHolder.get();
+        if (statementsPerConn == null) {
+            return;
+        }
+        HashMap statements = (HashMap) statementsPerConn.remove(DataSourceUtils.getTargetConnection(connection));
+        if (statementsPerConn.isEmpty()) {
+            statementHolder.set(null);
+        }
+        if (statements == null) {
+            return;
+        }
+        for (Iterator it = statements.values().iterator(); it.hasNext();) {
+            DataSourceUtils.closeStatement((PreparedStatement) it.next());
+        }
+    }
+
+    private static HashMap getStatements(Connection connection, boolean create) {
+        Connection targetConnection = DataSourceUtils.getTargetConnection(connection);
+        HashMap statementsPerConn = (HashMap) statementHolder.get();
+        if (statementsPerConn == null) {
+            if (!create) {
+                return null;
+            }
+            statementsPerConn = new HashMap();
+            statementHolder.set(statementsPerConn);
+        }
+        HashMap statements = (HashMap) statementsPerConn.get(targetConnection);
+        if (statements == null && create) {
+            statements = new HashMap();
+            statementsPerConn.put(targetConnection, statements);
+        }
+        return statements;
+    }
+}
@@ -219,6 +219,7 @@ public class TransactionAwareDataSourceProxy implements DataSource {
                     }
                     // clear transactional blobs as well
                     FetchPerTransactionJdbcIndexInput.releaseBlobs(transConnection);
+                    PreparedStatementCache.releaseStatements(transConnection);
                     transConnection.close();
                 }
                 return null;
@@ -45,6 +45,7 @@ public class ActualDeleteFileEntryHandler extends AbstractFileEntryHandler {
                 ps.setFetchSize(1);
                 for (Iterator it = names.iterator(); it.hasNext();) {
                     ps.setString(1, (String) it.next());
+                    ps.addBatch();
                 }
             }
         });
@@ -42,22 +42,48 @@ public abstract class AbstractJdbcIndexOutput extends JdbcBufferedIndexOutput {
 
     public void close() throws IOException {
         super.close();
-        final long length = length();
         doBeforeClose();
+        if (jdbcDirectory.getSettings().isBatchInserts()) {
+            // the directory will insert it (and call afterInsert) as part of the next batch
+            jdbcDirectory.addPendingOutput(this);
+            return;
+        }
         jdbcDirectory.getJdbcTemplate().executeUpdate(jdbcDirectory.getTable().sqlInsert(), new JdbcTemplate.PrepateStatementAwareCallback() {
             public void fillPrepareStatement(PreparedStatement ps) throws Exception {
-                ps.setFetchSize(1);
-                ps.setString(1, name);
-                InputStream is = openInputStream();
-                if (jdbcDirectory.getDialect().useInputStreamToInsertBlob()) {
-                    ps.setBinaryStream(2, is, (int) length());
-                } else {
-                    ps.setBlob(2, new InputStreamBlob(is, length));
-                }
-                ps.setLong(3, length);
-                ps.setBoolean(4, false);
+                fillInsertStatement(ps);
             }
         });
+        afterInsert();
+    }
+
+    /**
+     * Returns the name of the file.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the values of the (closed) file on the insert statement (see {@link org.apache.lucene.store.jdbc.support.JdbcTable#sqlInsert()}).
+     */
+    public void fillInsertStatement(PreparedStatement ps) throws Exception {
+        final long length = length();
+        ps.setFetchSize(1);
+        ps.setString(1, name);
+        InputStream is = openInputStream();
+        if (jdbcDirectory.getDialect().useInputStreamToInsertBlob()) {
+            ps.setBinaryStream(2, is, (int) length);
+        } else {
+            ps.setBlob(2, new InputStreamBlob(is, length));
+        }
+        ps.setLong(3, length);
+        ps.setBoolean(4, false);
+    }
+
+    /**
+     * Called once the file was inserted (or discarded), releasing its content.
+     */
+    public void afterInsert() throws IOException {
         doAfterClose();
     }
 
@@ -45,6 +45,7 @@ public class JdbcTable {
     private String sqlCreate;
     private String sqlDrop;
     private String sqlSelectNames;
+    private String sqlSelectMetadata;
     private String sqlSelectNameExists;
     private String sqlSelecltLastModifiedByName;
     private String sqlUpdateLastModifiedByName;
@@ -104,6 +105,13 @@ public class JdbcTable {
                 .append(" from ").append(getQualifiedName())
                 .append(" where ").append(deletedColumn.getQuotedName()).append(" = ?").toString();
 
+        sb.setLength(0);
+        sqlSelectMetadata = sb.append("select ").append(nameColumn.getQuotedName())
+                .append(", ").append(sizeColumn.getQuotedName())
+                .append(", ").append(lastModifiedColumn.getQuotedName())
+                .append(", ").append(deletedColumn.getQuotedName())
+                .append(" from ").append(getQualifiedName()).toString();
+
         sb.setLength(0);
         sqlSelectNameExists = sb.append("select ").append(deletedColumn.getQuotedName())
                 .append(" from ").append(getQualifiedName())
@@ -246,6 +254,10 @@ public class JdbcTable {
         return sqlSelectNames;
     }
 
+    public String sqlSelectMetadata() {
+        return sqlSelectMetadata;
+    }
+
     public String sqlSelectNameExists() {
         return sqlSelectNameExists;
     }
@@ -23,6 +23,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.sql.DataSource;
 
 import org.apache.commons.logging.Log;
@@ -30,11 +31,15 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.lucene.store.jdbc.JdbcDirectorySettings;
 import org.apache.lucene.store.jdbc.JdbcStoreException;
 import org.apache.lucene.store.jdbc.datasource.DataSourceUtils;
+import org.apache.lucene.store.jdbc.datasource.PreparedStatementCache;
 
 /**
  * Helper class that isused to encapsulate resource and transaction handling related to <code>DataSource</code>,
  * <code>Statement</code>, and <code>ResultSet</code>. {@link DataSourceUtils} is used to open/cose relevant
  * resources.
+ * <p/>
+ * Prepared statements are cached per transaction aware connection if enabled (see
+ * {@link JdbcDirectorySettings#isCacheStatements()} and {@link PreparedStatementCache}).
  *
  * @author kimchy
  * @see DataSourceUtils
@@ -86,6 +91,10 @@ public class JdbcTemplate {
 
     private JdbcDirectorySettings settings;
 
+    private final AtomicLong preparedStatements = new AtomicLong();
+
+    private final AtomicLong reusedStatements = new AtomicLong();
+
     /**
      * Creates a new <code>JdbcTemplate</code>.
      */
@@ -104,12 +113,15 @@ public class JdbcTemplate {
         Connection con = DataSourceUtils.getConnection(dataSource);
         PreparedStatement ps = null;
         ResultSet rs = null;
+        boolean success = false;
         try {
-            ps = con.prepareStatement(sql);
+            ps = prepareStatement(con, sql);
 //            ps.setQueryTimeout(settings.getQueryTimeout());
             callback.fillPrepareStatement(ps);
             rs = ps.executeQuery();
-            return callback.execute(rs);
+            Object result = callback.execute(rs);
+            success = true;
+            return result;
         } catch (JdbcStoreException e) {
             if (log.isTraceEnabled()) {
                 log.trace("Failed to execute sql [" + sql + "]", e);
@@ -122,7 +134,7 @@ public class JdbcTemplate {
             throw new JdbcStoreException("Failed to execute sql [" + sql + "]", e);
         } finally {
             DataSourceUtils.closeResultSet(rs);
-            DataSourceUtils.closeStatement(ps);
+            releaseStatement(con, sql, ps, success);
             DataSourceUtils.releaseConnection(con);
         }
     }
@@ -168,11 +180,13 @@ public class JdbcTemplate {
             throws JdbcStoreException {
         Connection con = DataSourceUtils.getConnection(dataSource);
         PreparedStatement ps = null;
+        boolean success = false;
         try {
-            ps = con.prepareStatement(sql);
+            ps = prepareStatement(con, sql);
 //            ps.setQueryTimeout(settings.getQueryTimeout());
             callback.fillPrepareStatement(ps);
             ps.executeUpdate();
+            success = true;
         } catch (JdbcStoreException e) {
             if (log.isTraceEnabled()) {
                 log.trace("Failed to execute sql [" + sql + "]", e);
@@ -184,7 +198,7 @@ public class JdbcTemplate {
             }
             throw new JdbcStoreException("Failed to execute sql [" + sql + "]", e);
         } finally {
-            DataSourceUtils.closeStatement(ps);
+            releaseStatement(con, sql, ps, success);
             DataSourceUtils.releaseConnection(con);
         }
     }
@@ -242,11 +256,14 @@ public class JdbcTemplate {
     public int[] executeBatch(String sql, PrepateStatementAwareCallback callback) throws JdbcStoreException {
         Connection con = DataSourceUtils.getConnection(dataSource);
         PreparedStatement ps = null;
+        boolean success = false;
         try {
-            ps = con.prepareStatement(sql);
+            ps = prepareStatement(con, sql);
 //            ps.setQueryTimeout(settings.getQueryTimeout());
             callback.fillPrepareStatement(ps);
-            return ps.executeBatch();
+            int[] result = ps.executeBatch();
+            success = true;
+            return result;
         } catch (JdbcStoreException e) {
             if (log.isTraceEnabled()) {
                 log.trace("Failed to execute sql [" + sql + "]", e);
@@ -258,8 +275,42 @@ public class JdbcTemplate {
             }
             throw new JdbcStoreException("Failed to execute sql [" + sql + "]", e);
         } finally {
-            DataSourceUtils.closeStatement(ps);
+            releaseStatement(con, sql, ps, success);
             DataSourceUtils.releaseConnection(con);
         }
     }
+
+    /**
+     * Returns the number of statements prepared by this template.
+     */
+    public long getPreparedStatementsCount() {
+        return preparedStatements.get();
+    }
+
+    /**
+     * Returns the number of times a cached prepared statement was reused by this template.
+     */
+    public long getReusedStatementsCount() {
+        return reusedStatements.get();
+    }
+
+    private PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        if (settings.isCacheStatements()) {
+            PreparedStatement ps = PreparedStatementCache.acquire(con, sql);
+            if (ps != null) {
+                reusedStatements.incrementAndGet();
+                return ps;
+            }
+        }
+        preparedStatements.incrementAndGet();
+        return con.prepareStatement(sql);
+    }
+
+    private void releaseStatement(Connection con, String sql, PreparedStatement ps, boolean success) {
+        if (settings.isCacheStatements()) {
+            PreparedStatementCache.release(con, sql, ps, success);
+        } else {
+            DataSourceUtils.closeStatement(ps);
+        }
+    }
 }
@@ -24,5 +24,12 @@ public enum Cascade {
     /**
      * Perform cascading for delete operations.
      */
-    DELETE
+    DELETE,
+
+    /**
+     * Re-index the root objects embedding the target association when it is saved or deleted. Not included
+     * in {@link #ALL}, and only applies to components and references. The embedding root objects are
+     * loaded from the index, so all of their properties must be stored.
+     */
+    REINDEX
 }
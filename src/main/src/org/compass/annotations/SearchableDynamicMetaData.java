@@ -82,6 +82,12 @@ public @interface SearchableDynamicMetaData {
      */
     Reverse reverse() default Reverse.NO;
 
+    /**
+     * Specifies whether companion properties should be indexed in order to speed up wildcard
+     * queries starting with a wildcard.
+     */
+    WildcardIndex wildcardIndex() default WildcardIndex.NO;
+
     /**
      * Specifies a specialized analyzer lookup name that will be used to analyze
      * the meta-data content.
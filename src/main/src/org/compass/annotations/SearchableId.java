@@ -153,6 +153,14 @@ public @interface SearchableId {
      */
     Reverse reverse() default Reverse.NO;
 
+    /**
+     * The wildcard index of the auto generated {@link SearchableMetaData}. Maps to
+     * {@link org.compass.annotations.SearchableMetaData#wildcardIndex()}.
+     * <p/>
+     * The meta-data will be auto generated only if the name has a value.
+     */
+    WildcardIndex wildcardIndex() default WildcardIndex.NO;
+
     /**
      * The analyzer of the auto generated {@link SearchableMetaData}. Maps to
      * {@link org.compass.annotations.SearchableMetaData#analyzer()}.
@@ -103,6 +103,12 @@ public @interface SearchableMetaData {
      */
     Reverse reverse() default Reverse.NO;
 
+    /**
+     * Specifies whether companion properties should be indexed in order to speed up wildcard
+     * queries starting with a wildcard.
+     */
+    WildcardIndex wildcardIndex() default WildcardIndex.NO;
+
     /**
      * Specifies a specialized analyzer lookup name that will be used to analyze
      * the meta-data content.
@@ -148,4 +154,10 @@ public @interface SearchableMetaData {
      * spell check index uses the "all" property.
      */
     SpellCheck spellCheck() default SpellCheck.EXCLUDE;
+
+    /**
+     * Controls how sorting on this property is performed. {@link Sortable#COLUMNAR} uses primitive
+     * columns built per segment instead of the Lucene field cache.
+     */
+    Sortable sortable() default Sortable.DEFAULT;
 }
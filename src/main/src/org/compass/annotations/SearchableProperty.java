@@ -184,6 +184,16 @@ public @interface SearchableProperty {
      */
     Reverse reverse() default Reverse.NO;
 
+    /**
+     * The wildcard index of the auto generated {@link SearchableMetaData}. Maps to
+     * {@link org.compass.annotations.SearchableMetaData#wildcardIndex()}.
+     *
+     * <p>The meta-data will NOT be auto generated if the field/property have
+     * {@link SearchableMetaData}/{@link SearchableMetaDatas} AND the
+     * {@link #name()} is not set.
+     */
+    WildcardIndex wildcardIndex() default WildcardIndex.NO;
+
     /**
      * The analyzer of the auto generated {@link SearchableMetaData}. Maps to
      * {@link org.compass.annotations.SearchableMetaData#analyzer()}.
@@ -240,4 +250,10 @@ public @interface SearchableProperty {
      * spell check index uses the "all" property.
      */
     SpellCheck spellCheck() default SpellCheck.EXCLUDE;
+
+    /**
+     * Controls how sorting on this property is performed. {@link Sortable#COLUMNAR} uses primitive
+     * columns built per segment instead of the Lucene field cache.
+     */
+    Sortable sortable() default Sortable.DEFAULT;
 }
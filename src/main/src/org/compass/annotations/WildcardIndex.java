@@ -0,0 +1,42 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.annotations;
+
+/**
+ * Specifies whether companion properties should be indexed for the meta-data in order to speed up
+ * wildcard queries starting with a wildcard.
+ *
+ * @author kimchy
+ */
+public enum WildcardIndex {
+    /**
+     * No companion property is indexed.
+     */
+    NO,
+
+    /**
+     * The terms of the meta-data are also indexed reversed. Speeds up suffix queries
+     * (such as <code>*1234</code>).
+     */
+    REVERSE,
+
+    /**
+     * All the suffixes (back edge n-grams) of the terms of the meta-data are also indexed. Speeds
+     * up both suffix and infix queries (such as <code>*123*</code>), at the cost of a larger index.
+     */
+    NGRAM
+}
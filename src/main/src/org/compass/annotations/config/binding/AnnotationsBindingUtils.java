@@ -29,9 +29,11 @@ import org.compass.annotations.OmitTf;
 import org.compass.annotations.Reverse;
 import org.compass.annotations.Store;
 import org.compass.annotations.TermVector;
+import org.compass.annotations.WildcardIndex;
 import org.compass.core.Property;
 import org.compass.core.mapping.ExcludeFromAll;
 import org.compass.core.mapping.ReverseType;
+import org.compass.core.mapping.Sortable;
 
 /**
  * @author kimchy
@@ -109,6 +111,17 @@ public abstract class AnnotationsBindingUtils {
         throw new IllegalArgumentException("Failed to convert reverse [" + reverse + "]");
     }
 
+    public static org.compass.core.mapping.WildcardIndex convert(WildcardIndex wildcardIndex) throws IllegalArgumentException {
+        if (wildcardIndex == WildcardIndex.NO) {
+            return org.compass.core.mapping.WildcardIndex.NO;
+        } else if (wildcardIndex == WildcardIndex.REVERSE) {
+            return org.compass.core.mapping.WildcardIndex.REVERSE;
+        } else if (wildcardIndex == WildcardIndex.NGRAM) {
+            return org.compass.core.mapping.WildcardIndex.NGRAM;
+        }
+        throw new IllegalArgumentException("Failed to convert wildcard index [" + wildcardIndex + "]");
+    }
+
     public static ExcludeFromAll convert(org.compass.annotations.ExcludeFromAll excludeFromAll) throws IllegalArgumentException {
         if (excludeFromAll == org.compass.annotations.ExcludeFromAll.NO) {
             return ExcludeFromAll.NO;
@@ -120,6 +133,15 @@ public abstract class AnnotationsBindingUtils {
         throw new IllegalArgumentException("Failed to convert exclude from all [" + excludeFromAll + "]");
     }
 
+    public static Sortable convert(org.compass.annotations.Sortable sortable) throws IllegalArgumentException {
+        if (sortable == org.compass.annotations.Sortable.DEFAULT) {
+            return Sortable.DEFAULT;
+        } else if (sortable == org.compass.annotations.Sortable.COLUMNAR) {
+            return Sortable.COLUMNAR;
+        }
+        throw new IllegalArgumentException("Failed to convert sortable [" + sortable + "]");
+    }
+
     public static Boolean convert(OmitNorms omitNorms) {
         if (omitNorms == OmitNorms.NA) {
             return null;
@@ -194,6 +216,8 @@ public abstract class AnnotationsBindingUtils {
             return org.compass.core.mapping.Cascade.DELETE;
         } else if (cascade == Cascade.SAVE) {
             return org.compass.core.mapping.Cascade.SAVE;
+        } else if (cascade == Cascade.REINDEX) {
+            return org.compass.core.mapping.Cascade.REINDEX;
         }
         throw new IllegalArgumentException("Failed to convert cascade [" + cascade + "]");
     }
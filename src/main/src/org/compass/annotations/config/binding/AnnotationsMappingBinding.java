@@ -719,6 +719,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
             mdMapping.setOmitNorms(AnnotationsBindingUtils.convert(searchableProp.omitNorms()));
             mdMapping.setOmitTf(AnnotationsBindingUtils.convert(searchableProp.omitTf()));
             mdMapping.setReverse(AnnotationsBindingUtils.convert(searchableProp.reverse()));
+            mdMapping.setWildcardIndex(AnnotationsBindingUtils.convert(searchableProp.wildcardIndex()));
 
             handleFormat(mdMapping, name, searchableProp.format());
 
@@ -826,6 +827,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
 
             bindConverter(mdMapping, searchableProp.converter(), clazz, type);
             bindSpellCheck(mdMapping, searchableProp.spellCheck());
+            mdMapping.setSortable(AnnotationsBindingUtils.convert(searchableProp.sortable()));
 
             mdMapping.setAccessor(classPropertyMapping.getAccessor());
             mdMapping.setPropertyName(classPropertyMapping.getPropertyName());
@@ -836,6 +838,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
             mdMapping.setOmitNorms(AnnotationsBindingUtils.convert(searchableProp.omitNorms()));
             mdMapping.setOmitTf(AnnotationsBindingUtils.convert(searchableProp.omitTf()));
             mdMapping.setReverse(AnnotationsBindingUtils.convert(searchableProp.reverse()));
+            mdMapping.setWildcardIndex(AnnotationsBindingUtils.convert(searchableProp.wildcardIndex()));
 
             handleFormat(mdMapping, name, searchableProp.format());
 
@@ -879,6 +882,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
 
         bindConverter(mdMapping, searchableMetaData.converter(), clazz, type);
         bindSpellCheck(mdMapping, searchableMetaData.spellCheck());
+        mdMapping.setSortable(AnnotationsBindingUtils.convert(searchableMetaData.sortable()));
 
         mdMapping.setAccessor(classPropertyMapping.getAccessor());
         mdMapping.setPropertyName(classPropertyMapping.getPropertyName());
@@ -889,6 +893,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
         mdMapping.setOmitNorms(AnnotationsBindingUtils.convert(searchableMetaData.omitNorms()));
         mdMapping.setOmitTf(AnnotationsBindingUtils.convert(searchableMetaData.omitTf()));
         mdMapping.setReverse(AnnotationsBindingUtils.convert(searchableMetaData.reverse()));
+        mdMapping.setWildcardIndex(AnnotationsBindingUtils.convert(searchableMetaData.wildcardIndex()));
 
         handleFormat(mdMapping, name, searchableMetaData.format());
 
@@ -928,6 +933,7 @@ public class AnnotationsMappingBinding extends AbstractClassMetaDataMappingBindi
         mdMapping.setIndex(AnnotationsBindingUtils.convert(searchableMetaData.index()));
         mdMapping.setTermVector(AnnotationsBindingUtils.convert(searchableMetaData.termVector()));
         mdMapping.setReverse(AnnotationsBindingUtils.convert(searchableMetaData.reverse()));
+        mdMapping.setWildcardIndex(AnnotationsBindingUtils.convert(searchableMetaData.wildcardIndex()));
 
         mdMapping.setInternal(false);
 
@@ -23,6 +23,7 @@ import org.compass.core.config.CompassSettings;
 import org.compass.core.engine.SearchEngineIndexManager;
 import org.compass.core.engine.SearchEngineOptimizer;
 import org.compass.core.engine.spellcheck.SearchEngineSpellCheckManager;
+import org.compass.core.metrics.CompassMetrics;
 
 /**
  * Creates a CompassSession. Usually an application has a single Compass object.
@@ -172,6 +173,12 @@ public interface Compass extends Serializable {
      */
     SearchEngineSpellCheckManager getSpellCheckManager();
 
+    /**
+     * Returns the metrics (query, marshalling, commit times, cache hit ratios and so on) collected
+     * by Compass.
+     */
+    CompassMetrics getMetrics();
+
     /**
      * Returns the settings Compass was started with.
      */
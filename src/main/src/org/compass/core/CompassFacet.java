@@ -0,0 +1,59 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core;
+
+/**
+ * The counts of a facet built using {@link CompassFacetsBuilder}.
+ *
+ * @author kimchy
+ * @see org.compass.core.CompassQuery#facetsBuilder()
+ */
+public interface CompassFacet {
+
+    public static enum Type {
+
+        /**
+         * The top values of a property.
+         */
+        TERM,
+
+        /**
+         * Values within numeric ranges.
+         */
+        RANGE,
+
+        /**
+         * Values within fixed (time) intervals.
+         */
+        DATE_HISTOGRAM
+    }
+
+    /**
+     * Returns the property name this facet is associated with.
+     */
+    String getPropertyName();
+
+    /**
+     * Returns the type of the facet.
+     */
+    Type getType();
+
+    /**
+     * Returns the entries of the facet. Term facet entries are sorted by count (highest first),
+     * range and histogram entries are sorted by value.
+     */
+    CompassFacetEntry[] getEntries();
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core;
+
+/**
+ * A single value of a {@link CompassFacet} and the number of hits it has.
+ *
+ * @author kimchy
+ */
+public interface CompassFacetEntry {
+
+    /**
+     * Returns the value of the entry. The term (<code>String</code>) for term facets, the
+     * range from boundary (<code>Double</code>) for range facets, and the bucket start
+     * (<code>Date</code> for date values, <code>Long</code> otherwise) for histogram facets.
+     */
+    Object getValue();
+
+    /**
+     * Returns the number of hits for the value.
+     */
+    long getCount();
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core;
+
+/**
+ * <p>A facets builder, allows to count the values of properties for all the hits
+ * that match a query. Created using {@link CompassQuery#facetsBuilder()}.
+ *
+ * <p>All the facets added are counted in a single pass over the hits of the query (instead
+ * of executing a count query per value). Values are read from per segment ordinals (see
+ * {@link org.compass.core.lucene.search.ColumnarFieldCache}) which are loaded once and shared
+ * between searches, so properties used for facets should be single valued and
+ * <code>UN_TOKENIZED</code>.
+ *
+ * <p>Three types of facets are supported. Term facets return the top values of a property
+ * with their counts. Range facets count the values that fall within ranges of numbers, and
+ * date histogram facets count values (dates or numbers) within fixed intervals.
+ *
+ * @author kimchy
+ */
+public interface CompassFacetsBuilder {
+
+    /**
+     * Adds a term facet for the given property, returning the top <code>10</code> values with
+     * the highest counts.
+     */
+    CompassFacetsBuilder addTermFacet(String propertyName);
+
+    /**
+     * Adds a term facet for the given property, returning the top <code>size</code> values with
+     * the highest counts.
+     */
+    CompassFacetsBuilder addTermFacet(String propertyName, int size);
+
+    /**
+     * Adds a range facet for the given property. The boundaries must be ascending, and each two
+     * consecutive boundaries define a range (from inclusive, to exclusive). Values are converted
+     * using the property converter, dates are counted by their time in milliseconds.
+     */
+    CompassFacetsBuilder addRangeFacet(String propertyName, double... boundaries);
+
+    /**
+     * Adds a date histogram facet for the given property, counting values within buckets of the
+     * given interval (in milliseconds for dates). Values are converted using the property converter.
+     */
+    CompassFacetsBuilder addDateHistogramFacet(String propertyName, long interval);
+
+    /**
+     * Counts and returns the facets, in the order they were added.
+     */
+    CompassFacet[] toFacets() throws CompassException;
+}
@@ -355,6 +355,12 @@ public interface CompassQuery {
      */
     long count(float minimumScore);
 
+    /**
+     * Creates a facets builder, which counts the values of properties for all the hits
+     * that match this query.
+     */
+    CompassFacetsBuilder facetsBuilder();
+
     /**
      * Clones the given query.
      */
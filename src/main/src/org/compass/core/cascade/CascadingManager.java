@@ -17,9 +17,13 @@
 package org.compass.core.cascade;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.compass.core.CompassException;
+import org.compass.core.CompassHits;
+import org.compass.core.Resource;
 import org.compass.core.config.CompassConfigurable;
 import org.compass.core.config.CompassEnvironment;
 import org.compass.core.config.CompassSettings;
@@ -28,9 +32,11 @@ import org.compass.core.mapping.Cascade;
 import org.compass.core.mapping.CascadeMapping;
 import org.compass.core.mapping.CompassMapping;
 import org.compass.core.mapping.ResourceMapping;
+import org.compass.core.mapping.osem.AbstractRefAliasMapping;
 import org.compass.core.spi.AliasedObject;
 import org.compass.core.spi.DirtyOperationContext;
 import org.compass.core.spi.InternalCompassSession;
+import org.compass.core.spi.ResourceKey;
 
 /**
  * Cascading manager supports perfoming cascade opeations on Objects.
@@ -45,6 +51,8 @@ public class CascadingManager implements CompassConfigurable {
 
     private CompassCascadeFilter cascadeFilter;
 
+    private int reindexBatchSize;
+
     public CascadingManager(InternalCompassSession session) {
         this.session = session;
         this.mapping = session.getMapping();
@@ -52,6 +60,7 @@ public class CascadingManager implements CompassConfigurable {
     }
 
     public void configure(CompassSettings settings) throws CompassException {
+        reindexBatchSize = settings.getSettingAsInt(CompassEnvironment.Cascade.REINDEX_BATCH_SIZE, 100);
         String filterName = settings.getSetting(CompassEnvironment.Cascade.FILTER_TYPE);
         if (filterName != null) {
             try {
@@ -151,6 +160,142 @@ public class CascadingManager implements CompassConfigurable {
         return retVal;
     }
 
+    /**
+     * Re-indexes the root objects embedding the given (just saved or deleted) object using a component or
+     * reference mapped with a {@link Cascade#REINDEX} cascade. Dependants are found using the
+     * UIDs recorded under the dependants path of the object mapping, and are loaded and saved in
+     * batches of {@link CompassEnvironment.Cascade#REINDEX_BATCH_SIZE}.
+     *
+     * <p>Components are unmarshalled from the (stale) index, so top level components of dependants
+     * matching the saved object are replaced with it before they are saved. References are resolved
+     * through the session first level cache, which already holds the saved object. When the object was
+     * deleted (<code>object</code> is <code>null</code>), it is removed from the dependants (or set to
+     * <code>null</code>) before they are saved. Since dependants are
+     * loaded from the index, their mappings must store all of their properties (validated when the
+     * mappings are processed).
+     *
+     * <p>Only aliases some root mapping embeds using a reindex cascade are looked up, and the lookup is
+     * restricted to the aliases of those root mappings.
+     *
+     * @return <code>true</code> if any dependant was re-indexed
+     */
+    public boolean reindexDependants(ResourceKey key, Object object, DirtyOperationContext context) throws CompassException {
+        if (cascadingDisabled()) return false;
+        String dependantsPath = key.getResourceMapping().getDependantsPath();
+        String[] dependantAliases = key.getResourceMapping().getDependantAliases();
+        if (dependantsPath == null || dependantAliases == null) {
+            return false;
+        }
+        String uid = key.buildUID();
+        boolean retVal = false;
+        CompassHits hits = session.queryBuilder().term(dependantsPath, uid).setAliases(dependantAliases).hits();
+        try {
+            List<Resource> batch = new ArrayList<Resource>(Math.min(reindexBatchSize, hits.length()));
+            for (int i = 0; i < hits.length(); i++) {
+                batch.add(hits.resource(i));
+                if (batch.size() >= reindexBatchSize) {
+                    reindexBatch(batch, uid, object, context);
+                    batch.clear();
+                }
+                retVal = true;
+            }
+            reindexBatch(batch, uid, object, context);
+        } finally {
+            hits.close();
+        }
+        return retVal;
+    }
+
+    private void reindexBatch(List<Resource> dependants, String uid, Object object, DirtyOperationContext context) {
+        ArrayList<Object> saved = new ArrayList<Object>(dependants.size());
+        for (Resource dependant : dependants) {
+            Object root = session.getByResource(dependant);
+            if (root == null || context.alreadyPerformedOperation(root)) {
+                continue;
+            }
+            ResourceMapping resourceMapping = mapping.getRootMappingByAlias(dependant.getAlias());
+            replaceDependency(resourceMapping, root, uid, object);
+            session.save(root, context);
+            saved.add(root);
+        }
+        // only keep the current batch in the first level cache
+        for (Object root : saved) {
+            session.evict(root);
+        }
+    }
+
+    private void replaceDependency(ResourceMapping resourceMapping, Object root, String uid, Object object) {
+        CascadeMapping[] cascadeMappings = resourceMapping.getCascadeMappings();
+        if (cascadeMappings == null) {
+            return;
+        }
+        for (CascadeMapping cascadeMapping : cascadeMappings) {
+            if (!(cascadeMapping instanceof AbstractRefAliasMapping) || !cascadeMapping.shouldCascade(Cascade.REINDEX)) {
+                continue;
+            }
+            AbstractRefAliasMapping refAliasMapping = (AbstractRefAliasMapping) cascadeMapping;
+            Object value = refAliasMapping.getCascadeValue(root);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Object[]) {
+                int length = Array.getLength(value);
+                ArrayList<Object> kept = new ArrayList<Object>(length);
+                for (int i = 0; i < length; i++) {
+                    Object element = Array.get(value, i);
+                    if (!isDependency(element, uid, object)) {
+                        kept.add(element);
+                    } else if (object != null) {
+                        Array.set(value, i, object);
+                        kept.add(object);
+                    }
+                }
+                if (kept.size() < length && refAliasMapping.getSetter() != null) {
+                    refAliasMapping.getSetter().set(root, kept.toArray((Object[]) Array.newInstance(value.getClass().getComponentType(), kept.size())));
+                }
+            } else if (value instanceof List) {
+                List list = (List) value;
+                for (int i = list.size() - 1; i >= 0; i--) {
+                    if (isDependency(list.get(i), uid, object)) {
+                        if (object == null) {
+                            list.remove(i);
+                        } else {
+                            list.set(i, object);
+                        }
+                    }
+                }
+            } else if (value instanceof Collection) {
+                Collection collection = (Collection) value;
+                ArrayList<Object> stale = new ArrayList<Object>();
+                for (Object o : collection) {
+                    if (isDependency(o, uid, object)) {
+                        stale.add(o);
+                    }
+                }
+                if (!stale.isEmpty()) {
+                    collection.removeAll(stale);
+                    if (object != null) {
+                        collection.add(object);
+                    }
+                }
+            } else if (isDependency(value, uid, object) && refAliasMapping.getSetter() != null) {
+                refAliasMapping.getSetter().set(root, object);
+            }
+        }
+    }
+
+    private boolean isDependency(Object value, String uid, Object object) {
+        if (value == null || value == object) {
+            return false;
+        }
+        try {
+            ResourceMapping valueMapping = mapping.getRootMappingByClass(value.getClass());
+            return valueMapping != null && uid.equals(new ResourceKey(valueMapping, session.getMarshallingStrategy().marshallIds(valueMapping, value)).buildUID());
+        } catch (CompassException e) {
+            return false;
+        }
+    }
+
     private void cascadeOperation(Cascade cascade, Object value, DirtyOperationContext context) {
         // TODO what happens if there are several aliases for value
         if (value == null) {
@@ -20,10 +20,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -63,6 +71,8 @@ import org.compass.core.mapping.internal.InternalCompassMapping;
 import org.compass.core.metadata.CompassMetaData;
 import org.compass.core.metadata.impl.DefaultCompassMetaData;
 import org.compass.core.util.ClassUtils;
+import org.compass.core.util.CopyUtils;
+import org.compass.core.util.concurrent.NamedThreadFactory;
 import org.compass.core.util.matcher.AntPathMatcher;
 import org.compass.core.util.matcher.PathMatcher;
 
@@ -578,6 +588,9 @@ public class CompassConfiguration {
                 return false;
             }
         };
+        // first, read all the scanned items (sequentially, as scanners are not thread safe)
+        final List<String> names = new ArrayList<String>();
+        final List<byte[]> datas = new ArrayList<byte[]>();
         while (urls.hasMoreElements()) {
             URL url = urls.nextElement();
             Scanner scanner;
@@ -590,7 +603,10 @@ public class CompassConfiguration {
                 ScanItem si;
                 while ((si = scanner.next()) != null) {
                     try {
-                        getMappingBinding().addInputStream(si.getInputStream(), si.getName());
+                        datas.add(CopyUtils.copyToByteArray(si.getInputStream()));
+                        names.add(si.getName());
+                    } catch (IOException e) {
+                        throw new ConfigurationException("Failed to read scanned resource [" + si.getName() + "]", e);
                     } finally {
                         si.close();
                     }
@@ -599,6 +615,51 @@ public class CompassConfiguration {
                 scanner.close();
             }
         }
+
+        // parse them concurrently
+        final Object[][] parsed = new Object[names.size()][];
+        int concurrency = Math.min(settings.getSettingAsInt(CompassEnvironment.Scanner.CONCURRENCY, Runtime.getRuntime().availableProcessors()), names.size());
+        if (concurrency <= 1) {
+            for (int i = 0; i < parsed.length; i++) {
+                parsed[i] = getMappingBinding().parseInputStream(datas.get(i), names.get(i));
+            }
+        } else {
+            final CompassMappingBinding mappingBinding = getMappingBinding();
+            final AtomicInteger index = new AtomicInteger();
+            ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                tasks.add(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        for (int idx = index.getAndIncrement(); idx < parsed.length; idx = index.getAndIncrement()) {
+                            parsed[idx] = mappingBinding.parseInputStream(datas.get(idx), names.get(idx));
+                        }
+                        return null;
+                    }
+                });
+            }
+            ExecutorService executorService = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("Compass Scanner", true));
+            try {
+                for (Future<Object> future : executorService.invokeAll(tasks)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof CompassException) {
+                            throw (CompassException) e.getCause();
+                        }
+                        throw new ConfigurationException("Failed to parse scanned resources for basePackage [" + basePackage + "]", e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new ConfigurationException("Interrupted while parsing scanned resources for basePackage [" + basePackage + "]", e);
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+
+        // and bind them sequentially, in the order they were found
+        for (int i = 0; i < parsed.length; i++) {
+            getMappingBinding().addParsed(parsed[i], names.get(i));
+        }
         return this;
     }
 
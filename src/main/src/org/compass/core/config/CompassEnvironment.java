@@ -860,6 +860,12 @@ public class CompassEnvironment {
          * allows filtering of create/insert/delete cascade operations.
          */
         public static final String FILTER_TYPE = "compass.cascade.filter.type";
+
+        /**
+         * The number of dependant root objects loaded and re-indexed at a time when an object marked
+         * with a <code>reindex</code> cascade is saved or deleted. Defaults to <code>100</code>.
+         */
+        public static final String REINDEX_BATCH_SIZE = "compass.cascade.reindex.batchSize";
     }
 
     public abstract class NullValue {
@@ -1000,6 +1006,14 @@ public class CompassEnvironment {
         private static final String PREFIX = "compass.scanner.";
 
         public static final String READER = PREFIX + "reader";
+
+        /**
+         * The number of threads used to parse (read class meta data and parse mapping definitions)
+         * scanned resources. Binding of the parsed mappings is always done sequentially, in the same
+         * order the resources were found. Defaults to the number of available processors. Set to
+         * <code>1</code> in order to parse on the calling thread.
+         */
+        public static final String CONCURRENCY = PREFIX + "concurrency";
     }
 
     /**
@@ -1041,5 +1055,22 @@ public class CompassEnvironment {
         public static final String ASM = "asm";
     }
 
+    /**
+     * Settings controlling the metrics Compass collects (see {@link org.compass.core.metrics.CompassMetrics}).
+     */
+    public abstract static class Metrics {
+
+        /**
+         * Should metrics be collected. Defaults to <code>true</code>.
+         */
+        public static final String ENABLED = "compass.metrics.enabled";
+
+        /**
+         * Should the metrics be exposed using JMX (registered with the platform MBean server). Defaults
+         * to <code>false</code>.
+         */
+        public static final String JMX = "compass.metrics.jmx";
+    }
+
     public static final String DEBUG = "compass.debug";
 }
@@ -16,6 +16,7 @@
 
 package org.compass.core.config;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
@@ -26,6 +27,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.compass.core.config.binding.MappingBinding;
+import org.compass.core.config.binding.ParsingMappingBinding;
 import org.compass.core.mapping.ContractMapping;
 import org.compass.core.mapping.MappingException;
 import org.compass.core.mapping.ResourceMapping;
@@ -196,6 +198,49 @@ public class CompassMappingBinding implements MappingBinding {
         return hasAddedResource;
     }
 
+    /**
+     * Parses the given resource content with each of the registered mapping bindings. Thread safe and
+     * does not change the mappings. The result should be passed to {@link #addParsed(Object[], String)}.
+     *
+     * @see org.compass.core.config.binding.ParsingMappingBinding
+     */
+    public Object[] parseInputStream(byte[] data, String resourceName) throws ConfigurationException, MappingException {
+        Object[] parsed = new Object[mappingBindings.size()];
+        for (int i = 0; i < parsed.length; i++) {
+            MappingBinding mappingBinding = mappingBindings.get(i);
+            if (mappingBinding instanceof ParsingMappingBinding) {
+                parsed[i] = ((ParsingMappingBinding) mappingBinding).parseInputStream(new ByteArrayInputStream(data), resourceName);
+            } else {
+                parsed[i] = data;
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Adds the result of {@link #parseInputStream(byte[], String)} to the mappings. Must be called
+     * sequentially.
+     */
+    public boolean addParsed(Object[] parsed, String resourceName) throws ConfigurationException, MappingException {
+        boolean hasAddedResource = false;
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] == null) {
+                continue;
+            }
+            MappingBinding mappingBinding = mappingBindings.get(i);
+            boolean retVal;
+            if (mappingBinding instanceof ParsingMappingBinding) {
+                retVal = ((ParsingMappingBinding) mappingBinding).addParsed(parsed[i], resourceName);
+            } else {
+                retVal = mappingBinding.addInputStream(new ByteArrayInputStream((byte[]) parsed[i]), resourceName);
+            }
+            if (retVal) {
+                hasAddedResource = true;
+            }
+        }
+        return hasAddedResource;
+    }
+
     public String[] getSuffixes() {
         return this.suffixes;
     }
@@ -28,13 +28,27 @@ public abstract class AbstractClassMetaDataMappingBinding extends AbstractInputS
     }
 
     protected boolean doAddInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException {
+        Object parsed = doParseInputStream(is, resourceName);
+        return parsed != null && doAddParsed(parsed, resourceName);
+    }
+
+    /**
+     * Reads the class meta data (thread safe) and returns it only if it is applicable
+     * to this binding.
+     */
+    protected Object doParseInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException {
         if (metaDataReader == null) {
-            return false;
+            return null;
         }
         ClassMetaData classMetaData = metaDataReader.getClassMetaData(is, resourceName);
         if (!isApplicable(classMetaData)) {
-            return false;
+            return null;
         }
+        return classMetaData;
+    }
+
+    protected boolean doAddParsed(Object parsed, String resourceName) throws ConfigurationException, MappingException {
+        ClassMetaData classMetaData = (ClassMetaData) parsed;
         try {
             addClass(ClassUtils.forName(classMetaData.getClassName(), settings.getClassLoader()));
         } catch (ClassNotFoundException e) {
@@ -33,6 +33,16 @@ public abstract class AbstractConfigurationHelperMappingBinding extends Abstract
         return doAddConfiguration(conf);
     }
 
+    protected Object doParseInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException {
+        ConfigurationHelper conf = doParseConfigurationHelper(is, resourceName);
+        conf.makeReadOnly();
+        return conf;
+    }
+
+    protected boolean doAddParsed(Object parsed, String resourceName) throws ConfigurationException, MappingException {
+        return doAddConfiguration((ConfigurationHelper) parsed);
+    }
+
     protected abstract ConfigurationHelper doParseConfigurationHelper(InputStream is, String resourceName) throws ConfigurationException;
 
     protected abstract boolean doAddConfiguration(ConfigurationHelper conf) throws ConfigurationException, MappingException;
@@ -16,6 +16,7 @@
 
 package org.compass.core.config.binding;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -37,11 +38,12 @@ import org.compass.core.mapping.MappingException;
 import org.compass.core.mapping.ResourceMapping;
 import org.compass.core.mapping.internal.InternalCompassMapping;
 import org.compass.core.metadata.CompassMetaData;
+import org.compass.core.util.CopyUtils;
 
 /**
  * @author kimchy
  */
-public abstract class AbstractInputStreamMappingBinding implements MappingBinding {
+public abstract class AbstractInputStreamMappingBinding implements ParsingMappingBinding {
 
     protected final Log log = LogFactory.getLog(getClass());
 
@@ -180,19 +182,24 @@ public abstract class AbstractInputStreamMappingBinding implements MappingBindin
         return internalAddInputStream(is, resourceName, false);
     }
 
+    /**
+     * Parses the input stream by calling {@link #doParseInputStream(java.io.InputStream, String)} only if
+     * the resource name matches one of this binding suffixes.
+     */
+    public Object parseInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException {
+        if (!matchesSuffix(resourceName)) {
+            return null;
+        }
+        return doParseInputStream(is, resourceName);
+    }
+
+    public boolean addParsed(Object parsed, String resourceName) throws ConfigurationException, MappingException {
+        return parsed != null && doAddParsed(parsed, resourceName);
+    }
+
     private boolean internalAddInputStream(InputStream is, String resourceName, boolean closeStream) throws ConfigurationException, MappingException {
         try {
-            boolean matchedOnSuffix = false;
-            for (String suffix : getSuffixes()) {
-                if (resourceName.endsWith(suffix)) {
-                    matchedOnSuffix = true;
-                    break;
-                }
-            }
-            if (!matchedOnSuffix) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Resource name [" + resourceName + "] does not end with suffix [" + Arrays.toString(getSuffixes()) + "], ignoring");
-                }
+            if (!matchesSuffix(resourceName)) {
                 return false;
             }
             return doAddInputStream(is, resourceName);
@@ -207,6 +214,38 @@ public abstract class AbstractInputStreamMappingBinding implements MappingBindin
         }
     }
 
+    private boolean matchesSuffix(String resourceName) {
+        for (String suffix : getSuffixes()) {
+            if (resourceName.endsWith(suffix)) {
+                return true;
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Resource name [" + resourceName + "] does not end with suffix [" + Arrays.toString(getSuffixes()) + "], ignoring");
+        }
+        return false;
+    }
+
     protected abstract boolean doAddInputStream(InputStream is, String resourceName)
             throws ConfigurationException, MappingException;
+
+    /**
+     * Parses the input stream in a thread safe manner without changing the mappings. Defaults to
+     * reading the stream into a byte array, subclasses should override it (and
+     * {@link #doAddParsed(Object, String)}) in order to actually parse it concurrently.
+     */
+    protected Object doParseInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException {
+        try {
+            return CopyUtils.copyToByteArray(is);
+        } catch (IOException e) {
+            throw new ConfigurationException("Failed to read resource [" + resourceName + "]", e);
+        }
+    }
+
+    /**
+     * Adds the result of {@link #doParseInputStream(java.io.InputStream, String)} to the mappings.
+     */
+    protected boolean doAddParsed(Object parsed, String resourceName) throws ConfigurationException, MappingException {
+        return doAddInputStream(new ByteArrayInputStream((byte[]) parsed), resourceName);
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.config.binding;
+
+import java.io.InputStream;
+
+import org.compass.core.config.ConfigurationException;
+import org.compass.core.mapping.MappingException;
+
+/**
+ * A {@link org.compass.core.config.binding.MappingBinding} that splits adding an input stream
+ * into two phases. The parse phase ({@link #parseInputStream(java.io.InputStream, String)}) must
+ * be thread safe and does not change the mapping, allowing to parse several resources concurrently
+ * (for example, when scanning). The bind phase ({@link #addParsed(Object, String)}) is always
+ * called sequentially, in the order the resources were found, and actually adds the mappings.
+ *
+ * @author kimchy
+ */
+public interface ParsingMappingBinding extends MappingBinding {
+
+    /**
+     * Parses the given input stream into an internal representation that can later be passed
+     * to {@link #addParsed(Object, String)}. Returns <code>null</code> if this binding does not
+     * apply to the given resource. Must be thread safe. The caller is responsible for closing
+     * the input stream.
+     */
+    Object parseInputStream(InputStream is, String resourceName) throws ConfigurationException, MappingException;
+
+    /**
+     * Adds the result of {@link #parseInputStream(java.io.InputStream, String)} to the mappings.
+     *
+     * @return <code>true</code> if mappings were added
+     */
+    boolean addParsed(Object parsed, String resourceName) throws ConfigurationException, MappingException;
+}
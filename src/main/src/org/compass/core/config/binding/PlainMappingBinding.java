@@ -33,7 +33,9 @@ import org.compass.core.mapping.Cascade;
 import org.compass.core.mapping.ExcludeFromAll;
 import org.compass.core.mapping.MappingException;
 import org.compass.core.mapping.ReverseType;
+import org.compass.core.mapping.Sortable;
 import org.compass.core.mapping.SpellCheck;
+import org.compass.core.mapping.WildcardIndex;
 import org.compass.core.mapping.internal.DefaultAllMapping;
 import org.compass.core.mapping.internal.DefaultContractMapping;
 import org.compass.core.mapping.internal.InternalAliasMapping;
@@ -401,6 +403,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
         jsonPropertyMapping.setValueConverterName(jsonPropConf.getAttribute("value-converter", null));
 
         bindSpellCheck(jsonPropConf, jsonPropertyMapping);
+        bindSortable(jsonPropConf, jsonPropertyMapping);
     }
 
     private void bindXmlContract(ConfigurationHelper contractConf, InternalContractMapping contractMapping)
@@ -540,6 +543,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
         xmlPropertyMapping.setValueConverterName(xmlPropConf.getAttribute("value-converter", null));
 
         bindSpellCheck(xmlPropConf, xmlPropertyMapping);
+        bindSortable(xmlPropConf, xmlPropertyMapping);
     }
 
     private void bindResourceContract(ConfigurationHelper contractConf, InternalContractMapping contractMapping)
@@ -642,6 +646,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
         bindResourcePropertyMapping(resourcePropConf, propertyMapping, aliasMapping);
 
         bindSpellCheck(resourcePropConf, propertyMapping);
+        bindSortable(resourcePropConf, propertyMapping);
     }
 
     private void bindContract(ConfigurationHelper contractConf, InternalContractMapping contractMapping)
@@ -845,6 +850,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
 
         bindConverter(dynamicConf, dynamicMetaDataMapping);
         bindSpellCheck(dynamicConf, dynamicMetaDataMapping);
+        bindSortable(dynamicConf, dynamicMetaDataMapping);
         bindResourcePropertyMapping(dynamicConf, dynamicMetaDataMapping, aliasMapping);
 
         boolean override = dynamicConf.getAttributeAsBoolean("override", true);
@@ -1071,6 +1077,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
         bindResourcePropertyMapping(metadataConf, mdMapping, classPropertyMapping.getBoost(),
                 classPropertyMapping.getExcludeFromAll(), classPropertyMapping.getAnalyzer());
         bindSpellCheck(metadataConf, mdMapping);
+        bindSortable(metadataConf, mdMapping);
     }
 
     private void bindExtends(ConfigurationHelper conf, InternalAliasMapping mapping) throws ConfigurationException {
@@ -1144,6 +1151,10 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
         mapping.setSpellCheck(SpellCheck.fromString(conf.getAttribute("spell-check", "na")));
     }
 
+    private void bindSortable(ConfigurationHelper conf, InternalResourcePropertyMapping mapping) {
+        mapping.setSortable(Sortable.fromString(conf.getAttribute("sortable", "default")));
+    }
+
     private void bindSpellCheck(ConfigurationHelper conf, InternalResourceMapping mapping) {
         mapping.setSpellCheck(SpellCheck.fromString(conf.getAttribute("spell-check", "na")));
     }
@@ -1221,6 +1232,7 @@ public abstract class PlainMappingBinding extends AbstractConfigurationHelperMap
 
         String reverseType = conf.getAttribute("reverse", "no");
         mapping.setReverse(ReverseType.fromString(reverseType));
+        mapping.setWildcardIndex(WildcardIndex.fromString(conf.getAttribute("wildcard-index", "no")));
         mapping.setAnalyzer(conf.getAttribute("analyzer", analyzer));
         mapping.setNullValue(conf.getAttribute("null-value", null));
         String excludeFromAll = conf.getAttribute("exclude-from-all", ExcludeFromAll.toString(excludeFromAllType));
@@ -27,7 +27,11 @@ import org.compass.core.mapping.CascadeMapping;
 import org.compass.core.mapping.CompassMapping;
 import org.compass.core.mapping.Mapping;
 import org.compass.core.mapping.MappingException;
+import org.compass.core.mapping.ResourceMapping;
+import org.compass.core.mapping.internal.InternalResourceMapping;
 import org.compass.core.mapping.osem.AbstractCollectionMapping;
+import org.compass.core.mapping.osem.AbstractRefAliasMapping;
+import org.compass.core.mapping.osem.ClassMapping;
 import org.compass.core.mapping.support.AbstractResourceMapping;
 
 /**
@@ -35,6 +39,11 @@ import org.compass.core.mapping.support.AbstractResourceMapping;
  * finds all the {@link org.compass.core.mapping.CascadeMapping} in order to set them
  * at the resource mapping level {@link org.compass.core.mapping.ResourceMapping#getCascadeMappings()}.
  *
+ * <p>Components and references of root mappings with a {@link org.compass.core.mapping.Cascade#REINDEX}
+ * cascade get the (internal) dependency path under which the root resource records the UIDs of their
+ * targets, and the root mappings of the targets get the same path as their dependants path, as well as
+ * the alias of the embedding root mapping as one of their dependant aliases.
+ *
  * @author kimchy
  */
 public class CascadingMappingProcessor implements MappingProcessor {
@@ -42,6 +51,8 @@ public class CascadingMappingProcessor implements MappingProcessor {
     public CompassMapping process(CompassMapping compassMapping, PropertyNamingStrategy namingStrategy,
                                   ConverterLookup converterLookup, CompassSettings settings) throws MappingException {
 
+        String dependencyPath = namingStrategy.buildPath(namingStrategy.getRootPath(), "dependency").getPath().intern();
+
         for (AliasMapping aliasMapping : compassMapping.getMappings()) {
             if (!(aliasMapping instanceof AbstractResourceMapping)) {
                 continue;
@@ -60,6 +71,13 @@ public class CascadingMappingProcessor implements MappingProcessor {
                     }
                 }
             }
+            if (resourceMapping.isRoot()) {
+                for (Object cascade : cascades) {
+                    if (cascade instanceof AbstractRefAliasMapping) {
+                        processReindex(compassMapping, resourceMapping, (AbstractRefAliasMapping) cascade, dependencyPath);
+                    }
+                }
+            }
             if (cascades.size() > 0) {
                 resourceMapping.setCascades((CascadeMapping[]) cascades.toArray(new CascadeMapping[cascades.size()]));
             } else {
@@ -69,4 +87,19 @@ public class CascadingMappingProcessor implements MappingProcessor {
 
         return compassMapping;
     }
+
+    private void processReindex(CompassMapping compassMapping, ResourceMapping resourceMapping,
+                                AbstractRefAliasMapping refAliasMapping, String dependencyPath) {
+        if (!refAliasMapping.shouldCascadeReindex() || refAliasMapping.getRefClassMappings() == null) {
+            return;
+        }
+        refAliasMapping.setDependencyPath(dependencyPath);
+        for (ClassMapping refClassMapping : refAliasMapping.getRefClassMappings()) {
+            ResourceMapping targetMapping = compassMapping.getRootMappingByAlias(refClassMapping.getAlias());
+            if (targetMapping != null) {
+                ((InternalResourceMapping) targetMapping).setDependantsPath(dependencyPath);
+                ((InternalResourceMapping) targetMapping).addDependantAlias(resourceMapping.getAlias());
+            }
+        }
+    }
 }
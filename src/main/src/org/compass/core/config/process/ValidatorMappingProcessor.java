@@ -18,6 +18,7 @@ package org.compass.core.config.process;
 
 import java.util.Iterator;
 
+import org.compass.core.Property;
 import org.compass.core.config.CompassSettings;
 import org.compass.core.converter.ConverterLookup;
 import org.compass.core.engine.naming.PropertyNamingStrategy;
@@ -28,6 +29,8 @@ import org.compass.core.mapping.Mapping;
 import org.compass.core.mapping.MappingException;
 import org.compass.core.mapping.ResourceMapping;
 import org.compass.core.mapping.ResourcePropertyMapping;
+import org.compass.core.mapping.osem.AbstractCollectionMapping;
+import org.compass.core.mapping.osem.AbstractRefAliasMapping;
 import org.compass.core.mapping.osem.ClassMapping;
 import org.compass.core.mapping.osem.RefAliasObjectMapping;
 
@@ -49,6 +52,7 @@ public class ValidatorMappingProcessor implements MappingProcessor {
     private void validateRootMapping(ResourceMapping resourceMapping) throws MappingException {
         validatieHasAtLeastOneId(resourceMapping);
         validateMulitRefAliasHasPoly(resourceMapping);
+        validateReindexCascadeFullyStored(resourceMapping);
         String[] resourcePropertyNames = resourceMapping.getResourcePropertyNames();
         for (int i = 0; i < resourcePropertyNames.length; i++) {
             String propertyName = resourcePropertyNames[i];
@@ -90,6 +94,43 @@ public class ValidatorMappingProcessor implements MappingProcessor {
 
     }
 
+    /**
+     * Root objects embedding a component or reference with a reindex cascade are re-saved after they are
+     * loaded from the index, so all of their properties must be stored (and they must support unmarshalling).
+     */
+    private void validateReindexCascadeFullyStored(ResourceMapping resourceMapping) {
+        if (!(resourceMapping instanceof ClassMapping)) {
+            return;
+        }
+        ClassMapping classMapping = (ClassMapping) resourceMapping;
+        boolean reindex = false;
+        for (Iterator it = classMapping.mappingsIt(); it.hasNext();) {
+            Mapping innerMapping = (Mapping) it.next();
+            if (innerMapping instanceof AbstractCollectionMapping) {
+                innerMapping = ((AbstractCollectionMapping) innerMapping).getElementMapping();
+            }
+            if (innerMapping instanceof AbstractRefAliasMapping && ((AbstractRefAliasMapping) innerMapping).getDependencyPath() != null) {
+                reindex = true;
+                break;
+            }
+        }
+        if (!reindex) {
+            return;
+        }
+        if (!classMapping.isSupportUnmarshall()) {
+            throw new MappingException("Mapping for alias [" + classMapping.getAlias() + "] has a reindex cascade, " +
+                    "but does not support unmarshalling");
+        }
+        ResourcePropertyMapping[] propertyMappings = classMapping.getResourcePropertyMappings();
+        for (int i = 0; i < propertyMappings.length; i++) {
+            if (!propertyMappings[i].isInternal() && propertyMappings[i].getStore() == Property.Store.NO) {
+                throw new MappingException("Mapping for alias [" + classMapping.getAlias() + "] has a reindex cascade, " +
+                        "but resource property / meta-data [" + propertyMappings[i].getPath().getPath() + "] is not stored. " +
+                        "Reindexed objects are loaded from the index, all their properties must be stored");
+            }
+        }
+    }
+
     private void validateDuplicateExcludeFromAll(ResourceMapping resourceMapping, String propertyName,
                                                  ResourcePropertyMapping[] resourcePropertyMapping) throws MappingException {
         if (resourcePropertyMapping.length == 1) {
@@ -3,6 +3,7 @@ package org.compass.core.converter.dynamic;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.compass.core.Property;
 import org.compass.core.Resource;
@@ -20,6 +21,10 @@ import org.compass.core.marshall.MarshallingContext;
  * <p>Also holds a {@link FormatConverter} for expression that return formatable
  * objects (like Date).
  *
+ * <p>Keeps track of the number of evaluations and the time spent evaluating the
+ * expression (a converter instance is created for each dynamic meta data mapping, so
+ * the statistics are per expression).
+ *
  * @author kimchy
  */
 public abstract class AbstractDynamicConverter extends AbstractBasicConverter implements DynamicConverter {
@@ -28,6 +33,10 @@ public abstract class AbstractDynamicConverter extends AbstractBasicConverter im
 
     private Class type;
 
+    private final AtomicLong evaluationCount = new AtomicLong();
+
+    private final AtomicLong evaluationTime = new AtomicLong();
+
     public DynamicConverter copy() {
         try {
             DynamicConverter converter = getClass().newInstance();
@@ -51,7 +60,14 @@ public abstract class AbstractDynamicConverter extends AbstractBasicConverter im
         if (root == null) {
             return false;
         }
-        Object value = evaluate(root, resourcePropertyMapping);
+        Object value;
+        long start = System.nanoTime();
+        try {
+            value = evaluate(root, resourcePropertyMapping);
+        } finally {
+            evaluationTime.addAndGet(System.nanoTime() - start);
+            evaluationCount.incrementAndGet();
+        }
         if (value == null) {
             if (resourcePropertyMapping.hasNullValue()) {
                 addProperty(resourcePropertyMapping.getNullValue(), resourcePropertyMapping, root, context, resource);
@@ -119,6 +135,20 @@ public abstract class AbstractDynamicConverter extends AbstractBasicConverter im
         return null;
     }
 
+    /**
+     * Returns the number of times the expression was evaluated.
+     */
+    public long getEvaluationCount() {
+        return evaluationCount.get();
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) spent evaluating the expression.
+     */
+    public long getEvaluationTimeInNanos() {
+        return evaluationTime.get();
+    }
+
     public Class getType() {
         return type;
     }
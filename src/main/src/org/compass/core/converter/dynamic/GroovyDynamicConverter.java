@@ -3,26 +3,36 @@ package org.compass.core.converter.dynamic;
 import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
 import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
 
 /**
+ * Evaluates a Groovy script. The script is compiled once into a script class, and each
+ * thread gets its own script instance (with its own binding) out of it.
+ *
  * @author kimchy
  */
 public class GroovyDynamicConverter extends AbstractDynamicConverter {
 
     private String expression;
 
+    private Class scriptClass;
+
     private ThreadSafeExpressionEvaluator expressionEvaluator;
 
     public void setExpression(final String expression) throws ConversionException {
         this.expression = expression;
-        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(10, 20,
-                new ExpressionEvaluatorFactory() {
-                    public ExpressionEvaluator create() throws ConversionException {
-                        return new GroovyExpressionEvaluator();
-                    }
-                });
+        try {
+            this.scriptClass = new GroovyShell().parse(expression).getClass();
+        } catch (Exception e) {
+            throw new ConversionException("Failed to compile expression [" + expression + "]", e);
+        }
+        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(new ExpressionEvaluatorFactory() {
+            public ExpressionEvaluator create() throws ConversionException {
+                return new GroovyExpressionEvaluator();
+            }
+        });
     }
 
 
@@ -32,21 +42,22 @@ public class GroovyDynamicConverter extends AbstractDynamicConverter {
 
     public class GroovyExpressionEvaluator implements ExpressionEvaluator {
 
-        private Script script;
+        private final Binding binding = new Binding();
+
+        private final Script script;
 
         public GroovyExpressionEvaluator() {
-            this.script = new GroovyShell().parse(expression);
+            this.script = InvokerHelper.createScript(scriptClass, binding);
         }
 
         public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-            Binding binding = new Binding();
             binding.setVariable(DATA_CONTEXT_KEY, o);
-            // thread safe so we are ok
-            script.setBinding(binding);
             try {
                 return script.run();
             } catch (Exception e) {
                 throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + expression + "]", e);
+            } finally {
+                binding.setVariable(DATA_CONTEXT_KEY, null);
             }
         }
     }
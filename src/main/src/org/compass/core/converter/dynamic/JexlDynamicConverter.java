@@ -24,27 +24,47 @@ import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
 
 /**
+ * Evaluates a Jexl expression. The expression is created once, and each thread reuses
+ * its own {@link org.apache.commons.jexl.JexlContext}.
+ *
  * @author kimchy
  */
 public class JexlDynamicConverter extends AbstractDynamicConverter {
 
     private Expression expression;
 
+    private ExpressionEvaluator expressionEvaluator;
+
     public void setExpression(String expression) throws ConversionException {
         try {
             this.expression = ExpressionFactory.createExpression(expression);
         } catch (Exception e) {
             throw new ConversionException("Failed to compile expression [" + expression + "]", e);
         }
+        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(new ExpressionEvaluatorFactory() {
+            public ExpressionEvaluator create() throws ConversionException {
+                return new JexlExpressionEvaluator();
+            }
+        });
     }
 
     protected Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-        JexlContext jc = JexlHelper.createContext();
-        jc.getVars().put(DATA_CONTEXT_KEY, o);
-        try {
-            return expression.evaluate(jc);
-        } catch (Exception e) {
-            throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + expression + "]", e);
+        return expressionEvaluator.evaluate(o, resourcePropertyMapping);
+    }
+
+    private class JexlExpressionEvaluator implements ExpressionEvaluator {
+
+        private final JexlContext jc = JexlHelper.createContext();
+
+        public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
+            jc.getVars().put(DATA_CONTEXT_KEY, o);
+            try {
+                return expression.evaluate(jc);
+            } catch (Exception e) {
+                throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + expression + "]", e);
+            } finally {
+                jc.getVars().remove(DATA_CONTEXT_KEY);
+            }
         }
     }
 }
@@ -17,6 +17,7 @@
 package org.compass.core.converter.dynamic;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
@@ -25,19 +26,41 @@ import org.mvel2.templates.TemplateCompiler;
 import org.mvel2.templates.TemplateRuntime;
 
 /**
+ * Evaluates an MVEL template. The template is compiled once, and each thread reuses its
+ * own variables map.
+ *
  * @author kimchy
  */
 public class MVELDynamicConverter extends AbstractDynamicConverter {
 
     private CompiledTemplate compiledTemplate;
 
+    private ExpressionEvaluator expressionEvaluator;
+
     public void setExpression(String expression) throws ConversionException {
         this.compiledTemplate = TemplateCompiler.compileTemplate(expression);
+        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(new ExpressionEvaluatorFactory() {
+            public ExpressionEvaluator create() throws ConversionException {
+                return new MVELExpressionEvaluator();
+            }
+        });
     }
 
     protected Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-        HashMap<String, Object> map = new HashMap<String, Object>();
-        map.put(DATA_CONTEXT_KEY, o);
-        return TemplateRuntime.execute(compiledTemplate, map);
+        return expressionEvaluator.evaluate(o, resourcePropertyMapping);
+    }
+
+    private class MVELExpressionEvaluator implements ExpressionEvaluator {
+
+        private final Map<String, Object> vars = new HashMap<String, Object>();
+
+        public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
+            vars.put(DATA_CONTEXT_KEY, o);
+            try {
+                return TemplateRuntime.execute(compiledTemplate, vars);
+            } finally {
+                vars.clear();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -6,27 +6,47 @@ import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
 
 /**
+ * Evaluates an OGNL expression. The expression is parsed once, and each thread reuses
+ * its own {@link ognl.OgnlContext}.
+ *
  * @author kimchy
  */
 public class OgnlDynamicConverter extends AbstractDynamicConverter {
 
     private Object expression;
 
+    private ExpressionEvaluator expressionEvaluator;
+
     public void setExpression(String expression) throws ConversionException {
         try {
             this.expression = Ognl.parseExpression(expression);
         } catch (Exception e) {
             throw new ConversionException("Failed to compile expression [" + expression + "]", e);
         }
+        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(new ExpressionEvaluatorFactory() {
+            public ExpressionEvaluator create() throws ConversionException {
+                return new OgnlExpressionEvaluator();
+            }
+        });
     }
 
     protected Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-        OgnlContext ctx = new OgnlContext();
-        ctx.put(DATA_CONTEXT_KEY, o);
-        try {
-            return Ognl.getValue(expression, ctx, o);
-        } catch (Exception e) {
-            throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + expression + "]", e);
+        return expressionEvaluator.evaluate(o, resourcePropertyMapping);
+    }
+
+    private class OgnlExpressionEvaluator implements ExpressionEvaluator {
+
+        private final OgnlContext ctx = new OgnlContext();
+
+        public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
+            ctx.put(DATA_CONTEXT_KEY, o);
+            try {
+                return Ognl.getValue(expression, ctx, o);
+            } catch (Exception e) {
+                throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + expression + "]", e);
+            } finally {
+                ctx.clear();
+            }
         }
     }
 }
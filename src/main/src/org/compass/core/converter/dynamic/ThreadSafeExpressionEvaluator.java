@@ -1,78 +1,58 @@
 package org.compass.core.converter.dynamic;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
 
 /**
- * A pool of {@link ExpressionEvaluator}s where the dynamic expression library
- * does not provide a high performance thread save evaluation.
+ * Thread safe {@link ExpressionEvaluator} for cases where the dynamic expression library
+ * does not provide a high performance thread save evaluation. Each thread lazily gets its
+ * own {@link ExpressionEvaluator} (created using the {@link ExpressionEvaluatorFactory}),
+ * which allows evaluators to reuse their evaluation context without any locking.
+ *
+ * <p>Evaluators should hold the compiled (thread safe) form of the expression which is
+ * shared, and only keep the (non thread safe) evaluation context per thread.
+ *
+ * <p>The per thread evaluators are owned by this instance (weakly keyed by thread), and the
+ * threads only keep a weak reference to them. Evaluators usually reference their converter,
+ * so this makes sure a pooled thread does not keep a discarded converter (and its mapping) alive.
  *
  * @author kimchy
  */
 public class ThreadSafeExpressionEvaluator implements ExpressionEvaluator {
 
-    private final int initialPoolSize;
-
-    private final int maxPoolSize;
-
-    private transient ExpressionEvaluator[] pool;
+    private final ExpressionEvaluatorFactory expressionEvaluatorFactory;
 
-    private int nextAvailable = 0;
+    private final ThreadLocal<WeakReference<ExpressionEvaluator>> evaluators = new ThreadLocal<WeakReference<ExpressionEvaluator>>();
 
-    private final Object mutex = new Object();
+    private final Map<Thread, ExpressionEvaluator> threadEvaluators = Collections.synchronizedMap(new WeakHashMap<Thread, ExpressionEvaluator>());
 
-    private final ExpressionEvaluatorFactory expressionEvaluatorFactory;
+    public ThreadSafeExpressionEvaluator(ExpressionEvaluatorFactory expressionEvaluatorFactory) {
+        this.expressionEvaluatorFactory = expressionEvaluatorFactory;
+    }
 
+    /**
+     * @deprecated evaluators are no longer pooled but kept per thread, pool sizes are ignored.
+     *             Use {@link #ThreadSafeExpressionEvaluator(ExpressionEvaluatorFactory)}.
+     */
+    @Deprecated
     public ThreadSafeExpressionEvaluator(int initialPoolSize, int maxPoolSize,
                                          ExpressionEvaluatorFactory expressionEvaluatorFactory) {
-        this.initialPoolSize = initialPoolSize;
-        this.maxPoolSize = maxPoolSize;
-        this.expressionEvaluatorFactory = expressionEvaluatorFactory;
+        this(expressionEvaluatorFactory);
     }
 
-
     public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-        ExpressionEvaluator expressionEvaluator = fetchFromPool();
-        try {
-            return expressionEvaluator.evaluate(o, resourcePropertyMapping);
-        } finally {
-            putInPool(expressionEvaluator);
-        }
-    }
-
-    private ExpressionEvaluator fetchFromPool() {
-        ExpressionEvaluator result;
-        synchronized (mutex) {
-            if (pool == null) {
-                nextAvailable = -1;
-                pool = new ExpressionEvaluator[maxPoolSize];
-                for (int i = 0; i < initialPoolSize; i++) {
-                    putInPool(expressionEvaluatorFactory.create());
-                }
-            }
-            while (nextAvailable < 0) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException e) {
-                    throw new ConversionException("Interrupted whilst waiting for a free item in the pool", e);
-                }
-            }
-            result = pool[nextAvailable];
-            nextAvailable--;
-        }
-        if (result == null) {
-            result = expressionEvaluatorFactory.create();
-            putInPool(result);
+        WeakReference<ExpressionEvaluator> ref = evaluators.get();
+        ExpressionEvaluator expressionEvaluator = (ref != null) ? ref.get() : null;
+        if (expressionEvaluator == null) {
+            expressionEvaluator = expressionEvaluatorFactory.create();
+            threadEvaluators.put(Thread.currentThread(), expressionEvaluator);
+            evaluators.set(new WeakReference<ExpressionEvaluator>(expressionEvaluator));
         }
-        return result;
+        return expressionEvaluator.evaluate(o, resourcePropertyMapping);
     }
-
-    private void putInPool(ExpressionEvaluator expressionEvaluator) {
-        synchronized (mutex) {
-            nextAvailable++;
-            pool[nextAvailable] = expressionEvaluator;
-            mutex.notify();
-        }
-    }
-
 }
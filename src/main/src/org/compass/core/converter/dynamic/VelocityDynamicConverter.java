@@ -16,19 +16,35 @@
 
 package org.compass.core.converter.dynamic;
 
+import java.io.StringReader;
+
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.Velocity;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.RuntimeSingleton;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
 import org.compass.core.converter.ConversionException;
 import org.compass.core.mapping.ResourcePropertyMapping;
 import org.compass.core.util.StringBuilderWriter;
 
 /**
+ * Evaluates a Velocity template. The template is parsed and initialized once (the same way
+ * Velocity handles cached templates) and rendered for each evaluation, with each thread
+ * reusing its own {@link org.apache.velocity.VelocityContext}.
+ *
  * @author kimchy
  */
 public class VelocityDynamicConverter extends AbstractDynamicConverter {
 
+    private static final String LOG_TAG = "compass-dynamic";
+
     private String vtl;
 
+    private SimpleNode nodeTree;
+
+    private ExpressionEvaluator expressionEvaluator;
+
     public void setExpression(String expression) throws ConversionException {
         this.vtl = expression;
         try {
@@ -36,18 +52,49 @@ public class VelocityDynamicConverter extends AbstractDynamicConverter {
         } catch (Exception e) {
             throw new ConversionException("Failed to initialize velocity", e);
         }
+        try {
+            RuntimeServices runtimeServices = RuntimeSingleton.getRuntimeServices();
+            SimpleNode nodeTree = RuntimeSingleton.parse(new StringReader(vtl), LOG_TAG);
+            InternalContextAdapterImpl ica = new InternalContextAdapterImpl(new VelocityContext());
+            ica.pushCurrentTemplateName(LOG_TAG);
+            try {
+                nodeTree.init(ica, runtimeServices);
+            } finally {
+                ica.popCurrentTemplateName();
+            }
+            this.nodeTree = nodeTree;
+        } catch (Exception e) {
+            throw new ConversionException("Failed to compile expression [" + vtl + "]", e);
+        }
+        this.expressionEvaluator = new ThreadSafeExpressionEvaluator(new ExpressionEvaluatorFactory() {
+            public ExpressionEvaluator create() throws ConversionException {
+                return new VelocityExpressionEvaluator();
+            }
+        });
     }
 
     protected Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
-        VelocityContext ctx = new VelocityContext();
-        ctx.put(DATA_CONTEXT_KEY, o);
+        return expressionEvaluator.evaluate(o, resourcePropertyMapping);
+    }
 
-        StringBuilderWriter sw = StringBuilderWriter.Cached.cached();
-        try {
-            Velocity.evaluate(ctx, sw, "", vtl);
-        } catch (Exception e) {
-            throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + vtl + "]", e);
+    private class VelocityExpressionEvaluator implements ExpressionEvaluator {
+
+        private final VelocityContext ctx = new VelocityContext();
+
+        public Object evaluate(Object o, ResourcePropertyMapping resourcePropertyMapping) throws ConversionException {
+            ctx.put(DATA_CONTEXT_KEY, o);
+            StringBuilderWriter sw = StringBuilderWriter.Cached.cached();
+            InternalContextAdapterImpl ica = new InternalContextAdapterImpl(ctx);
+            ica.pushCurrentTemplateName(LOG_TAG);
+            try {
+                nodeTree.render(ica, sw);
+            } catch (Exception e) {
+                throw new ConversionException("Failed to evaluate [" + o + "] with expression [" + vtl + "]", e);
+            } finally {
+                ica.popCurrentTemplateName();
+                ctx.remove(DATA_CONTEXT_KEY);
+            }
+            return sw.toString();
         }
-        return sw.toString();
     }
 }
@@ -16,16 +16,19 @@
 
 package org.compass.core.converter.mapping.osem;
 
+import org.compass.core.CompassException;
 import org.compass.core.Property;
 import org.compass.core.Resource;
 import org.compass.core.converter.ConversionException;
 import org.compass.core.converter.Converter;
 import org.compass.core.converter.mapping.CollectionResourceWrapper;
 import org.compass.core.mapping.Mapping;
+import org.compass.core.mapping.ResourceMapping;
 import org.compass.core.mapping.osem.ClassMapping;
 import org.compass.core.mapping.osem.RefAliasObjectMapping;
 import org.compass.core.marshall.MarshallingContext;
 import org.compass.core.marshall.MarshallingEnvironment;
+import org.compass.core.spi.ResourceKey;
 import org.compass.core.util.ClassUtils;
 import org.compass.core.util.StringUtils;
 
@@ -46,12 +49,40 @@ public abstract class AbstractRefAliasMappingConverter implements Converter {
         Object current = context.getAttribute(MarshallingEnvironment.ATTRIBUTE_CURRENT);
         Object parent = context.setAttribute(MarshallingEnvironment.ATTRIBUTE_PARENT, current);
         try {
-            return doMarshall(resource, root, refAliasMapping, classMapping, context);
+            boolean stored = doMarshall(resource, root, refAliasMapping, classMapping, context);
+            if (root != null && refAliasMapping.getDependencyPath() != null) {
+                marshallDependency(resource, root, refAliasMapping, classMapping, context);
+            }
+            return stored;
         } finally {
             context.setAttribute(MarshallingEnvironment.ATTRIBUTE_PARENT, parent);
         }
     }
 
+    /**
+     * Records the UID of the (root) object this mapping points to under the dependency path of the
+     * mapping, allowing to find the resources embedding it when it changes.
+     */
+    private void marshallDependency(Resource resource, Object root, RefAliasObjectMapping refAliasMapping,
+                                    ClassMapping classMapping, MarshallingContext context) {
+        ResourceMapping rootMapping = context.getCompassMapping().getRootMappingByAlias(classMapping.getAlias());
+        if (rootMapping == null) {
+            return;
+        }
+        String uid;
+        try {
+            uid = new ResourceKey(rootMapping, context.getMarshallingStrategy().marshallIds(rootMapping, root)).buildUID();
+        } catch (CompassException e) {
+            // the object has no ids yet, nothing to depend on
+            return;
+        }
+        Property property = context.getResourceFactory().createProperty(refAliasMapping.getDependencyPath(), uid,
+                Property.Store.NO, Property.Index.NOT_ANALYZED);
+        property.setOmitNorms(true);
+        property.setOmitTf(true);
+        resource.addProperty(property);
+    }
+
     protected abstract boolean doMarshall(Resource resource, Object root, RefAliasObjectMapping hasRefAliasMapping,
                                           ClassMapping refMapping, MarshallingContext context) throws ConversionException;
 
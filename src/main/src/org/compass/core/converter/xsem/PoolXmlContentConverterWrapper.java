@@ -7,6 +7,7 @@ import org.compass.core.config.CompassConfigurable;
 import org.compass.core.config.CompassEnvironment;
 import org.compass.core.config.CompassSettings;
 import org.compass.core.converter.ConversionException;
+import org.compass.core.util.concurrent.NonBlockingPool;
 import org.compass.core.xml.AliasedXmlObject;
 import org.compass.core.xml.XmlObject;
 
@@ -16,8 +17,8 @@ import org.compass.core.xml.XmlObject;
  * for both {@link #toXml(org.compass.core.xml.XmlObject)} and {@link #fromXml(String, java.io.Reader)}.
  * <p/>
  * The pool has a maximum capacity, to limit overhead. If all instances in the
- * pool are in use and another is required, it shall block until one becomes
- * available.
+ * pool are in use and another is required, it shall wait until one becomes
+ * available. Checking out and returning a converter does not lock, see {@link NonBlockingPool}.
  *
  * @author kimchy
  */
@@ -25,15 +26,7 @@ public class PoolXmlContentConverterWrapper implements XmlContentConverterWrappe
 
     private CompassSettings settings;
 
-    private int initialPoolSize;
-
-    private int maxPoolSize;
-
-    private transient XmlContentConverter[] pool;
-
-    private int nextAvailable = 0;
-
-    private final Object mutex = new Object();
+    private NonBlockingPool<XmlContentConverter> pool;
 
     /**
      * Configures the pool used from {@link CompassEnvironment.Xsem.XmlContent#MIN_POOL_SIZE} and
@@ -41,11 +34,13 @@ public class PoolXmlContentConverterWrapper implements XmlContentConverterWrappe
      */
     public void configure(CompassSettings settings) throws CompassException {
         this.settings = settings;
-        this.initialPoolSize = settings.getGloablSettings().getSettingAsInt(CompassEnvironment.Xsem.XmlContent.MIN_POOL_SIZE, 10);
-        this.maxPoolSize = settings.getGloablSettings().getSettingAsInt(CompassEnvironment.Xsem.XmlContent.MAX_POOL_SIZE, 30);
-        // warm up the pool
-        XmlContentConverter converter = fetchFromPool();
-        putInPool(converter);
+        int initialPoolSize = settings.getGloablSettings().getSettingAsInt(CompassEnvironment.Xsem.XmlContent.MIN_POOL_SIZE, 10);
+        int maxPoolSize = settings.getGloablSettings().getSettingAsInt(CompassEnvironment.Xsem.XmlContent.MAX_POOL_SIZE, 30);
+        this.pool = new NonBlockingPool<XmlContentConverter>(initialPoolSize, maxPoolSize, new NonBlockingPool.Factory<XmlContentConverter>() {
+            public XmlContentConverter create() {
+                return createContentConverter();
+            }
+        });
     }
 
     /**
@@ -59,7 +54,7 @@ public class PoolXmlContentConverterWrapper implements XmlContentConverterWrappe
         try {
             return converter.toXml(xmlObject);
         } finally {
-            putInPool(converter);
+            pool.release(converter);
         }
     }
 
@@ -74,7 +69,7 @@ public class PoolXmlContentConverterWrapper implements XmlContentConverterWrappe
         try {
             return converter.fromXml(alias, xml);
         } finally {
-            putInPool(converter);
+            pool.release(converter);
         }
     }
 
@@ -82,38 +77,27 @@ public class PoolXmlContentConverterWrapper implements XmlContentConverterWrappe
         return XmlContentConverterUtils.createXmlContentConverter(settings);
     }
 
-    private XmlContentConverter fetchFromPool() {
-        XmlContentConverter result;
-        synchronized (mutex) {
-            if (pool == null) {
-                nextAvailable = -1;
-                pool = new XmlContentConverter[maxPoolSize];
-                for (int i = 0; i < initialPoolSize; i++) {
-                    putInPool(createContentConverter());
-                }
-            }
-            while (nextAvailable < 0) {
-                try {
-                    mutex.wait();
-                } catch (InterruptedException e) {
-                    throw new ConversionException("Interrupted whilst waiting for a free item in the pool", e);
-                }
-            }
-            result = pool[nextAvailable];
-            nextAvailable--;
-        }
-        if (result == null) {
-            result = createContentConverter();
-            putInPool(result);
-        }
-        return result;
+    /**
+     * Returns the number of times a thread had to wait for a converter since all the pooled
+     * converters were in use.
+     */
+    public long getWaitCount() {
+        return pool.getWaitCount();
     }
 
-    private void putInPool(XmlContentConverter converter) {
-        synchronized (mutex) {
-            nextAvailable++;
-            pool[nextAvailable] = converter;
-            mutex.notify();
+    /**
+     * Returns the total time (in nanoseconds) threads waited for a converter to be available.
+     */
+    public long getWaitTimeInNanos() {
+        return pool.getWaitTimeInNanos();
+    }
+
+    private XmlContentConverter fetchFromPool() {
+        try {
+            return pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Interrupted whilst waiting for a free item in the pool", e);
         }
     }
 }
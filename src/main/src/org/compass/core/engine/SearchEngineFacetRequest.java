@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.engine;
+
+import org.compass.core.CompassFacet;
+
+/**
+ * A facet to be counted by {@link SearchEngineQuery#facets(SearchEngine, SearchEngineFacetRequest[])}.
+ *
+ * @author kimchy
+ */
+public class SearchEngineFacetRequest {
+
+    private final CompassFacet.Type type;
+
+    private final String propertyName;
+
+    private int size;
+
+    private double[] boundaries;
+
+    private long interval;
+
+    public SearchEngineFacetRequest(CompassFacet.Type type, String propertyName) {
+        this.type = type;
+        this.propertyName = propertyName;
+    }
+
+    public CompassFacet.Type getType() {
+        return type;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * The number of top values returned by a term facet.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * The ascending boundaries of a range facet.
+     */
+    public double[] getBoundaries() {
+        return boundaries;
+    }
+
+    public void setBoundaries(double[] boundaries) {
+        this.boundaries = boundaries;
+    }
+
+    /**
+     * The interval of a histogram facet.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+}
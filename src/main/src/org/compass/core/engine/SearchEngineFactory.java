@@ -23,6 +23,7 @@ import org.compass.core.engine.naming.PropertyNamingStrategy;
 import org.compass.core.engine.spellcheck.SearchEngineSpellCheckManager;
 import org.compass.core.executor.ExecutorManager;
 import org.compass.core.mapping.CompassMapping;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.transaction.context.TransactionContext;
 
 /**
@@ -98,6 +99,11 @@ public interface SearchEngineFactory {
      */
     ExecutorManager getExecutorManager();
 
+    /**
+     * Returns the metrics collected by the search engine.
+     */
+    CompassMetrics getMetrics();
+
     /**
      * Closes the factory.
      * 
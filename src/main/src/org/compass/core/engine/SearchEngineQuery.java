@@ -65,5 +65,7 @@ public interface SearchEngineQuery {
 
     long count(SearchEngine searchEngine, float minimumScore);
 
+    SearchEngineFacets facets(SearchEngine searchEngine, SearchEngineFacetRequest[] requests) throws SearchEngineException;
+
     Object clone() throws CloneNotSupportedException;
 }
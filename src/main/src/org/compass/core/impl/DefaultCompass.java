@@ -57,6 +57,7 @@ import org.compass.core.lucene.LuceneEnvironment;
 import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
 import org.compass.core.mapping.CompassMapping;
 import org.compass.core.metadata.CompassMetaData;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.spi.InternalCompass;
 import org.compass.core.spi.InternalCompassSession;
 import org.compass.core.transaction.InternalCompassTransaction;
@@ -335,6 +336,10 @@ public class DefaultCompass implements InternalCompass, Referenceable {
         return searchEngineFactory.getIndexManager();
     }
 
+    public CompassMetrics getMetrics() {
+        return searchEngineFactory.getMetrics();
+    }
+
     public SearchEngineSpellCheckManager getSpellCheckManager() {
         return searchEngineFactory.getSpellCheckManager();
     }
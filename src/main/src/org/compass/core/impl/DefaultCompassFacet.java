@@ -0,0 +1,49 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.impl;
+
+import org.compass.core.CompassFacet;
+import org.compass.core.CompassFacetEntry;
+
+/**
+ * @author kimchy
+ */
+public class DefaultCompassFacet implements CompassFacet {
+
+    private String propertyName;
+
+    private Type type;
+
+    private CompassFacetEntry[] entries;
+
+    public DefaultCompassFacet(String propertyName, Type type, CompassFacetEntry[] entries) {
+        this.propertyName = propertyName;
+        this.type = type;
+        this.entries = entries;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public CompassFacetEntry[] getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.impl;
+
+import org.compass.core.CompassFacetEntry;
+
+/**
+ * @author kimchy
+ */
+public class DefaultCompassFacetEntry implements CompassFacetEntry {
+
+    private Object value;
+
+    private long count;
+
+    public DefaultCompassFacetEntry(Object value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String toString() {
+        return value + "[" + count + "]";
+    }
+}
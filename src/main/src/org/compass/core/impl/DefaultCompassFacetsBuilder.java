@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.impl;
+
+import java.util.ArrayList;
+
+import org.compass.core.CompassException;
+import org.compass.core.CompassFacet;
+import org.compass.core.CompassFacetsBuilder;
+import org.compass.core.engine.SearchEngineFacetRequest;
+import org.compass.core.engine.SearchEngineQuery;
+import org.compass.core.spi.InternalCompassSession;
+
+/**
+ * @author kimchy
+ */
+public class DefaultCompassFacetsBuilder implements CompassFacetsBuilder {
+
+    private InternalCompassSession session;
+
+    private SearchEngineQuery searchEngineQuery;
+
+    private ArrayList<SearchEngineFacetRequest> requests = new ArrayList<SearchEngineFacetRequest>();
+
+    public DefaultCompassFacetsBuilder(InternalCompassSession session, SearchEngineQuery searchEngineQuery) {
+        this.session = session;
+        this.searchEngineQuery = searchEngineQuery;
+    }
+
+    public CompassFacetsBuilder addTermFacet(String propertyName) {
+        return addTermFacet(propertyName, 10);
+    }
+
+    public CompassFacetsBuilder addTermFacet(String propertyName, int size) {
+        SearchEngineFacetRequest request = new SearchEngineFacetRequest(CompassFacet.Type.TERM, getPath(propertyName));
+        request.setSize(size);
+        requests.add(request);
+        return this;
+    }
+
+    public CompassFacetsBuilder addRangeFacet(String propertyName, double... boundaries) {
+        if (boundaries == null || boundaries.length < 2) {
+            throw new IllegalArgumentException("Range facet for [" + propertyName + "] requires at least two boundaries");
+        }
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException("Range facet for [" + propertyName + "] boundaries must be ascending");
+            }
+        }
+        SearchEngineFacetRequest request = new SearchEngineFacetRequest(CompassFacet.Type.RANGE, getPath(propertyName));
+        request.setBoundaries(boundaries);
+        requests.add(request);
+        return this;
+    }
+
+    public CompassFacetsBuilder addDateHistogramFacet(String propertyName, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Histogram facet for [" + propertyName + "] requires a positive interval, got [" + interval + "]");
+        }
+        SearchEngineFacetRequest request = new SearchEngineFacetRequest(CompassFacet.Type.DATE_HISTOGRAM, getPath(propertyName));
+        request.setInterval(interval);
+        requests.add(request);
+        return this;
+    }
+
+    public CompassFacet[] toFacets() throws CompassException {
+        if (requests.isEmpty()) {
+            return new CompassFacet[0];
+        }
+        return searchEngineQuery.facets(session.getSearchEngine(), requests.toArray(new SearchEngineFacetRequest[requests.size()])).getFacets();
+    }
+
+    private String getPath(String propertyName) {
+        return session.getMapping().getResourcePropertyLookup(propertyName).getPath();
+    }
+}
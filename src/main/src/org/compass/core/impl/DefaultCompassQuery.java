@@ -19,6 +19,7 @@ package org.compass.core.impl;
 import java.util.Locale;
 
 import org.compass.core.CompassException;
+import org.compass.core.CompassFacetsBuilder;
 import org.compass.core.CompassHits;
 import org.compass.core.CompassQuery;
 import org.compass.core.CompassQueryFilter;
@@ -194,6 +195,10 @@ public class DefaultCompassQuery implements InternalCompassQuery, Cloneable {
         return searchEngineQuery.count(session().getSearchEngine(), minimumScore);
     }
 
+    public CompassFacetsBuilder facetsBuilder() {
+        return new DefaultCompassFacetsBuilder(session(), searchEngineQuery);
+    }
+
     public CompassHits hits() throws CompassException {
         InternalCompassSession session = session();
         SearchEngineHits searchEngineHits = searchEngineQuery.hits(session.getSearchEngine());
@@ -458,6 +458,9 @@ public class DefaultCompassSession implements InternalCompassSession {
         }
         context.addOperatedObjects(object);
         boolean performedCascading = cascadingManager.cascade(alias, object, Cascade.SAVE, context);
+        if (resource != null) {
+            cascadingManager.reindexDependants(((InternalResource) resource).getResourceKey(), object, context);
+        }
         if (resource == null && !performedCascading) {
             throw new MarshallingException("Alias [" + alias + "] has no root mappings and no cascading defined, no operation was perfomed");
         }
@@ -492,6 +495,7 @@ public class DefaultCompassSession implements InternalCompassSession {
             firstLevelCache.set(key, object);
             context.addOperatedObjects(object);
             performedCascading = cascadingManager.cascade(key.getAlias(), object, Cascade.SAVE, context);
+            cascadingManager.reindexDependants(key, object, context);
         } else {
             context.addOperatedObjects(object);
             performedCascading = cascadingManager.cascade(object, Cascade.SAVE, context);
@@ -539,6 +543,7 @@ public class DefaultCompassSession implements InternalCompassSession {
                 }
             }
             delete(idResource);
+            cascadingManager.reindexDependants(((InternalResource) idResource).getResourceKey(), null, context);
             if (cascadeObj != null) {
                 context.addOperatedObjects(cascadeObj);
                 performedCascading = cascadingManager.cascade(idResource.getAlias(), cascadeObj, Cascade.DELETE, context);
@@ -588,6 +593,7 @@ public class DefaultCompassSession implements InternalCompassSession {
                 }
             }
             delete(idResource);
+            cascadingManager.reindexDependants(((InternalResource) idResource).getResourceKey(), null, context);
             if (cascadeObj != null) {
                 context.addOperatedObjects(cascadeObj);
                 performedCascading = cascadingManager.cascade(idResource.getAlias(), cascadeObj, Cascade.DELETE, context);
@@ -635,6 +641,7 @@ public class DefaultCompassSession implements InternalCompassSession {
                 }
             }
             delete(idResource);
+            cascadingManager.reindexDependants(((InternalResource) idResource).getResourceKey(), null, context);
             if (cascadeObj != null) {
                 context.addOperatedObjects(cascadeObj);
                 performedCascading = cascadingManager.cascade(idResource.getAlias(), cascadeObj, Cascade.DELETE, context);
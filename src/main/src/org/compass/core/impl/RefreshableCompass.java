@@ -27,6 +27,7 @@ import org.compass.core.events.RebuildEventListener;
 import org.compass.core.executor.ExecutorManager;
 import org.compass.core.mapping.CompassMapping;
 import org.compass.core.metadata.CompassMetaData;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.spi.InternalCompass;
 import org.compass.core.transaction.LocalTransactionFactory;
 import org.compass.core.transaction.TransactionFactory;
@@ -192,6 +193,10 @@ public class RefreshableCompass implements InternalCompass {
         return compass.getSearchEngineIndexManager();
     }
 
+    public CompassMetrics getMetrics() {
+        return compass.getMetrics();
+    }
+
     public SearchEngineSpellCheckManager getSpellCheckManager() {
         return compass.getSpellCheckManager();
     }
@@ -323,6 +323,14 @@ public class LuceneEnvironment {
              * ({@link org.compass.core.lucene.engine.analyzer.synonym.SynonymLookupProvider} implementation.
              */
             public static final String LOOKUP = "lookup";
+
+            /**
+             * The location of the synonyms file used by
+             * {@link org.compass.core.lucene.engine.analyzer.synonym.SynonymMapLookupProvider} (can be
+             * prefixed with <code>classpath:</code>). If set with no {@link #LOOKUP}, it will be used
+             * as the lookup provider.
+             */
+            public static final String FILE = "file";
         }
     }
 
@@ -786,6 +794,114 @@ public class LuceneEnvironment {
                  */
                 public static final String HASHING = "compass.transaction.processor.async.hashing";
             }
+
+            /**
+             * Settings for the queue transaction processor. Transactions are added to a shared (durable) queue
+             * of jobs, and applied to the index by the nodes acting as indexing workers.
+             *
+             * <p>Note, the processor is not registered by default. Register it by setting the
+             * <code>compass.transaction.processor.queue.type</code> setting to <code>queue</code>.
+             *
+             * @see org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessorFactory
+             * @see org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessor
+             */
+            public static final class Queue {
+
+                /**
+                 * The name of the queue transaction processor.
+                 */
+                public static final String NAME = "queue";
+
+                /**
+                 * The queue of transaction jobs. Either <code>jdbc</code>, <code>fs</code>, or the fully qualified
+                 * class name of a {@link org.compass.core.lucene.engine.transaction.queue.TransactionJobsQueue}
+                 * implementation. Defaults to <code>jdbc</code>.
+                 */
+                public static final String JOBS_QUEUE = "compass.transaction.processor.queue.jobsQueue";
+
+                /**
+                 * <code>true</code> if this node will also act as a worker and apply queued jobs to the index,
+                 * <code>false</code> if it only adds transactions to the queue. Defaults to <code>true</code>.
+                 */
+                public static final String PROCESS = "compass.transaction.processor.queue.process";
+
+                /**
+                 * A comma separated list of sub indexes that the worker will process. Defaults to all sub indexes.
+                 */
+                public static final String SUB_INDEXES = "compass.transaction.processor.queue.subIndexes";
+
+                /**
+                 * A comma separated list of aliases that the worker will process. Defaults to all aliases.
+                 */
+                public static final String ALIASES = "compass.transaction.processor.queue.aliases";
+
+                /**
+                 * The number of worker threads applying queued jobs to the index. Each sub index is always
+                 * processed by the same worker (in order to maintain the order of transactions). Defaults to
+                 * <code>5</code>.
+                 */
+                public static final String CONCURRENCY_LEVEL = "compass.transaction.processor.queue.concurrencyLevel";
+
+                /**
+                 * The maximum number of transactions claimed from the queue and applied to the index in a single
+                 * commit. Defaults to <code>50</code>.
+                 */
+                public static final String BATCH_SIZE = "compass.transaction.processor.queue.batchSize";
+
+                /**
+                 * How long a worker waits before polling the queue again once it is empty. Defaults to
+                 * <code>500</code> milliseconds. Accepts Compass time format settings.
+                 */
+                public static final String POLL_INTERVAL = "compass.transaction.processor.queue.pollInterval";
+
+                /**
+                 * The worker keeps its index writer open between batches, and closes it once no jobs were
+                 * processed for this time. Defaults to <code>10</code> seconds. Accepts Compass time format settings.
+                 */
+                public static final String WRITER_IDLE_TIMEOUT = "compass.transaction.processor.queue.writerIdleTimeout";
+
+                /**
+                 * Claimed jobs that were not processed within this time (for example, since the worker that claimed
+                 * them died) can be claimed again. Defaults to <code>5</code> minutes. Accepts Compass time format
+                 * settings.
+                 */
+                public static final String CLAIM_TIMEOUT = "compass.transaction.processor.queue.claimTimeout";
+
+                /**
+                 * Settings for the <code>jdbc</code> jobs queue. The data source is created using the same
+                 * {@link org.compass.core.lucene.LuceneEnvironment.JdbcStore} settings as the jdbc store (data
+                 * source provider, driver, username, password, dialect, and managed).
+                 */
+                public static final class Jdbc {
+
+                    /**
+                     * The jdbc url of the database holding the queue table. Defaults to the connection of the
+                     * jdbc store if one is used.
+                     */
+                    public static final String CONNECTION = "compass.transaction.processor.queue.jdbc.connection";
+
+                    /**
+                     * The name of the queue table. Defaults to <code>compass_queue</code>.
+                     */
+                    public static final String TABLE = "compass.transaction.processor.queue.jdbc.table";
+
+                    /**
+                     * Should the queue table be created if it does not exist. Defaults to <code>true</code>.
+                     */
+                    public static final String CREATE_TABLE = "compass.transaction.processor.queue.jdbc.createTable";
+                }
+
+                /**
+                 * Settings for the <code>fs</code> jobs queue.
+                 */
+                public static final class FS {
+
+                    /**
+                     * The (shared) directory holding the queue. Required.
+                     */
+                    public static final String PATH = "compass.transaction.processor.queue.fs.path";
+                }
+            }
         }
     }
 
@@ -1109,6 +1225,34 @@ public class LuceneEnvironment {
          */
         public static final String DISABLE_SCHEMA_OPERATIONS = "compass.engine.store.jdbc.disableSchemaOperations";
 
+        /**
+         * If set to <code>true</code>, each directory keeps a snapshot of the files metadata (size, last
+         * modified, deleted) loaded using a single query, and refreshed only when the segments generation
+         * stored in <code>segments.gen</code> changes. Reduces the number of queries when opening and refreshing
+         * index readers. Defaults to <code>false</code>.
+         */
+        public static final String CACHE_FILE_METADATA = "compass.engine.store.jdbc.cacheFileMetadata";
+
+        /**
+         * The interval (in milliseconds) after which the files metadata snapshot (see {@link #CACHE_FILE_METADATA})
+         * is validated against the segments generation when checking if a file exists or its length. Listing
+         * the files always validates it. Defaults to <code>1000</code>.
+         */
+        public static final String FILE_METADATA_REVALIDATE_INTERVAL = "compass.engine.store.jdbc.fileMetadataRevalidateInterval";
+
+        /**
+         * If set to <code>true</code>, prepared statements are cached and reused for the lifetime of the
+         * database transaction (only applies when the store is not managed). Defaults to <code>true</code>.
+         */
+        public static final String CACHE_STATEMENTS = "compass.engine.store.jdbc.cacheStatements";
+
+        /**
+         * If set to <code>true</code>, files written to the index are inserted in batches (using a single
+         * statement) instead of one at a time when they are closed. Pending files are inserted once they are
+         * read, or when the segments file is written as part of the commit. Defaults to <code>false</code>.
+         */
+        public static final String BATCH_INSERTS = "compass.engine.store.jdbc.batchInserts";
+
         public abstract class Connection {
             /**
              * The jdbc driver class
@@ -1404,6 +1548,53 @@ public class LuceneEnvironment {
             public static final String MAX_CONCURRENT_MERGE = "maxConcurrentMerge";
 
         }
+
+        /**
+         * Allows to configure Compass {@link org.apache.lucene.index.AdaptiveMergeScheduler}, an executor based
+         * merge scheduler that yields to the search load of the index.
+         */
+        public abstract class Adaptive {
+
+            /**
+             * The name of the adaptive merge scheduler to be used as the merge scheduler type.
+             */
+            public static final String NAME = "adaptive";
+
+            /**
+             * The maximum concurrent merges that are allowed to be executed when search is not saturated.
+             * Defaults to <code>3</code>.
+             */
+            public static final String MAX_CONCURRENT_MERGE = PREFIX + ".adaptive.maxConcurrentMerge";
+
+            /**
+             * The number of concurrent searches at which search is considered saturated. Defaults to the
+             * number of processors.
+             */
+            public static final String MAX_SEARCH_CONCURRENCY = PREFIX + ".adaptive.maxSearchConcurrency";
+
+            /**
+             * The average search time at which search is considered saturated. Defaults to <code>500</code>
+             * milliseconds. Supports time based configuration and default value is in millis.
+             */
+            public static final String MAX_SEARCH_TIME = PREFIX + ".adaptive.maxSearchTime";
+
+            /**
+             * The size of the segments of a merge from which it is considered large. Defaults to <code>100m</code>.
+             */
+            public static final String LARGE_MERGE_SIZE = PREFIX + ".adaptive.largeMergeSize";
+
+            /**
+             * The maximum time a large merge will wait for the search load to drop. Defaults to <code>60</code>
+             * seconds. Supports time based configuration and default value is in millis.
+             */
+            public static final String MAX_PAUSE_TIME = PREFIX + ".adaptive.maxPauseTime";
+
+            /**
+             * The hours of the day large merges are allowed at, in the form of <code>from-to</code> (for example,
+             * <code>22-6</code>). Defaults to allowing large merges at any time.
+             */
+            public static final String LARGE_MERGE_HOURS = PREFIX + ".adaptive.largeMergeHours";
+        }
     }
 
     /**
@@ -1579,6 +1770,32 @@ public class LuceneEnvironment {
          * <code>AND</code> or <code>OR</code>.
          */
         public static final String DEFAULT_PARSER_DEFAULT_OPERATOR = "defaultOperator";
+
+        /**
+         * The maximum number of parsed queries (keyed by the query string, properties, analyzer and operator)
+         * cached by the default query parser. Defaults to <code>0</code> (no caching).
+         */
+        public static final String DEFAULT_PARSER_CACHE_SIZE = "cacheSize";
+    }
+
+    /**
+     * Settings for the query result cache, caching the top documents of repeated queries until the index
+     * readers of the searched sub indexes are refreshed.
+     *
+     * @see org.compass.core.lucene.engine.manager.QueryResultCache
+     */
+    public static abstract class QueryResultCache {
+
+        /**
+         * The maximum number of query results cached. Defaults to <code>0</code> (no caching).
+         */
+        public static final String SIZE = "compass.engine.queryResultCache.size";
+
+        /**
+         * The number of top documents (ids and scores) cached per query. Hits beyond it are fetched
+         * by searching again. Defaults to <code>100</code>.
+         */
+        public static final String MAX_DOCS = "compass.engine.queryResultCache.maxDocs";
     }
 
     public static abstract class LocalCache {
@@ -1589,6 +1806,15 @@ public class LuceneEnvironment {
 
         public static final String CONNECTION = "connection";
 
+        /**
+         * When set to <code>true</code>, the files of a new commit point are fetched (in parallel) to the
+         * local cache before an index reader is opened on it, instead of lazily when first read by a
+         * search. When the scheduled cache refresh detects a new commit point, the files are fetched in
+         * the background (using the executor manager) and the current reader keeps serving searches until
+         * they are local. Defaults to <code>false</code>.
+         */
+        public static final String WARM = "warm";
+
         public static final String DEFAULT_NAME = "__default__";
     }
 
@@ -20,13 +20,21 @@ import java.io.IOException;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Hits;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
 import org.compass.core.Resource;
 import org.compass.core.engine.SearchEngineException;
 import org.compass.core.engine.SearchEngineHighlighter;
 import org.compass.core.lucene.LuceneResource;
+import org.compass.core.metrics.CompassMetrics;
 
 /**
+ * Search engine hits backed by either Lucene {@link Hits} or by (cached) top documents. When backed by
+ * top documents, hits beyond them (and {@link #getHits()}) are served by executing the search again
+ * using Lucene {@link Hits}.
+ *
  * @author kimchy
  */
 
@@ -40,7 +48,15 @@ public class DefaultLuceneSearchEngineHits implements LuceneSearchEngineHits {
 
     private SearchEngineHighlighter highlighter;
 
-    private final Hits hits;
+    private Hits hits;
+
+    private final TopDocs topDocs;
+
+    private final float scoreNorm;
+
+    private final Query searchQuery;
+
+    private final Filter filter;
 
     public DefaultLuceneSearchEngineHits(Hits hits, LuceneSearchEngine searchEngine,
                                          LuceneSearchEngineQuery query, LuceneSearchEngineInternalSearch internalSearch) {
@@ -48,32 +64,82 @@ public class DefaultLuceneSearchEngineHits implements LuceneSearchEngineHits {
         this.searchEngine = searchEngine;
         this.query = query;
         this.internalSearch = internalSearch;
+        this.topDocs = null;
+        this.scoreNorm = 1.0f;
+        this.searchQuery = null;
+        this.filter = null;
+    }
+
+    /**
+     * Creates hits based on the top documents of the search executed using the given (possibly rewritten)
+     * query and filter.
+     */
+    public DefaultLuceneSearchEngineHits(TopDocs topDocs, Query searchQuery, Filter filter, LuceneSearchEngine searchEngine,
+                                         LuceneSearchEngineQuery query, LuceneSearchEngineInternalSearch internalSearch) {
+        this.topDocs = topDocs;
+        this.searchQuery = searchQuery;
+        this.filter = filter;
+        this.searchEngine = searchEngine;
+        this.query = query;
+        this.internalSearch = internalSearch;
+        // normalize the scores the same way Lucene Hits does
+        this.scoreNorm = topDocs.getMaxScore() > 1.0f ? 1.0f / topDocs.getMaxScore() : 1.0f;
     }
 
     public Resource getResource(int i) throws SearchEngineException {
         verifyWithinTransaction();
         try {
-            Document doc = hits.doc(i);
-            return new LuceneResource(doc, hits.id(i), searchEngine.getSearchEngineFactory());
+            long start = System.nanoTime();
+            Resource resource;
+            if (isTopDoc(i)) {
+                int docId = topDocs.scoreDocs[i].doc;
+                resource = new LuceneResource(internalSearch.getSearcher().doc(docId), docId, searchEngine.getSearchEngineFactory());
+            } else {
+                Hits hits = getHits();
+                Document doc = hits.doc(i);
+                resource = new LuceneResource(doc, hits.id(i), searchEngine.getSearchEngineFactory());
+            }
+            searchEngine.getSearchEngineFactory().getMetrics().getHistogram(CompassMetrics.Group.HITS, CompassMetrics.ALL).record(System.nanoTime() - start);
+            return resource;
         } catch (IOException ioe) {
             throw new SearchEngineException("Failed to find hit [" + i + "]", ioe);
         }
     }
 
+    /**
+     * Returns the internal search the hits were executed against.
+     */
+    public LuceneSearchEngineInternalSearch getInternalSearch() {
+        return internalSearch;
+    }
+
     public int getLength() {
+        if (topDocs != null) {
+            return topDocs.totalHits;
+        }
         return hits.length();
     }
 
     public float score(int i) throws SearchEngineException {
         verifyWithinTransaction();
+        if (isTopDoc(i)) {
+            return topDocs.scoreDocs[i].score * scoreNorm;
+        }
         try {
-            return hits.score(i);
+            return getHits().score(i);
         } catch (IOException ioe) {
             throw new SearchEngineException("Failed to fetch score for hit [" + i + "]", ioe);
         }
     }
 
     public Hits getHits() {
+        if (hits == null) {
+            try {
+                hits = internalSearch.getSearcher().search(searchQuery, filter, query.getSort());
+            } catch (IOException e) {
+                throw new SearchEngineException("Failed to search with query [" + searchQuery + "]", e);
+            }
+        }
         return this.hits;
     }
 
@@ -88,7 +154,8 @@ public class DefaultLuceneSearchEngineHits implements LuceneSearchEngineHits {
     public Explanation explain(int i) throws SearchEngineException {
         verifyWithinTransaction();
         try {
-            return internalSearch.getSearcher().explain(query.getQuery(), hits.id(i));
+            int docId = isTopDoc(i) ? topDocs.scoreDocs[i].doc : getHits().id(i);
+            return internalSearch.getSearcher().explain(query.getQuery(), docId);
         } catch (IOException e) {
             throw new SearchEngineException("Failed to explain hit [" + i + "]", e);
         }
@@ -115,6 +182,10 @@ public class DefaultLuceneSearchEngineHits implements LuceneSearchEngineHits {
         }
     }
 
+    private boolean isTopDoc(int i) {
+        return topDocs != null && i < topDocs.scoreDocs.length;
+    }
+
     private void verifyWithinTransaction() throws SearchEngineException {
         if (!searchEngine.isWithinTransaction()) {
             throw new SearchEngineException("Accessing hits outside of a running transaction, either expand the " +
@@ -17,6 +17,7 @@
 package org.compass.core.lucene.engine;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,9 +35,11 @@ import org.compass.core.engine.SearchEngineQueryFilterBuilder;
 import org.compass.core.engine.SearchEngineTermFrequencies;
 import org.compass.core.engine.event.SearchEngineEventManager;
 import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.manager.LuceneIndexHolder;
 import org.compass.core.lucene.engine.transaction.TransactionProcessor;
 import org.compass.core.lucene.engine.transaction.TransactionProcessorFactory;
 import org.compass.core.mapping.ResourceMapping;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.spi.InternalResource;
 import org.compass.core.spi.MultiResource;
 import org.compass.core.spi.ResourceKey;
@@ -151,7 +154,9 @@ public class LuceneSearchEngine implements SearchEngine {
         verifyWithinTransaction();
         closeDelegateClosed();
         if (transactionProcessor != null) {
+            long start = System.nanoTime();
             transactionProcessor.prepare();
+            searchEngineFactory.getMetrics().getHistogram(CompassMetrics.Group.PREPARE, transactionProcessor.getName()).record(System.nanoTime() - start);
         }
         eventManager.afterPrepare();
     }
@@ -160,7 +165,9 @@ public class LuceneSearchEngine implements SearchEngine {
         verifyWithinTransaction();
         closeDelegateClosed();
         if (transactionProcessor != null) {
+            long start = System.nanoTime();
             transactionProcessor.commit(onePhase);
+            searchEngineFactory.getMetrics().getHistogram(CompassMetrics.Group.COMMIT, transactionProcessor.getName()).record(System.nanoTime() - start);
             eventManager.afterCommit(onePhase);
         }
         transactionProcessor = null;
@@ -349,7 +356,9 @@ public class LuceneSearchEngine implements SearchEngine {
 
     public SearchEngineHits find(SearchEngineQuery query) throws SearchEngineException {
         verifyWithinTransaction();
+        long start = System.nanoTime();
         LuceneSearchEngineHits hits = transactionProcessor.find((LuceneSearchEngineQuery) query);
+        recordQueryTime((LuceneSearchEngineQuery) query, hits, System.nanoTime() - start);
         if (log.isTraceEnabled()) {
             log.trace("RESOURCE QUERY [" + query + "] HITS [" + hits.getLength() + "]");
         }
@@ -358,7 +367,8 @@ public class LuceneSearchEngine implements SearchEngine {
     }
 
     public SearchEngineTermFrequencies termFreq(String[] propertyNames, int size, SearchEngineInternalSearch internalSearch) {
-        return new LuceneSearchEngineTermFrequencies(propertyNames, size, (LuceneSearchEngineInternalSearch) internalSearch);
+        return new LuceneSearchEngineTermFrequencies(propertyNames, size, (LuceneSearchEngineInternalSearch) internalSearch,
+                searchEngineFactory.getLuceneIndexManager().getIndexHoldersCache().getTermFrequenciesCache());
     }
 
     public SearchEngineInternalSearch internalSearch(String[] subIndexes, String[] aliases) throws SearchEngineException {
@@ -384,6 +394,29 @@ public class LuceneSearchEngine implements SearchEngine {
         }
     }
 
+    private void recordQueryTime(LuceneSearchEngineQuery query, LuceneSearchEngineHits hits, long time) {
+        CompassMetrics metrics = searchEngineFactory.getMetrics();
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        String[] aliases = query.getAliases();
+        if (aliases == null || aliases.length == 0) {
+            metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, CompassMetrics.ALL).record(time);
+        } else {
+            for (String alias : aliases) {
+                metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, alias).record(time);
+            }
+        }
+        if (hits instanceof DefaultLuceneSearchEngineHits) {
+            List<LuceneIndexHolder> indexHolders = ((DefaultLuceneSearchEngineHits) hits).getInternalSearch().getIndexHolders();
+            if (indexHolders != null) {
+                for (int i = 0; i < indexHolders.size(); i++) {
+                    metrics.getHistogram(CompassMetrics.Group.QUERY_TOUCHING_SUB_INDEX, indexHolders.get(i).getSubIndex()).record(time);
+                }
+            }
+        }
+    }
+
     public LuceneSearchEngineFactory getSearchEngineFactory() {
         return searchEngineFactory;
     }
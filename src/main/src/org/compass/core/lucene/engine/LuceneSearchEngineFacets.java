@@ -0,0 +1,246 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.lucene.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.compass.core.CompassFacet;
+import org.compass.core.CompassFacetEntry;
+import org.compass.core.converter.ConversionException;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.engine.SearchEngineFacetRequest;
+import org.compass.core.engine.SearchEngineFacets;
+import org.compass.core.impl.DefaultCompassFacet;
+import org.compass.core.impl.DefaultCompassFacetEntry;
+import org.compass.core.lucene.search.ColumnarFieldCache;
+import org.compass.core.lucene.search.FacetCountHitCollector;
+import org.compass.core.mapping.CompassMapping;
+import org.compass.core.mapping.ResourcePropertyLookup;
+
+/**
+ * Counts the facets of a query in a single pass over its hits using a {@link FacetCountHitCollector}.
+ * Term, range and histogram facets are all computed from the per segment ordinal counts, so range
+ * and histogram values are converted once per unique term (and not per hit).
+ *
+ * @author kimchy
+ */
+public class LuceneSearchEngineFacets implements SearchEngineFacets {
+
+    private CompassFacet[] facets;
+
+    public LuceneSearchEngineFacets(LuceneSearchEngineQuery query, SearchEngineFacetRequest[] requests,
+                                    LuceneSearchEngineInternalSearch internalSearch, CompassMapping mapping) throws SearchEngineException {
+        facets = new CompassFacet[requests.length];
+        IndexReader reader = internalSearch.getReader();
+        if (internalSearch.isEmpty() || reader.maxDoc() == 0) {
+            for (int i = 0; i < requests.length; i++) {
+                facets[i] = new DefaultCompassFacet(requests[i].getPropertyName(), requests[i].getType(), new CompassFacetEntry[0]);
+            }
+            return;
+        }
+
+        FacetCountHitCollector collector;
+        try {
+            ColumnarFieldCache.Columns[] columns = new ColumnarFieldCache.Columns[requests.length];
+            for (int i = 0; i < requests.length; i++) {
+                columns[i] = ColumnarFieldCache.DEFAULT.getColumns(reader, requests[i].getPropertyName(), ColumnarFieldCache.Type.ORDINAL);
+            }
+            collector = new FacetCountHitCollector(columns);
+            internalSearch.getSearcher().search(query.getQuery(), query.getLuceneFilter(), collector);
+        } catch (IOException e) {
+            throw new SearchEngineException("Failed to count facets for query [" + query + "]", e);
+        }
+
+        for (int i = 0; i < requests.length; i++) {
+            SearchEngineFacetRequest request = requests[i];
+            ColumnarFieldCache.OrdinalColumn[] columns = collector.getColumns(i);
+            int[][] counts = collector.getCounts(i);
+            CompassFacetEntry[] entries;
+            switch (request.getType()) {
+                case TERM:
+                    entries = termEntries(request, columns, counts);
+                    break;
+                case RANGE:
+                    entries = rangeEntries(request, columns, counts, getLookup(mapping, request.getPropertyName()));
+                    break;
+                case DATE_HISTOGRAM:
+                    entries = histogramEntries(request, columns, counts, getLookup(mapping, request.getPropertyName()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported facet type [" + request.getType() + "]");
+            }
+            facets[i] = new DefaultCompassFacet(request.getPropertyName(), request.getType(), entries);
+        }
+    }
+
+    public CompassFacet[] getFacets() {
+        return facets;
+    }
+
+    private CompassFacetEntry[] termEntries(SearchEngineFacetRequest request, ColumnarFieldCache.OrdinalColumn[] columns, int[][] counts) {
+        Map<String, long[]> termCounts = new HashMap<String, long[]>();
+        for (int segment = 0; segment < columns.length; segment++) {
+            int[] segmentCounts = counts[segment];
+            for (int ord = 1; ord < segmentCounts.length; ord++) {
+                if (segmentCounts[ord] == 0) {
+                    continue;
+                }
+                String term = columns[segment].getTerm(ord);
+                long[] count = termCounts.get(term);
+                if (count == null) {
+                    count = new long[1];
+                    termCounts.put(term, count);
+                }
+                count[0] += segmentCounts[ord];
+            }
+        }
+        DefaultCompassFacetEntry[] entries = new DefaultCompassFacetEntry[termCounts.size()];
+        int index = 0;
+        for (Map.Entry<String, long[]> entry : termCounts.entrySet()) {
+            entries[index++] = new DefaultCompassFacetEntry(entry.getKey(), entry.getValue()[0]);
+        }
+        Arrays.sort(entries, new Comparator<DefaultCompassFacetEntry>() {
+            public int compare(DefaultCompassFacetEntry o1, DefaultCompassFacetEntry o2) {
+                if (o1.getCount() != o2.getCount()) {
+                    return o1.getCount() > o2.getCount() ? -1 : 1;
+                }
+                return ((String) o1.getValue()).compareTo((String) o2.getValue());
+            }
+        });
+        if (entries.length <= request.getSize()) {
+            return entries;
+        }
+        CompassFacetEntry[] topEntries = new CompassFacetEntry[request.getSize()];
+        System.arraycopy(entries, 0, topEntries, 0, topEntries.length);
+        return topEntries;
+    }
+
+    private CompassFacetEntry[] rangeEntries(SearchEngineFacetRequest request, ColumnarFieldCache.OrdinalColumn[] columns,
+                                             int[][] counts, ResourcePropertyLookup lookup) {
+        double[] boundaries = request.getBoundaries();
+        long[] rangeCounts = new long[boundaries.length - 1];
+        for (int segment = 0; segment < columns.length; segment++) {
+            int[] segmentCounts = counts[segment];
+            for (int ord = 1; ord < segmentCounts.length; ord++) {
+                if (segmentCounts[ord] == 0) {
+                    continue;
+                }
+                Object value = convert(columns[segment].getTerm(ord), lookup);
+                if (value == null) {
+                    continue;
+                }
+                double number = value instanceof Number ? ((Number) value).doubleValue() : toTime(value);
+                int index = Arrays.binarySearch(boundaries, number);
+                if (index < 0) {
+                    // the range is the one starting at the boundary before the insertion point
+                    index = -index - 2;
+                }
+                if (index >= 0 && index < rangeCounts.length) {
+                    rangeCounts[index] += segmentCounts[ord];
+                }
+            }
+        }
+        CompassFacetEntry[] entries = new CompassFacetEntry[rangeCounts.length];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new DefaultCompassFacetEntry(boundaries[i], rangeCounts[i]);
+        }
+        return entries;
+    }
+
+    private CompassFacetEntry[] histogramEntries(SearchEngineFacetRequest request, ColumnarFieldCache.OrdinalColumn[] columns,
+                                                 int[][] counts, ResourcePropertyLookup lookup) {
+        long interval = request.getInterval();
+        TreeMap<Long, long[]> bucketCounts = new TreeMap<Long, long[]>();
+        boolean dates = false;
+        for (int segment = 0; segment < columns.length; segment++) {
+            int[] segmentCounts = counts[segment];
+            for (int ord = 1; ord < segmentCounts.length; ord++) {
+                if (segmentCounts[ord] == 0) {
+                    continue;
+                }
+                Object value = convert(columns[segment].getTerm(ord), lookup);
+                if (value == null) {
+                    continue;
+                }
+                long number;
+                if (value instanceof Number) {
+                    number = ((Number) value).longValue();
+                } else {
+                    dates = true;
+                    number = toTime(value);
+                }
+                Long bucket = number - (((number % interval) + interval) % interval);
+                long[] count = bucketCounts.get(bucket);
+                if (count == null) {
+                    count = new long[1];
+                    bucketCounts.put(bucket, count);
+                }
+                count[0] += segmentCounts[ord];
+            }
+        }
+        List<CompassFacetEntry> entries = new ArrayList<CompassFacetEntry>(bucketCounts.size());
+        for (Map.Entry<Long, long[]> entry : bucketCounts.entrySet()) {
+            Object value = dates ? new Date(entry.getKey()) : entry.getKey();
+            entries.add(new DefaultCompassFacetEntry(value, entry.getValue()[0]));
+        }
+        return entries.toArray(new CompassFacetEntry[entries.size()]);
+    }
+
+    private ResourcePropertyLookup getLookup(CompassMapping mapping, String propertyName) {
+        ResourcePropertyLookup lookup = mapping.getResourcePropertyLookup(propertyName);
+        // the values are read from the index, use the converter of the mapping even without a dot path
+        lookup.setConvertOnlyWithDotPath(false);
+        return lookup;
+    }
+
+    private long toTime(Object value) {
+        if (value instanceof Calendar) {
+            return ((Calendar) value).getTimeInMillis();
+        }
+        return ((Date) value).getTime();
+    }
+
+    /**
+     * Converts the term into a <code>Date</code>, <code>Calendar</code> or a <code>Number</code>,
+     * returning <code>null</code> if it can not be converted.
+     */
+    private Object convert(String term, ResourcePropertyLookup lookup) {
+        Object value;
+        try {
+            value = lookup.fromString(term);
+        } catch (ConversionException e) {
+            value = term;
+        }
+        if (value instanceof Date || value instanceof Calendar || value instanceof Number) {
+            return value;
+        }
+        try {
+            return Double.valueOf(term);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
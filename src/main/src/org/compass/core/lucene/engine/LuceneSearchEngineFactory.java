@@ -53,6 +53,8 @@ import org.compass.core.lucene.engine.store.DefaultLuceneSearchEngineStore;
 import org.compass.core.lucene.engine.store.LuceneSearchEngineStore;
 import org.compass.core.lucene.engine.transaction.TransactionProcessorManager;
 import org.compass.core.mapping.CompassMapping;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.JmxMetricsExporter;
 import org.compass.core.transaction.context.TransactionContext;
 import org.compass.core.util.ClassUtils;
 
@@ -99,6 +101,10 @@ public class LuceneSearchEngineFactory implements InternalSearchEngineFactory {
 
     private SearchEngineEventManager eventManager = new SearchEngineEventManager();
 
+    private final CompassMetrics metrics;
+
+    private JmxMetricsExporter jmxMetricsExporter;
+
     // debug holders
 
     private final boolean debug;
@@ -110,6 +116,11 @@ public class LuceneSearchEngineFactory implements InternalSearchEngineFactory {
         this.mapping = mapping;
         this.executorManager = executorManager;
         this.settings = settings;
+        this.metrics = new CompassMetrics(settings.getSettingAsBoolean(CompassEnvironment.Metrics.ENABLED, true));
+        if (metrics.isEnabled() && settings.getSettingAsBoolean(CompassEnvironment.Metrics.JMX, false)) {
+            jmxMetricsExporter = new JmxMetricsExporter(metrics, settings.getSetting(CompassEnvironment.NAME, "default"));
+            jmxMetricsExporter.register();
+        }
         this.luceneSettings = new LuceneSettings();
         luceneSettings.configure(settings);
 
@@ -163,6 +174,9 @@ public class LuceneSearchEngineFactory implements InternalSearchEngineFactory {
             spellCheckManager.close();
         }
         indexManager.close();
+        if (jmxMetricsExporter != null) {
+            jmxMetricsExporter.unregister();
+        }
     }
 
     public boolean isDebug() {
@@ -189,6 +203,10 @@ public class LuceneSearchEngineFactory implements InternalSearchEngineFactory {
         return this.executorManager;
     }
 
+    public CompassMetrics getMetrics() {
+        return metrics;
+    }
+
     public void setTransactionContext(TransactionContext transactionContext) {
         this.transactionContext = transactionContext;
     }
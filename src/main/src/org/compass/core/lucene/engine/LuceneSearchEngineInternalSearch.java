@@ -76,6 +76,14 @@ public class LuceneSearchEngineInternalSearch implements SearchEngineInternalSea
         this.closeSearcher = true;
     }
 
+    /**
+     * Returns the index holders (one per sub index) this search was executed against, <code>null</code>
+     * if there are none.
+     */
+    public List<LuceneIndexHolder> getIndexHolders() {
+        return indexHoldersToClose;
+    }
+
     /**
      * Returns <code>true</code> if it represents an empty index scope.
      */
@@ -97,6 +105,20 @@ public class LuceneSearchEngineInternalSearch implements SearchEngineInternalSea
         return this.indexReader;
     }
 
+    /**
+     * Returns the readers of the indexes searched (usually one per sub index). <code>null</code>
+     * if it represents an empty index scope.
+     */
+    public IndexReader[] getSubIndexReaders() {
+        if (indexReader == null) {
+            return null;
+        }
+        if (indexReader instanceof CacheableMultiReader) {
+            return ((CacheableMultiReader) indexReader).getIndexReaders();
+        }
+        return new IndexReader[]{indexReader};
+    }
+
     /**
      * [Intenral]: Closes without removing the delegate.
      */
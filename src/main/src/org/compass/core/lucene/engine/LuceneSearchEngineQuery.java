@@ -35,11 +35,17 @@ import org.compass.core.CompassQuery.SortImplicitType;
 import org.compass.core.CompassQuery.SortPropertyType;
 import org.compass.core.engine.SearchEngine;
 import org.compass.core.engine.SearchEngineException;
+import org.compass.core.engine.SearchEngineFacetRequest;
+import org.compass.core.engine.SearchEngineFacets;
 import org.compass.core.engine.SearchEngineHits;
 import org.compass.core.engine.SearchEngineQuery;
 import org.compass.core.engine.SearchEngineQueryFilter;
 import org.compass.core.lucene.engine.queryparser.QueryHolder;
+import org.compass.core.lucene.search.ColumnarFieldCache;
+import org.compass.core.lucene.search.ColumnarSortComparatorSource;
 import org.compass.core.lucene.search.CountHitCollector;
+import org.compass.core.mapping.ResourcePropertyMapping;
+import org.compass.core.mapping.Sortable;
 
 /**
  * @author kimchy
@@ -97,21 +103,37 @@ public class LuceneSearchEngineQuery implements SearchEngineQuery, Cloneable {
     }
 
     public SearchEngineQuery addSort(String propertyName) {
+        if (isColumnarSortable(propertyName)) {
+            sortFields.add(new SortField(propertyName, new ColumnarSortComparatorSource(null)));
+            return this;
+        }
         sortFields.add(new SortField(propertyName));
         return this;
     }
 
     public SearchEngineQuery addSort(String propertyName, SortDirection direction) {
+        if (isColumnarSortable(propertyName)) {
+            sortFields.add(new SortField(propertyName, new ColumnarSortComparatorSource(null), getSortReverse(direction)));
+            return this;
+        }
         sortFields.add(new SortField(propertyName, getSortReverse(direction)));
         return this;
     }
 
     public SearchEngineQuery addSort(String propertyName, SortPropertyType type) {
+        if (isColumnarSortable(propertyName)) {
+            sortFields.add(new SortField(propertyName, new ColumnarSortComparatorSource(getColumnType(type))));
+            return this;
+        }
         sortFields.add(new SortField(propertyName, getSortType(type)));
         return this;
     }
 
     public SearchEngineQuery addSort(String propertyName, SortPropertyType type, SortDirection direction) {
+        if (isColumnarSortable(propertyName)) {
+            sortFields.add(new SortField(propertyName, new ColumnarSortComparatorSource(getColumnType(type)), getSortReverse(direction)));
+            return this;
+        }
         sortFields.add(new SortField(propertyName, getSortType(type), getSortReverse(direction)));
         return this;
     }
@@ -185,6 +207,41 @@ public class LuceneSearchEngineQuery implements SearchEngineQuery, Cloneable {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the property is mapped with {@link Sortable#COLUMNAR}, in which case
+     * sorting uses the per segment {@link org.compass.core.lucene.search.ColumnarFieldCache}.
+     */
+    private boolean isColumnarSortable(String propertyName) {
+        ResourcePropertyMapping[] mappings = searchEngineFactory.getMapping().getResourcePropertyMappingsByPath(propertyName);
+        if (mappings == null) {
+            return false;
+        }
+        for (ResourcePropertyMapping mapping : mappings) {
+            if (mapping != null && mapping.getSortable() == Sortable.COLUMNAR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ColumnarFieldCache.Type getColumnType(SortPropertyType type) {
+        switch (type) {
+            case AUTO:
+                return null;
+            case BYTE:
+            case INT:
+            case LONG:
+                return ColumnarFieldCache.Type.LONG;
+            case DOUBLE:
+            case FLOAT:
+                return ColumnarFieldCache.Type.DOUBLE;
+            case STRING:
+                return ColumnarFieldCache.Type.ORDINAL;
+            default:
+                throw new IllegalArgumentException("Failed to convert type [" + type + "]");
+        }
+    }
+
     public SearchEngineHits hits(SearchEngine searchEngine) {
         return ((LuceneSearchEngine) searchEngine).find(this);
     }
@@ -204,6 +261,11 @@ public class LuceneSearchEngineQuery implements SearchEngineQuery, Cloneable {
 
     }
 
+    public SearchEngineFacets facets(SearchEngine searchEngine, SearchEngineFacetRequest[] requests) throws SearchEngineException {
+        LuceneSearchEngineInternalSearch internalSearch = (LuceneSearchEngineInternalSearch) searchEngine.internalSearch(getSubIndexes(), getAliases());
+        return new LuceneSearchEngineFacets(this, requests, internalSearch, searchEngineFactory.getMapping());
+    }
+
     public void collect(SearchEngine searchEngine, HitCollector hitCollector) {
         LuceneSearchEngineInternalSearch internalSearch = (LuceneSearchEngineInternalSearch) searchEngine.internalSearch(getSubIndexes(), getAliases());
         try {
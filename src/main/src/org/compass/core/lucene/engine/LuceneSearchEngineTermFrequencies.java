@@ -18,16 +18,28 @@ package org.compass.core.lucene.engine;
 
 import java.io.IOException;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.TreeMap;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermEnum;
 import org.compass.core.CompassTermFreq;
 import org.compass.core.engine.SearchEngineException;
 import org.compass.core.engine.SearchEngineTermFrequencies;
 import org.compass.core.impl.DefaultCompassTermFreq;
+import org.compass.core.lucene.engine.manager.TermFrequenciesCache;
 
 /**
+ * Term frequencies of properties, built from the top terms of each searched index reader as cached
+ * by the {@link TermFrequenciesCache} (computed once per reader).
+ *
+ * <p>When searching more than one sub index, the cached top terms of each reader are only used to select
+ * the candidate terms. The frequency of each candidate is the sum of its exact document frequencies
+ * across all the searched readers. This is an approximation: a term that is frequent overall but is not
+ * within the top terms of any of the readers (for example, evenly spread across many sub indexes) is
+ * missed. The result is exact when the top terms of each reader are complete (include all its terms).
+ *
  * @author kimchy
  */
 public class LuceneSearchEngineTermFrequencies implements SearchEngineTermFrequencies {
@@ -35,6 +47,11 @@ public class LuceneSearchEngineTermFrequencies implements SearchEngineTermFreque
     private CompassTermFreq[] termFreqs;
 
     public LuceneSearchEngineTermFrequencies(String[] propertyNames, int size, LuceneSearchEngineInternalSearch internalSearch) throws SearchEngineException {
+        this(propertyNames, size, internalSearch, new TermFrequenciesCache());
+    }
+
+    public LuceneSearchEngineTermFrequencies(String[] propertyNames, int size, LuceneSearchEngineInternalSearch internalSearch,
+                                             TermFrequenciesCache termFrequenciesCache) throws SearchEngineException {
 
         if (internalSearch.isEmpty()) {
             termFreqs = new CompassTermFreq[0];
@@ -47,27 +64,40 @@ public class LuceneSearchEngineTermFrequencies implements SearchEngineTermFreque
             }
         });
 
+        IndexReader[] readers = internalSearch.getSubIndexReaders();
         for (String propertyName : propertyNames) {
-            TermEnum termEnum = null;
-            try {
-                termEnum = internalSearch.getReader().terms(new Term(propertyName, ""));
-                while (termEnum.term() != null && propertyName.equals(termEnum.term().field())) {
-                    queue.add(new DefaultCompassTermFreq(termEnum.term().text(), termEnum.docFreq(), propertyName));
-                    if (!termEnum.next()) {
-                        break;
+            // keep the terms in term order, as they are added to the queue when enumerating the terms
+            Map<String, DefaultCompassTermFreq> propertyTermFreqs = new TreeMap<String, DefaultCompassTermFreq>();
+            for (IndexReader reader : readers) {
+                TermFrequenciesCache.TopTerms topTerms;
+                try {
+                    topTerms = termFrequenciesCache.getTopTerms(reader, propertyName, size);
+                } catch (IOException e) {
+                    throw new SearchEngineException("Failed to get term freq for proeprty [" + propertyName + "]", e);
+                }
+                for (int i = 0; i < topTerms.size(); i++) {
+                    if (!propertyTermFreqs.containsKey(topTerms.getTerm(i))) {
+                        propertyTermFreqs.put(topTerms.getTerm(i), new DefaultCompassTermFreq(topTerms.getTerm(i), topTerms.getFreq(i), propertyName));
                     }
                 }
-            } catch (IOException e) {
-                throw new SearchEngineException("Failed to get term freq for proeprty [" + propertyName + "]", e);
-            } finally {
-                if (termEnum != null) {
+            }
+            if (readers.length > 1) {
+                // the top terms only select the candidates, count each of them in all the readers
+                String field = propertyName.intern();
+                for (DefaultCompassTermFreq termFreq : propertyTermFreqs.values()) {
+                    Term term = new Term(field, termFreq.getTerm());
+                    int freq = 0;
                     try {
-                        termEnum.close();
+                        for (IndexReader reader : readers) {
+                            freq += reader.docFreq(term);
+                        }
                     } catch (IOException e) {
-                        // do nothing here, maybe warn?
+                        throw new SearchEngineException("Failed to get term freq for proeprty [" + propertyName + "]", e);
                     }
+                    termFreq.setFreq(freq);
                 }
             }
+            queue.addAll(propertyTermFreqs.values());
         }
         int retSize = size;
         if (queue.size() < size) {
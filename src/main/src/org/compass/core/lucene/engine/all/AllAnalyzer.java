@@ -63,6 +63,8 @@ public class AllAnalyzer extends Analyzer {
 
     private final ArrayList<Token> tokens = new ArrayList<Token>();
 
+    private final CollectedTokens collectedTokens = new CollectedTokens();
+
     private final AllTokenStreamCollector allTokenStreamCollector = new AllTokenStreamCollector();
 
     private final boolean boostSupport;
@@ -219,12 +221,14 @@ public class AllAnalyzer extends Analyzer {
 
     /**
      * The all token stream. To be used with the all property as its token stream. This stream will
-     * return all the tokens created and collected by this analyzer.
+     * return all the tokens created and collected by this analyzer (the created ones first).
      */
     private class AllTokenStream extends TokenStream {
 
         private Iterator<Token> tokenIt;
 
+        private int collectedIndex = 0;
+
         private int offset = 0;
 
         private AllTokenStream() {
@@ -247,8 +251,16 @@ public class AllAnalyzer extends Analyzer {
                 token.setEndOffset(offset);
                 return token;
             }
+            if (collectedIndex < collectedTokens.size()) {
+                if (result == null) {
+                    result = new Token();
+                }
+                offset = collectedTokens.fill(collectedIndex++, result, offset);
+                return result;
+            }
 
             tokens.clear();
+            collectedTokens.clear();
             return null;
         }
 
@@ -267,17 +279,11 @@ public class AllAnalyzer extends Analyzer {
 
         private Payload payload;
 
-        private Token lastToken;
-
         public AllTokenStreamCollector() {
 
         }
 
         public void updateMapping(InternalResource resource, ResourcePropertyMapping resourcePropertyMapping) {
-            if (lastToken != null && payload != null) {
-                lastToken.setPayload(payload);
-                lastToken = null;
-            }
             if (boostSupport) {
                 if (resourcePropertyMapping != null && resourcePropertyMapping.getBoost() != 1.0f) {
                     payload = AllBoostUtils.writeFloat(resourcePropertyMapping.getBoost());
@@ -295,17 +301,17 @@ public class AllAnalyzer extends Analyzer {
             this.tokenStream = tokenStream;
         }
 
-        public Token next() throws IOException {
-            // we put the payload on the last token. It has already been indexed
-            // and it will be used on the all property later on
-            if (lastToken != null && payload != null) {
-                lastToken.setPayload(payload);
-            }
-            lastToken = tokenStream.next();
-            if (lastToken != null) {
-                tokens.add(lastToken);
+        /**
+         * Uses the reusable token (so the actual token stream can reuse it as well), and
+         * copies it (with the boost payload, if any) for the all property.
+         */
+        public Token next(Token reusableToken) throws IOException {
+            Token token = tokenStream.next(reusableToken);
+            if (token == null) {
+                return null;
             }
-            return lastToken;
+            collectedTokens.add(token, payload);
+            return token;
         }
 
         public void reset() throws IOException {
@@ -313,10 +319,92 @@ public class AllAnalyzer extends Analyzer {
         }
 
         public void close() throws IOException {
-            if (lastToken != null && payload != null) {
-                lastToken.setPayload(payload);
-            }
             tokenStream.close();
         }
     }
+
+    /**
+     * The tokens collected for the all property. Since every collected token is kept (and the token streams
+     * reuse their tokens), the parts the all property uses are copied into shared buffers instead of
+     * cloning a token for each one.
+     */
+    private static class CollectedTokens {
+
+        private char[] termBuffer = new char[256];
+
+        private int termBufferLength;
+
+        private int[] termOffsets = new int[32];
+
+        private int[] termLengths = new int[32];
+
+        private int[] offsetLengths = new int[32];
+
+        private int[] positionIncrements = new int[32];
+
+        private Payload[] payloads = new Payload[32];
+
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public void add(Token token, Payload payload) {
+            if (size == termOffsets.length) {
+                int newLength = size * 2;
+                termOffsets = grow(termOffsets, newLength);
+                termLengths = grow(termLengths, newLength);
+                offsetLengths = grow(offsetLengths, newLength);
+                positionIncrements = grow(positionIncrements, newLength);
+                Payload[] newPayloads = new Payload[newLength];
+                System.arraycopy(payloads, 0, newPayloads, 0, size);
+                payloads = newPayloads;
+            }
+            int termLength = token.termLength();
+            if (termBufferLength + termLength > termBuffer.length) {
+                char[] newTermBuffer = new char[Math.max(termBuffer.length * 2, termBufferLength + termLength)];
+                System.arraycopy(termBuffer, 0, newTermBuffer, 0, termBufferLength);
+                termBuffer = newTermBuffer;
+            }
+            System.arraycopy(token.termBuffer(), 0, termBuffer, termBufferLength, termLength);
+            termOffsets[size] = termBufferLength;
+            termLengths[size] = termLength;
+            termBufferLength += termLength;
+            offsetLengths[size] = token.endOffset() - token.startOffset();
+            positionIncrements[size] = token.getPositionIncrement();
+            if (payload == null && token.getPayload() != null) {
+                // the token stream might reuse its payload
+                payload = (Payload) token.getPayload().clone();
+            }
+            payloads[size] = payload;
+            size++;
+        }
+
+        /**
+         * Fills the given token with the collected token at the given index, starting at the given offset.
+         * Returns the end offset of the token.
+         */
+        public int fill(int index, Token token, int offset) {
+            int endOffset = offset + offsetLengths[index];
+            token.reinit(termBuffer, termOffsets[index], termLengths[index], offset, endOffset);
+            token.setPositionIncrement(positionIncrements[index]);
+            token.setPayload(payloads[index]);
+            return endOffset;
+        }
+
+        public void clear() {
+            termBufferLength = 0;
+            for (int i = 0; i < size; i++) {
+                payloads[i] = null;
+            }
+            size = 0;
+        }
+
+        private static int[] grow(int[] array, int newLength) {
+            int[] newArray = new int[newLength];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.compass.core.lucene.engine.analyzer;
 
+import java.io.IOException;
 import java.io.Reader;
 
 import org.apache.lucene.analysis.Analyzer;
@@ -25,6 +26,10 @@ import org.apache.lucene.analysis.TokenStream;
  * A simple analyzer wrapper, that adds a set of token filters created by the corresponding
  * {@link LuceneAnalyzerTokenFilterProvider}s.
  *
+ * <p>{@link #reusableTokenStream(String, java.io.Reader)} keeps the filters chain created per thread,
+ * and reuses it as long as the wrapped analyzer reuses its own token stream (the chain is reset
+ * instead of created again).
+ *
  * @author kimchy
  */
 public class LuceneAnalyzerFilterWrapper extends Analyzer {
@@ -39,10 +44,38 @@ public class LuceneAnalyzerFilterWrapper extends Analyzer {
     }
 
     public TokenStream tokenStream(String fieldName, Reader reader) {
-        TokenStream result = analyzer.tokenStream(fieldName, reader);
+        return wrap(analyzer.tokenStream(fieldName, reader));
+    }
+
+    public TokenStream reusableTokenStream(String fieldName, Reader reader) throws IOException {
+        TokenStream source = analyzer.reusableTokenStream(fieldName, reader);
+        SavedStreams streams = (SavedStreams) getPreviousTokenStream();
+        if (streams != null && streams.source == source) {
+            // the source has already been reset with the new reader, reset the filters
+            streams.result.reset();
+            return streams.result;
+        }
+        streams = new SavedStreams(source, wrap(source));
+        setPreviousTokenStream(streams);
+        return streams.result;
+    }
+
+    private TokenStream wrap(TokenStream result) {
         for (LuceneAnalyzerTokenFilterProvider filteresProvider : filteresProviders) {
             result = filteresProvider.createTokenFilter(result);
         }
         return result;
     }
+
+    private static final class SavedStreams {
+
+        final TokenStream source;
+
+        final TokenStream result;
+
+        SavedStreams(TokenStream source, TokenStream result) {
+            this.source = source;
+            this.result = result;
+        }
+    }
 }
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +56,8 @@ public class LuceneAnalyzerManager {
 
     private final HashMap<String, Analyzer> aliasAnalyzers = new HashMap<String, Analyzer>();
 
+    private final ConcurrentHashMap<String, Analyzer> controllerAnalyzers = new ConcurrentHashMap<String, Analyzer>();
+
     private final HashMap<String, LuceneAnalyzerTokenFilterProvider> analyzersFilters = new HashMap<String, LuceneAnalyzerTokenFilterProvider>();
 
     private final CompassMapping mapping;
@@ -209,7 +212,17 @@ public class LuceneAnalyzerManager {
         if (analyzerName == null) {
             analyzerName = analyzerController.getNullAnalyzer();
         }
-        return buildAnalyzerPerResourcePropertyIfNeeded(resourceMapping, analyzerName);
+        // cached (per alias and analyzer name) so the reusable token streams of the analyzer are reused
+        String key = alias + "/" + analyzerName;
+        Analyzer analyzer = controllerAnalyzers.get(key);
+        if (analyzer == null) {
+            analyzer = buildAnalyzerPerResourcePropertyIfNeeded(resourceMapping, analyzerName);
+            Analyzer existing = controllerAnalyzers.putIfAbsent(key, analyzer);
+            if (existing != null) {
+                analyzer = existing;
+            }
+        }
+        return analyzer;
     }
 
     public Analyzer getAnalyzerMustExist(String analyzerName) throws SearchEngineException {
@@ -35,6 +35,10 @@ public interface LuceneAnalyzerTokenFilterProvider extends CompassConfigurable {
      * Creates a new token filter based on the token stream. Called every time an
      * analysis should occur, so it would be nice to create any global level
      * data during the configuration process.
+     *
+     * <p>Filters created for {@link org.apache.lucene.analysis.Analyzer#reusableTokenStream(String, java.io.Reader)}
+     * are reused (per thread) for later analysis, and must clear any state they hold when
+     * {@link TokenStream#reset()} is called.
      */
     TokenStream createTokenFilter(TokenStream tokenStream);
 }
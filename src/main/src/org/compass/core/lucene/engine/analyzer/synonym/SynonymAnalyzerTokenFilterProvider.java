@@ -30,6 +30,10 @@ import org.compass.core.util.ClassUtils;
  * to return synonyms. The {@link SynonymFilter} in turn uses the {@link SynonymLookupProvider}
  * which should be provided in order to lookup synonyms for a given value.
  *
+ * <p>When the lookup provider is a {@link SynonymMapLookupProvider} (the default when only a synonyms
+ * file is set), its compiled {@link SynonymMap} is matched directly against the tokens using
+ * {@link SynonymMapFilter}.
+ *
  * @author kimchy
  * @see SynonymFilter
  * @see SynonymLookupProvider
@@ -38,8 +42,13 @@ public class SynonymAnalyzerTokenFilterProvider implements LuceneAnalyzerTokenFi
 
     private SynonymLookupProvider synonymLookupProvider;
 
+    private SynonymMap synonymMap;
+
     public void configure(CompassSettings settings) throws CompassException {
         String lookupProviderClassName = settings.getSetting(LuceneEnvironment.AnalyzerFilter.Synonym.LOOKUP);
+        if (lookupProviderClassName == null && settings.getSetting(LuceneEnvironment.AnalyzerFilter.Synonym.FILE) != null) {
+            lookupProviderClassName = SynonymMapLookupProvider.class.getName();
+        }
         if (lookupProviderClassName == null) {
             throw new SearchEngineException("Failed to locate synonym lookup provider, verify that you set the [" +
                     LuceneEnvironment.AnalyzerFilter.Synonym.LOOKUP + "] setting for the group");
@@ -50,9 +59,15 @@ public class SynonymAnalyzerTokenFilterProvider implements LuceneAnalyzerTokenFi
             throw new SearchEngineException("Failed to create lookup synonym provider [" + lookupProviderClassName + "]", e);
         }
         synonymLookupProvider.configure(settings);
+        if (synonymLookupProvider instanceof SynonymMapLookupProvider) {
+            synonymMap = ((SynonymMapLookupProvider) synonymLookupProvider).getSynonymMap();
+        }
     }
 
     public TokenFilter createTokenFilter(TokenStream tokenStream) {
+        if (synonymMap != null) {
+            return new SynonymMapFilter(tokenStream, synonymMap);
+        }
         return new SynonymFilter(tokenStream, synonymLookupProvider);
     }
 
@@ -17,7 +17,6 @@
 package org.compass.core.lucene.engine.analyzer.synonym;
 
 import java.io.IOException;
-import java.util.LinkedList;
 
 import org.apache.lucene.analysis.Token;
 import org.apache.lucene.analysis.TokenFilter;
@@ -27,48 +26,56 @@ import org.apache.lucene.analysis.TokenStream;
  * A synonym provider which uses {@link SynonymLookupProvider} to provide
  * synonyms for a given value.
  *
+ * <p>Synonyms are returned (with a position increment of <code>0</code>) right after the token
+ * they were found for, reusing the token passed to {@link #next(org.apache.lucene.analysis.Token)}.
+ *
  * @author kimchy
  */
 public class SynonymFilter extends TokenFilter {
 
     public static final String TOKEN_TYPE_SYNONYM = "SYNONYM";
 
-    private LinkedList synonymStack;
-
     private SynonymLookupProvider synonymLookupProvider;
 
+    private String[] synonyms;
+
+    private int synonymsLeft;
+
+    private int startOffset;
+
+    private int endOffset;
+
     public SynonymFilter(TokenStream in, SynonymLookupProvider synonymLookupProvider) {
         super(in);
         this.synonymLookupProvider = synonymLookupProvider;
-        this.synonymStack = new LinkedList();
     }
 
-    public Token next() throws IOException {
-        if (synonymStack.size() > 0) {
-            return (Token) synonymStack.removeFirst();
+    public Token next(Token reusableToken) throws IOException {
+        if (synonymsLeft > 0) {
+            // synonyms are returned in reverse order
+            reusableToken.reinit(synonyms[--synonymsLeft], startOffset, endOffset, TOKEN_TYPE_SYNONYM);
+            reusableToken.setPositionIncrement(0);
+            return reusableToken;
         }
 
-        Token token = input.next();
+        Token token = input.next(reusableToken);
         if (token == null) {
             return null;
         }
 
-        addAliasesToStack(token);
+        synonyms = synonymLookupProvider.lookupSynonyms(token.term());
+        if (synonyms != null) {
+            synonymsLeft = synonyms.length;
+            startOffset = token.startOffset();
+            endOffset = token.endOffset();
+        }
 
         return token;
     }
 
-    private void addAliasesToStack(Token token) {
-        String[] synonyms = synonymLookupProvider.lookupSynonyms(token.termText());
-
-        if (synonyms == null) {
-            return;
-        }
-
-        for (int i = 0; i < synonyms.length; i++) {
-            Token synToken = new Token(synonyms[i], token.startOffset(), token.endOffset(), TOKEN_TYPE_SYNONYM);
-            synToken.setPositionIncrement(0);
-            synonymStack.addFirst(synToken);
-        }
+    public void reset() throws IOException {
+        super.reset();
+        synonyms = null;
+        synonymsLeft = 0;
     }
 }
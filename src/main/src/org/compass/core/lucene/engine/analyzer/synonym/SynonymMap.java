@@ -0,0 +1,314 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.analyzer.synonym;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable synonym dictionary compiled into a char trie. Keys and synonyms are phrases (one
+ * or more words), words of a phrase are separated in the trie using {@link #WORD_SEPARATOR}.
+ *
+ * <p>The trie is kept as a few flat arrays (sorted child labels per node, looked up using
+ * binary search), so walking it works directly on token <code>char[]</code> buffers without
+ * creating any objects. Once built it can be shared by any number of threads.
+ *
+ * <p>Synonym files (see {@link #parse(java.io.Reader)}) have one rule per line. Comma separated
+ * phrases (<code>usa, united states, america</code>) are equivalent, each one has the others as
+ * synonyms. Explicit mappings (<code>colour, color => paint</code>) map the phrases on the left
+ * to the ones on the right. Empty lines and lines starting with <code>#</code> are ignored.
+ *
+ * @author kimchy
+ */
+public final class SynonymMap {
+
+    /**
+     * The char separating the words of a phrase in the trie.
+     */
+    public static final char WORD_SEPARATOR = '\u0000';
+
+    // the children of node n are [firstChild[n], firstChild[n + 1])
+    private final int[] firstChild;
+
+    private final char[] labels;
+
+    private final int[] targets;
+
+    // index into synonyms, -1 if the node does not end a key
+    private final int[] outputs;
+
+    // synonyms[output][synonym][word]
+    private final char[][][][] synonyms;
+
+    private final int size;
+
+    private SynonymMap(int[] firstChild, char[] labels, int[] targets, int[] outputs, char[][][][] synonyms) {
+        this.firstChild = firstChild;
+        this.labels = labels;
+        this.targets = targets;
+        this.outputs = outputs;
+        this.synonyms = synonyms;
+        this.size = synonyms.length;
+    }
+
+    /**
+     * Returns the root node of the trie.
+     */
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * Moves from the given node using the given char. Returns the new node, or <code>-1</code>
+     * if there is no such path.
+     */
+    public int step(int node, char c) {
+        int lo = firstChild[node];
+        int hi = firstChild[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                lo = mid + 1;
+            } else if (label > c) {
+                hi = mid - 1;
+            } else {
+                return targets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves from the given node using the given chars. Returns the new node, or <code>-1</code>
+     * if there is no such path.
+     */
+    public int step(int node, char[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length && node != -1; i++) {
+            node = step(node, buffer[i]);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the synonyms (each one an array of words) of the key ending at the given node, or
+     * <code>null</code> if no key ends at it.
+     */
+    public char[][][] getSynonyms(int node) {
+        int output = outputs[node];
+        return output == -1 ? null : synonyms[output];
+    }
+
+    /**
+     * Returns the synonyms (each one an array of words) of the given phrase (words separated
+     * with a single space), or <code>null</code> if it has none.
+     */
+    public char[][][] getSynonyms(String phrase) {
+        int node = getRoot();
+        for (int i = 0; i < phrase.length() && node != -1; i++) {
+            char c = phrase.charAt(i);
+            node = step(node, c == ' ' ? WORD_SEPARATOR : c);
+        }
+        return node == -1 ? null : getSynonyms(node);
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of nodes of the trie.
+     */
+    public int getNumberOfNodes() {
+        return outputs.length;
+    }
+
+    /**
+     * Parses synonym rules (see the class documentation) into a compiled map.
+     */
+    public static SynonymMap parse(Reader reader) throws IOException {
+        Builder builder = new Builder();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+            int arrow = line.indexOf("=>");
+            if (arrow == -1) {
+                builder.addEquivalent(splitPhrases(line));
+            } else {
+                String[] keys = splitPhrases(line.substring(0, arrow));
+                String[] values = splitPhrases(line.substring(arrow + 2));
+                if (keys.length == 0 || values.length == 0) {
+                    throw new IllegalArgumentException("Invalid synonym rule [" + line + "] on line [" + lineNumber + "]");
+                }
+                for (String key : keys) {
+                    builder.add(key, values);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static String[] splitPhrases(String value) {
+        ArrayList<String> phrases = new ArrayList<String>();
+        for (String phrase : value.split(",")) {
+            phrase = phrase.trim();
+            if (phrase.length() > 0) {
+                phrases.add(phrase);
+            }
+        }
+        return phrases.toArray(new String[phrases.size()]);
+    }
+
+    /**
+     * Builds a {@link SynonymMap}. Phrases are words separated by whitespace. Not thread safe.
+     */
+    public static class Builder {
+
+        private final Map<String, LinkedHashSet<String>> rules = new LinkedHashMap<String, LinkedHashSet<String>>();
+
+        /**
+         * Adds the given synonyms to the key.
+         */
+        public Builder add(String key, String... values) {
+            key = normalize(key);
+            LinkedHashSet<String> keySynonyms = rules.get(key);
+            if (keySynonyms == null) {
+                keySynonyms = new LinkedHashSet<String>();
+                rules.put(key, keySynonyms);
+            }
+            for (String value : values) {
+                value = normalize(value);
+                if (!value.equals(key)) {
+                    keySynonyms.add(value);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a group of equivalent phrases, each one will have the others as synonyms.
+         */
+        public Builder addEquivalent(String... phrases) {
+            for (String phrase : phrases) {
+                add(phrase, phrases);
+            }
+            return this;
+        }
+
+        public SynonymMap build() {
+            Node root = new Node();
+            ArrayList<char[][][]> synonyms = new ArrayList<char[][][]>();
+            for (Map.Entry<String, LinkedHashSet<String>> entry : rules.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    continue;
+                }
+                Node node = root;
+                String key = entry.getKey();
+                for (int i = 0; i < key.length(); i++) {
+                    char c = key.charAt(i);
+                    node = node.child(c == ' ' ? WORD_SEPARATOR : c);
+                }
+                char[][][] keySynonyms = new char[entry.getValue().size()][][];
+                int i = 0;
+                for (String value : entry.getValue()) {
+                    String[] words = value.split(" ");
+                    keySynonyms[i] = new char[words.length][];
+                    for (int j = 0; j < words.length; j++) {
+                        keySynonyms[i][j] = words[j].toCharArray();
+                    }
+                    i++;
+                }
+                node.output = synonyms.size();
+                synonyms.add(keySynonyms);
+            }
+
+            // number the nodes breadth first, so the children of each node are consecutive
+            ArrayList<Node> nodes = new ArrayList<Node>();
+            LinkedList<Node> queue = new LinkedList<Node>();
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node node = queue.removeFirst();
+                node.id = nodes.size();
+                nodes.add(node);
+                if (node.children != null) {
+                    queue.addAll(node.children.values());
+                }
+            }
+            int[] firstChild = new int[nodes.size() + 1];
+            char[] labels = new char[nodes.size() - 1];
+            int[] targets = new int[nodes.size() - 1];
+            int[] outputs = new int[nodes.size()];
+            int edge = 0;
+            for (Node node : nodes) {
+                firstChild[node.id] = edge;
+                outputs[node.id] = node.output;
+                if (node.children != null) {
+                    for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                        labels[edge] = child.getKey();
+                        targets[edge] = child.getValue().id;
+                        edge++;
+                    }
+                }
+            }
+            firstChild[nodes.size()] = edge;
+            return new SynonymMap(firstChild, labels, targets, outputs,
+                    synonyms.isEmpty() ? new char[0][][][] : synonyms.toArray(new char[synonyms.size()][][][]));
+        }
+
+        private static String normalize(String phrase) {
+            return phrase.trim().replaceAll("\\s+", " ");
+        }
+    }
+
+    private static final class Node {
+
+        // sorted, so the compiled labels can be binary searched
+        TreeMap<Character, Node> children;
+
+        int output = -1;
+
+        int id;
+
+        Node child(char c) {
+            if (children == null) {
+                children = new TreeMap<Character, Node>();
+            }
+            Node node = children.get(c);
+            if (node == null) {
+                node = new Node();
+                children.put(c, node);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.analyzer.synonym;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+
+/**
+ * A synonym filter matching the tokens directly against a compiled {@link SynonymMap}, including
+ * keys spanning several tokens (the longest match wins).
+ *
+ * <p>Tokens are returned as is, with the synonym words following them (with a position increment of
+ * <code>0</code>, and the offsets of the whole match). The i-th word of a multi word synonym is placed
+ * on the position of the i-th matched token, words beyond the number of matched tokens are placed on
+ * the position of the last one.
+ *
+ * <p>Tokens read ahead and synonym tokens are kept in arrays reused for the life of the filter, so
+ * once warmed up, no objects are created per token.
+ *
+ * @author kimchy
+ */
+public class SynonymMapFilter extends TokenFilter {
+
+    private final SynonymMap synonymMap;
+
+    // tokens read from the input and not returned yet
+    private Token[] lookahead = new Token[4];
+
+    private int lookaheadCount;
+
+    private boolean exhausted;
+
+    // tokens to return before reading the next token
+    private Token[] pending = new Token[4];
+
+    private int pendingCount;
+
+    private int pendingPos;
+
+    private Token[] synonymTokens = new Token[4];
+
+    public SynonymMapFilter(TokenStream in, SynonymMap synonymMap) {
+        super(in);
+        this.synonymMap = synonymMap;
+    }
+
+    public Token next(Token reusableToken) throws IOException {
+        if (pendingPos < pendingCount) {
+            return pending[pendingPos++];
+        }
+        pendingPos = 0;
+        pendingCount = 0;
+
+        Token first = peek(0);
+        if (first == null) {
+            return null;
+        }
+
+        // find the longest key starting at the first token
+        int matchedTokens = 0;
+        char[][][] synonyms = null;
+        int node = synonymMap.step(synonymMap.getRoot(), first.termBuffer(), 0, first.termLength());
+        int i = 0;
+        while (node != -1) {
+            char[][][] nodeSynonyms = synonymMap.getSynonyms(node);
+            if (nodeSynonyms != null) {
+                matchedTokens = i + 1;
+                synonyms = nodeSynonyms;
+            }
+            node = synonymMap.step(node, SynonymMap.WORD_SEPARATOR);
+            if (node == -1) {
+                break;
+            }
+            Token token = peek(++i);
+            if (token == null) {
+                break;
+            }
+            node = synonymMap.step(node, token.termBuffer(), 0, token.termLength());
+        }
+
+        if (synonyms == null) {
+            return take();
+        }
+
+        int startOffset = first.startOffset();
+        int endOffset = lookahead[matchedTokens - 1].endOffset();
+        int positions = matchedTokens;
+        for (char[][] synonym : synonyms) {
+            positions = Math.max(positions, synonym.length);
+        }
+        int synonymCount = 0;
+        for (int position = 0; position < positions; position++) {
+            if (position < matchedTokens) {
+                addPending(lookahead[position]);
+            }
+            for (char[][] synonym : synonyms) {
+                if (position >= synonym.length) {
+                    continue;
+                }
+                char[] word = synonym[position];
+                Token synonymToken = synonymToken(synonymCount++);
+                synonymToken.reinit(word, 0, word.length, startOffset, endOffset, SynonymFilter.TOKEN_TYPE_SYNONYM);
+                synonymToken.setPositionIncrement(0);
+                addPending(synonymToken);
+            }
+        }
+        consume(matchedTokens);
+        return pending[pendingPos++];
+    }
+
+    public void reset() throws IOException {
+        super.reset();
+        lookaheadCount = 0;
+        exhausted = false;
+        pendingCount = 0;
+        pendingPos = 0;
+    }
+
+    /**
+     * Returns the look ahead token at the given index, reading it from the input if needed. Returns
+     * <code>null</code> if the input has no more tokens.
+     */
+    private Token peek(int index) throws IOException {
+        while (index >= lookaheadCount) {
+            if (exhausted) {
+                return null;
+            }
+            if (lookaheadCount == lookahead.length) {
+                lookahead = grow(lookahead);
+            }
+            Token slot = lookahead[lookaheadCount];
+            if (slot == null) {
+                slot = new Token();
+                lookahead[lookaheadCount] = slot;
+            }
+            Token token = input.next(slot);
+            if (token == null) {
+                exhausted = true;
+                return null;
+            }
+            if (token != slot) {
+                slot.reinit(token);
+            }
+            lookaheadCount++;
+        }
+        return lookahead[index];
+    }
+
+    /**
+     * Removes the first look ahead token and returns it. The token remains valid until the
+     * next call to {@link #peek(int)} reads from the input again.
+     */
+    private Token take() {
+        Token token = lookahead[0];
+        consume(1);
+        return token;
+    }
+
+    private void consume(int count) {
+        // move the consumed tokens to the end so they will be reused
+        for (int i = 0; i < count; i++) {
+            Token token = lookahead[0];
+            System.arraycopy(lookahead, 1, lookahead, 0, lookaheadCount - 1);
+            lookahead[--lookaheadCount] = token;
+        }
+    }
+
+    private void addPending(Token token) {
+        if (pendingCount == pending.length) {
+            pending = grow(pending);
+        }
+        pending[pendingCount++] = token;
+    }
+
+    private Token synonymToken(int index) {
+        if (index == synonymTokens.length) {
+            synonymTokens = grow(synonymTokens);
+        }
+        Token token = synonymTokens[index];
+        if (token == null) {
+            token = new Token();
+            synonymTokens[index] = token;
+        }
+        return token;
+    }
+
+    private static Token[] grow(Token[] tokens) {
+        Token[] newTokens = new Token[tokens.length * 2];
+        System.arraycopy(tokens, 0, newTokens, 0, tokens.length);
+        return newTokens;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.analyzer.synonym;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.compass.core.CompassException;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+
+/**
+ * A synonym lookup provider that compiles a synonyms file (see {@link SynonymMap#parse(java.io.Reader)})
+ * into a {@link SynonymMap} when configured. The file is set using
+ * {@link LuceneEnvironment.AnalyzerFilter.Synonym#FILE}, and can be prefixed with <code>classpath:</code>.
+ *
+ * <p>When used with {@link SynonymAnalyzerTokenFilterProvider}, the map is matched directly against
+ * the tokens (including multi word phrases) using {@link SynonymMapFilter}.
+ *
+ * @author kimchy
+ */
+public class SynonymMapLookupProvider implements SynonymLookupProvider {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private SynonymMap synonymMap;
+
+    public void configure(CompassSettings settings) throws CompassException {
+        String file = settings.getSetting(LuceneEnvironment.AnalyzerFilter.Synonym.FILE);
+        if (file == null) {
+            throw new SearchEngineException("Failed to locate synonyms file, verify that you set the [" +
+                    LuceneEnvironment.AnalyzerFilter.Synonym.FILE + "] setting for the group");
+        }
+        InputStream is = null;
+        try {
+            if (file.startsWith(CLASSPATH_PREFIX)) {
+                is = settings.getClassLoader().getResourceAsStream(file.substring(CLASSPATH_PREFIX.length()));
+                if (is == null) {
+                    throw new SearchEngineException("Failed to find synonyms file [" + file + "] in the class path");
+                }
+            } else {
+                is = new FileInputStream(file);
+            }
+            synonymMap = SynonymMap.parse(new InputStreamReader(is, "UTF-8"));
+        } catch (IOException e) {
+            throw new SearchEngineException("Failed to read synonyms file [" + file + "]", e);
+        } catch (IllegalArgumentException e) {
+            throw new SearchEngineException("Failed to parse synonyms file [" + file + "]", e);
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    public SynonymMap getSynonymMap() {
+        return synonymMap;
+    }
+
+    /**
+     * Returns the synonyms of the given value (a phrase is returned with its words separated by a space).
+     */
+    public String[] lookupSynonyms(String value) {
+        char[][][] synonyms = synonymMap.getSynonyms(value);
+        if (synonyms == null) {
+            return null;
+        }
+        String[] result = new String[synonyms.length];
+        for (int i = 0; i < synonyms.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < synonyms[i].length; j++) {
+                if (j > 0) {
+                    sb.append(' ');
+                }
+                sb.append(synonyms[i][j]);
+            }
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+}
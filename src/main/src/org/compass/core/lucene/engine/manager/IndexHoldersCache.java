@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -32,8 +33,11 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.compass.core.CompassException;
+import org.compass.core.config.CompassSettings;
 import org.compass.core.engine.SearchEngineException;
 import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.store.localcache.LocalDirectoryCache;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.transaction.context.TransactionContextCallback;
 
 /**
@@ -67,8 +71,23 @@ public class IndexHoldersCache {
 
     private final boolean debug;
 
+    private final TermFrequenciesCache termFrequenciesCache = new TermFrequenciesCache();
+
+    private final SearchLoad searchLoad = new SearchLoad();
+
+    private final QueryResultCache queryResultCache;
+
+    /**
+     * The sub indexes with a background warm of the local cache in progress.
+     */
+    private final ConcurrentMap<String, Boolean> localCacheWarms = new ConcurrentHashMap<String, Boolean>();
+
     public IndexHoldersCache(LuceneSearchEngineIndexManager indexManager) {
         this.indexManager = indexManager;
+        CompassSettings settings = indexManager.getSettings().getSettings();
+        this.queryResultCache = new QueryResultCache(settings.getSettingAsInt(LuceneEnvironment.QueryResultCache.SIZE, 0),
+                settings.getSettingAsInt(LuceneEnvironment.QueryResultCache.MAX_DOCS, 100),
+                indexManager.getSearchEngineFactory().getMetrics().getHitRatio(CompassMetrics.RatioGroup.QUERY_RESULT_CACHE, CompassMetrics.ALL));
         for (String subIndex : indexManager.getSubIndexes()) {
             subIndexCacheLocks.put(subIndex, new IndexHolderCacheLock());
         }
@@ -117,6 +136,27 @@ public class IndexHoldersCache {
         }
     }
 
+    /**
+     * Returns the cache of the top term frequencies of the index readers.
+     */
+    public TermFrequenciesCache getTermFrequenciesCache() {
+        return termFrequenciesCache;
+    }
+
+    /**
+     * Returns the search load, tracked based on the usage of the index holders.
+     */
+    public SearchLoad getSearchLoad() {
+        return searchLoad;
+    }
+
+    /**
+     * Returns the query result cache, invalidated per sub index when a new reader is published for it.
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
     public boolean isDebug() {
         return debug;
     }
@@ -157,6 +197,7 @@ public class IndexHoldersCache {
             if (indexHolder != null) {
                 indexHolder.markForClose();
             }
+            queryResultCache.invalidate(subIndex);
         }
     }
 
@@ -293,11 +334,25 @@ public class IndexHoldersCache {
     }
 
     private LuceneIndexHolder internalRefreshCache(String subIndex) throws SearchEngineException {
+        return internalRefreshCache(subIndex, false);
+    }
+
+    /**
+     * Refreshes the cache of the given sub index. If <code>backgroundWarm</code> is <code>true</code>, and
+     * the local cache of the sub index should be warmed, the current reader is kept and the local cache is
+     * warmed in the background, see {@link #warmLocalCache(String, IndexReader, boolean)}.
+     */
+    private LuceneIndexHolder internalRefreshCache(String subIndex, boolean backgroundWarm) throws SearchEngineException {
         if (logger.isTraceEnabled()) {
             logger.trace("Refreshing cache for sub index [" + subIndex + "]");
         }
+        long start = System.nanoTime();
         LuceneIndexHolder indexHolder = indexHolders.get(subIndex);
         if (indexHolder != null) {
+            if (!warmLocalCache(subIndex, indexHolder.getIndexReader(), backgroundWarm)) {
+                // the local cache is warmed in the background, keep the current reader until it is done
+                return indexHolder;
+            }
             IndexReader reader;
             try {
                 reader = indexHolder.getIndexReader().reopen();
@@ -307,6 +362,8 @@ public class IndexHoldersCache {
             if (reader != indexHolder.getIndexReader()) {
                 LuceneIndexHolder origHolder = indexHolder;
                 indexHolder = new LuceneIndexHolder(this, subIndex, indexManager.openIndexSearcher(reader));
+                // keep the term frequencies sizes requested on the previous reader (refreshed in the background)
+                termFrequenciesCache.reopened(origHolder.getIndexReader(), reader, indexManager.getExecutorManager());
                 // since not synchronized, we need to mark the one we replaced as closed
                 LuceneIndexHolder oldHolder = indexHolders.put(subIndex, indexHolder);
                 if (oldHolder != null) {
@@ -314,12 +371,14 @@ public class IndexHoldersCache {
                 }
                 // mark the original holder as closed, we replaced it
                 origHolder.markForClose();
+                queryResultCache.invalidate(subIndex);
             } else {
                 // index did not change, we checked it now, so mark it...
                 indexHolder.setInvalidated(false);
                 indexHolder.markLastCacheInvalidation();
             }
         } else {
+            warmLocalCache(subIndex, null, false);
             try {
                 IndexReader reader = IndexReader.open(indexManager.getDirectory(subIndex), true);
                 indexHolder = new LuceneIndexHolder(this, subIndex, indexManager.openIndexSearcher(reader));
@@ -332,9 +391,96 @@ public class IndexHoldersCache {
                 oldHolder.markForClose();
             }
         }
+        indexManager.getSearchEngineFactory().getMetrics().getHistogram(CompassMetrics.Group.READER_REFRESH, subIndex).record(System.nanoTime() - start);
         return indexHolder;
     }
 
+    /**
+     * Fetches the files of the latest commit point to the local cache (if used and configured to warm) so
+     * the new reader is only published once its files are local. Only done when there is no current reader,
+     * or when the index has a newer commit point than the current reader. A failure is not fatal, files not
+     * fetched will be fetched lazily when first read.
+     *
+     * <p>Explicit refreshes, and refreshes of invalidated holders done by searches, fetch the files using
+     * the calling thread, since they must see the latest commit point. Scheduled background refreshes
+     * (<code>background</code> is <code>true</code>) keep the current reader and fetch the files on the
+     * executor manager instead, refreshing the sub index cache again once done, so the cache lock is not
+     * held (and searches are not blocked) while the files are fetched.
+     *
+     * @return <code>true</code> if the new reader can be opened now, <code>false</code> if the current
+     *         reader should be kept since the local cache is being warmed in the background
+     */
+    private boolean warmLocalCache(final String subIndex, IndexReader currentReader, boolean background) {
+        Directory dir = indexManager.getDirectory(subIndex);
+        if (!(dir instanceof LocalDirectoryCache) || !((LocalDirectoryCache) dir).isWarm()) {
+            return true;
+        }
+        final LocalDirectoryCache localDirectoryCache = (LocalDirectoryCache) dir;
+        if (currentReader != null) {
+            if (background && localCacheWarms.containsKey(subIndex)) {
+                return false;
+            }
+            try {
+                if (isCurrent(currentReader)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to check if sub index [" + subIndex + "] is current, not warming local cache", e);
+                return true;
+            }
+        }
+        if (currentReader == null || !background || indexManager.getExecutorManager().isDisabled()) {
+            warm(subIndex, localDirectoryCache);
+            return true;
+        }
+        localCacheWarms.put(subIndex, Boolean.TRUE);
+        try {
+            indexManager.getExecutorManager().submit(new Runnable() {
+                public void run() {
+                    try {
+                        indexManager.getTransactionContext().execute(new TransactionContextCallback<Object>() {
+                            public Object doInTransaction() throws CompassException {
+                                try {
+                                    warm(subIndex, localDirectoryCache);
+                                } finally {
+                                    localCacheWarms.remove(subIndex);
+                                }
+                                // publish the new reader, files of a newer commit point (if any) are fetched now
+                                refreshCache(subIndex);
+                                return null;
+                            }
+                        });
+                    } catch (Exception e) {
+                        logger.warn("Failed to refresh cache for sub index [" + subIndex + "] after warming local cache", e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            localCacheWarms.remove(subIndex);
+            warm(subIndex, localDirectoryCache);
+            return true;
+        }
+        return false;
+    }
+
+    private void warm(String subIndex, LocalDirectoryCache dir) {
+        try {
+            dir.warm();
+        } catch (FileNotFoundException e) {
+            // no segments file, no index
+        } catch (IOException e) {
+            logger.warn("Failed to warm local cache for sub index [" + subIndex + "]", e);
+        }
+    }
+
+    private boolean isCurrent(IndexReader reader) throws IOException {
+        try {
+            return reader.isCurrent();
+        } catch (AlreadyClosedException e) {
+            return false;
+        }
+    }
+
     /**
      * Checks if a an index holder should be invalidated.
      */
@@ -382,7 +528,7 @@ public class IndexHoldersCache {
                                 LuceneIndexHolder indexHolder = indexHolders.get(subIndex);
                                 if (shouldInvalidateCache(indexHolder)) {
                                     synchronized (subIndexCacheLocks.get(subIndex)) {
-                                        internalRefreshCache(subIndex);
+                                        internalRefreshCache(subIndex, true);
                                     }
                                 }
                             } else {
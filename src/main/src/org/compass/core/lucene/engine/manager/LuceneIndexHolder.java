@@ -79,11 +79,13 @@ public class LuceneIndexHolder {
             return false;
         }
         count++;
+        indexHoldersCache.getSearchLoad().searchStarted();
         return true;
     }
 
     public synchronized void release() {
         count--;
+        indexHoldersCache.getSearchLoad().searchEnded();
         checkIfCanClose();
     }
 
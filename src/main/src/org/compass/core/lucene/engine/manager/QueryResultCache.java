@@ -0,0 +1,251 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.manager;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.compass.core.lucene.engine.queryparser.DefaultLuceneQueryParser;
+import org.compass.core.metrics.HitRatio;
+
+/**
+ * A bounded (LRU) cache of the top documents (ids and scores) of queries. An entry is keyed by the query,
+ * the filter, the sort and the version of the index reader of each searched sub index, so a query is only
+ * answered from the cache when executed against the exact same readers.
+ *
+ * <p>{@link IndexHoldersCache} invalidates the entries of a sub index when it publishes a new reader
+ * for it, so entries of old readers do not wait for the LRU eviction.
+ *
+ * <p>Queries and filters are compared using <code>equals</code>, so filters that do not implement it will
+ * not be answered from the cache. Since queries are mutable, the key holds a deep copy of the query, and
+ * queries that can not be copied safely (see {@link DefaultLuceneQueryParser#copyQuery(Query)}) are not
+ * cached. Cached top documents must not be changed.
+ *
+ * <p>The cache is split into segments (chosen by the hash of the key), each one a bounded LRU map with its
+ * own lock, so concurrent searches do not contend on a single lock. The LRU order is kept per segment.
+ *
+ * @author kimchy
+ */
+public class QueryResultCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int size;
+
+    private final int maxDocs;
+
+    private final HitRatio hitRatio;
+
+    private final Segment[] segments;
+
+    public QueryResultCache(int size, int maxDocs, HitRatio hitRatio) {
+        this.size = size;
+        this.maxDocs = maxDocs;
+        this.hitRatio = hitRatio;
+        int numberOfSegments = Math.max(1, Math.min(MAX_SEGMENTS, size));
+        this.segments = new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            // spread the size over the segments, the total never exceeds the configured size
+            segments[i] = new Segment(size / numberOfSegments + (i < size % numberOfSegments ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if results should be cached.
+     */
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Returns the number of top documents that should be cached per query.
+     */
+    public int getMaxDocs() {
+        return maxDocs;
+    }
+
+    /**
+     * Creates the key for the given query, executed against the given index holders. Returns
+     * <code>null</code> if the query can not be copied safely, in which case its results should not be cached.
+     */
+    public Key createKey(Query query, Filter filter, Sort sort, List<LuceneIndexHolder> indexHolders) {
+        // queries are mutable, keep a deep copy as the key
+        Query copy = DefaultLuceneQueryParser.copyQuery(query);
+        if (copy == null) {
+            return null;
+        }
+        String[] subIndexes = new String[indexHolders.size()];
+        long[] versions = new long[indexHolders.size()];
+        for (int i = 0; i < subIndexes.length; i++) {
+            LuceneIndexHolder indexHolder = indexHolders.get(i);
+            subIndexes[i] = indexHolder.getSubIndex();
+            versions[i] = indexHolder.getIndexReader().getVersion();
+        }
+        return new Key(copy, filter, sort == null ? null : sort.toString(), subIndexes, versions);
+    }
+
+    /**
+     * Returns the cached top documents, <code>null</code> if they are not cached.
+     */
+    public TopDocs get(Key key) {
+        Segment segment = segmentFor(key);
+        TopDocs topDocs;
+        synchronized (segment) {
+            topDocs = segment.get(key);
+        }
+        if (topDocs == null) {
+            hitRatio.miss();
+        } else {
+            hitRatio.hit();
+        }
+        return topDocs;
+    }
+
+    public void put(Key key, TopDocs topDocs) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, topDocs);
+        }
+    }
+
+    /**
+     * Removes all the entries the given sub index is part of.
+     */
+    public void invalidate(String subIndex) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Iterator<Key> it = segment.keySet().iterator(); it.hasNext();) {
+                    if (it.next().hasSubIndex(subIndex)) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public int getSize() {
+        int count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        // spread the bits, the low ones of query hash codes are not well distributed
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * A bounded, access ordered, segment of the cache. Access should be synchronized on the segment.
+     */
+    private static final class Segment extends LinkedHashMap<Key, TopDocs> {
+
+        private final int size;
+
+        private Segment(int size) {
+            super(16, 0.75f, true);
+            this.size = size;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<Key, TopDocs> eldest) {
+            return size() > size;
+        }
+    }
+
+    /**
+     * The key of a cached query result.
+     */
+    public static final class Key {
+
+        private final Query query;
+
+        private final Filter filter;
+
+        private final String sort;
+
+        private final String[] subIndexes;
+
+        private final long[] versions;
+
+        private final int hashCode;
+
+        private Key(Query query, Filter filter, String sort, String[] subIndexes, long[] versions) {
+            this.query = query;
+            this.filter = filter;
+            this.sort = sort;
+            this.subIndexes = subIndexes;
+            this.versions = versions;
+            int result = query.hashCode();
+            result = 31 * result + (filter == null ? 0 : filter.hashCode());
+            result = 31 * result + (sort == null ? 0 : sort.hashCode());
+            result = 31 * result + Arrays.hashCode(subIndexes);
+            result = 31 * result + Arrays.hashCode(versions);
+            this.hashCode = result;
+        }
+
+        boolean hasSubIndex(String subIndex) {
+            for (String s : subIndexes) {
+                if (s.equals(subIndex)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && query.equals(key.query)
+                    && (filter == null ? key.filter == null : filter.equals(key.filter))
+                    && (sort == null ? key.sort == null : sort.equals(key.sort))
+                    && Arrays.equals(subIndexes, key.subIndexes) && Arrays.equals(versions, key.versions);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.lucene.engine.manager;
+
+/**
+ * Tracks the search load of the index based on the usage of the {@link LuceneIndexHolder}s handed
+ * out by the {@link IndexHoldersCache}.
+ *
+ * <p>The number of currently acquired holders is the search concurrency. The average search time is
+ * derived from it using Little's law (the average concurrency divided by the rate of completed searches)
+ * over windows of one second, and smoothed across windows. This allows to compute it without tracking
+ * the start time of each search.
+ *
+ * @author kimchy
+ */
+public class SearchLoad {
+
+    private static final long WINDOW_NANOS = 1000000000;
+
+    private static final double SMOOTHING = 0.3;
+
+    private int activeSearches;
+
+    private long lastChange = System.nanoTime();
+
+    private long windowStart = lastChange;
+
+    private double windowBusyTime;
+
+    private long windowCompletedSearches;
+
+    private double averageSearchTime;
+
+    private long totalSearches;
+
+    /**
+     * Called when an index holder is acquired.
+     */
+    public synchronized void searchStarted() {
+        accumulate(System.nanoTime());
+        activeSearches++;
+        totalSearches++;
+    }
+
+    /**
+     * Called when an index holder is released.
+     */
+    public synchronized void searchEnded() {
+        accumulate(System.nanoTime());
+        if (activeSearches > 0) {
+            activeSearches--;
+        }
+        windowCompletedSearches++;
+    }
+
+    /**
+     * Returns the number of searches currently running (holders that are acquired).
+     */
+    public synchronized int getActiveSearches() {
+        return activeSearches;
+    }
+
+    /**
+     * Returns the total number of searches started.
+     */
+    public synchronized long getTotalSearches() {
+        return totalSearches;
+    }
+
+    /**
+     * Returns the (smoothed) average time a search takes, in milliseconds.
+     */
+    public synchronized double getAverageSearchTimeInMillis() {
+        long now = System.nanoTime();
+        accumulate(now);
+        if (now - windowStart >= WINDOW_NANOS) {
+            if (windowCompletedSearches > 0) {
+                double sample = windowBusyTime / windowCompletedSearches;
+                averageSearchTime = averageSearchTime == 0 ? sample : (1 - SMOOTHING) * averageSearchTime + SMOOTHING * sample;
+            } else if (activeSearches == 0) {
+                // no searches at all, decay the average
+                averageSearchTime = (1 - SMOOTHING) * averageSearchTime;
+            }
+            windowStart = now;
+            windowBusyTime = 0;
+            windowCompletedSearches = 0;
+        }
+        return averageSearchTime / 1000000;
+    }
+
+    private void accumulate(long now) {
+        windowBusyTime += (double) activeSearches * (now - lastChange);
+        lastChange = now;
+    }
+}
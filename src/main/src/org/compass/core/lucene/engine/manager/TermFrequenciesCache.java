@@ -0,0 +1,354 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.manager;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.compass.core.executor.ExecutorManager;
+
+/**
+ * Caches the terms with the highest document frequencies of properties, per index reader. Since
+ * readers are immutable, the terms of a property are enumerated only once per reader (and not on
+ * each term frequencies request).
+ *
+ * <p>Only the top terms (at least {@link #MIN_SIZE}) are kept for each property, using a bounded
+ * heap. A request for more terms than cached enumerates the terms again and keeps the larger size.
+ *
+ * <p>When the {@link IndexHoldersCache} reopens a reader, the sizes requested on the previous reader
+ * are carried over to the new one and the terms of the new reader are enumerated in the background
+ * (see {@link #reopened(IndexReader, IndexReader, ExecutorManager)}). Until the enumeration is done, requests
+ * on the new reader use the top terms of the previous reader as candidates and count them (using their
+ * document frequency) on the new reader, which means terms that became frequent only since the previous
+ * reader are missing until the enumeration is done. With no executor, the terms of the new reader are
+ * enumerated lazily, on the first request for the property.
+ *
+ * @author kimchy
+ */
+public class TermFrequenciesCache {
+
+    private static final Log logger = LogFactory.getLog(TermFrequenciesCache.class);
+
+    /**
+     * The minimum number of top terms kept per property.
+     */
+    public static final int MIN_SIZE = 100;
+
+    private final Map<IndexReader, ReaderTermFrequencies> cache = new WeakHashMap<IndexReader, ReaderTermFrequencies>();
+
+    /**
+     * Returns the top terms of the property within the given reader, sorted by their
+     * frequency (highest first). At least <code>size</code> terms are returned if the property
+     * has that many terms.
+     */
+    public TopTerms getTopTerms(IndexReader reader, String propertyName, int size) throws IOException {
+        return getReaderTermFrequencies(reader).getTopTerms(propertyName, size);
+    }
+
+    /**
+     * Carries the sizes requested on the old reader over to the new (reopened) one, so the new reader loads
+     * as many top terms as were cached for the old one. If the executor manager is not disabled, the top
+     * terms of the new reader are loaded in the background, and the top terms of the old reader are used
+     * as candidates in the meantime.
+     */
+    public void reopened(IndexReader oldReader, IndexReader newReader, ExecutorManager executorManager) {
+        ReaderTermFrequencies oldTermFrequencies;
+        synchronized (cache) {
+            oldTermFrequencies = cache.get(oldReader);
+        }
+        if (oldTermFrequencies == null) {
+            return;
+        }
+        final ReaderTermFrequencies newTermFrequencies = getReaderTermFrequencies(newReader);
+        newTermFrequencies.addSizes(oldTermFrequencies.getSizes());
+        if (executorManager == null || executorManager.isDisabled()) {
+            return;
+        }
+        newTermFrequencies.startRefresh(oldTermFrequencies.getTopTerms());
+        try {
+            executorManager.submit(new Runnable() {
+                public void run() {
+                    newTermFrequencies.refresh();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down, load lazily
+            newTermFrequencies.endRefresh();
+        }
+    }
+
+    /**
+     * Clears all the cached term frequencies.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private ReaderTermFrequencies getReaderTermFrequencies(IndexReader reader) {
+        synchronized (cache) {
+            ReaderTermFrequencies termFrequencies = cache.get(reader);
+            if (termFrequencies == null) {
+                // hold a weak reference to the reader, otherwise it will never be removed from the cache
+                termFrequencies = new ReaderTermFrequencies(new WeakReference<IndexReader>(reader));
+                cache.put(reader, termFrequencies);
+            }
+            return termFrequencies;
+        }
+    }
+
+    /**
+     * The top terms of a property, sorted by frequency (highest first).
+     */
+    public static class TopTerms {
+
+        private final String[] terms;
+
+        private final int[] freqs;
+
+        private final boolean complete;
+
+        TopTerms(String[] terms, int[] freqs, boolean complete) {
+            this.terms = terms;
+            this.freqs = freqs;
+            this.complete = complete;
+        }
+
+        public int size() {
+            return terms.length;
+        }
+
+        public String getTerm(int index) {
+            return terms[index];
+        }
+
+        public int getFreq(int index) {
+            return freqs[index];
+        }
+
+        /**
+         * Returns <code>true</code> if all the terms of the property are included.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private static class ReaderTermFrequencies {
+
+        private final WeakReference<IndexReader> readerRef;
+
+        private final Map<String, TopTerms> topTermsByProperty = new HashMap<String, TopTerms>();
+
+        private final Map<String, Integer> sizes = new HashMap<String, Integer>();
+
+        // the top terms of the previous reader, used as candidates while refreshing
+        private Map<String, TopTerms> previousTopTermsByProperty;
+
+        private ReaderTermFrequencies(WeakReference<IndexReader> readerRef) {
+            this.readerRef = readerRef;
+        }
+
+        public synchronized Map<String, TopTerms> getTopTerms() {
+            Map<String, TopTerms> topTerms = new HashMap<String, TopTerms>(topTermsByProperty);
+            if (previousTopTermsByProperty != null) {
+                for (Map.Entry<String, TopTerms> entry : previousTopTermsByProperty.entrySet()) {
+                    if (!topTerms.containsKey(entry.getKey())) {
+                        topTerms.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            return topTerms;
+        }
+
+        public synchronized void startRefresh(Map<String, TopTerms> previousTopTermsByProperty) {
+            this.previousTopTermsByProperty = previousTopTermsByProperty;
+        }
+
+        public synchronized void endRefresh() {
+            this.previousTopTermsByProperty = null;
+        }
+
+        /**
+         * Loads the top terms of all the properties with a known size, enumerating the terms
+         * without holding the lock.
+         */
+        public void refresh() {
+            try {
+                for (Map.Entry<String, Integer> entry : getSizes().entrySet()) {
+                    IndexReader reader = readerRef.get();
+                    if (reader == null) {
+                        return;
+                    }
+                    TopTerms topTerms = loadTopTerms(reader, entry.getKey(), entry.getValue());
+                    put(entry.getKey(), topTerms, entry.getValue());
+                }
+            } catch (AlreadyClosedException e) {
+                // the reader was closed (replaced) while refreshing, nothing to do
+            } catch (IOException e) {
+                logger.warn("Failed to load term frequencies, will be loaded on the next request", e);
+            } finally {
+                endRefresh();
+            }
+        }
+
+        public synchronized Map<String, Integer> getSizes() {
+            return new HashMap<String, Integer>(sizes);
+        }
+
+        public synchronized void addSizes(Map<String, Integer> sizes) {
+            for (Map.Entry<String, Integer> entry : sizes.entrySet()) {
+                Integer size = this.sizes.get(entry.getKey());
+                if (size == null || size < entry.getValue()) {
+                    this.sizes.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        public TopTerms getTopTerms(String propertyName, int size) throws IOException {
+            TopTerms candidates = null;
+            int cacheSize = Math.max(size, MIN_SIZE);
+            synchronized (this) {
+                TopTerms topTerms = topTermsByProperty.get(propertyName);
+                if (topTerms != null && (topTerms.isComplete() || topTerms.size() >= size)) {
+                    return topTerms;
+                }
+                if (previousTopTermsByProperty != null) {
+                    TopTerms previousTopTerms = previousTopTermsByProperty.get(propertyName);
+                    if (previousTopTerms != null && (previousTopTerms.isComplete() || previousTopTerms.size() >= size)) {
+                        candidates = previousTopTerms;
+                    }
+                }
+                Integer previousSize = sizes.get(propertyName);
+                if (previousSize != null && previousSize > cacheSize) {
+                    cacheSize = previousSize;
+                }
+            }
+            IndexReader reader = readerRef.get();
+            if (reader == null) {
+                throw new IOException("Reader was already released");
+            }
+            if (candidates != null) {
+                return countTopTerms(reader, propertyName, candidates);
+            }
+            TopTerms topTerms = loadTopTerms(reader, propertyName, cacheSize);
+            put(propertyName, topTerms, cacheSize);
+            return topTerms;
+        }
+
+        private synchronized void put(String propertyName, TopTerms topTerms, int size) {
+            TopTerms existing = topTermsByProperty.get(propertyName);
+            if (existing == null || (!existing.isComplete() && existing.size() < topTerms.size())) {
+                topTermsByProperty.put(propertyName, topTerms);
+            }
+            Integer existingSize = sizes.get(propertyName);
+            if (existingSize == null || existingSize < size) {
+                sizes.put(propertyName, size);
+            }
+        }
+
+        /**
+         * Counts the candidate terms (the top terms of a previous reader) on the given reader. Not cached,
+         * and not complete since the reader might have terms the candidates do not include.
+         */
+        private TopTerms countTopTerms(IndexReader reader, String propertyName, TopTerms candidates) throws IOException {
+            propertyName = propertyName.intern();
+            TermFreq[] termFreqs = new TermFreq[candidates.size()];
+            int count = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                int freq = reader.docFreq(new Term(propertyName, candidates.getTerm(i)));
+                if (freq > 0) {
+                    termFreqs[count++] = new TermFreq(candidates.getTerm(i), freq);
+                }
+            }
+            Arrays.sort(termFreqs, 0, count);
+            String[] terms = new String[count];
+            int[] freqs = new int[count];
+            for (int i = 0; i < count; i++) {
+                terms[i] = termFreqs[count - 1 - i].term;
+                freqs[i] = termFreqs[count - 1 - i].freq;
+            }
+            return new TopTerms(terms, freqs, false);
+        }
+
+        private TopTerms loadTopTerms(IndexReader reader, String propertyName, int size) throws IOException {
+            propertyName = propertyName.intern();
+            // a min heap, the lowest frequency is the one replaced. It grows as needed, so do not
+            // allocate it upfront with the requested size (which can be very large)
+            PriorityQueue<TermFreq> queue = new PriorityQueue<TermFreq>(Math.min(size, MIN_SIZE) + 1);
+            boolean complete = true;
+            TermEnum termEnum = reader.terms(new Term(propertyName, ""));
+            try {
+                do {
+                    Term term = termEnum.term();
+                    if (term == null || term.field() != propertyName) {
+                        break;
+                    }
+                    int freq = termEnum.docFreq();
+                    if (queue.size() < size) {
+                        queue.add(new TermFreq(term.text(), freq));
+                    } else {
+                        complete = false;
+                        if (freq > queue.peek().freq) {
+                            queue.poll();
+                            queue.add(new TermFreq(term.text(), freq));
+                        }
+                    }
+                } while (termEnum.next());
+            } finally {
+                termEnum.close();
+            }
+            String[] terms = new String[queue.size()];
+            int[] freqs = new int[queue.size()];
+            for (int i = terms.length - 1; i >= 0; i--) {
+                TermFreq termFreq = queue.poll();
+                terms[i] = termFreq.term;
+                freqs[i] = termFreq.freq;
+            }
+            return new TopTerms(terms, freqs, complete);
+        }
+    }
+
+    private static class TermFreq implements Comparable<TermFreq> {
+
+        final String term;
+
+        final int freq;
+
+        TermFreq(String term, int freq) {
+            this.term = term;
+            this.freq = freq;
+        }
+
+        public int compareTo(TermFreq o) {
+            return freq < o.freq ? -1 : (freq == o.freq ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.merge.scheduler;
+
+import org.apache.lucene.index.AdaptiveMergeScheduler;
+import org.apache.lucene.index.MergeScheduler;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.manager.LuceneSearchEngineIndexManager;
+
+/**
+ * A provider for Compass {@link org.apache.lucene.index.AdaptiveMergeScheduler} allowing to configure
+ * using {@link org.compass.core.lucene.LuceneEnvironment.MergeScheduler.Adaptive}.
+ *
+ * @author kimchy
+ */
+public class AdaptiveMergeSchedulerProvider implements MergeSchedulerProvider {
+
+    public MergeScheduler create(LuceneSearchEngineIndexManager indexManager, CompassSettings settings) throws SearchEngineException {
+        AdaptiveMergeScheduler mergeScheduler = new AdaptiveMergeScheduler(indexManager.getExecutorManager(),
+                indexManager.getTransactionContext(), indexManager.getIndexHoldersCache().getSearchLoad());
+        mergeScheduler.setMaxConcurrentMerges(settings.getSettingAsInt(LuceneEnvironment.MergeScheduler.Adaptive.MAX_CONCURRENT_MERGE, 3));
+        mergeScheduler.setMaxSearchConcurrency(settings.getSettingAsInt(LuceneEnvironment.MergeScheduler.Adaptive.MAX_SEARCH_CONCURRENCY, Runtime.getRuntime().availableProcessors()));
+        mergeScheduler.setMaxSearchTime(settings.getSettingAsTimeInMillis(LuceneEnvironment.MergeScheduler.Adaptive.MAX_SEARCH_TIME, 500));
+        mergeScheduler.setLargeMergeSize(settings.getSettingAsBytes(LuceneEnvironment.MergeScheduler.Adaptive.LARGE_MERGE_SIZE, 100 * 1024 * 1024));
+        mergeScheduler.setMaxPauseTime(settings.getSettingAsTimeInMillis(LuceneEnvironment.MergeScheduler.Adaptive.MAX_PAUSE_TIME, 60000));
+        String largeMergeHours = settings.getSetting(LuceneEnvironment.MergeScheduler.Adaptive.LARGE_MERGE_HOURS);
+        if (largeMergeHours != null) {
+            int index = largeMergeHours.indexOf('-');
+            if (index == -1) {
+                throw new SearchEngineException("Large merge hours [" + largeMergeHours + "] must be in the form of from-to, for example 22-6");
+            }
+            try {
+                int fromHour = Integer.parseInt(largeMergeHours.substring(0, index).trim());
+                int toHour = Integer.parseInt(largeMergeHours.substring(index + 1).trim());
+                mergeScheduler.setLargeMergeHours(fromHour, toHour);
+            } catch (NumberFormatException e) {
+                throw new SearchEngineException("Large merge hours [" + largeMergeHours + "] must be in the form of from-to, for example 22-6", e);
+            }
+        }
+        return mergeScheduler;
+    }
+}
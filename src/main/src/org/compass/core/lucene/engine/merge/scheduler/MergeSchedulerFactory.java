@@ -24,6 +24,8 @@ public class MergeSchedulerFactory {
         MergeSchedulerProvider provider;
         if (type.equals(LuceneEnvironment.MergeScheduler.Executor.NAME)) {
             provider = new ExecutorMergeSchedulerProvider();
+        } else if (type.equals(LuceneEnvironment.MergeScheduler.Adaptive.NAME)) {
+            provider = new AdaptiveMergeSchedulerProvider();
         } else if (type.equals(LuceneEnvironment.MergeScheduler.Concurrent.NAME)) {
             provider = new ConcurrentMergeSchedulerProvider();
         } else if (type.equals(LuceneEnvironment.MergeScheduler.Serial.NAME)) {
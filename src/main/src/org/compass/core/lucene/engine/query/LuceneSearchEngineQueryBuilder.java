@@ -40,6 +40,7 @@ import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
 import org.compass.core.lucene.engine.LuceneSearchEngineQuery;
 import org.compass.core.lucene.engine.LuceneSearchEngineQuery.LuceneSearchEngineSpanQuery;
 import org.compass.core.lucene.search.ConstantScorePrefixQuery;
+import org.compass.core.lucene.support.WildcardIndexHelper;
 
 /**
  * @author kimchy
@@ -114,7 +115,11 @@ public class LuceneSearchEngineQueryBuilder implements SearchEngineQueryBuilder
     }
 
     public SearchEngineQuery wildcard(String resourcePropertyName, String wildcard) {
-        Query query = new WildcardQuery(new Term(resourcePropertyName, wildcard));
+        Query query = WildcardIndexHelper.createWildcardQuery(resourcePropertyName, wildcard,
+                searchEngineFactory.getMapping().getResourcePropertyMappingsByPath(resourcePropertyName));
+        if (query == null) {
+            query = new WildcardQuery(new Term(resourcePropertyName, wildcard));
+        }
         return new LuceneSearchEngineQuery(searchEngineFactory, query);
     }
 
@@ -16,17 +16,31 @@
 
 package org.compass.core.lucene.engine.queryparser;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.CompassMultiFieldQueryParser;
 import org.apache.lucene.queryParser.CompassQueryParser;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreRangeQuery;
 import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.RangeQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
 import org.compass.core.CompassException;
 import org.compass.core.config.CompassConfigurable;
 import org.compass.core.config.CompassMappingAware;
@@ -36,11 +50,17 @@ import org.compass.core.config.SearchEngineFactoryAware;
 import org.compass.core.engine.SearchEngineFactory;
 import org.compass.core.engine.SearchEngineQueryParseException;
 import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.all.AllBoostingTermQuery;
+import org.compass.core.lucene.search.ConstantScorePrefixQuery;
 import org.compass.core.mapping.CompassMapping;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.HitRatio;
 
 /**
  * The deafult Lucene query parser. Uses {@link org.compass.core.lucene.LuceneEnvironment.QueryParser#DEFAULT_PARSER_ALLOW_LEADING_WILDCARD}
  *
+ * <p>Parsed queries can be cached (bounded, LRU) using {@link org.compass.core.lucene.LuceneEnvironment.QueryParser#DEFAULT_PARSER_CACHE_SIZE}.
+ *
  * @author kimchy
  */
 public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappingAware, SearchEngineFactoryAware, CompassConfigurable {
@@ -61,6 +81,10 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
 
     private QueryParser.Operator defaultOperator;
 
+    private LinkedHashMap<ParsedQueryKey, QueryHolder> parsedQueryCache;
+
+    private HitRatio parsedQueryCacheHitRatio = HitRatio.NOOP;
+
     public void configure(CompassSettings settings) throws CompassException {
         allowLeadingWildcard = settings.getSettingAsBoolean(LuceneEnvironment.QueryParser.DEFAULT_PARSER_ALLOW_LEADING_WILDCARD, true);
         allowConstantScorePrefixQuery = settings.getSettingAsBoolean(LuceneEnvironment.QueryParser.DEFAULT_PARSER_ALLOW_CONSTANT_SCORE_PREFIX_QUERY, true);
@@ -74,6 +98,14 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
         } else {
             throw new ConfigurationException("Defualt query string operator [" + sDefaultOperator + "] not recognized.");
         }
+        final int cacheSize = getParsedQueryCacheSize(settings);
+        if (cacheSize > 0) {
+            parsedQueryCache = new LinkedHashMap<ParsedQueryKey, QueryHolder>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<ParsedQueryKey, QueryHolder> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
         if (log.isDebugEnabled()) {
             log.debug("Query Parser configured with allowLeadingWildcard [" + allowLeadingWildcard + "] and allowConstantScorePrefixQuery [" + allowConstantScorePrefixQuery + "]");
         }
@@ -85,9 +117,18 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
 
     public void setSearchEngineFactory(SearchEngineFactory searchEngineFactory) {
         this.searchEngineFactory = searchEngineFactory;
+        this.parsedQueryCacheHitRatio = searchEngineFactory.getMetrics().getHitRatio(CompassMetrics.RatioGroup.QUERY_PARSER_CACHE, CompassMetrics.ALL);
     }
 
     public QueryHolder parse(String property, QueryParser.Operator operator, Analyzer analyzer, boolean forceAnalyzer, String queryString) throws SearchEngineQueryParseException {
+        ParsedQueryKey key = null;
+        if (parsedQueryCache != null) {
+            key = new ParsedQueryKey(queryString, new String[]{property}, null, getOperator(operator), analyzer, forceAnalyzer, false);
+            QueryHolder queryHolder = getCachedQuery(key);
+            if (queryHolder != null) {
+                return queryHolder;
+            }
+        }
         CompassQueryParser queryParser = createQueryParser(property, analyzer, forceAnalyzer);
         queryParser.setDefaultOperator(getOperator(operator));
         queryParser.setAllowLeadingWildcard(allowLeadingWildcard);
@@ -96,7 +137,11 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
         queryParser.setFuzzyPrefixLength(fuzzyPrefixLength);
         try {
             Query query = queryParser.parse(queryString);
-            return new QueryHolder(query, queryParser.isSuggestedQuery());
+            QueryHolder queryHolder = new QueryHolder(query, queryParser.isSuggestedQuery());
+            if (key != null) {
+                cacheQuery(key, queryHolder);
+            }
+            return queryHolder;
         } catch (ParseException e) {
             throw new SearchEngineQueryParseException(queryString, e);
         } catch (IllegalArgumentException e) {
@@ -107,6 +152,14 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
     }
 
     public QueryHolder parse(String[] properties, Map<String, Float> boosts, QueryParser.Operator operator, Analyzer analyzer, boolean forceAnalyzer, String queryString) throws SearchEngineQueryParseException {
+        ParsedQueryKey key = null;
+        if (parsedQueryCache != null) {
+            key = new ParsedQueryKey(queryString, properties, boosts, getOperator(operator), analyzer, forceAnalyzer, true);
+            QueryHolder queryHolder = getCachedQuery(key);
+            if (queryHolder != null) {
+                return queryHolder;
+            }
+        }
         CompassMultiFieldQueryParser queryParser = createMultiQueryParser(properties, boosts, analyzer, forceAnalyzer);
         queryParser.setDefaultOperator(getOperator(operator));
         queryParser.setAllowLeadingWildcard(allowLeadingWildcard);
@@ -115,7 +168,11 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
         queryParser.setFuzzyPrefixLength(fuzzyPrefixLength);
         try {
             Query query = queryParser.parse(queryString);
-            return new QueryHolder(query, queryParser.isSuggestedQuery());
+            QueryHolder queryHolder = new QueryHolder(query, queryParser.isSuggestedQuery());
+            if (key != null) {
+                cacheQuery(key, queryHolder);
+            }
+            return queryHolder;
         } catch (ParseException e) {
             throw new SearchEngineQueryParseException(queryString, e);
         } catch (IllegalArgumentException e) {
@@ -125,6 +182,95 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
         }
     }
 
+    /**
+     * Returns the maximum number of parsed queries to cache, <code>0</code> to disable caching. Query
+     * parsers whose results depend on more than the parse parameters should return <code>0</code>.
+     */
+    protected int getParsedQueryCacheSize(CompassSettings settings) {
+        return settings.getSettingAsInt(LuceneEnvironment.QueryParser.DEFAULT_PARSER_CACHE_SIZE, 0);
+    }
+
+    private QueryHolder getCachedQuery(ParsedQueryKey key) {
+        QueryHolder queryHolder;
+        synchronized (parsedQueryCache) {
+            queryHolder = parsedQueryCache.get(key);
+        }
+        if (queryHolder == null) {
+            parsedQueryCacheHitRatio.miss();
+            return null;
+        }
+        parsedQueryCacheHitRatio.hit();
+        // queries are mutable, never hand out the cached one
+        return new QueryHolder(copyQuery(queryHolder.getQuery()), queryHolder.isSuggested());
+    }
+
+    private void cacheQuery(ParsedQueryKey key, QueryHolder queryHolder) {
+        Query query = copyQuery(queryHolder.getQuery());
+        if (query == null) {
+            // can't copy it safely, don't cache it
+            return;
+        }
+        queryHolder = new QueryHolder(query, queryHolder.isSuggested());
+        synchronized (parsedQueryCache) {
+            parsedQueryCache.put(key, queryHolder);
+        }
+    }
+
+    /**
+     * Returns a deep copy of the given query, or <code>null</code> if it (or one of its sub queries) is not
+     * of a type known to be copied safely. {@link Query#clone()} is shallow, so for example boolean query
+     * clauses and phrase query terms are shared with the clone.
+     */
+    public static Query copyQuery(Query query) {
+        Class<?> type = query.getClass();
+        if (type == BooleanQuery.class) {
+            BooleanQuery booleanQuery = (BooleanQuery) query;
+            BooleanQuery copy = new BooleanQuery(booleanQuery.isCoordDisabled());
+            copy.setMinimumNumberShouldMatch(booleanQuery.getMinimumNumberShouldMatch());
+            copy.setBoost(booleanQuery.getBoost());
+            BooleanClause[] clauses = booleanQuery.getClauses();
+            for (int i = 0; i < clauses.length; i++) {
+                Query clauseQuery = copyQuery(clauses[i].getQuery());
+                if (clauseQuery == null) {
+                    return null;
+                }
+                copy.add(clauseQuery, clauses[i].getOccur());
+            }
+            return copy;
+        }
+        if (type == PhraseQuery.class) {
+            PhraseQuery phraseQuery = (PhraseQuery) query;
+            PhraseQuery copy = new PhraseQuery();
+            Term[] terms = phraseQuery.getTerms();
+            int[] positions = phraseQuery.getPositions();
+            for (int i = 0; i < terms.length; i++) {
+                copy.add(terms[i], positions[i]);
+            }
+            copy.setSlop(phraseQuery.getSlop());
+            copy.setBoost(phraseQuery.getBoost());
+            return copy;
+        }
+        if (type == MultiPhraseQuery.class) {
+            MultiPhraseQuery phraseQuery = (MultiPhraseQuery) query;
+            MultiPhraseQuery copy = new MultiPhraseQuery();
+            List termArrays = phraseQuery.getTermArrays();
+            int[] positions = phraseQuery.getPositions();
+            for (int i = 0; i < termArrays.size(); i++) {
+                copy.add((Term[]) termArrays.get(i), positions[i]);
+            }
+            copy.setSlop(phraseQuery.getSlop());
+            copy.setBoost(phraseQuery.getBoost());
+            return copy;
+        }
+        // queries with no mutable state other than the boost, cloning them is enough
+        if (type == TermQuery.class || type == AllBoostingTermQuery.class || type == PrefixQuery.class
+                || type == ConstantScorePrefixQuery.class || type == WildcardQuery.class || type == FuzzyQuery.class
+                || type == RangeQuery.class || type == ConstantScoreRangeQuery.class || type == MatchAllDocsQuery.class) {
+            return (Query) query.clone();
+        }
+        return null;
+    }
+
     private QueryParser.Operator getOperator(QueryParser.Operator operator) {
         if (operator == null) {
             return defaultOperator;
@@ -148,4 +294,62 @@ public class DefaultLuceneQueryParser implements LuceneQueryParser, CompassMappi
         return new CompassMultiFieldQueryParser(properties, boosts, analyzer, mapping, searchEngineFactory, forceAnalyzer);
     }
 
+    /**
+     * The key of a cached parsed query. Analyzers are compared by identity.
+     */
+    private static final class ParsedQueryKey {
+
+        private final String queryString;
+
+        private final String[] properties;
+
+        private final Map<String, Float> boosts;
+
+        private final QueryParser.Operator operator;
+
+        private final Analyzer analyzer;
+
+        private final boolean forceAnalyzer;
+
+        private final boolean multi;
+
+        private final int hashCode;
+
+        private ParsedQueryKey(String queryString, String[] properties, Map<String, Float> boosts, QueryParser.Operator operator,
+                               Analyzer analyzer, boolean forceAnalyzer, boolean multi) {
+            this.queryString = queryString;
+            this.properties = properties;
+            this.boosts = boosts;
+            this.operator = operator;
+            this.analyzer = analyzer;
+            this.forceAnalyzer = forceAnalyzer;
+            this.multi = multi;
+            int result = queryString.hashCode();
+            result = 31 * result + Arrays.hashCode(properties);
+            result = 31 * result + (boosts == null ? 0 : boosts.hashCode());
+            result = 31 * result + operator.hashCode();
+            result = 31 * result + (analyzer == null ? 0 : System.identityHashCode(analyzer));
+            result = 31 * result + (forceAnalyzer ? 1 : 0);
+            result = 31 * result + (multi ? 1 : 0);
+            this.hashCode = result;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParsedQueryKey)) {
+                return false;
+            }
+            ParsedQueryKey key = (ParsedQueryKey) o;
+            return hashCode == key.hashCode && queryString.equals(key.queryString) && Arrays.equals(properties, key.properties)
+                    && (boosts == null ? key.boosts == null : boosts.equals(key.boosts)) && operator == key.operator
+                    && analyzer == key.analyzer && forceAnalyzer == key.forceAnalyzer && multi == key.multi;
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ import java.util.Map;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.queryParser.CompassMultiFieldQueryParser;
 import org.apache.lucene.queryParser.CompassQueryParser;
+import org.compass.core.config.CompassSettings;
 import org.compass.core.lucene.engine.queryparser.DefaultLuceneQueryParser;
 
 /**
@@ -28,6 +29,13 @@ import org.compass.core.lucene.engine.queryparser.DefaultLuceneQueryParser;
  */
 public class SpellCheckLuceneQueryParser extends DefaultLuceneQueryParser {
 
+    /**
+     * Suggested queries depend on the spell check index, so parsed queries are never cached.
+     */
+    protected int getParsedQueryCacheSize(CompassSettings settings) {
+        return 0;
+    }
+
     protected CompassQueryParser createQueryParser(String property, Analyzer analyzer, boolean forceAnalyzer) {
         if (getSearchEngineFactory().getSpellCheckManager() != null) {
             return new SpellCheckQueryParser(property, analyzer, getMapping(), getSearchEngineFactory(), forceAnalyzer);
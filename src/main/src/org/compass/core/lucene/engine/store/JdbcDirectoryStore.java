@@ -154,6 +154,21 @@ public class JdbcDirectoryStore extends AbstractDirectoryStore implements Compas
             log.debug("Using query timeout (transaction lock timeout) [" + jdbcSettings.getQueryTimeout() + "ms]");
         }
 
+        jdbcSettings.setCacheFileMetadata(settings.getSettingAsBoolean(LuceneEnvironment.JdbcStore.CACHE_FILE_METADATA, jdbcSettings.isCacheFileMetadata()));
+        if (log.isDebugEnabled()) {
+            log.debug("Using cache file metadata [" + jdbcSettings.isCacheFileMetadata() + "]");
+        }
+        jdbcSettings.setFileMetadataRevalidateInterval(settings.getSettingAsTimeInMillis(LuceneEnvironment.JdbcStore.FILE_METADATA_REVALIDATE_INTERVAL, jdbcSettings.getFileMetadataRevalidateInterval()));
+        if (log.isDebugEnabled() && jdbcSettings.isCacheFileMetadata()) {
+            log.debug("Using file metadata revalidate interval [" + jdbcSettings.getFileMetadataRevalidateInterval() + "ms]");
+        }
+
+        jdbcSettings.setCacheStatements(settings.getSettingAsBoolean(LuceneEnvironment.JdbcStore.CACHE_STATEMENTS, jdbcSettings.isCacheStatements()));
+        jdbcSettings.setBatchInserts(settings.getSettingAsBoolean(LuceneEnvironment.JdbcStore.BATCH_INSERTS, jdbcSettings.isBatchInserts()));
+        if (log.isDebugEnabled()) {
+            log.debug("Using cache statements [" + jdbcSettings.isCacheStatements() + "] and batch inserts [" + jdbcSettings.isBatchInserts() + "]");
+        }
+
         try {
             jdbcSettings.setLockClass(settings.getSettingAsClass(LuceneEnvironment.JdbcStore.LOCK_TYPE, jdbcSettings.getLockClass()));
         } catch (ClassNotFoundException e) {
@@ -87,7 +87,7 @@ public class LocalCacheManager {
         Directory localCacheDirectory;
         if (connection.startsWith("memory://")) {
             String connectionString = connection.substring("memory://".length());
-            return new MemoryDirectoryCache(connectionString, dir, this);
+            return new MemoryDirectoryCache(subIndex, connectionString, dir, this);
         } else if (connection.startsWith(RAMDirectoryStore.PROTOCOL)) {
             localCacheDirectory = new RAMDirectory();
         } else if (connection.startsWith(FSDirectoryStore.PROTOCOL) ||
@@ -128,7 +128,8 @@ public class LocalCacheManager {
         } else {
             throw new SearchEngineException("Local cache does not supprt the following connection [" + connection + "]");
         }
-        return new LocalDirectoryCache(subIndex, dir, localCacheDirectory, this);
+        return new LocalDirectoryCache(subIndex, dir, localCacheDirectory, LocalDirectoryCache.DEFAULT_BUFFER_SIZE,
+                settings.getSettingAsBoolean(LuceneEnvironment.LocalCache.WARM, false), this);
     }
 
     public void close() {
@@ -33,8 +33,10 @@
 package org.compass.core.lucene.engine.store.localcache;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +51,10 @@ import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.Lock;
 import org.apache.lucene.store.LockFactory;
 import org.compass.core.CompassException;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.HitRatio;
 import org.compass.core.transaction.context.TransactionContextCallback;
 
 /**
@@ -61,15 +67,24 @@ import org.compass.core.transaction.context.TransactionContextCallback;
  * <p>A scheduled taks runs in a 10 seconds interval and clean up the local cache directory
  * by deleting anything that is in the local cache and not in the remote directory.
  *
+ * <p>When warming is enabled, {@link #warm()} fetches (in parallel) the files of the latest commit
+ * point that are not in the local cache yet. It is called before a new index reader is opened, so
+ * searches do not pay the cost of copying whole segment files on first access.
+ *
  * @author kimchy
  */
 public class LocalDirectoryCache extends Directory implements DirectoryWrapper {
 
     private static final Log log = LogFactory.getLog(LocalDirectoryCache.class);
 
+    /**
+     * The default size of the buffer used to copy files to the local cache.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 16384;
+
     private String subIndex;
 
-    private int bufferSize = 16384;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
 
     private Directory dir;
 
@@ -79,21 +94,31 @@ public class LocalDirectoryCache extends Directory implements DirectoryWrapper {
 
     private ScheduledFuture cleanupTaskFuture;
 
+    private final HitRatio hitRatio;
+
+    private final boolean warm;
+
     /**
      * Monitors used to control concurrent access to fetch if required
      */
     private Object[] monitors = new Object[100];
 
     public LocalDirectoryCache(String subIndex, Directory dir, Directory localCacheDir, LocalCacheManager localCacheManager) {
-        this(subIndex, dir, localCacheDir, 16384, localCacheManager);
+        this(subIndex, dir, localCacheDir, DEFAULT_BUFFER_SIZE, localCacheManager);
     }
 
     public LocalDirectoryCache(String subIndex, Directory dir, Directory localCacheDir, int bufferSize, LocalCacheManager localCacheManager) {
+        this(subIndex, dir, localCacheDir, bufferSize, false, localCacheManager);
+    }
+
+    public LocalDirectoryCache(String subIndex, Directory dir, Directory localCacheDir, int bufferSize, boolean warm, LocalCacheManager localCacheManager) {
         this.subIndex = subIndex;
+        this.warm = warm;
         this.dir = dir;
         this.localCacheDir = localCacheDir;
         this.bufferSize = bufferSize;
         this.localCacheManager = localCacheManager;
+        this.hitRatio = localCacheManager.getSearchEngineFactory().getMetrics().getHitRatio(CompassMetrics.RatioGroup.LOCAL_CACHE, subIndex);
 
         for (int i = 0; i < monitors.length; i++) {
             monitors[i] = new Object();
@@ -237,19 +262,107 @@ public class LocalDirectoryCache extends Directory implements DirectoryWrapper {
         return new LocalCacheIndexOutput(name, localCacheDir.createOutput(name));
     }
 
+    /**
+     * Returns <code>true</code> if the files of new commit points should be fetched to the local cache
+     * before an index reader is opened on them.
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /**
+     * Fetches the files of the latest commit point of the actual directory that do not exist in the
+     * local cache. Files are fetched in parallel (if the executor manager is enabled), and the method
+     * returns once all of them are local. Does nothing if warming is not enabled.
+     */
+    public void warm() throws IOException {
+        if (!warm) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        final ArrayList<String> names = new ArrayList<String>();
+        for (String name : LuceneFileNames.getCommitFiles(dir)) {
+            if (!shouldPerformOperationOnActualDirectory(name) && !localCacheDir.fileExists(name)) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        final LuceneSearchEngineFactory searchEngineFactory = localCacheManager.getSearchEngineFactory();
+        if (names.size() == 1 || searchEngineFactory.getExecutorManager().isDisabled()) {
+            for (String name : names) {
+                fetchFile(name);
+            }
+        } else {
+            ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(names.size());
+            for (final String name : names) {
+                tasks.add(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return searchEngineFactory.getTransactionContext().execute(new TransactionContextCallback<Object>() {
+                            public Object doInTransaction() throws CompassException {
+                                try {
+                                    fetchFile(name);
+                                } catch (IOException e) {
+                                    throw new SearchEngineException(logMessage("Failed to fetch [" + name + "] to local cache"), e);
+                                }
+                                return null;
+                            }
+                        });
+                    }
+                });
+            }
+            try {
+                searchEngineFactory.getExecutorManager().invokeAllWithLimitBailOnException(tasks, 1);
+            } catch (CompassException e) {
+                IOException ioException = new IOException(e.getMessage());
+                ioException.initCause(e);
+                throw ioException;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(logMessage("Warmed local cache with [" + names.size() + "] files in [" + (System.currentTimeMillis() - start) + "ms]"));
+        }
+    }
+
     private boolean shouldPerformOperationOnActualDirectory(String name) {
         return LuceneFileNames.isStaticFile(name);
     }
 
     private void fetchFileIfNotExists(String name) throws IOException {
+        if (fetchFile(name)) {
+            hitRatio.miss();
+        } else {
+            hitRatio.hit();
+        }
+    }
+
+    /**
+     * Fetches the file to the local cache if it does not exists there, returning <code>true</code> if
+     * it was fetched.
+     */
+    private boolean fetchFile(String name) throws IOException {
         synchronized (monitors[Math.abs(name.hashCode()) % monitors.length]) {
             if (localCacheDir.fileExists(name)) {
-                return;
+                return false;
             }
             if (log.isTraceEnabled()) {
                 log.trace(logMessage("Fetching [" + name + "] to local cache"));
             }
-            copy(dir, localCacheDir, name);
+            try {
+                copy(dir, localCacheDir, name);
+            } catch (IOException e) {
+                // don't leave a partial copy that will be used later on
+                try {
+                    if (localCacheDir.fileExists(name)) {
+                        localCacheDir.deleteFile(name);
+                    }
+                } catch (IOException e1) {
+                    // ignore
+                }
+                throw e;
+            }
+            return true;
         }
     }
 
@@ -49,6 +49,8 @@ import org.apache.lucene.store.Lock;
 import org.apache.lucene.store.LockFactory;
 import org.compass.core.CompassException;
 import org.compass.core.config.CompassSettings;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.HitRatio;
 import org.compass.core.transaction.context.TransactionContextCallback;
 import org.compass.core.util.StringUtils;
 import org.compass.core.util.concurrent.ConcurrentHashSet;
@@ -83,7 +85,13 @@ public class MemoryDirectoryCache extends Directory implements DirectoryWrapper
 
     private final boolean isCompoundFile;
 
+    private final HitRatio hitRatio;
+
     public MemoryDirectoryCache(String connectionString, Directory dir, LocalCacheManager localCacheManager) {
+        this(null, connectionString, dir, localCacheManager);
+    }
+
+    public MemoryDirectoryCache(String subIndex, String connectionString, Directory dir, LocalCacheManager localCacheManager) {
         this.dir = dir;
         this.localCacheManager = localCacheManager;
         String[] args = StringUtils.delimitedListToStringArray(connectionString, "&");
@@ -111,6 +119,12 @@ public class MemoryDirectoryCache extends Directory implements DirectoryWrapper
             isCompoundFile = localCacheManager.getSearchEngineFactory().getLuceneIndexManager().getStore().isUseCompoundFile();
         }
 
+        if (localCacheManager == null || subIndex == null) {
+            hitRatio = HitRatio.NOOP;
+        } else {
+            hitRatio = localCacheManager.getSearchEngineFactory().getMetrics().getHitRatio(CompassMetrics.RatioGroup.LOCAL_CACHE, subIndex);
+        }
+
         if (cacheFileNames) {
             cleanupTaskFuture = localCacheManager.getSearchEngineFactory().getExecutorManager().scheduleWithFixedDelay(new CleanupTask(), 10, 10, TimeUnit.SECONDS);
         }
@@ -324,8 +338,11 @@ public class MemoryDirectoryCache extends Directory implements DirectoryWrapper
             CacheKey cacheKey = cacheKey(fileName, currentPos);
             byte[] cached = cache.get(cacheKey);
             if (cached == null) {
+                hitRatio.miss();
                 cached = readBytesForCache();
                 cache.put(cacheKey, cached);
+            } else {
+                hitRatio.hit();
             }
             return cached[(int) (currentPos++ % bucketSize)];
         }
@@ -336,8 +353,11 @@ public class MemoryDirectoryCache extends Directory implements DirectoryWrapper
                 CacheKey cacheKey = cacheKey(fileName, currentPos);
                 byte[] cached = cache.get(cacheKey);
                 if (cached == null) {
+                    hitRatio.miss();
                     cached = readBytesForCache();
                     cache.put(cacheKey, cached);
+                } else {
+                    hitRatio.hit();
                 }
                 int sizeToRead = bucketSize - indexInCache;
                 if (sizeToRead > len) {
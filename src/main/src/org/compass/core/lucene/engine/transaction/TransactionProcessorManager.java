@@ -30,6 +30,7 @@ import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
 import org.compass.core.lucene.engine.transaction.async.AsyncTransactionProcessorFactory;
 import org.compass.core.lucene.engine.transaction.lucene.LuceneTransactionProcessorFactory;
 import org.compass.core.lucene.engine.transaction.mt.MTTransactionProcessorFactory;
+import org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessorFactory;
 import org.compass.core.lucene.engine.transaction.readcommitted.ReadCommittedTransactionProcessorFactory;
 import org.compass.core.lucene.engine.transaction.search.SearchTransactionProcessorFactory;
 import org.compass.core.util.ClassUtils;
@@ -61,6 +62,8 @@ public class TransactionProcessorManager {
                     type = new LuceneTransactionProcessorFactory();
                 } else if (typeClass.equalsIgnoreCase(LuceneEnvironment.Transaction.Processor.Async.NAME)) {
                     type = new AsyncTransactionProcessorFactory();
+                } else if (typeClass.equalsIgnoreCase(LuceneEnvironment.Transaction.Processor.Queue.NAME)) {
+                    type = new QueueTransactionProcessorFactory();
                 } else {
                     try {
                         type = ClassUtils.forName(typeClass, settings.getClassLoader()).newInstance();
@@ -255,9 +255,10 @@ public class AsyncTransactionProcessorFactory implements TransactionProcessorFac
 
     private void process(TransactionJobs jobs) throws InterruptedException {
         Set<String> subIndexes = new HashSet<String>();
-        List<TransactionJob>[] concurrentJobsToProcess = new List[concurrencyLevel];
+        // jobs of the same resource from different transactions are coalesced
+        TransactionJobs[] concurrentJobsToProcess = new TransactionJobs[concurrencyLevel];
         for (int i = 0; i < concurrentJobsToProcess.length; i++) {
-            concurrentJobsToProcess[i] = new ArrayList<TransactionJob>();
+            concurrentJobsToProcess[i] = new TransactionJobs();
         }
 
         // build the concurrent job list of lists
@@ -306,7 +307,8 @@ public class AsyncTransactionProcessorFactory implements TransactionProcessorFac
 
         // process all the jobs by multiple threads
         ArrayList<Callable<Object>> processCallables = new ArrayList<Callable<Object>>();
-        for (List<TransactionJob> list : concurrentJobsToProcess) {
+        for (TransactionJobs concurrentJobs : concurrentJobsToProcess) {
+            List<TransactionJob> list = concurrentJobs.getJobs();
             if (list.isEmpty()) {
                 // no need to create a thread for empty list
                 continue;
@@ -409,7 +411,7 @@ public class AsyncTransactionProcessorFactory implements TransactionProcessorFac
         writers.clear();
     }
 
-    private void addConcurrentJobsToProcess(List<TransactionJob>[] concurrentJobsToProcess, Set<String> subIndexes, TransactionJobs jobs) {
+    private void addConcurrentJobsToProcess(TransactionJobs[] concurrentJobsToProcess, Set<String> subIndexes, TransactionJobs jobs) {
         subIndexes.addAll(jobs.getSubIndexes());
         for (TransactionJob job : jobs.getJobs()) {
             concurrentJobsToProcess[hashing.hash(job) % concurrencyLevel].add(job);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.compass.core.CompassException;
+import org.compass.core.config.CompassConfigurable;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.util.ClassUtils;
+
+/**
+ * A base class for {@link TransactionJobsQueue} implementations that store jobs using Java serialization.
+ *
+ * <p>Ids generated using {@link #nextId()} are unique across nodes, and ids generated by the same node
+ * sort (as strings) in the order they were generated.
+ *
+ * @author kimchy
+ */
+public abstract class AbstractTransactionJobsQueue implements TransactionJobsQueue, CompassConfigurable {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    private ClassLoader classLoader;
+
+    private long claimTimeout;
+
+    public void configure(CompassSettings settings) throws CompassException {
+        this.classLoader = settings.getClassLoader();
+        this.claimTimeout = settings.getSettingAsTimeInMillis(LuceneEnvironment.Transaction.Processor.Queue.CLAIM_TIMEOUT, 5 * 60 * 1000);
+        doConfigure(settings);
+    }
+
+    protected abstract void doConfigure(CompassSettings settings) throws CompassException;
+
+    /**
+     * Returns the time (in milliseconds) after which claimed jobs that were not processed can be claimed again.
+     */
+    protected long getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    /**
+     * Generates a new unique id.
+     */
+    protected String nextId() {
+        String counter = Long.toString(idGenerator.incrementAndGet());
+        StringBuilder sb = new StringBuilder(nodeId.length() + 20);
+        sb.append(nodeId).append('-');
+        for (int i = counter.length(); i < 19; i++) {
+            sb.append('0');
+        }
+        return sb.append(counter).toString();
+    }
+
+    protected byte[] serialize(TransactionJobs jobs) throws SearchEngineException {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(jobs);
+            oos.close();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new SearchEngineException("Failed to serialize jobs [" + jobs + "]", e);
+        }
+    }
+
+    protected TransactionJobs deserialize(byte[] data) throws SearchEngineException {
+        return deserialize(new ByteArrayInputStream(data));
+    }
+
+    protected TransactionJobs deserialize(InputStream is) throws SearchEngineException {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(is) {
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    try {
+                        return ClassUtils.forName(desc.getName(), classLoader);
+                    } catch (ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+            };
+            try {
+                return (TransactionJobs) ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (Exception e) {
+            throw new SearchEngineException("Failed to deserialize jobs", e);
+        }
+    }
+}
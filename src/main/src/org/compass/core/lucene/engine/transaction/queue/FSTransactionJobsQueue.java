@@ -0,0 +1,228 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.CompassException;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.config.ConfigurationException;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+
+/**
+ * A {@link TransactionJobsQueue} stored on a (shared) file system directory, configured using
+ * {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue.FS#PATH}.
+ *
+ * <p>Each sub index has its own directory, holding a file per (serialized) transaction jobs. Files are named
+ * using the time they were added and a unique id, so listing them in lexical order returns them in the order
+ * they were added. Files are first written to a temporary name and then renamed, so a partially written file is
+ * never claimed. Claiming renames the file, which is atomic on a single (local or shared) file system, to a
+ * name that includes the time it was claimed (<code>[id].[claim time].claimed</code>). Keeping the claim time in
+ * the name (and not in the file modification time) means a claim is never seen without its time, and a claim
+ * that timed out and was claimed again is not processed or released by the worker that claimed it first.
+ *
+ * @author kimchy
+ */
+public class FSTransactionJobsQueue extends AbstractTransactionJobsQueue {
+
+    private static final Log logger = LogFactory.getLog(FSTransactionJobsQueue.class);
+
+    private static final String JOB_SUFFIX = ".job";
+
+    private static final String CLAIMED_SUFFIX = ".claimed";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private File path;
+
+    protected void doConfigure(CompassSettings settings) throws CompassException {
+        String location = settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.FS.PATH);
+        if (location == null) {
+            throw new ConfigurationException("File system transaction jobs queue requires the [" +
+                    LuceneEnvironment.Transaction.Processor.Queue.FS.PATH + "] setting");
+        }
+        path = new File(location);
+        if (!path.exists() && !path.mkdirs() && !path.exists()) {
+            throw new ConfigurationException("Failed to create file system transaction jobs queue directory [" + path.getAbsolutePath() + "]");
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("File system transaction jobs queue using path [" + path.getAbsolutePath() + "]");
+        }
+    }
+
+    public void close() {
+        // nothing to do here
+    }
+
+    public void add(Map<String, TransactionJobs> jobsPerSubIndex) throws SearchEngineException {
+        String created = pad(System.currentTimeMillis());
+        for (Map.Entry<String, TransactionJobs> entry : jobsPerSubIndex.entrySet()) {
+            File subIndexPath = subIndexPath(entry.getKey());
+            String name = created + "-" + nextId();
+            File tempFile = new File(subIndexPath, name + TEMP_SUFFIX);
+            try {
+                FileOutputStream fos = new FileOutputStream(tempFile);
+                try {
+                    fos.write(serialize(entry.getValue()));
+                    fos.getFD().sync();
+                } finally {
+                    fos.close();
+                }
+            } catch (IOException e) {
+                tempFile.delete();
+                throw new SearchEngineException("Failed to write jobs to [" + tempFile.getAbsolutePath() + "]", e);
+            }
+            if (!tempFile.renameTo(new File(subIndexPath, name + JOB_SUFFIX))) {
+                tempFile.delete();
+                throw new SearchEngineException("Failed to add jobs to [" + subIndexPath.getAbsolutePath() + "]");
+            }
+        }
+    }
+
+    public List<QueuedTransactionJobs> claim(String subIndex, int size) throws SearchEngineException {
+        File subIndexPath = subIndexPath(subIndex);
+        releaseTimedOutClaims(subIndexPath);
+        String[] names = subIndexPath.list(new SuffixFilenameFilter(JOB_SUFFIX));
+        List<QueuedTransactionJobs> result = new ArrayList<QueuedTransactionJobs>();
+        if (names == null || names.length == 0) {
+            return result;
+        }
+        Arrays.sort(names);
+        long now = System.currentTimeMillis();
+        for (String name : names) {
+            if (result.size() == size) {
+                break;
+            }
+            String claimId = name.substring(0, name.length() - JOB_SUFFIX.length()) + "." + now;
+            File claimedFile = new File(subIndexPath, claimId + CLAIMED_SUFFIX);
+            if (!new File(subIndexPath, name).renameTo(claimedFile)) {
+                // another worker claimed it
+                continue;
+            }
+            try {
+                InputStream is = new BufferedInputStream(new FileInputStream(claimedFile));
+                try {
+                    result.add(new QueuedTransactionJobs(claimId, deserialize(is), now));
+                } finally {
+                    is.close();
+                }
+            } catch (Exception e) {
+                claimedFile.renameTo(new File(subIndexPath, name));
+                release(subIndex, result);
+                throw new SearchEngineException("Failed to read jobs from [" + claimedFile.getAbsolutePath() + "]", e);
+            }
+        }
+        return result;
+    }
+
+    public void processed(String subIndex, List<QueuedTransactionJobs> jobs) throws SearchEngineException {
+        File subIndexPath = subIndexPath(subIndex);
+        for (QueuedTransactionJobs queuedJobs : jobs) {
+            File claimedFile = new File(subIndexPath, queuedJobs.getId() + CLAIMED_SUFFIX);
+            if (!claimedFile.delete() && claimedFile.exists()) {
+                throw new SearchEngineException("Failed to remove processed jobs [" + claimedFile.getAbsolutePath() + "]");
+            }
+        }
+    }
+
+    public void release(String subIndex, List<QueuedTransactionJobs> jobs) throws SearchEngineException {
+        File subIndexPath = subIndexPath(subIndex);
+        for (QueuedTransactionJobs queuedJobs : jobs) {
+            File claimedFile = new File(subIndexPath, queuedJobs.getId() + CLAIMED_SUFFIX);
+            if (!claimedFile.renameTo(new File(subIndexPath, jobId(queuedJobs.getId()) + JOB_SUFFIX))) {
+                logger.warn("Failed to release jobs [" + claimedFile.getAbsolutePath() + "], will be released after the claim timeout");
+            }
+        }
+    }
+
+    private void releaseTimedOutClaims(File subIndexPath) {
+        File[] claimedFiles = subIndexPath.listFiles(new SuffixFilenameFilter(CLAIMED_SUFFIX));
+        if (claimedFiles == null) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - getClaimTimeout();
+        for (File claimedFile : claimedFiles) {
+            String name = claimedFile.getName();
+            String claimId = name.substring(0, name.length() - CLAIMED_SUFFIX.length());
+            long claimTime;
+            try {
+                claimTime = Long.parseLong(claimId.substring(claimId.lastIndexOf('.') + 1));
+            } catch (NumberFormatException e) {
+                // not a claim made by this queue
+                continue;
+            }
+            if (claimTime < expired) {
+                if (claimedFile.renameTo(new File(subIndexPath, jobId(claimId) + JOB_SUFFIX))) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Released timed out claimed jobs [" + claimedFile.getAbsolutePath() + "]");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the id the jobs were added with, stripping the claim time from the claim id.
+     */
+    private static String jobId(String claimId) {
+        return claimId.substring(0, claimId.lastIndexOf('.'));
+    }
+
+    private File subIndexPath(String subIndex) throws SearchEngineException {
+        File subIndexPath = new File(path, subIndex);
+        if (!subIndexPath.exists() && !subIndexPath.mkdirs() && !subIndexPath.exists()) {
+            throw new SearchEngineException("Failed to create queue directory [" + subIndexPath.getAbsolutePath() + "]");
+        }
+        return subIndexPath;
+    }
+
+    private static String pad(long value) {
+        String str = Long.toString(value);
+        StringBuilder sb = new StringBuilder(19);
+        for (int i = str.length(); i < 19; i++) {
+            sb.append('0');
+        }
+        return sb.append(str).toString();
+    }
+
+    private static class SuffixFilenameFilter implements FilenameFilter {
+
+        private final String suffix;
+
+        private SuffixFilenameFilter(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public boolean accept(File dir, String name) {
+            return name.endsWith(suffix);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.store.jdbc.JdbcDirectorySettings;
+import org.apache.lucene.store.jdbc.JdbcStoreException;
+import org.apache.lucene.store.jdbc.datasource.DataSourceUtils;
+import org.apache.lucene.store.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.apache.lucene.store.jdbc.dialect.Dialect;
+import org.apache.lucene.store.jdbc.dialect.DialectResolver;
+import org.apache.lucene.store.jdbc.support.JdbcTemplate;
+import org.compass.core.CompassException;
+import org.compass.core.config.CompassEnvironment;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.config.ConfigurationException;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.store.JdbcDirectoryStore;
+import org.compass.core.lucene.engine.store.jdbc.DataSourceProvider;
+import org.compass.core.lucene.engine.store.jdbc.DriverManagerDataSourceProvider;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.util.ClassUtils;
+
+/**
+ * A {@link TransactionJobsQueue} stored in a database table. Uses the jdbc store support (data source providers,
+ * {@link org.apache.lucene.store.jdbc.dialect.Dialect}s and {@link org.apache.lucene.store.jdbc.support.JdbcTemplate})
+ * and is configured using the same {@link org.compass.core.lucene.LuceneEnvironment.JdbcStore} settings, with the
+ * jdbc url set using {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue.Jdbc#CONNECTION}
+ * (defaults to the jdbc store connection).
+ *
+ * <p>Each row holds the serialized jobs of a single transaction against a single sub index. Jobs are claimed by
+ * setting the claimed timestamp of the rows (only if they were not claimed, or their claim timed out), and
+ * removed once processed. Removing and releasing jobs is done only if they still hold the same claimed timestamp,
+ * so jobs whose claim timed out and were claimed again by another worker are left to it. Claimed timestamps are
+ * truncated to seconds, since some databases do not store fractions of seconds. The table is created if it does not exist (can be disabled using
+ * {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue.Jdbc#CREATE_TABLE}).
+ *
+ * @author kimchy
+ */
+public class JdbcTransactionJobsQueue extends AbstractTransactionJobsQueue {
+
+    private static final Log logger = LogFactory.getLog(JdbcTransactionJobsQueue.class);
+
+    private DataSourceProvider dataSourceProvider;
+
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private String sqlCreate;
+
+    private String sqlInsert;
+
+    private String sqlSelectUnclaimed;
+
+    private String sqlClaim;
+
+    private String sqlRelease;
+
+    private String sqlDelete;
+
+    protected void doConfigure(CompassSettings settings) throws CompassException {
+        String url = settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.Jdbc.CONNECTION);
+        if (url == null) {
+            String connection = settings.getSetting(CompassEnvironment.CONNECTION);
+            if (connection == null || !connection.startsWith(JdbcDirectoryStore.PROTOCOL)) {
+                throw new ConfigurationException("Jdbc transaction jobs queue requires the [" +
+                        LuceneEnvironment.Transaction.Processor.Queue.Jdbc.CONNECTION + "] setting");
+            }
+            url = connection.substring(JdbcDirectoryStore.PROTOCOL.length());
+        }
+        dataSourceProvider = (DataSourceProvider) settings.getSettingAsInstance(LuceneEnvironment.JdbcStore.DataSourceProvider.CLASS,
+                DriverManagerDataSourceProvider.class.getName());
+        dataSourceProvider.configure(url, settings);
+        dataSource = dataSourceProvider.getDataSource();
+
+        Dialect dialect;
+        String dialectClassName = settings.getSetting(LuceneEnvironment.JdbcStore.DIALECT, null);
+        if (dialectClassName == null) {
+            try {
+                dialect = new DialectResolver().getDialect(dataSource);
+            } catch (JdbcStoreException e) {
+                throw new ConfigurationException("Failed to auto detect dialect", e);
+            }
+        } else {
+            try {
+                dialect = (Dialect) ClassUtils.forName(dialectClassName, settings.getClassLoader()).newInstance();
+            } catch (Exception e) {
+                throw new ConfigurationException("Failed to configure dialect [" + dialectClassName + "]");
+            }
+        }
+        if (!settings.getSettingAsBoolean(LuceneEnvironment.JdbcStore.MANAGED, false)) {
+            dataSource = new TransactionAwareDataSourceProxy(dataSource);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource, new JdbcDirectorySettings());
+
+        String table = settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.Jdbc.TABLE, "compass_queue");
+        sqlCreate = "create table " + table + " (id " + dialect.getVarcharType(100) + " not null, sub_index "
+                + dialect.getVarcharType(100) + " not null, created " + dialect.getTimestampType() + " not null, claimed "
+                + dialect.getTimestampType() + ", data " + dialect.getBlobType(100 * 1024 * 1024)
+                + ", primary key (id)) " + dialect.getTableTypeString();
+        sqlInsert = "insert into " + table + " (id, sub_index, created, claimed, data) values (?, ?, ?, ?, ?)";
+        sqlSelectUnclaimed = "select id, data from " + table + " where sub_index = ? and (claimed is null or claimed < ?) order by created, id";
+        sqlClaim = "update " + table + " set claimed = ? where id = ? and (claimed is null or claimed < ?)";
+        sqlRelease = "update " + table + " set claimed = ? where id = ? and claimed = ?";
+        sqlDelete = "delete from " + table + " where id = ? and claimed = ?";
+
+        if (settings.getSettingAsBoolean(LuceneEnvironment.Transaction.Processor.Queue.Jdbc.CREATE_TABLE, true)) {
+            createTableIfNeeded(table);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Jdbc transaction jobs queue using table [" + table + "] with dialect [" + dialect.getClass().getName() + "]");
+        }
+    }
+
+    public void close() {
+        dataSourceProvider.closeDataSource();
+    }
+
+    public void add(final Map<String, TransactionJobs> jobsPerSubIndex) throws SearchEngineException {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        execute(new JdbcCallback() {
+            public Object doInJdbc() throws JdbcStoreException {
+                return jdbcTemplate.executeBatch(sqlInsert, new JdbcTemplate.PrepateStatementAwareCallback() {
+                    public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                        for (Map.Entry<String, TransactionJobs> entry : jobsPerSubIndex.entrySet()) {
+                            byte[] data = serialize(entry.getValue());
+                            ps.setString(1, nextId());
+                            ps.setString(2, entry.getKey());
+                            ps.setTimestamp(3, now);
+                            ps.setNull(4, Types.TIMESTAMP);
+                            ps.setBinaryStream(5, new ByteArrayInputStream(data), data.length);
+                            ps.addBatch();
+                        }
+                    }
+                });
+            }
+        }, "Failed to add jobs to queue");
+    }
+
+    public List<QueuedTransactionJobs> claim(final String subIndex, final int size) throws SearchEngineException {
+        // truncated to seconds, the claimed timestamp is later matched when processed or released
+        final long now = System.currentTimeMillis() / 1000 * 1000;
+        final Timestamp expired = new Timestamp(now - getClaimTimeout());
+        return (List<QueuedTransactionJobs>) execute(new JdbcCallback() {
+            public Object doInJdbc() throws JdbcStoreException {
+                final List<QueuedTransactionJobs> candidates = (List<QueuedTransactionJobs>) jdbcTemplate.executeSelect(sqlSelectUnclaimed, new JdbcTemplate.ExecuteSelectCallback() {
+                    public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                        ps.setMaxRows(size);
+                        ps.setFetchSize(size);
+                        ps.setString(1, subIndex);
+                        ps.setTimestamp(2, expired);
+                    }
+
+                    public Object execute(ResultSet rs) throws Exception {
+                        List<QueuedTransactionJobs> candidates = new ArrayList<QueuedTransactionJobs>();
+                        while (rs.next()) {
+                            candidates.add(new QueuedTransactionJobs(rs.getString(1), deserialize(rs.getBinaryStream(2)), now));
+                        }
+                        return candidates;
+                    }
+                });
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+                int[] claimed = jdbcTemplate.executeBatch(sqlClaim, new JdbcTemplate.PrepateStatementAwareCallback() {
+                    public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                        Timestamp claimedTimestamp = new Timestamp(now);
+                        for (QueuedTransactionJobs jobs : candidates) {
+                            ps.setTimestamp(1, claimedTimestamp);
+                            ps.setString(2, jobs.getId());
+                            ps.setTimestamp(3, expired);
+                            ps.addBatch();
+                        }
+                    }
+                });
+                List<QueuedTransactionJobs> result = new ArrayList<QueuedTransactionJobs>(candidates.size());
+                for (int i = 0; i < candidates.size(); i++) {
+                    // another worker might have claimed the jobs in the meantime
+                    if (updated(claimed, i)) {
+                        result.add(candidates.get(i));
+                    }
+                }
+                return result;
+            }
+        }, "Failed to claim jobs for sub index [" + subIndex + "]");
+    }
+
+    public void processed(String subIndex, final List<QueuedTransactionJobs> jobs) throws SearchEngineException {
+        int[] deleted = (int[]) execute(new JdbcCallback() {
+            public Object doInJdbc() throws JdbcStoreException {
+                return jdbcTemplate.executeBatch(sqlDelete, new JdbcTemplate.PrepateStatementAwareCallback() {
+                    public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                        for (QueuedTransactionJobs queuedJobs : jobs) {
+                            ps.setString(1, queuedJobs.getId());
+                            ps.setTimestamp(2, new Timestamp(queuedJobs.getClaimed()));
+                            ps.addBatch();
+                        }
+                    }
+                });
+            }
+        }, "Failed to remove processed jobs for sub index [" + subIndex + "]");
+        for (int i = 0; i < jobs.size(); i++) {
+            if (!updated(deleted, i)) {
+                logger.warn("Processed jobs [" + jobs.get(i).getId() + "] of sub index [" + subIndex + "] were claimed again " +
+                        "after their claim timed out, they will be applied again");
+            }
+        }
+    }
+
+    public void release(String subIndex, final List<QueuedTransactionJobs> jobs) throws SearchEngineException {
+        int[] released = (int[]) execute(new JdbcCallback() {
+            public Object doInJdbc() throws JdbcStoreException {
+                return jdbcTemplate.executeBatch(sqlRelease, new JdbcTemplate.PrepateStatementAwareCallback() {
+                    public void fillPrepareStatement(PreparedStatement ps) throws Exception {
+                        for (QueuedTransactionJobs queuedJobs : jobs) {
+                            ps.setNull(1, Types.TIMESTAMP);
+                            ps.setString(2, queuedJobs.getId());
+                            ps.setTimestamp(3, new Timestamp(queuedJobs.getClaimed()));
+                            ps.addBatch();
+                        }
+                    }
+                });
+            }
+        }, "Failed to release jobs for sub index [" + subIndex + "]");
+        if (logger.isDebugEnabled()) {
+            for (int i = 0; i < jobs.size(); i++) {
+                if (!updated(released, i)) {
+                    logger.debug("Released jobs [" + jobs.get(i).getId() + "] of sub index [" + subIndex + "] were already claimed again");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the batched statement at the given index updated a row (or the driver does
+     * not report it).
+     */
+    private static boolean updated(int[] counts, int index) {
+        return counts == null || index >= counts.length || counts[index] > 0 || counts[index] == Statement.SUCCESS_NO_INFO;
+    }
+
+    private void createTableIfNeeded(String table) {
+        Connection con;
+        try {
+            con = DataSourceUtils.getConnection(dataSource);
+        } catch (JdbcStoreException e) {
+            throw new ConfigurationException("Failed to get a connection in order to create queue table [" + table + "]", e);
+        }
+        try {
+            // creating the table fails if it already exists, done in its own transaction
+            jdbcTemplate.executeUpdate(sqlCreate);
+            DataSourceUtils.commitConnectionIfPossible(con);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Created queue table [" + table + "]");
+            }
+        } catch (JdbcStoreException e) {
+            DataSourceUtils.safeRollbackConnectionIfPossible(con);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Failed to create queue table [" + table + "], assuming it exists", e);
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(con);
+        }
+    }
+
+    /**
+     * Executes the callback within a single database transaction (unless the data source is managed).
+     */
+    private Object execute(JdbcCallback callback, String failureMessage) throws SearchEngineException {
+        Connection con;
+        try {
+            con = DataSourceUtils.getConnection(dataSource);
+        } catch (JdbcStoreException e) {
+            throw new SearchEngineException(failureMessage, e);
+        }
+        try {
+            Object result = callback.doInJdbc();
+            DataSourceUtils.commitConnectionIfPossible(con);
+            return result;
+        } catch (JdbcStoreException e) {
+            DataSourceUtils.safeRollbackConnectionIfPossible(con);
+            throw new SearchEngineException(failureMessage, e);
+        } catch (RuntimeException e) {
+            DataSourceUtils.safeRollbackConnectionIfPossible(con);
+            throw e;
+        } finally {
+            DataSourceUtils.releaseConnection(con);
+        }
+    }
+
+    private static interface JdbcCallback {
+
+        Object doInJdbc() throws JdbcStoreException;
+    }
+}
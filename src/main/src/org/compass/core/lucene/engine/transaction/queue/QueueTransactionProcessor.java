@@ -0,0 +1,65 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.LuceneSearchEngine;
+import org.compass.core.lucene.engine.transaction.support.AbstractJobBasedTransactionProcessor;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+
+/**
+ * Adds the transaction to a shared queue of jobs on commit. For more information see
+ * {@link org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessorFactory}.
+ *
+ * @author kimchy
+ * @see org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessorFactory
+ */
+public class QueueTransactionProcessor extends AbstractJobBasedTransactionProcessor {
+
+    private final static Log logger = LogFactory.getLog(QueueTransactionProcessor.class);
+
+    private final QueueTransactionProcessorFactory processorFactory;
+
+    public QueueTransactionProcessor(LuceneSearchEngine searchEngine, QueueTransactionProcessorFactory processorFactory) {
+        super(logger, searchEngine, true);
+        this.processorFactory = processorFactory;
+    }
+
+    public String getName() {
+        return LuceneEnvironment.Transaction.Processor.Queue.NAME;
+    }
+
+    protected void doPrepare(TransactionJobs jobs) throws SearchEngineException {
+        // nothing to do here, we only add on commit
+    }
+
+    protected void doFlushCommit(TransactionJobs jobs) {
+        processorFactory.add(jobs);
+    }
+
+    protected void doCommit(boolean onePhase, TransactionJobs jobs) throws SearchEngineException {
+        processorFactory.add(jobs);
+    }
+
+    protected void doRollback(TransactionJobs jobs) throws SearchEngineException {
+        // nothing to do here, jobs are only added on commit, and once added to the (shared) queue
+        // they might already be claimed by a worker
+    }
+}
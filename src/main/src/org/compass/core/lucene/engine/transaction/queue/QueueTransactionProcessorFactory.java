@@ -0,0 +1,422 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexWriter;
+import org.compass.core.CompassException;
+import org.compass.core.config.CompassConfigurable;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.config.ConfigurationException;
+import org.compass.core.config.SearchEngineFactoryAware;
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.engine.SearchEngineFactory;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.LuceneSearchEngine;
+import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
+import org.compass.core.lucene.engine.manager.LuceneSearchEngineIndexManager;
+import org.compass.core.lucene.engine.transaction.TransactionProcessor;
+import org.compass.core.lucene.engine.transaction.TransactionProcessorFactory;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJob;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.transaction.context.TransactionContextCallback;
+import org.compass.core.util.ClassUtils;
+import org.compass.core.util.StringUtils;
+
+/**
+ * A transaction processor factory that creates {@link QueueTransactionProcessor} instances. Committed transactions
+ * are added to a shared (durable) {@link TransactionJobsQueue} and applied to the index by worker threads, which can
+ * run on any of the nodes sharing the queue. Allows several nodes to index against the same index without competing
+ * on its lock, with a single node (or several nodes, each handling different sub indexes) acting as the indexer.
+ *
+ * <p>The queue is configured using {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#JOBS_QUEUE}.
+ * Built in queues are {@link JdbcTransactionJobsQueue} (<code>jdbc</code>, the default) and {@link FSTransactionJobsQueue}
+ * (<code>fs</code>).
+ *
+ * <p>If {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#PROCESS} is <code>true</code> (the
+ * default), the node starts worker threads (configured using
+ * {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#CONCURRENCY_LEVEL}) that process the sub
+ * indexes (optionally narrowed using {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#SUB_INDEXES}
+ * and {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#ALIASES}). Each sub index is
+ * processed by a single worker, which claims up to
+ * {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#BATCH_SIZE} transactions, applies them
+ * using an index writer and commits once. The writer is kept open between batches and closed once the sub index is
+ * idle for {@link org.compass.core.lucene.LuceneEnvironment.Transaction.Processor.Queue#WRITER_IDLE_TIMEOUT} (stores
+ * that require a transactional context, such as the jdbc store, close it after each batch).
+ *
+ * <p>Jobs are removed from the queue only after the index was committed, so delivery is at least once: if a worker
+ * fails after the commit and before the jobs were removed, they will be applied again once their claim times out
+ * (updates and deletes are idempotent, creates might end up duplicated). If applying a batch fails, the batch is
+ * rolled back and its transactions are applied again one at a time (each committed on its own), so only the
+ * transactions that fail on their own are logged and dismissed, as with the other async processors.
+ *
+ * @author kimchy
+ */
+public class QueueTransactionProcessorFactory implements TransactionProcessorFactory, CompassConfigurable, SearchEngineFactoryAware {
+
+    private static final Log logger = LogFactory.getLog(QueueTransactionProcessorFactory.class);
+
+    private CompassSettings settings;
+
+    private LuceneSearchEngineFactory searchEngineFactory;
+
+    private LuceneSearchEngineIndexManager indexManager;
+
+    private TransactionJobsQueue jobsQueue;
+
+    private int batchSize;
+
+    private long pollInterval;
+
+    private long writerIdleTimeout;
+
+    private final List<QueueProcessor> processors = new ArrayList<QueueProcessor>();
+
+    public void setSearchEngineFactory(SearchEngineFactory searchEngineFactory) {
+        this.searchEngineFactory = (LuceneSearchEngineFactory) searchEngineFactory;
+        this.indexManager = this.searchEngineFactory.getLuceneIndexManager();
+    }
+
+    public void configure(CompassSettings settings) throws CompassException {
+        this.settings = settings;
+
+        String jobsQueueSetting = settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.JOBS_QUEUE, "jdbc");
+        if (jobsQueueSetting.equalsIgnoreCase("jdbc")) {
+            jobsQueue = new JdbcTransactionJobsQueue();
+        } else if (jobsQueueSetting.equalsIgnoreCase("fs")) {
+            jobsQueue = new FSTransactionJobsQueue();
+        } else {
+            try {
+                jobsQueue = (TransactionJobsQueue) ClassUtils.forName(jobsQueueSetting, settings.getClassLoader()).newInstance();
+            } catch (Exception e) {
+                throw new ConfigurationException("Failed to create transaction jobs queue [" + jobsQueueSetting + "]", e);
+            }
+        }
+        if (jobsQueue instanceof CompassConfigurable) {
+            ((CompassConfigurable) jobsQueue).configure(settings);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Queue Transaction Processor using jobs queue [" + jobsQueue.getClass().getName() + "]");
+        }
+
+        batchSize = settings.getSettingAsInt(LuceneEnvironment.Transaction.Processor.Queue.BATCH_SIZE, 50);
+        pollInterval = settings.getSettingAsTimeInMillis(LuceneEnvironment.Transaction.Processor.Queue.POLL_INTERVAL, 500);
+        writerIdleTimeout = settings.getSettingAsTimeInMillis(LuceneEnvironment.Transaction.Processor.Queue.WRITER_IDLE_TIMEOUT, 10 * 1000);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Queue Transaction Processor batch size is [" + batchSize + "], poll interval [" + pollInterval +
+                    "ms], and writer idle timeout [" + writerIdleTimeout + "ms]");
+        }
+
+        if (settings.getSettingAsBoolean(LuceneEnvironment.Transaction.Processor.Queue.PROCESS, true)) {
+            String[] subIndexesSetting = StringUtils.commaDelimitedListToStringArray(settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.SUB_INDEXES));
+            if (subIndexesSetting.length == 0) {
+                subIndexesSetting = null;
+            }
+            String[] aliasesSetting = StringUtils.commaDelimitedListToStringArray(settings.getSetting(LuceneEnvironment.Transaction.Processor.Queue.ALIASES));
+            if (aliasesSetting.length == 0) {
+                aliasesSetting = null;
+            }
+            String[] subIndexes = indexManager.calcSubIndexes(subIndexesSetting, aliasesSetting, null);
+            int concurrencyLevel = Math.min(subIndexes.length, settings.getSettingAsInt(LuceneEnvironment.Transaction.Processor.Queue.CONCURRENCY_LEVEL, 5));
+            List<String>[] subIndexesPerProcessor = new List[concurrencyLevel];
+            for (int i = 0; i < concurrencyLevel; i++) {
+                subIndexesPerProcessor[i] = new ArrayList<String>();
+            }
+            for (int i = 0; i < subIndexes.length; i++) {
+                subIndexesPerProcessor[i % concurrencyLevel].add(subIndexes[i]);
+            }
+            for (List<String> processorSubIndexes : subIndexesPerProcessor) {
+                QueueProcessor processor = new QueueProcessor(processorSubIndexes);
+                processors.add(processor);
+                searchEngineFactory.getExecutorManager().submit(processor);
+            }
+            logger.info("Queue Transaction Processor started [" + concurrencyLevel + "] workers. Sub indexes to process: " + Arrays.toString(subIndexes));
+        } else {
+            logger.info("Queue Transaction Processor will only add transactions to the queue (none worker mode)");
+        }
+    }
+
+    /**
+     * Stops the workers (waiting for the current batches to be processed), and closes the queue.
+     */
+    public void close() {
+        for (QueueProcessor processor : processors) {
+            processor.stop();
+        }
+        for (QueueProcessor processor : processors) {
+            processor.waitForStop();
+        }
+        processors.clear();
+        jobsQueue.close();
+    }
+
+    /**
+     * Creates a new {@link QueueTransactionProcessor}.
+     */
+    public TransactionProcessor create(LuceneSearchEngine searchEngine) {
+        return new QueueTransactionProcessor(searchEngine, this);
+    }
+
+    /**
+     * The queue transaction processor is not thread safe.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Returns the queue of transaction jobs.
+     */
+    public TransactionJobsQueue getJobsQueue() {
+        return jobsQueue;
+    }
+
+    /**
+     * Adds the given jobs (broken into jobs per sub index) to the queue.
+     */
+    public void add(TransactionJobs jobs) throws SearchEngineException {
+        jobsQueue.add(jobs.buildJobsPerSubIndex());
+    }
+
+    protected boolean isClearCacheOnCommit() {
+        return settings.getSettingAsBoolean(LuceneEnvironment.Transaction.CLEAR_CACHE_ON_COMMIT, true);
+    }
+
+    private class QueueProcessor implements Runnable {
+
+        private final List<String> subIndexes;
+
+        private final Map<String, IndexWriter> writers = new HashMap<String, IndexWriter>();
+
+        private final Map<String, Long> lastProcessed = new HashMap<String, Long>();
+
+        private final Object monitor = new Object();
+
+        private volatile boolean running = true;
+
+        private volatile boolean done = false;
+
+        private QueueProcessor(List<String> subIndexes) {
+            this.subIndexes = subIndexes;
+        }
+
+        public void stop() {
+            running = false;
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+
+        public void waitForStop() {
+            synchronized (monitor) {
+                while (!done) {
+                    try {
+                        monitor.wait(100);
+                    } catch (InterruptedException e) {
+                        // break out
+                        break;
+                    }
+                }
+            }
+        }
+
+        public void run() {
+            try {
+                while (running) {
+                    boolean processed = false;
+                    for (String subIndex : subIndexes) {
+                        if (!running) {
+                            break;
+                        }
+                        try {
+                            processed |= process(subIndex);
+                        } catch (Exception e) {
+                            logger.warn(message(subIndex, "Failed to process queued jobs"), e);
+                        }
+                    }
+                    closeIdleWriters();
+                    if (!processed && running) {
+                        synchronized (monitor) {
+                            try {
+                                monitor.wait(pollInterval);
+                            } catch (InterruptedException e) {
+                                // we got interrupted, bail out
+                                running = false;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                for (String subIndex : new ArrayList<String>(writers.keySet())) {
+                    closeWriter(subIndex);
+                }
+                synchronized (monitor) {
+                    done = true;
+                    monitor.notifyAll();
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Queue transaction processor worker for sub indexes " + subIndexes + " stopped");
+                }
+            }
+        }
+
+        private boolean process(final String subIndex) {
+            final List<QueuedTransactionJobs> claimedJobs = jobsQueue.claim(subIndex, batchSize);
+            if (claimedJobs.isEmpty()) {
+                return false;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(message(subIndex, "processing [" + claimedJobs.size() + "] transactions"));
+            }
+            searchEngineFactory.getTransactionContext().execute(new TransactionContextCallback<Object>() {
+                public Object doInTransaction() throws CompassException {
+                    processClaimed(subIndex, claimedJobs);
+                    return null;
+                }
+            });
+            lastProcessed.put(subIndex, System.currentTimeMillis());
+            return true;
+        }
+
+        /**
+         * Applies and commits the claimed jobs. Returns <code>false</code> if the jobs were released back to
+         * the queue (and not processed or dismissed).
+         */
+        private boolean processClaimed(String subIndex, List<QueuedTransactionJobs> claimedJobs) {
+            IndexWriter writer = writers.get(subIndex);
+            if (writer == null) {
+                try {
+                    writer = indexManager.getIndexWritersManager().openIndexWriter(settings, subIndex);
+                    indexManager.getIndexWritersManager().trackOpenIndexWriter(subIndex, writer);
+                } catch (IOException e) {
+                    logger.warn(message(subIndex, "Failed to open index writer, releasing jobs back to the queue"), e);
+                    jobsQueue.release(subIndex, claimedJobs);
+                    return false;
+                }
+                writers.put(subIndex, writer);
+            }
+            try {
+                // coalesce jobs of the same resource from different transactions
+                TransactionJobs mergedJobs = new TransactionJobs();
+                for (QueuedTransactionJobs queuedJobs : claimedJobs) {
+                    mergedJobs.addAll(queuedJobs.getJobs());
+                }
+                for (TransactionJob job : mergedJobs.getJobs()) {
+                    job.execute(writer, searchEngineFactory);
+                }
+            } catch (Exception e) {
+                rollbackWriter(subIndex);
+                if (claimedJobs.size() == 1) {
+                    logger.error(message(subIndex, "Failed to process jobs " + claimedJobs + ", dismissing them"), e);
+                    jobsQueue.processed(subIndex, claimedJobs);
+                    return true;
+                }
+                logger.warn(message(subIndex, "Failed to process [" + claimedJobs.size() + "] transactions, processing them one at a time"), e);
+                processOneByOne(subIndex, claimedJobs);
+                return true;
+            }
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                logger.warn(message(subIndex, "Failed to commit, releasing jobs back to the queue"), e);
+                rollbackWriter(subIndex);
+                jobsQueue.release(subIndex, claimedJobs);
+                return false;
+            }
+            if (indexManager.requiresAsyncTransactionalContext()) {
+                // the writer can not outlive the transaction
+                closeWriter(subIndex);
+            }
+            if (isClearCacheOnCommit()) {
+                indexManager.getIndexHoldersCache().invalidateCache(subIndex);
+            }
+            jobsQueue.processed(subIndex, claimedJobs);
+            return true;
+        }
+
+        /**
+         * Processes each of the claimed transactions on its own, in order, so a failing transaction does not
+         * cause the other ones to be dismissed. Once a transaction is released back to the queue, the ones
+         * following it are released as well, so they are not applied before it.
+         */
+        private void processOneByOne(String subIndex, List<QueuedTransactionJobs> claimedJobs) {
+            for (int i = 0; i < claimedJobs.size(); i++) {
+                if (!processClaimed(subIndex, claimedJobs.subList(i, i + 1))) {
+                    if (i + 1 < claimedJobs.size()) {
+                        jobsQueue.release(subIndex, claimedJobs.subList(i + 1, claimedJobs.size()));
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void closeIdleWriters() {
+            long now = System.currentTimeMillis();
+            for (Iterator<String> it = new ArrayList<String>(writers.keySet()).iterator(); it.hasNext();) {
+                String subIndex = it.next();
+                Long lastProcessedTime = lastProcessed.get(subIndex);
+                if (lastProcessedTime == null || now - lastProcessedTime > writerIdleTimeout) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(message(subIndex, "closing idle index writer"));
+                    }
+                    closeWriter(subIndex);
+                }
+            }
+        }
+
+        private void closeWriter(String subIndex) {
+            IndexWriter writer = writers.remove(subIndex);
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn(message(subIndex, "Failed to close writer, ignoring"), e);
+            } finally {
+                indexManager.getIndexWritersManager().trackCloseIndexWriter(subIndex, writer);
+            }
+        }
+
+        private void rollbackWriter(String subIndex) {
+            IndexWriter writer = writers.remove(subIndex);
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.rollback();
+            } catch (IOException e) {
+                logger.warn(message(subIndex, "Failed to rollback writer, ignoring"), e);
+            } finally {
+                indexManager.getIndexWritersManager().trackCloseIndexWriter(subIndex, writer);
+            }
+        }
+
+        private String message(String subIndex, String message) {
+            return "Processor [" + subIndex + "]: " + message;
+        }
+    }
+}
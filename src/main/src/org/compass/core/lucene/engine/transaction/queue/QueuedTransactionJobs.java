@@ -0,0 +1,68 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+
+/**
+ * The {@link org.compass.core.lucene.engine.transaction.support.job.TransactionJobs} of a single sub index claimed
+ * from a {@link TransactionJobsQueue}, along with the id the queue identifies them with and the time they were
+ * claimed at.
+ *
+ * @author kimchy
+ */
+public class QueuedTransactionJobs {
+
+    private final String id;
+
+    private final TransactionJobs jobs;
+
+    private final long claimed;
+
+    public QueuedTransactionJobs(String id, TransactionJobs jobs, long claimed) {
+        this.id = id;
+        this.jobs = jobs;
+        this.claimed = claimed;
+    }
+
+    /**
+     * Returns the id of the jobs within the queue.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the jobs.
+     */
+    public TransactionJobs getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Returns the time the jobs were claimed at. Used by the queue in order not to process or release
+     * jobs whose claim timed out and were claimed again.
+     */
+    public long getClaimed() {
+        return claimed;
+    }
+
+    @Override
+    public String toString() {
+        return "Queued [" + id + "] " + jobs;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.engine.transaction.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.compass.core.engine.SearchEngineException;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+
+/**
+ * A shared queue of {@link org.compass.core.lucene.engine.transaction.support.job.TransactionJobs} (partitioned by
+ * sub index) used by the {@link QueueTransactionProcessorFactory}. Nodes add committed transactions to the queue,
+ * and worker nodes claim them in batches and apply them to the index.
+ *
+ * <p>Jobs of a sub index should be claimed in the order they were added. Claimed jobs are either marked as
+ * processed (and removed from the queue), or released back to the queue. Claimed jobs that are neither processed
+ * nor released within the claim timeout (for example, since the worker died) should be available to be claimed
+ * again.
+ *
+ * <p>Implementations can implement {@link org.compass.core.config.CompassConfigurable} in order to be configured.
+ *
+ * @author kimchy
+ * @see JdbcTransactionJobsQueue
+ * @see FSTransactionJobsQueue
+ */
+public interface TransactionJobsQueue {
+
+    /**
+     * Adds the jobs of a single transaction, already broken into jobs per sub index, to the queue.
+     */
+    void add(Map<String, TransactionJobs> jobsPerSubIndex) throws SearchEngineException;
+
+    /**
+     * Claims up to <code>size</code> transactions (in the order they were added) for the given sub index.
+     * Returns an empty list if there are no jobs to process.
+     */
+    List<QueuedTransactionJobs> claim(String subIndex, int size) throws SearchEngineException;
+
+    /**
+     * Marks the given claimed jobs as processed, removing them from the queue.
+     */
+    void processed(String subIndex, List<QueuedTransactionJobs> jobs) throws SearchEngineException;
+
+    /**
+     * Releases the given claimed jobs back to the queue, so they will be claimed again.
+     */
+    void release(String subIndex, List<QueuedTransactionJobs> jobs) throws SearchEngineException;
+
+    /**
+     * Closes the queue.
+     */
+    void close();
+}
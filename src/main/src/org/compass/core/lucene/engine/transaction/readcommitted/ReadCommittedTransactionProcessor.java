@@ -40,7 +40,6 @@ import org.apache.lucene.store.Directory;
 import org.compass.core.Resource;
 import org.compass.core.engine.SearchEngineException;
 import org.compass.core.lucene.LuceneEnvironment;
-import org.compass.core.lucene.engine.DefaultLuceneSearchEngineHits;
 import org.compass.core.lucene.engine.EmptyLuceneSearchEngineHits;
 import org.compass.core.lucene.engine.LuceneSearchEngine;
 import org.compass.core.lucene.engine.LuceneSearchEngineHits;
@@ -256,8 +255,9 @@ public class ReadCommittedTransactionProcessor extends AbstractConcurrentTransac
                 qFilter = query.getFilter().getFilter();
             }
         }
-        Hits hits = findByQuery(internalSearch, query, qFilter);
-        return new DefaultLuceneSearchEngineHits(hits, searchEngine, query, internalSearch);
+        // only searches that do not include changes done within the transaction can be cached
+        boolean cacheable = indexHoldersBySubIndex.isEmpty() && !transIndexManager.hasTransactions() && !filter.hasDeletes();
+        return findHits(internalSearch, query, qFilter, cacheable);
     }
 
     @Override
@@ -20,9 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -38,8 +36,11 @@ import org.compass.core.lucene.engine.transaction.support.job.DeleteTransactionJ
 import org.compass.core.lucene.engine.transaction.support.job.FlushCommitTransactionJob;
 import org.compass.core.lucene.engine.transaction.support.job.TransactionJob;
 import org.compass.core.lucene.engine.transaction.support.job.UpdateTransactionJob;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.Histogram;
 import org.compass.core.spi.InternalResource;
 import org.compass.core.spi.ResourceKey;
+import org.compass.core.util.concurrent.RingBuffer;
 
 /**
  * Base class support for async dirty operation processing.
@@ -68,6 +69,11 @@ import org.compass.core.spi.ResourceKey;
  * will block until space becaomes available (by the respective processor processing the operations). The amount of time
  * the operation will block can be controlled using the <code>addTimeout</code> setting which defaults to 10 seconds.
  *
+ * <p>The backlog of each processor is a {@link org.compass.core.util.concurrent.RingBuffer} (the transaction
+ * thread is its single producer, and the processor thread its single consumer), so adding an operation does not
+ * lock or allocate, and the processor drains all the pending operations in a single batch. The backlog depth
+ * and wait times of each processor are available using {@link #getProcessorStats()}.
+ *
  * @author kimchy
  */
 public abstract class AbstractConcurrentTransactionProcessor extends AbstractSearchTransactionProcessor {
@@ -97,6 +103,23 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
         this.addTimeout = searchEngine.getSettings().getSettingAsTimeInMillis(getSettingName("addTimeout"), 10000);
     }
 
+    /**
+     * Returns the current stats of each processor (backlog depth and wait times). Processors that
+     * were not used yet are not returned.
+     */
+    public ProcessorStats[] getProcessorStats() {
+        if (processors == null) {
+            return new ProcessorStats[0];
+        }
+        ArrayList<ProcessorStats> stats = new ArrayList<ProcessorStats>(processors.length);
+        for (Processor processor : processors) {
+            if (processor != null) {
+                stats.add(processor.getStats());
+            }
+        }
+        return stats.toArray(new ProcessorStats[stats.size()]);
+    }
+
     /**
      * Returns <code>true</code> if concurrent operaetions are enabled for this transaction processor.
      */
@@ -390,7 +413,13 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
      */
     private class Processor implements Runnable {
 
-        private final BlockingQueue<TransactionJob> jobs = new LinkedBlockingQueue<TransactionJob>(backlog);
+        private final RingBuffer<TransactionJob> jobs = new RingBuffer<TransactionJob>(backlog);
+
+        private final ArrayList<TransactionJob> batch = new ArrayList<TransactionJob>();
+
+        private volatile boolean cleared;
+
+        private final Histogram backlogHistogram = searchEngineFactory.getMetrics().getHistogram(CompassMetrics.Group.BACKLOG, getName());
 
         private final int id;
 
@@ -422,6 +451,14 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
             return exception;
         }
 
+        /**
+         * Returns the current stats of the processor.
+         */
+        public ProcessorStats getStats() {
+            return new ProcessorStats(id, jobs.size(), jobs.getProducerWaitCount(), jobs.getProducerWaitTimeInNanos(),
+                    jobs.getConsumerWaitCount(), jobs.getConsumerWaitTimeInNanos());
+        }
+
         /**
          * Returns <code>true</code> if the processor requires rescheduling to a thread.
          */
@@ -440,6 +477,7 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
                 logger.trace("Processor [" + id + "]: Starting");
             }
             startLatch = new CountDownLatch(1);
+            cleared = false;
             stopped = false;
             indexManager.getExecutorManager().submit(this);
         }
@@ -456,13 +494,15 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
                 logger.trace("Processor [" + id + "]: Stopping");
             }
             stopped = true;
+            jobs.wakeUpConsumer();
         }
 
         /**
-         * Clears the jobs associated with the processor.
+         * Clears the jobs associated with the processor. The jobs are discarded by the processor thread
+         * (the single consumer of the backlog) instead of being processed.
          */
         public void clear() {
-            jobs.clear();
+            cleared = true;
         }
 
         /**
@@ -512,28 +552,35 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
                     logger.trace("Processor [" + id + "]: Started");
                 }
                 while (!stopped) {
-                    TransactionJob job;
+                    // the backlog before waiting for more jobs (recorded only when there are jobs to process)
+                    int pending = jobs.size();
                     try {
-                        job = jobs.poll(100, TimeUnit.MILLISECONDS);
+                        jobs.drainTo(batch, Integer.MAX_VALUE, 100, TimeUnit.MILLISECONDS);
                     } catch (InterruptedException e) {
                         if (!stopped) {
                             logger.warn("Processor [" + id + "]: Interrupted without being stopped", e);
                         }
                         break;
                     }
-                    if (job != null) {
-                        try {
-                            processJob(job);
-                        } catch (SearchEngineException e) {
-                            exception = e;
-                            break;
-                        }
+                    if (!batch.isEmpty()) {
+                        backlogHistogram.record(pending);
+                    }
+                    try {
+                        processBatch();
+                    } catch (SearchEngineException e) {
+                        exception = e;
+                        break;
                     }
                 }
                 if (exception != null) {
                     if (logger.isTraceEnabled()) {
                         logger.trace("Processor [" + id + "]: Stopping because of an exception", exception);
                     }
+                    // the remaining jobs will not be processed, release them
+                    batch.clear();
+                    while (jobs.drainTo(batch, Integer.MAX_VALUE) > 0) {
+                        batch.clear();
+                    }
                 } else {
                     if (logger.isTraceEnabled()) {
                         logger.trace("Processor [" + id + "]: Received stop, processing remaining jobs");
@@ -558,10 +605,21 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
         }
 
         private void processRemainingJobs() throws SearchEngineException {
-            ArrayList<TransactionJob> remainingJobs = new ArrayList<TransactionJob>();
-            jobs.drainTo(remainingJobs);
-            for (TransactionJob job : remainingJobs) {
-                processJob(job);
+            while (jobs.drainTo(batch, Integer.MAX_VALUE) > 0) {
+                processBatch();
+            }
+        }
+
+        private void processBatch() throws SearchEngineException {
+            try {
+                if (cleared) {
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    processJob(batch.get(i));
+                }
+            } finally {
+                batch.clear();
             }
         }
 
@@ -572,4 +630,80 @@ public abstract class AbstractConcurrentTransactionProcessor extends AbstractSea
             doProcessJob(job);
         }
     }
+
+    /**
+     * The stats of a single processor.
+     */
+    public static class ProcessorStats {
+
+        private final int id;
+
+        private final int backlogDepth;
+
+        private final long addWaitCount;
+
+        private final long addWaitTimeInNanos;
+
+        private final long idleWaitCount;
+
+        private final long idleWaitTimeInNanos;
+
+        public ProcessorStats(int id, int backlogDepth, long addWaitCount, long addWaitTimeInNanos,
+                              long idleWaitCount, long idleWaitTimeInNanos) {
+            this.id = id;
+            this.backlogDepth = backlogDepth;
+            this.addWaitCount = addWaitCount;
+            this.addWaitTimeInNanos = addWaitTimeInNanos;
+            this.idleWaitCount = idleWaitCount;
+            this.idleWaitTimeInNanos = idleWaitTimeInNanos;
+        }
+
+        /**
+         * Returns the id of the processor.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the number of dirty operations waiting to be processed.
+         */
+        public int getBacklogDepth() {
+            return backlogDepth;
+        }
+
+        /**
+         * Returns the number of times a dirty operation had to wait since the backlog was full.
+         */
+        public long getAddWaitCount() {
+            return addWaitCount;
+        }
+
+        /**
+         * Returns the total time (in nanoseconds) dirty operations waited since the backlog was full.
+         */
+        public long getAddWaitTimeInNanos() {
+            return addWaitTimeInNanos;
+        }
+
+        /**
+         * Returns the number of times the processor waited for dirty operations.
+         */
+        public long getIdleWaitCount() {
+            return idleWaitCount;
+        }
+
+        /**
+         * Returns the total time (in nanoseconds) the processor waited for dirty operations.
+         */
+        public long getIdleWaitTimeInNanos() {
+            return idleWaitTimeInNanos;
+        }
+
+        public String toString() {
+            return "processor [" + id + "] backlog [" + backlogDepth + "] addWaits [" + addWaitCount + "/" +
+                    TimeUnit.NANOSECONDS.toMillis(addWaitTimeInNanos) + "ms] idleWaits [" + idleWaitCount + "/" +
+                    TimeUnit.NANOSECONDS.toMillis(idleWaitTimeInNanos) + "ms]";
+        }
+    }
 }
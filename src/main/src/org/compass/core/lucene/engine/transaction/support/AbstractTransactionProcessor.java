@@ -28,14 +28,18 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
 import org.compass.core.engine.SearchEngineException;
 import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.DefaultLuceneSearchEngineHits;
 import org.compass.core.lucene.engine.LuceneSearchEngine;
 import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
+import org.compass.core.lucene.engine.LuceneSearchEngineHits;
 import org.compass.core.lucene.engine.LuceneSearchEngineInternalSearch;
 import org.compass.core.lucene.engine.LuceneSearchEngineQuery;
 import org.compass.core.lucene.engine.manager.LuceneIndexHolder;
 import org.compass.core.lucene.engine.manager.LuceneSearchEngineIndexManager;
+import org.compass.core.lucene.engine.manager.QueryResultCache;
 import org.compass.core.lucene.engine.transaction.TransactionProcessor;
 import org.compass.core.lucene.search.CacheableMultiReader;
 import org.compass.core.mapping.CompassMapping;
@@ -153,6 +157,49 @@ public abstract class AbstractTransactionProcessor implements TransactionProcess
         return hits;
     }
 
+    /**
+     * Finds the hits of the given query. If the search is <code>cacheable</code> (executed only against the
+     * cached index holders of the sub indexes), the {@link QueryResultCache} is enabled and the query can be
+     * used as a cache key, the top documents are looked up in (or stored to) the cache. Otherwise, the search
+     * is executed using {@link #findByQuery}.
+     */
+    protected LuceneSearchEngineHits findHits(LuceneSearchEngineInternalSearch internalSearch,
+                                              LuceneSearchEngineQuery searchEngineQuery, Filter filter, boolean cacheable) throws SearchEngineException {
+        QueryResultCache queryResultCache = indexManager.getIndexHoldersCache().getQueryResultCache();
+        Sort sort = searchEngineQuery.getSort();
+        QueryResultCache.Key key = null;
+        if (cacheable && queryResultCache.isEnabled()) {
+            key = queryResultCache.createKey(searchEngineQuery.getQuery(), filter, sort, internalSearch.getIndexHolders());
+        }
+        if (key == null) {
+            Hits hits = findByQuery(internalSearch, searchEngineQuery, filter);
+            return new DefaultLuceneSearchEngineHits(hits, searchEngine, searchEngineQuery, internalSearch);
+        }
+        TopDocs topDocs = queryResultCache.get(key);
+        if (topDocs != null) {
+            return new DefaultLuceneSearchEngineHits(topDocs, searchEngineQuery.getQuery(), filter, searchEngine, searchEngineQuery, internalSearch);
+        }
+        Query query = searchEngineQuery.getQuery();
+        if (searchEngineQuery.isRewrite()) {
+            try {
+                query = query.rewrite(internalSearch.getReader());
+            } catch (IOException e) {
+                throw new SearchEngineException("Failed to rewrite query [" + query.toString() + "]", e);
+            }
+        }
+        try {
+            if (sort == null) {
+                topDocs = internalSearch.getSearcher().search(query, filter, queryResultCache.getMaxDocs());
+            } else {
+                topDocs = internalSearch.getSearcher().search(query, filter, queryResultCache.getMaxDocs(), sort);
+            }
+        } catch (IOException e) {
+            throw new SearchEngineException("Failed to search with query [" + query + "]", e);
+        }
+        queryResultCache.put(key, topDocs);
+        return new DefaultLuceneSearchEngineHits(topDocs, query, filter, searchEngine, searchEngineQuery, internalSearch);
+    }
+
     protected boolean isInvalidateCacheOnCommit() {
         return searchEngine.getSettings().getSettingAsBoolean(LuceneEnvironment.Transaction.CLEAR_CACHE_ON_COMMIT, true);
     }
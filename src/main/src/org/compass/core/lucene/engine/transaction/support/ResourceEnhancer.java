@@ -16,7 +16,12 @@
 
 package org.compass.core.lucene.engine.transaction.support;
 
+import java.io.StringReader;
+import java.util.HashSet;
+
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Fieldable;
@@ -28,9 +33,13 @@ import org.compass.core.lucene.LuceneResource;
 import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
 import org.compass.core.lucene.engine.all.AllAnalyzer;
 import org.compass.core.lucene.support.FieldHelper;
+import org.compass.core.lucene.support.WildcardIndexHelper;
 import org.compass.core.mapping.AllMapping;
 import org.compass.core.mapping.BoostPropertyMapping;
 import org.compass.core.mapping.ResourceMapping;
+import org.compass.core.mapping.ResourcePropertyMapping;
+import org.compass.core.mapping.WildcardIndex;
+import org.compass.core.spi.InternalProperty;
 import org.compass.core.spi.InternalResource;
 
 /**
@@ -40,6 +49,7 @@ import org.compass.core.spi.InternalResource;
  */
 public class ResourceEnhancer {
 
+    private static final Analyzer KEYWORD_ANALYZER = new KeywordAnalyzer();
 
     /**
      * Result of {@link org.compass.core.lucene.engine.transaction.support.ResourceEnhancer#enahanceResource(org.compass.core.spi.InternalResource)}.
@@ -79,6 +89,7 @@ public class ResourceEnhancer {
         addExtendedProeprty(resource, searchEngineFactory);
         Analyzer analyzer = searchEngineFactory.getAnalyzerManager().getAnalyzerByResource(resource);
         Document document = luceneResource.getDocument();
+        addWildcardIndexProperties(document, resource, analyzer);
         analyzer = addAllProperty(document, resource, analyzer, searchEngineFactory);
         return new Result(analyzer, document);
     }
@@ -111,6 +122,44 @@ public class ResourceEnhancer {
 
     }
 
+    private static void addWildcardIndexProperties(Document document, InternalResource resource, Analyzer analyzer) throws SearchEngineException {
+        HashSet<String> companionNames = null;
+        for (Property property : resource.getProperties()) {
+            ResourcePropertyMapping resourcePropertyMapping = ((InternalProperty) property).getPropertyMapping();
+            // if not found within the property, try and get it based on the name from the resource mapping
+            if (resourcePropertyMapping == null) {
+                resourcePropertyMapping = resource.getResourceMapping().getResourcePropertyMapping(property.getName());
+            }
+            if (resourcePropertyMapping == null || resourcePropertyMapping.getWildcardIndex() == null
+                    || resourcePropertyMapping.getWildcardIndex() == WildcardIndex.NO) {
+                continue;
+            }
+            WildcardIndex wildcardIndex = resourcePropertyMapping.getWildcardIndex();
+            String companionName = WildcardIndexHelper.getCompanionName(property.getName(), wildcardIndex);
+            if (companionNames == null) {
+                companionNames = new HashSet<String>();
+            }
+            // remove companion fields left from a previous enhancement of the same resource
+            if (companionNames.add(companionName)) {
+                document.removeFields(companionName);
+            }
+            String value = property.getStringValue();
+            if (!property.isIndexed() || value == null) {
+                continue;
+            }
+            TokenStream tokenStream;
+            if (property.isTokenized()) {
+                tokenStream = analyzer.tokenStream(property.getName(), new StringReader(value));
+            } else {
+                tokenStream = KEYWORD_ANALYZER.tokenStream(property.getName(), new StringReader(value));
+            }
+            Field field = new Field(companionName, WildcardIndexHelper.createCompanionTokenStream(tokenStream, wildcardIndex));
+            field.setOmitNorms(true);
+            field.setOmitTf(true);
+            document.add(field);
+        }
+    }
+
     private static Analyzer addAllProperty(Document document, InternalResource resource, Analyzer analyzer, LuceneSearchEngineFactory searchEngineFactory) throws SearchEngineException {
         AllMapping allMapping = resource.getResourceMapping().getAllMapping();
         if (!allMapping.isSupported()) {
@@ -50,6 +50,7 @@ public class DeleteTransactionJob implements TransactionJob {
     }
 
     public void execute(IndexWriter writer, LuceneSearchEngineFactory sessionFactory) throws Exception {
+        resourceKey.attach(sessionFactory);
         WriterHelper.processDelete(writer, resourceKey);
     }
 
@@ -27,6 +27,12 @@ import java.util.Set;
 /**
  * A holds for a list of jobs (usually, represent a transaction which holds several dirty operations).
  *
+ * <p>Create/update/delete jobs are coalesced per resource as they are added, so a resource saved several
+ * times only gets analyzed and indexed once. The last job wins, except that a create following an
+ * update or a delete becomes an update (so the previous version is replaced), and a create followed by
+ * a delete results in the delete only. Jobs with no resource (such as delete by query) are never
+ * coalesced, and jobs added after them are not coalesced with jobs added before them.
+ *
  * @author kimchy
  */
 public class TransactionJobs implements Serializable {
@@ -35,12 +41,48 @@ public class TransactionJobs implements Serializable {
 
     private Set<String> subIndexes = new HashSet<String>();
 
+    private transient Map<String, Integer> jobIndexByUID;
+
     /**
-     * Adds a transactional job, representing a single create/update/delete operation.
+     * Adds a transactional job, representing a single create/update/delete operation. If there is a
+     * pending job for the same resource, the two jobs are coalesced into one.
      */
     public void add(TransactionJob job) {
-        jobs.add(job);
         subIndexes.add(job.getSubIndex());
+        addJob(job);
+    }
+
+    /**
+     * Adds all the jobs of the given transactional jobs (coalescing them with the pending ones).
+     */
+    public void addAll(TransactionJobs transactionJobs) {
+        // jobs read from a queue might not be attached yet, so don't ask them for their sub index
+        subIndexes.addAll(transactionJobs.getSubIndexes());
+        for (TransactionJob job : transactionJobs.getJobs()) {
+            addJob(job);
+        }
+    }
+
+    private void addJob(TransactionJob job) {
+        String resourceUID = job.getResourceUID();
+        if (resourceUID == null) {
+            // keep the order of jobs added before and after this one
+            if (jobIndexByUID != null) {
+                jobIndexByUID.clear();
+            }
+            jobs.add(job);
+            return;
+        }
+        if (jobIndexByUID == null) {
+            jobIndexByUID = new HashMap<String, Integer>();
+        }
+        Integer index = jobIndexByUID.get(resourceUID);
+        if (index == null) {
+            jobIndexByUID.put(resourceUID, jobs.size());
+            jobs.add(job);
+        } else {
+            jobs.set(index, coalesce(jobs.get(index), job));
+        }
     }
 
     /**
@@ -75,6 +117,17 @@ public class TransactionJobs implements Serializable {
         return jobsPerSubIndex;
     }
 
+    /**
+     * Coalesces two jobs performed on the same resource into a single job.
+     */
+    private static TransactionJob coalesce(TransactionJob previous, TransactionJob job) {
+        if (job instanceof CreateTransactionJob && !(previous instanceof CreateTransactionJob)) {
+            // make sure the resource deleted (or updated) by the previous job is replaced
+            return new UpdateTransactionJob(((CreateTransactionJob) job).getResource(), job.getResourceUID());
+        }
+        return job;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -37,6 +37,15 @@ public class UpdateTransactionJob implements TransactionJob {
         this.resourceUID = resource.getResourceKey().buildUID();
     }
 
+    /**
+     * Creates an update job with an already built resource UID (does not require the resource
+     * to be attached).
+     */
+    UpdateTransactionJob(InternalResource resource, String resourceUID) {
+        this.resource = resource;
+        this.resourceUID = resourceUID;
+    }
+
     public String getSubIndex() {
         return resource.getSubIndex();
     }
@@ -34,6 +34,13 @@ public class CacheableMultiReader extends MultiReader {
         super(subReaders, closeSubReaders);
     }
 
+    /**
+     * Returns the readers this reader is composed of.
+     */
+    public IndexReader[] getIndexReaders() {
+        return this.subReaders;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LuceneSegmentReaders;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+
+/**
+ * A field cache that holds primitive columns (longs, doubles or ordinals) per segment, instead of
+ * per top level reader as Lucene {@link org.apache.lucene.search.FieldCache} does.
+ *
+ * <p>Segments are immutable, and index readers refreshed by Compass share the segment readers that
+ * did not change. A column is loaded once per segment (and shared with segment readers reopened
+ * because of new deletions), so after a refresh only the new segments need to be loaded. String values
+ * are kept as the unique terms of the segment and an ordinal per document, instead of a
+ * <code>String</code> per document. If a document has several terms for the field (a multi valued
+ * or tokenized property), the ordinal column keeps all of them (see {@link OrdinalColumn#isMultiValued()}).
+ *
+ * <p>Columns can be used directly for aggregations using {@link #getColumns(org.apache.lucene.index.IndexReader, String, Type)},
+ * and for sorting using {@link ColumnarSortComparatorSource}.
+ *
+ * @author kimchy
+ */
+public class ColumnarFieldCache {
+
+    public static final ColumnarFieldCache DEFAULT = new ColumnarFieldCache();
+
+    /**
+     * The type of a column.
+     */
+    public static enum Type {
+        /**
+         * Terms are parsed as longs.
+         */
+        LONG,
+        /**
+         * Terms are parsed as doubles.
+         */
+        DOUBLE,
+        /**
+         * Terms are kept as ordinals into the (sorted) terms of the segment.
+         */
+        ORDINAL
+    }
+
+    private final Map<Object, Map<String, Column>> cache = new WeakHashMap<Object, Map<String, Column>>();
+
+    /**
+     * Returns the columns of the given field for all the segments of the given reader. The type is
+     * resolved from the terms when <code>null</code> is passed (numbers as longs or doubles, otherwise
+     * ordinals).
+     */
+    public Columns getColumns(IndexReader reader, String field, Type type) throws IOException {
+        field = field.intern();
+        IndexReader[] segmentReaders = LuceneSegmentReaders.getSegmentReaders(reader);
+        if (type == null) {
+            type = resolveType(segmentReaders, field);
+        }
+        Column[] columns = new Column[segmentReaders.length];
+        int[] starts = new int[segmentReaders.length];
+        int maxDoc = 0;
+        for (int i = 0; i < segmentReaders.length; i++) {
+            starts[i] = maxDoc;
+            columns[i] = getColumn(segmentReaders[i], field, type);
+            maxDoc += segmentReaders[i].maxDoc();
+        }
+        return new Columns(type, columns, starts);
+    }
+
+    /**
+     * Returns the column of the given field for a single segment reader, loading it if needed.
+     */
+    public Column getColumn(IndexReader segmentReader, String field, Type type) throws IOException {
+        field = field.intern();
+        Object key = LuceneSegmentReaders.getCoreCacheKey(segmentReader);
+        Map<String, Column> segmentColumns;
+        synchronized (cache) {
+            segmentColumns = cache.get(key);
+            if (segmentColumns == null) {
+                segmentColumns = new HashMap<String, Column>();
+                cache.put(key, segmentColumns);
+            }
+        }
+        String columnKey = field + "/" + type;
+        synchronized (segmentColumns) {
+            Column column = segmentColumns.get(columnKey);
+            if (column == null) {
+                column = loadColumn(segmentReader, field, type);
+                segmentColumns.put(columnKey, column);
+            }
+            return column;
+        }
+    }
+
+    /**
+     * Clears all the loaded columns.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private Type resolveType(IndexReader[] segmentReaders, String field) throws IOException {
+        for (IndexReader segmentReader : segmentReaders) {
+            TermEnum termEnum = segmentReader.terms(new Term(field, ""));
+            try {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field) {
+                    continue;
+                }
+                String text = term.text();
+                try {
+                    Long.parseLong(text);
+                    return Type.LONG;
+                } catch (NumberFormatException e) {
+                    // not a long
+                }
+                try {
+                    Double.parseDouble(text);
+                    return Type.DOUBLE;
+                } catch (NumberFormatException e) {
+                    // not a double
+                }
+                return Type.ORDINAL;
+            } finally {
+                termEnum.close();
+            }
+        }
+        return Type.ORDINAL;
+    }
+
+    private Column loadColumn(IndexReader reader, String field, Type type) throws IOException {
+        int maxDoc = reader.maxDoc();
+        long[] longs = null;
+        double[] doubles = null;
+        int[] ords = null;
+        boolean multiValued = false;
+        ArrayList<String> terms = null;
+        if (type == Type.LONG) {
+            longs = new long[maxDoc];
+        } else if (type == Type.DOUBLE) {
+            doubles = new double[maxDoc];
+        } else {
+            ords = new int[maxDoc];
+            terms = new ArrayList<String>();
+        }
+        TermDocs termDocs = reader.termDocs();
+        TermEnum termEnum = reader.terms(new Term(field, ""));
+        try {
+            do {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field) {
+                    break;
+                }
+                termDocs.seek(termEnum);
+                if (type == Type.LONG) {
+                    long value = Long.parseLong(term.text());
+                    while (termDocs.next()) {
+                        longs[termDocs.doc()] = value;
+                    }
+                } else if (type == Type.DOUBLE) {
+                    double value = Double.parseDouble(term.text());
+                    while (termDocs.next()) {
+                        doubles[termDocs.doc()] = value;
+                    }
+                } else {
+                    terms.add(term.text());
+                    // ordinal 0 is reserved for documents with no value
+                    int ord = terms.size();
+                    while (termDocs.next()) {
+                        int doc = termDocs.doc();
+                        // keep the first (lowest) ordinal of the document, used for sorting
+                        if (ords[doc] == 0) {
+                            ords[doc] = ord;
+                        } else {
+                            multiValued = true;
+                        }
+                    }
+                }
+            } while (termEnum.next());
+        } finally {
+            termDocs.close();
+            termEnum.close();
+        }
+        if (type == Type.LONG) {
+            return new LongColumn(longs);
+        } else if (type == Type.DOUBLE) {
+            return new DoubleColumn(doubles);
+        }
+        if (!multiValued) {
+            return new OrdinalColumn(terms.toArray(new String[terms.size()]), ords, null, null);
+        }
+        return loadMultiValuedOrdinalColumn(reader, field, terms.toArray(new String[terms.size()]), ords);
+    }
+
+    /**
+     * Loads all the ordinals of each document, as a single array of ordinals and the offset
+     * of the first ordinal of each document into it. Only done for fields that have at least one
+     * document with several terms.
+     */
+    private Column loadMultiValuedOrdinalColumn(IndexReader reader, String field, String[] terms, int[] ords) throws IOException {
+        int maxDoc = reader.maxDoc();
+        // first count the ordinals of each document, then fill them in
+        int[] offsets = new int[maxDoc + 1];
+        TermDocs termDocs = reader.termDocs();
+        try {
+            for (String term : terms) {
+                termDocs.seek(new Term(field, term));
+                while (termDocs.next()) {
+                    offsets[termDocs.doc() + 1]++;
+                }
+            }
+            for (int doc = 0; doc < maxDoc; doc++) {
+                offsets[doc + 1] += offsets[doc];
+            }
+            int[] multiOrds = new int[offsets[maxDoc]];
+            int[] positions = new int[maxDoc];
+            for (int i = 0; i < terms.length; i++) {
+                termDocs.seek(new Term(field, terms[i]));
+                while (termDocs.next()) {
+                    int doc = termDocs.doc();
+                    multiOrds[offsets[doc] + positions[doc]++] = i + 1;
+                }
+            }
+            return new OrdinalColumn(terms, ords, offsets, multiOrds);
+        } finally {
+            termDocs.close();
+        }
+    }
+
+    /**
+     * The column of a single segment.
+     */
+    public static abstract class Column {
+
+        /**
+         * Returns the value of the given (segment) document as an object.
+         */
+        public abstract Comparable value(int doc);
+
+        /**
+         * Compares two documents of the same segment.
+         */
+        public abstract int compare(int doc1, int doc2);
+    }
+
+    public static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        LongColumn(long[] values) {
+            this.values = values;
+        }
+
+        public long get(int doc) {
+            return values[doc];
+        }
+
+        public Comparable value(int doc) {
+            return values[doc];
+        }
+
+        public int compare(int doc1, int doc2) {
+            long v1 = values[doc1];
+            long v2 = values[doc2];
+            return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        DoubleColumn(double[] values) {
+            this.values = values;
+        }
+
+        public double get(int doc) {
+            return values[doc];
+        }
+
+        public Comparable value(int doc) {
+            return values[doc];
+        }
+
+        public int compare(int doc1, int doc2) {
+            double v1 = values[doc1];
+            double v2 = values[doc2];
+            return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+        }
+    }
+
+    public static final class OrdinalColumn extends Column {
+
+        private final String[] terms;
+
+        private final int[] ords;
+
+        private final int[] offsets;
+
+        private final int[] multiOrds;
+
+        OrdinalColumn(String[] terms, int[] ords, int[] offsets, int[] multiOrds) {
+            this.terms = terms;
+            this.ords = ords;
+            this.offsets = offsets;
+            this.multiOrds = multiOrds;
+        }
+
+        /**
+         * Returns the (lowest) ordinal of the document, <code>0</code> if it has no value.
+         */
+        public int getOrd(int doc) {
+            return ords[doc];
+        }
+
+        /**
+         * Returns <code>true</code> if at least one document of the segment has more than one ordinal.
+         */
+        public boolean isMultiValued() {
+            return offsets != null;
+        }
+
+        /**
+         * Returns the number of ordinals of the document, <code>0</code> if it has no value.
+         */
+        public int getNumberOfOrds(int doc) {
+            if (offsets == null) {
+                return ords[doc] == 0 ? 0 : 1;
+            }
+            return offsets[doc + 1] - offsets[doc];
+        }
+
+        /**
+         * Returns the ordinal of the document at the given index (in increasing order), see
+         * {@link #getNumberOfOrds(int)}.
+         */
+        public int getOrd(int doc, int index) {
+            if (offsets == null) {
+                return ords[doc];
+            }
+            return multiOrds[offsets[doc] + index];
+        }
+
+        /**
+         * Returns the term of the given (non <code>0</code>) ordinal.
+         */
+        public String getTerm(int ord) {
+            return terms[ord - 1];
+        }
+
+        /**
+         * Returns the number of unique terms in this segment.
+         */
+        public int getNumberOfTerms() {
+            return terms.length;
+        }
+
+        public String get(int doc) {
+            int ord = ords[doc];
+            return ord == 0 ? null : terms[ord - 1];
+        }
+
+        public Comparable value(int doc) {
+            return get(doc);
+        }
+
+        public int compare(int doc1, int doc2) {
+            return ords[doc1] - ords[doc2];
+        }
+    }
+
+    /**
+     * The columns of all the segments of a top level reader.
+     */
+    public static final class Columns {
+
+        private final Type type;
+
+        private final Column[] columns;
+
+        private final int[] starts;
+
+        Columns(Type type, Column[] columns, int[] starts) {
+            this.type = type;
+            this.columns = columns;
+            this.starts = starts;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the segment columns.
+         */
+        public Column[] getColumns() {
+            return columns;
+        }
+
+        /**
+         * Returns the first (top level) document of each segment.
+         */
+        public int[] getStarts() {
+            return starts;
+        }
+
+        /**
+         * Returns the index of the segment the given (top level) document belongs to.
+         */
+        public int segment(int doc) {
+            int lo = 0;
+            int hi = starts.length - 1;
+            while (hi >= lo) {
+                int mid = (lo + hi) >>> 1;
+                int midValue = starts[mid];
+                if (doc < midValue) {
+                    hi = mid - 1;
+                } else if (doc > midValue) {
+                    lo = mid + 1;
+                } else {
+                    // find the last segment starting at this doc (skip empty segments)
+                    while (mid + 1 < starts.length && starts[mid + 1] == midValue) {
+                        mid++;
+                    }
+                    return mid;
+                }
+            }
+            return hi;
+        }
+
+        /**
+         * Returns the value of the given (top level) document.
+         */
+        public Comparable value(int doc) {
+            int segment = segment(doc);
+            return columns[segment].value(doc - starts[segment]);
+        }
+
+        /**
+         * Compares two (top level) documents.
+         */
+        public int compare(int doc1, int doc2) {
+            int segment1 = segment(doc1);
+            int segment2 = segment(doc2);
+            if (segment1 == segment2) {
+                return columns[segment1].compare(doc1 - starts[segment1], doc2 - starts[segment1]);
+            }
+            Comparable v1 = columns[segment1].value(doc1 - starts[segment1]);
+            Comparable v2 = columns[segment2].value(doc2 - starts[segment2]);
+            if (v1 == null) {
+                return v2 == null ? 0 : -1;
+            }
+            if (v2 == null) {
+                return 1;
+            }
+            return v1.compareTo(v2);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreDocComparator;
+import org.apache.lucene.search.SortComparatorSource;
+import org.apache.lucene.search.SortField;
+
+/**
+ * A sort comparator source that sorts using the per segment columns of the {@link ColumnarFieldCache}.
+ * Unlike the Lucene field cache (which is per top level reader, and is reloaded for each refreshed
+ * reader), only new segments are loaded after the index changes.
+ *
+ * @author kimchy
+ */
+public class ColumnarSortComparatorSource implements SortComparatorSource {
+
+    private final ColumnarFieldCache fieldCache;
+
+    private final ColumnarFieldCache.Type type;
+
+    /**
+     * Creates a new comparator source with the given column type, or <code>null</code> to
+     * resolve the type automatically based on the field terms.
+     */
+    public ColumnarSortComparatorSource(ColumnarFieldCache.Type type) {
+        this(ColumnarFieldCache.DEFAULT, type);
+    }
+
+    public ColumnarSortComparatorSource(ColumnarFieldCache fieldCache, ColumnarFieldCache.Type type) {
+        this.fieldCache = fieldCache;
+        this.type = type;
+    }
+
+    public ScoreDocComparator newComparator(IndexReader reader, String fieldname) throws IOException {
+        final ColumnarFieldCache.Columns columns = fieldCache.getColumns(reader, fieldname, type);
+        final int sortType;
+        if (columns.getType() == ColumnarFieldCache.Type.LONG) {
+            sortType = SortField.LONG;
+        } else if (columns.getType() == ColumnarFieldCache.Type.DOUBLE) {
+            sortType = SortField.DOUBLE;
+        } else {
+            sortType = SortField.STRING;
+        }
+        return new ScoreDocComparator() {
+            public int compare(ScoreDoc i, ScoreDoc j) {
+                return columns.compare(i.doc, j.doc);
+            }
+
+            public Comparable sortValue(ScoreDoc i) {
+                return columns.value(i.doc);
+            }
+
+            public int sortType() {
+                return sortType;
+            }
+        };
+    }
+
+    // equals and hash code are used by Lucene to cache comparators per reader
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ColumnarSortComparatorSource that = (ColumnarSortComparatorSource) o;
+        return fieldCache == that.fieldCache && type == that.type;
+    }
+
+    public int hashCode() {
+        return 31 * fieldCache.hashCode() + (type != null ? type.hashCode() : 0);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.lucene.search;
+
+import org.apache.lucene.search.HitCollector;
+
+/**
+ * A hit collector that counts the ordinals of several (ordinal) {@link ColumnarFieldCache.Columns}
+ * in a single pass over the hits. All the columns must be loaded from the reader being searched.
+ * A hit with several values for a column (a multi valued or tokenized property) is counted once
+ * for each of its values.
+ *
+ * @author kimchy
+ */
+public class FacetCountHitCollector extends HitCollector {
+
+    private final int[] starts;
+
+    private final ColumnarFieldCache.Columns segmentsLookup;
+
+    private final ColumnarFieldCache.OrdinalColumn[][] columns;
+
+    private final int[][][] counts;
+
+    private int segment = -1;
+
+    private int segmentStart = 0;
+
+    private int segmentEnd = -1;
+
+    public FacetCountHitCollector(ColumnarFieldCache.Columns[] columns) {
+        this.segmentsLookup = columns[0];
+        this.starts = columns[0].getStarts();
+        this.columns = new ColumnarFieldCache.OrdinalColumn[columns.length][];
+        this.counts = new int[columns.length][][];
+        for (int i = 0; i < columns.length; i++) {
+            ColumnarFieldCache.Column[] segmentColumns = columns[i].getColumns();
+            this.columns[i] = new ColumnarFieldCache.OrdinalColumn[segmentColumns.length];
+            this.counts[i] = new int[segmentColumns.length][];
+            for (int j = 0; j < segmentColumns.length; j++) {
+                this.columns[i][j] = (ColumnarFieldCache.OrdinalColumn) segmentColumns[j];
+                // ordinal 0 counts the hits with no value
+                this.counts[i][j] = new int[this.columns[i][j].getNumberOfTerms() + 1];
+            }
+        }
+    }
+
+    public void collect(int doc, float score) {
+        if (doc < segmentStart || doc >= segmentEnd) {
+            // hits are usually collected in order, so only look up the segment when moving to the next one
+            segment = segmentsLookup.segment(doc);
+            segmentStart = starts[segment];
+            segmentEnd = segment + 1 < starts.length ? starts[segment + 1] : Integer.MAX_VALUE;
+        }
+        int segmentDoc = doc - segmentStart;
+        for (int i = 0; i < columns.length; i++) {
+            ColumnarFieldCache.OrdinalColumn column = columns[i][segment];
+            int[] segmentCounts = counts[i][segment];
+            if (!column.isMultiValued()) {
+                segmentCounts[column.getOrd(segmentDoc)]++;
+                continue;
+            }
+            int numberOfOrds = column.getNumberOfOrds(segmentDoc);
+            if (numberOfOrds == 0) {
+                segmentCounts[0]++;
+            }
+            for (int j = 0; j < numberOfOrds; j++) {
+                segmentCounts[column.getOrd(segmentDoc, j)]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the columns of the given facet, one per segment.
+     */
+    public ColumnarFieldCache.OrdinalColumn[] getColumns(int facet) {
+        return columns[facet];
+    }
+
+    /**
+     * Returns the counts of the given facet, per segment and ordinal.
+     */
+    public int[][] getCounts(int facet) {
+        return counts[facet];
+    }
+}
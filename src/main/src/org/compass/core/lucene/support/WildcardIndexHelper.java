@@ -0,0 +1,235 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.lucene.support;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.compass.core.lucene.search.ConstantScorePrefixQuery;
+import org.compass.core.mapping.ResourcePropertyMapping;
+import org.compass.core.mapping.WildcardIndex;
+
+/**
+ * Helper methods for properties mapped with a {@link org.compass.core.mapping.WildcardIndex}.
+ *
+ * <p>A property with a wildcard index gets a companion field indexed alongside it. With
+ * {@link WildcardIndex#REVERSE}, the companion holds each term reversed, and a query such as
+ * <code>*ing</code> is rewritten into a prefix query for <code>gni</code> on the companion field.
+ * With {@link WildcardIndex#NGRAM}, the companion holds all the suffixes of each term, and both
+ * <code>*ing</code> and <code>*in*</code> are rewritten into a term (or prefix) query on the companion
+ * field. In both cases, the term dictionary is no longer scanned from its start.
+ *
+ * @author kimchy
+ */
+public abstract class WildcardIndexHelper {
+
+    private static final String REVERSE_PREFIX = "$rev$";
+
+    private static final String NGRAM_PREFIX = "$ngram$";
+
+    /**
+     * Returns the companion field name of the given property name, or <code>null</code> if no wildcard
+     * index is used.
+     */
+    public static String getCompanionName(String name, WildcardIndex wildcardIndex) {
+        if (wildcardIndex == WildcardIndex.REVERSE) {
+            return REVERSE_PREFIX + name;
+        }
+        if (wildcardIndex == WildcardIndex.NGRAM) {
+            return NGRAM_PREFIX + name;
+        }
+        return null;
+    }
+
+    /**
+     * Wraps the (already analyzed) token stream of a property with the filter that creates the terms
+     * of its companion field.
+     */
+    public static TokenStream createCompanionTokenStream(TokenStream tokenStream, WildcardIndex wildcardIndex) {
+        if (wildcardIndex == WildcardIndex.REVERSE) {
+            return new ReverseTokenFilter(tokenStream);
+        }
+        if (wildcardIndex == WildcardIndex.NGRAM) {
+            return new SuffixTokenFilter(tokenStream);
+        }
+        return tokenStream;
+    }
+
+    /**
+     * Returns the wildcard index shared by all the given mappings, or {@link WildcardIndex#NO} if there
+     * are none or they do not agree (in which case the companion field does not exists for all of them).
+     */
+    public static WildcardIndex getWildcardIndex(ResourcePropertyMapping[] mappings) {
+        if (mappings == null || mappings.length == 0) {
+            return WildcardIndex.NO;
+        }
+        WildcardIndex wildcardIndex = mappings[0].getWildcardIndex();
+        for (int i = 1; i < mappings.length; i++) {
+            if (mappings[i].getWildcardIndex() != wildcardIndex) {
+                return WildcardIndex.NO;
+            }
+        }
+        return wildcardIndex == null ? WildcardIndex.NO : wildcardIndex;
+    }
+
+    /**
+     * Creates a query against the companion field of the given field for the given wildcard pattern.
+     * Returns <code>null</code> if the pattern does not start with a wildcard, if the mappings have no
+     * wildcard index, or if the wildcard index can not help for this pattern (in which case a plain
+     * {@link org.apache.lucene.search.WildcardQuery} should be used).
+     */
+    public static Query createWildcardQuery(String field, String pattern, ResourcePropertyMapping[] mappings) {
+        if (field == null || pattern.length() == 0 || !isWildcard(pattern.charAt(0))) {
+            return null;
+        }
+        WildcardIndex wildcardIndex = getWildcardIndex(mappings);
+        if (wildcardIndex == WildcardIndex.NGRAM) {
+            return createNgramQuery(getCompanionName(field, wildcardIndex), pattern);
+        }
+        if (wildcardIndex == WildcardIndex.REVERSE) {
+            return createReverseQuery(getCompanionName(field, wildcardIndex), pattern);
+        }
+        return null;
+    }
+
+    private static Query createNgramQuery(String field, String pattern) {
+        // a term matches *X if one of its suffixes matches X
+        int start = 0;
+        while (start < pattern.length() && pattern.charAt(start) == '*') {
+            start++;
+        }
+        if (start == 0 || start == pattern.length()) {
+            // starts with ? (suffixes do not help), or only made of *
+            return null;
+        }
+        String suffix = pattern.substring(start);
+        int firstWildcard = indexOfWildcard(suffix);
+        if (firstWildcard == -1) {
+            return new TermQuery(new Term(field, suffix));
+        }
+        if (firstWildcard == suffix.length() - 1 && suffix.charAt(firstWildcard) == '*') {
+            return new ConstantScorePrefixQuery(new Term(field, suffix.substring(0, firstWildcard)));
+        }
+        return new WildcardQuery(new Term(field, suffix));
+    }
+
+    private static Query createReverseQuery(String field, String pattern) {
+        if (isWildcard(pattern.charAt(pattern.length() - 1))) {
+            // the reversed pattern would start with a wildcard as well
+            return null;
+        }
+        String reversed = new StringBuilder(pattern).reverse().toString();
+        int firstWildcard = indexOfWildcard(reversed);
+        if (firstWildcard == reversed.length() - 1 && reversed.charAt(firstWildcard) == '*') {
+            return new ConstantScorePrefixQuery(new Term(field, reversed.substring(0, firstWildcard)));
+        }
+        return new WildcardQuery(new Term(field, reversed));
+    }
+
+    private static int indexOfWildcard(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (isWildcard(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWildcard(char c) {
+        return c == '*' || c == '?';
+    }
+
+    /**
+     * Reverses the term of each token.
+     */
+    public static final class ReverseTokenFilter extends TokenFilter {
+
+        public ReverseTokenFilter(TokenStream input) {
+            super(input);
+        }
+
+        public Token next(Token reusableToken) throws IOException {
+            Token token = input.next(reusableToken);
+            if (token == null) {
+                return null;
+            }
+            char[] buffer = token.termBuffer();
+            for (int i = 0, j = token.termLength() - 1; i < j; i++, j--) {
+                char c = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = c;
+            }
+            return token;
+        }
+    }
+
+    /**
+     * Emits all the suffixes of the term of each token (the term itself included), all at the
+     * position of the original token.
+     */
+    public static final class SuffixTokenFilter extends TokenFilter {
+
+        private char[] term = new char[16];
+
+        private int termLength;
+
+        private int suffixStart;
+
+        private int startOffset;
+
+        private int endOffset;
+
+        public SuffixTokenFilter(TokenStream input) {
+            super(input);
+        }
+
+        public Token next(Token reusableToken) throws IOException {
+            if (suffixStart < termLength) {
+                reusableToken.reinit(term, suffixStart, termLength - suffixStart, startOffset, endOffset);
+                reusableToken.setPositionIncrement(0);
+                suffixStart++;
+                return reusableToken;
+            }
+            Token token = input.next(reusableToken);
+            if (token == null) {
+                return null;
+            }
+            termLength = token.termLength();
+            if (term.length < termLength) {
+                term = new char[termLength];
+            }
+            System.arraycopy(token.termBuffer(), 0, term, 0, termLength);
+            startOffset = token.startOffset();
+            endOffset = token.endOffset();
+            // the token itself is the first suffix
+            suffixStart = 1;
+            return token;
+        }
+
+        public void reset() throws IOException {
+            super.reset();
+            termLength = 0;
+            suffixStart = 0;
+        }
+    }
+}
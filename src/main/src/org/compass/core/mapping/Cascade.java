@@ -18,13 +18,18 @@ package org.compass.core.mapping;
 
 /**
  * A cascade enumeration of operations allowed for cascading.
+ *
+ * <p>{@link #REINDEX} is not included in {@link #ALL}. It marks a component or reference whose
+ * target, when saved or deleted, causes the root objects embedding it to be re-indexed. The embedding root objects
+ * are loaded from the index, so their mappings must store all of their properties.
  */
 public enum Cascade {
 
     DELETE,
     SAVE,
     CREATE,
-    ALL;
+    ALL,
+    REINDEX;
 
     public static String toString(Cascade cascade) {
         if (cascade == Cascade.DELETE) {
@@ -35,6 +40,8 @@ public enum Cascade {
             return "create";
         } else if (cascade == Cascade.ALL) {
             return "all";
+        } else if (cascade == Cascade.REINDEX) {
+            return "reindex";
         }
         throw new IllegalArgumentException("Can't find cascade for [" + cascade + "]");
     }
@@ -48,6 +55,8 @@ public enum Cascade {
             return Cascade.CREATE;
         } else if ("all".equalsIgnoreCase(cascade)) {
             return Cascade.ALL;
+        } else if ("reindex".equalsIgnoreCase(cascade)) {
+            return Cascade.REINDEX;
         }
         throw new IllegalArgumentException("Can't find cascade for [" + cascade + "]");
     }
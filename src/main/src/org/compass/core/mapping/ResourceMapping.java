@@ -89,6 +89,19 @@ public interface ResourceMapping extends AliasMapping {
      */
     String getUIDPath();
 
+    /**
+     * Returns the (internal) property path under which root resources embedding this resource
+     * (using a {@link Cascade#REINDEX} cascade) record its UID. <code>null</code> if no root
+     * resource records it.
+     */
+    String getDependantsPath();
+
+    /**
+     * Returns the aliases of the root mappings embedding this resource using a {@link Cascade#REINDEX}
+     * cascade. <code>null</code> if there are none.
+     */
+    String[] getDependantAliases();
+
     /**
      * Returns all the id mappigns for the low level resource mapping.
      */
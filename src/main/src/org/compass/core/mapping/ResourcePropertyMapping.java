@@ -73,6 +73,11 @@ public interface ResourcePropertyMapping extends Mapping {
 
     SpellCheck getSpellCheck();
 
+    /**
+     * Returns how sorting on this property is performed.
+     */
+    Sortable getSortable();
+
     Property.Store getStore();
 
     Property.Index getIndex();
@@ -81,6 +86,12 @@ public interface ResourcePropertyMapping extends Mapping {
 
     ReverseType getReverse();
 
+    /**
+     * Returns the companion properties indexed in order to speed up wildcard queries starting
+     * with a wildcard.
+     */
+    WildcardIndex getWildcardIndex();
+
     String getNullValue();
 
     boolean hasNullValue();
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.mapping;
+
+/**
+ * Specifies how sorting on a certain property is performed.
+ *
+ * @author kimchy
+ */
+public enum Sortable {
+
+    /**
+     * Sorting uses the Lucene field cache, which is built for the whole (top level) index reader.
+     */
+    DEFAULT,
+
+    /**
+     * Sorting uses primitive columns (longs, doubles or ordinals) built per segment and kept
+     * across index reader refreshes. Only new segments need to be loaded after a refresh.
+     * See {@link org.compass.core.lucene.search.ColumnarFieldCache}.
+     */
+    COLUMNAR;
+
+    /**
+     * Converts to sortable type from a String.
+     */
+    public static Sortable fromString(String sortable) {
+        if ("default".equalsIgnoreCase(sortable)) {
+            return Sortable.DEFAULT;
+        } else if ("columnar".equalsIgnoreCase(sortable)) {
+            return Sortable.COLUMNAR;
+        }
+        throw new IllegalArgumentException("Can't find sortable type for [" + sortable + "]");
+    }
+
+    /**
+     * Converts the sortable type to a String.
+     */
+    public static String toString(Sortable sortable) {
+        if (sortable == COLUMNAR) {
+            return "columnar";
+        }
+        return "default";
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.mapping;
+
+/**
+ * Controls indexing additional (hidden) companion properties for a property in order to speed up
+ * wildcard queries starting with a wildcard (suffix and infix queries), which otherwise have to
+ * enumerate all the terms of the property.
+ *
+ * @author kimchy
+ */
+public enum WildcardIndex {
+
+    /**
+     * No companion property is indexed.
+     */
+    NO,
+
+    /**
+     * The terms of the property are indexed reversed. Speeds up suffix queries (such as <code>*1234</code>).
+     */
+    REVERSE,
+
+    /**
+     * The back edge n-grams (all the suffixes) of the terms of the property are indexed. Speeds up
+     * both suffix and infix queries (such as <code>*123*</code>), at the cost of a larger index.
+     */
+    NGRAM;
+
+    /**
+     * Converts to wildcard index type from a String.
+     */
+    public static WildcardIndex fromString(String wildcardIndex) {
+        if ("no".equalsIgnoreCase(wildcardIndex)) {
+            return WildcardIndex.NO;
+        } else if ("reverse".equalsIgnoreCase(wildcardIndex)) {
+            return WildcardIndex.REVERSE;
+        } else if ("ngram".equalsIgnoreCase(wildcardIndex)) {
+            return WildcardIndex.NGRAM;
+        }
+        throw new IllegalArgumentException("Can't find wildcard index type for [" + wildcardIndex + "]");
+    }
+}
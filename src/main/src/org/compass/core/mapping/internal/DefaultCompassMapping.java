@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -37,6 +38,7 @@ import org.compass.core.mapping.ResourcePropertyMapping;
 import org.compass.core.mapping.osem.ClassMapping;
 import org.compass.core.mapping.rsem.RawResourceMapping;
 import org.compass.core.mapping.support.NullResourceMapping;
+import org.compass.core.util.proxy.extractor.ProxyExtractorHelper;
 
 /**
  * @author kimchy
@@ -51,15 +53,15 @@ public class DefaultCompassMapping implements InternalCompassMapping {
 
     private final ResourceMappingsByNameHolder mappingsByClass = new ResourceMappingsByNameHolder();
 
-    private final ResourceMappingsByNameHolder cachedMappingsByClass = new ResourceMappingsByNameHolder();
+    private final ConcurrentMap<Class, ResourceMapping> cachedMappingsByClass = new ConcurrentHashMap<Class, ResourceMapping>();
 
     private final ResourceMappingsByNameHolder rootMappingsByClass = new ResourceMappingsByNameHolder();
 
-    private final ResourceMappingsByNameHolder cachedRootMappingsByClass = new ResourceMappingsByNameHolder();
+    private final ConcurrentMap<Class, ResourceMapping> cachedRootMappingsByClass = new ConcurrentHashMap<Class, ResourceMapping>();
 
     private final ResourceMappingsByNameHolder nonRootMappingsByClass = new ResourceMappingsByNameHolder();
 
-    private final ResourceMappingsByNameHolder cachedNonRootMappingsByClass = new ResourceMappingsByNameHolder();
+    private final ConcurrentMap<Class, ResourceMapping> cachedNonRootMappingsByClass = new ConcurrentHashMap<Class, ResourceMapping>();
 
     private ResourceMapping[] rootMappingsArr = new ResourceMapping[0];
 
@@ -189,6 +191,7 @@ public class DefaultCompassMapping implements InternalCompassMapping {
                     }
                 }
             }
+            clearCache();
         } finally {
             writeLock.unlock();
         }
@@ -477,28 +480,21 @@ public class DefaultCompassMapping implements InternalCompassMapping {
 
     private ResourceMapping doGetResourceMappingByClass(Class clazz, boolean throwEx,
                                                         ResourceMappingsByNameHolder mappingByClass,
-                                                        ResourceMappingsByNameHolder cachedMappingsByClass) throws MappingException {
-        // we don't really care that we might execute it twice (for caching)
-        String className = clazz.getName();
-        ResourceMapping rm = cachedMappingsByClass.getResourceMappingByName(className);
-        if (rm != null) {
-            if (rm == nullResourceMappingEntryInCache) {
-                if (throwEx) {
-                    throw new MappingException("Failed to find any mappings for class [" + className + "]");
-                }
-                return null;
+                                                        ConcurrentMap<Class, ResourceMapping> cachedMappingsByClass) throws MappingException {
+        ResourceMapping rm = cachedMappingsByClass.get(clazz);
+        if (rm == null) {
+            // we don't really care that we might execute it twice (for caching)
+            rm = doGetActualResourceMappingByClass(ProxyExtractorHelper.getUserClass(clazz), mappingByClass);
+            if (rm == null) {
+                rm = nullResourceMappingEntryInCache;
             }
-            return rm;
+            cachedMappingsByClass.put(clazz, rm);
         }
-        rm = doGetActualResourceMappingByClass(clazz, mappingByClass);
-        if (rm == null) {
-            cachedMappingsByClass.addMapping(className, nullResourceMappingEntryInCache);
+        if (rm == nullResourceMappingEntryInCache) {
             if (throwEx) {
-                throw new MappingException("Failed to find any mappings for class [" + className + "]");
+                throw new MappingException("Failed to find any mappings for class [" + clazz.getName() + "]");
             }
             return null;
-        } else {
-            cachedMappingsByClass.addMapping(className, rm);
         }
         return rm;
     }
@@ -31,6 +31,16 @@ public interface InternalResourceMapping extends ResourceMapping, InternalAliasM
      */
     void setUIDPath(String uid);
 
+    /**
+     * Sets the path under which root resources embedding this resource record its UID.
+     */
+    void setDependantsPath(String dependantsPath);
+
+    /**
+     * Adds the alias of a root mapping embedding this resource using a reindex cascade.
+     */
+    void addDependantAlias(String dependantAlias);
+
     void setAllMapping(AllMapping allMapping);
 
     void setSpellCheck(SpellCheck spellCheck);
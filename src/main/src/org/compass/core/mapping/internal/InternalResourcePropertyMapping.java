@@ -20,7 +20,9 @@ import org.compass.core.Property;
 import org.compass.core.mapping.ExcludeFromAll;
 import org.compass.core.mapping.ResourcePropertyMapping;
 import org.compass.core.mapping.ReverseType;
+import org.compass.core.mapping.Sortable;
 import org.compass.core.mapping.SpellCheck;
+import org.compass.core.mapping.WildcardIndex;
 
 /**
  * @author kimchy
@@ -34,6 +36,8 @@ public interface InternalResourcePropertyMapping extends ResourcePropertyMapping
 
     void setSpellCheck(SpellCheck spellCheck);
 
+    void setSortable(Sortable sortable);
+
     void setIndex(Property.Index index);
 
     void setStore(Property.Store store);
@@ -48,6 +52,8 @@ public interface InternalResourcePropertyMapping extends ResourcePropertyMapping
 
     void setReverse(ReverseType reverseType);
 
+    void setWildcardIndex(WildcardIndex wildcardIndex);
+
     void setAnalyzer(String analyzer);
 
     void setExcludeFromAll(ExcludeFromAll excludeFromAll);
@@ -43,9 +43,12 @@ public abstract class AbstractRefAliasMapping extends AbstractAccessorMapping im
     private Boolean shouldCascadeCreate;
     private Boolean shouldCascadeSave;
 
+    private String dependencyPath;
+
     protected void copy(AbstractRefAliasMapping mapping) {
         super.copy(mapping);
         mapping.setCascades(cascades);
+        mapping.setDependencyPath(dependencyPath);
         if (refAliases != null) {
             String[] copyRefAliases = new String[refAliases.length];
             System.arraycopy(refAliases, 0, copyRefAliases, 0, refAliases.length);
@@ -116,6 +119,14 @@ public abstract class AbstractRefAliasMapping extends AbstractAccessorMapping im
         this.cascades = cascades;
     }
 
+    public String getDependencyPath() {
+        return dependencyPath;
+    }
+
+    public void setDependencyPath(String dependencyPath) {
+        this.dependencyPath = dependencyPath;
+    }
+
     public Object getCascadeValue(Object root) throws CompassException {
         return getGetter().get(root);
     }
@@ -176,19 +187,37 @@ public abstract class AbstractRefAliasMapping extends AbstractAccessorMapping im
     }
 
 
+    /**
+     * Returns <code>true</code> if the roots embedding the target of this mapping should be
+     * re-indexed when it is saved. Only set explicitly, {@link Cascade#ALL} does not include it.
+     */
+    public boolean shouldCascadeReindex() {
+        if (cascades == null) {
+            return false;
+        }
+        for (Cascade cascade : cascades) {
+            if (cascade == Cascade.REINDEX) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean shouldCascade(Cascade cascade) {
         if (cascades == null || cascades.length == 0) {
             return false;
         }
         if (cascade == Cascade.ALL) {
-            // if we pass ALL, it means that any cascading is enough (since cascades is not null, there is at least one)
-            return true;
+            // if we pass ALL, it means that any cascading operation is enough
+            return shouldCascadeCreate() || shouldCascadeSave() || shouldCascadeDelete();
         }else if (cascade == Cascade.CREATE) {
             return shouldCascadeCreate();
         } else if (cascade == Cascade.SAVE) {
             return shouldCascadeSave();
         } else if (cascade == Cascade.DELETE) {
             return shouldCascadeDelete();
+        } else if (cascade == Cascade.REINDEX) {
+            return shouldCascadeReindex();
         } else {
             throw new IllegalArgumentException("Should cascade can't handle [" + cascade + "]");
         }
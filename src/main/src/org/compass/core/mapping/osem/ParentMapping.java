@@ -124,14 +124,16 @@ public class ParentMapping extends AbstractAccessorMapping implements InternalCa
             return false;
         }
         if (cascade == Cascade.ALL) {
-            // if we pass ALL, it means that any cascading is enough (since cascades is not null, there is at least one)
-            return true;
+            // if we pass ALL, it means that any cascading operation is enough
+            return shouldCascadeCreate() || shouldCascadeSave() || shouldCascadeDelete();
         } else if (cascade == Cascade.CREATE) {
             return shouldCascadeCreate();
         } else if (cascade == Cascade.SAVE) {
             return shouldCascadeSave();
         } else if (cascade == Cascade.DELETE) {
             return shouldCascadeDelete();
+        } else if (cascade == Cascade.REINDEX) {
+            return false;
         } else {
             throw new IllegalArgumentException("Should cascade can't handle [" + cascade + "]");
         }
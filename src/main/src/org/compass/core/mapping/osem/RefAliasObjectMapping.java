@@ -38,4 +38,11 @@ public interface RefAliasObjectMapping extends ObjectMapping {
      * defined using {@link #getRefAliases()} to identify the alias.
      */
     Class getRefClass();
+
+    /**
+     * Returns the (internal) property path under which the root resource records the ids of the
+     * objects this mapping points to, or <code>null</code> if they are not recorded. Set for
+     * mappings with a {@link org.compass.core.mapping.Cascade#REINDEX} cascade.
+     */
+    String getDependencyPath();
 }
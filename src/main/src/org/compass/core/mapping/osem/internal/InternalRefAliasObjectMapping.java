@@ -33,4 +33,6 @@ public interface InternalRefAliasObjectMapping extends RefAliasObjectMapping, In
      * defined using {@link #setRefAliases(String[])} to identify the alias.
      */
     void setRefClass(Class refClass);
+
+    void setDependencyPath(String dependencyPath);
 }
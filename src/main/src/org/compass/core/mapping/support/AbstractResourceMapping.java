@@ -66,6 +66,10 @@ public abstract class AbstractResourceMapping extends AbstractMultipleMapping im
 
     private String uidProperty;
 
+    private String dependantsPath;
+
+    private String[] dependantAliases;
+
     private Mapping[] idMappings;
 
     private ResourcePropertyMapping[] idPropertyMappings;
@@ -133,6 +137,8 @@ public abstract class AbstractResourceMapping extends AbstractMultipleMapping im
         resourceMapping.setBoost(getBoost());
         resourceMapping.setAnalyzer(getAnalyzer());
         resourceMapping.setUIDPath(getUIDPath());
+        resourceMapping.setDependantsPath(getDependantsPath());
+        resourceMapping.dependantAliases = getDependantAliases();
         resourceMapping.setAllMapping(getAllMapping().copy());
         resourceMapping.setSpellCheck(getSpellCheck());
         if (boostPropertyMapping != null) {
@@ -299,6 +305,34 @@ public abstract class AbstractResourceMapping extends AbstractMultipleMapping im
         return this.uidProperty;
     }
 
+    public String getDependantsPath() {
+        return dependantsPath;
+    }
+
+    public void setDependantsPath(String dependantsPath) {
+        this.dependantsPath = dependantsPath;
+    }
+
+    public String[] getDependantAliases() {
+        return dependantAliases;
+    }
+
+    public void addDependantAlias(String dependantAlias) {
+        if (dependantAliases == null) {
+            dependantAliases = new String[]{dependantAlias};
+            return;
+        }
+        for (String alias : dependantAliases) {
+            if (alias.equals(dependantAlias)) {
+                return;
+            }
+        }
+        String[] aliases = new String[dependantAliases.length + 1];
+        System.arraycopy(dependantAliases, 0, aliases, 0, dependantAliases.length);
+        aliases[dependantAliases.length] = dependantAlias;
+        dependantAliases = aliases;
+    }
+
     public float getBoost() {
         return boost;
     }
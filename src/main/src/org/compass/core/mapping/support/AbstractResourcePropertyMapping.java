@@ -20,7 +20,9 @@ import org.compass.core.Property;
 import org.compass.core.converter.mapping.ResourcePropertyConverter;
 import org.compass.core.mapping.ExcludeFromAll;
 import org.compass.core.mapping.ReverseType;
+import org.compass.core.mapping.Sortable;
 import org.compass.core.mapping.SpellCheck;
+import org.compass.core.mapping.WildcardIndex;
 import org.compass.core.mapping.internal.InternalResourcePropertyMapping;
 
 /**
@@ -48,12 +50,16 @@ public abstract class AbstractResourcePropertyMapping extends AbstractMapping im
 
     private SpellCheck spellCheck = SpellCheck.NA;
 
+    private Sortable sortable = Sortable.DEFAULT;
+
     private Boolean omitNorms = false;
 
     private Boolean omitTf = false;
 
     private ReverseType reverse = ReverseType.NO;
 
+    private WildcardIndex wildcardIndex = WildcardIndex.NO;
+
     private String nullValue = "";
 
     protected void copy(AbstractResourcePropertyMapping copy) {
@@ -69,11 +75,13 @@ public abstract class AbstractResourcePropertyMapping extends AbstractMapping im
         copy.setTermVector(getTermVector());
         copy.setAnalyzer(getAnalyzer());
         copy.setReverse(getReverse());
+        copy.setWildcardIndex(getWildcardIndex());
         copy.setOmitNorms(isOmitNorms());
         copy.setOmitTf(isOmitTf());
         copy.setRootAlias(getRootAlias());
         copy.setNullValue(getNullValue());
         copy.setSpellCheck(getSpellCheck());
+        copy.setSortable(getSortable());
     }
 
     @Override
@@ -165,6 +173,14 @@ public abstract class AbstractResourcePropertyMapping extends AbstractMapping im
         this.reverse = reverse;
     }
 
+    public WildcardIndex getWildcardIndex() {
+        return wildcardIndex;
+    }
+
+    public void setWildcardIndex(WildcardIndex wildcardIndex) {
+        this.wildcardIndex = wildcardIndex;
+    }
+
     public Boolean isOmitNorms() {
         return omitNorms;
     }
@@ -205,6 +221,14 @@ public abstract class AbstractResourcePropertyMapping extends AbstractMapping im
         this.spellCheck = spellCheck;
     }
 
+    public Sortable getSortable() {
+        return sortable;
+    }
+
+    public void setSortable(Sortable sortable) {
+        this.sortable = sortable;
+    }
+
     public ResourcePropertyConverter getResourcePropertyConverter() {
         if (getConverter() instanceof ResourcePropertyConverter) {
             return (ResourcePropertyConverter) getConverter();
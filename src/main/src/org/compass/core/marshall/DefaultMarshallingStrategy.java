@@ -27,6 +27,7 @@ import org.compass.core.mapping.CompassMapping;
 import org.compass.core.mapping.Mapping;
 import org.compass.core.mapping.ResourceMapping;
 import org.compass.core.mapping.osem.ObjectMapping;
+import org.compass.core.metrics.CompassMetrics;
 import org.compass.core.spi.AliasedObject;
 import org.compass.core.spi.InternalCompassSession;
 
@@ -45,6 +46,8 @@ public class DefaultMarshallingStrategy implements MarshallingStrategy {
 
     private ResourceFactory resourceFactory;
 
+    private CompassMetrics metrics;
+
     public DefaultMarshallingStrategy(CompassMapping mapping, SearchEngine searchEngine,
                                       ConverterLookup converterLookup, InternalCompassSession session) {
         this.mapping = mapping;
@@ -52,6 +55,7 @@ public class DefaultMarshallingStrategy implements MarshallingStrategy {
         this.converterLookup = converterLookup;
         this.session = session;
         this.resourceFactory = session.getCompass().getResourceFactory();
+        this.metrics = session.getCompass().getMetrics();
     }
 
     public Resource marshallIds(Object id) {
@@ -137,8 +141,10 @@ public class DefaultMarshallingStrategy implements MarshallingStrategy {
         if (resourceMapping == null) {
             return null;
         }
+        long start = System.nanoTime();
         Resource resource = resourceFactory.createResource(alias);
         resourceMapping.getConverter().marshall(resource, root, resourceMapping, createContext());
+        metrics.getHistogram(CompassMetrics.Group.MARSHALL, alias).record(System.nanoTime() - start);
         return resource;
     }
 
@@ -150,8 +156,10 @@ public class DefaultMarshallingStrategy implements MarshallingStrategy {
         if (resourceMapping == null) {
             return null;
         }
+        long start = System.nanoTime();
         Resource resource = resourceFactory.createResource(resourceMapping.getAlias());
         resourceMapping.getConverter().marshall(resource, root, resourceMapping, createContext());
+        metrics.getHistogram(CompassMetrics.Group.MARSHALL, resourceMapping.getAlias()).record(System.nanoTime() - start);
         return resource;
     }
 
@@ -164,7 +172,10 @@ public class DefaultMarshallingStrategy implements MarshallingStrategy {
         if (resourceMapping == null) {
             throw new MarshallingException("No mapping is defined for alias [ " + resource.getAlias() + "]");
         }
-        return resourceMapping.getConverter().unmarshall(resource, resourceMapping, context);
+        long start = System.nanoTime();
+        Object root = resourceMapping.getConverter().unmarshall(resource, resourceMapping, context);
+        metrics.getHistogram(CompassMetrics.Group.UNMARSHALL, resourceMapping.getAlias()).record(System.nanoTime() - start);
+        return root;
     }
 
     private MarshallingContext createContext() {
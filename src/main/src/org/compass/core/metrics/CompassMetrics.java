@@ -0,0 +1,228 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The metrics collected by Compass, available using {@link org.compass.core.Compass#getMetrics()}, and
+ * optionally exposed using JMX (see {@link JmxMetricsExporter}).
+ *
+ * <p>Metrics are kept per {@link Group} (for example, query times per alias) and key (the alias). Looking up
+ * a metric that already exists and recording a value do not lock and do not allocate, so metrics can be
+ * collected all the time. When metrics are disabled, no-op metrics are returned.
+ *
+ * @author kimchy
+ */
+public class CompassMetrics {
+
+    /**
+     * The key used for metrics that apply to all aliases / sub indexes.
+     */
+    public static final String ALL = "_all";
+
+    /**
+     * The groups of histograms collected.
+     */
+    public static enum Group {
+        /**
+         * Query execution time (in nanos) per alias.
+         */
+        QUERY_ALIAS("query.alias", true),
+        /**
+         * Query execution time (in nanos) of queries touching a sub index, per sub index. The time is of the
+         * whole query (across all the sub indexes it touches), and not of searching the specific sub index.
+         */
+        QUERY_TOUCHING_SUB_INDEX("query.touchingSubIndex", true),
+        /**
+         * The time (in nanos) it takes to load a hit into a resource.
+         */
+        HITS("hits", true),
+        /**
+         * Marshalling time (in nanos) of an object into a resource per alias.
+         */
+        MARSHALL("marshall", true),
+        /**
+         * Unmarshalling time (in nanos) of a resource into an object per alias.
+         */
+        UNMARSHALL("unmarshall", true),
+        /**
+         * Prepare time (in nanos) per transaction processor.
+         */
+        PREPARE("prepare", true),
+        /**
+         * Commit time (in nanos) per transaction processor.
+         */
+        COMMIT("commit", true),
+        /**
+         * The number of dirty operations pending in a processor backlog, sampled each time the processor takes
+         * operations to process, per transaction processor.
+         */
+        BACKLOG("backlog", false),
+        /**
+         * The time (in nanos) it takes to refresh the cached index reader per sub index.
+         */
+        READER_REFRESH("readerRefresh", true);
+
+        private final String name;
+
+        private final boolean time;
+
+        Group(String name, boolean time) {
+            this.name = name;
+            this.time = time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns <code>true</code> if the histograms of the group hold times (in nanos).
+         */
+        public boolean isTime() {
+            return time;
+        }
+    }
+
+    /**
+     * The groups of hit ratios collected.
+     */
+    public static enum RatioGroup {
+        /**
+         * Local cache hit ratio per sub index.
+         */
+        LOCAL_CACHE("localCache"),
+        /**
+         * Query result cache hit ratio.
+         */
+        QUERY_RESULT_CACHE("queryResultCache"),
+        /**
+         * Parsed query cache hit ratio per query parser.
+         */
+        QUERY_PARSER_CACHE("queryParserCache");
+
+        private final String name;
+
+        RatioGroup(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final boolean enabled;
+
+    private final ConcurrentMap<String, Histogram>[] histograms;
+
+    private final ConcurrentMap<String, HitRatio>[] hitRatios;
+
+    @SuppressWarnings({"unchecked"})
+    public CompassMetrics(boolean enabled) {
+        this.enabled = enabled;
+        histograms = new ConcurrentMap[Group.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new ConcurrentHashMap<String, Histogram>();
+        }
+        hitRatios = new ConcurrentMap[RatioGroup.values().length];
+        for (int i = 0; i < hitRatios.length; i++) {
+            hitRatios[i] = new ConcurrentHashMap<String, HitRatio>();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if metrics are collected.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the histogram of the given group and key, creating it if it does not exist.
+     */
+    public Histogram getHistogram(Group group, String key) {
+        if (!enabled) {
+            return Histogram.NOOP;
+        }
+        ConcurrentMap<String, Histogram> groupHistograms = histograms[group.ordinal()];
+        Histogram histogram = groupHistograms.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram existing = groupHistograms.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the hit ratio of the given group and key, creating it if it does not exist.
+     */
+    public HitRatio getHitRatio(RatioGroup group, String key) {
+        if (!enabled) {
+            return HitRatio.NOOP;
+        }
+        ConcurrentMap<String, HitRatio> groupRatios = hitRatios[group.ordinal()];
+        HitRatio hitRatio = groupRatios.get(key);
+        if (hitRatio == null) {
+            hitRatio = new HitRatio();
+            HitRatio existing = groupRatios.putIfAbsent(key, hitRatio);
+            if (existing != null) {
+                hitRatio = existing;
+            }
+        }
+        return hitRatio;
+    }
+
+    /**
+     * Returns all the histograms of the given group, sorted by their keys.
+     */
+    public Map<String, Histogram> getHistograms(Group group) {
+        return Collections.unmodifiableMap(new TreeMap<String, Histogram>(histograms[group.ordinal()]));
+    }
+
+    /**
+     * Returns all the hit ratios of the given group, sorted by their keys.
+     */
+    public Map<String, HitRatio> getHitRatios(RatioGroup group) {
+        return Collections.unmodifiableMap(new TreeMap<String, HitRatio>(hitRatios[group.ordinal()]));
+    }
+
+    /**
+     * Clears all the collected metrics.
+     */
+    public void reset() {
+        for (ConcurrentMap<String, Histogram> groupHistograms : histograms) {
+            for (Histogram histogram : groupHistograms.values()) {
+                histogram.reset();
+            }
+        }
+        for (ConcurrentMap<String, HitRatio> groupRatios : hitRatios) {
+            for (HitRatio hitRatio : groupRatios.values()) {
+                hitRatio.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the hits and misses of a cache.
+ *
+ * @author kimchy
+ */
+public class HitRatio {
+
+    /**
+     * A hit ratio that ignores all hits and misses, used when metrics are disabled.
+     */
+    public static final HitRatio NOOP = new HitRatio() {
+        public void hit() {
+        }
+
+        public void miss() {
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    public void miss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the ratio of hits out of all the lookups, <code>0</code> if there were none.
+     */
+    public double getRatio() {
+        long currentHits = hits.get();
+        long total = currentHits + misses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) currentHits / total;
+    }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+    }
+}
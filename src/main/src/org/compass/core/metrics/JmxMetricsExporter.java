@@ -0,0 +1,188 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Exposes {@link CompassMetrics} as a dynamic MBean registered with the platform MBean server under
+ * <code>org.compass:type=Metrics,name=[compass name]</code>.
+ *
+ * <p>Each histogram is exposed as <code>[group].[key].count</code>, <code>mean</code>, <code>max</code>,
+ * <code>p50</code> and <code>p99</code> attributes (in milliseconds for time based groups), and each hit ratio
+ * as <code>[group].[key].hits</code>, <code>misses</code> and <code>ratio</code> attributes. Attributes are
+ * computed on access, and new keys show up as they are recorded. A <code>reset</code> operation clears all
+ * the metrics.
+ *
+ * @author kimchy
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+
+    private static final Log log = LogFactory.getLog(JmxMetricsExporter.class);
+
+    private final CompassMetrics metrics;
+
+    private final ObjectName objectName;
+
+    private MBeanServer mbeanServer;
+
+    public JmxMetricsExporter(CompassMetrics metrics, String compassName) {
+        this.metrics = metrics;
+        try {
+            this.objectName = new ObjectName("org.compass:type=Metrics,name=" + ObjectName.quote(compassName));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to create JMX object name for compass [" + compassName + "]", e);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. Failures are logged and ignored.
+     */
+    public void register() {
+        try {
+            mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+            mbeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            mbeanServer = null;
+            log.warn("Failed to register compass metrics with JMX under [" + objectName + "]", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the MBean server (if registered).
+     */
+    public void unregister() {
+        if (mbeanServer == null) {
+            return;
+        }
+        try {
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to unregister compass metrics from JMX under [" + objectName + "]", e);
+        } finally {
+            mbeanServer = null;
+        }
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("No metric [" + attribute + "]");
+        }
+        return value;
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = attributes();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Object value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric [" + attribute.getName() + "] is read only");
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName)) {
+            metrics.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operation [" + actionName + "]");
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        ArrayList<MBeanAttributeInfo> attributeInfos = new ArrayList<MBeanAttributeInfo>();
+        for (Map.Entry<String, Object> entry : attributes().entrySet()) {
+            attributeInfos.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false));
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears all the metrics", new MBeanParameterInfo[0],
+                "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Compass metrics",
+                attributeInfos.toArray(new MBeanAttributeInfo[attributeInfos.size()]), null,
+                new MBeanOperationInfo[]{reset}, null);
+    }
+
+    private Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+        for (CompassMetrics.Group group : CompassMetrics.Group.values()) {
+            for (Map.Entry<String, Histogram> entry : metrics.getHistograms(group).entrySet()) {
+                String prefix = group.getName() + "." + entry.getKey() + ".";
+                Histogram histogram = entry.getValue();
+                attributes.put(prefix + "count", histogram.getCount());
+                if (group.isTime()) {
+                    attributes.put(prefix + "mean", histogram.getMean() / 1000000);
+                    attributes.put(prefix + "max", histogram.getMax() / 1000000.0);
+                    attributes.put(prefix + "p50", histogram.getPercentile(50) / 1000000.0);
+                    attributes.put(prefix + "p99", histogram.getPercentile(99) / 1000000.0);
+                } else {
+                    attributes.put(prefix + "mean", histogram.getMean());
+                    attributes.put(prefix + "max", (double) histogram.getMax());
+                    attributes.put(prefix + "p50", (double) histogram.getPercentile(50));
+                    attributes.put(prefix + "p99", (double) histogram.getPercentile(99));
+                }
+            }
+        }
+        for (CompassMetrics.RatioGroup group : CompassMetrics.RatioGroup.values()) {
+            for (Map.Entry<String, HitRatio> entry : metrics.getHitRatios(group).entrySet()) {
+                String prefix = group.getName() + "." + entry.getKey() + ".";
+                HitRatio hitRatio = entry.getValue();
+                attributes.put(prefix + "hits", hitRatio.getHits());
+                attributes.put(prefix + "misses", hitRatio.getMisses());
+                attributes.put(prefix + "ratio", hitRatio.getRatio());
+            }
+        }
+        return attributes;
+    }
+}
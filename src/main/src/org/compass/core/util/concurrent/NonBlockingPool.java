@@ -0,0 +1,226 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.util.concurrent;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded pool of (non thread safe) objects that does not use locks when an object is
+ * available.
+ *
+ * <p>Each thread has an affinity slot holding the last object it released, so a thread that
+ * keeps acquiring and releasing (the common case) gets the same object back with a single
+ * atomic operation. Objects released when the thread slot is already taken go to a lock free
+ * overflow stack. The number of affinity slots is bounded by the maximum size of the pool, and
+ * objects parked in slots of other threads can be stolen, so an idle thread never holds an object
+ * others are waiting for.
+ *
+ * <p>Objects are created lazily up to the maximum size. When the pool is exhausted, acquiring
+ * threads back off (park) until an object is released. The number of waits and the total wait time
+ * are recorded.
+ *
+ * @author kimchy
+ */
+public class NonBlockingPool<T> {
+
+    /**
+     * Creates new objects for the pool.
+     */
+    public static interface Factory<T> {
+
+        T create();
+    }
+
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    private final Factory<T> factory;
+
+    private final int maxSize;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicReference<Node<T>> overflow = new AtomicReference<Node<T>>();
+
+    private final CopyOnWriteArrayList<AtomicReference<T>> slots = new CopyOnWriteArrayList<AtomicReference<T>>();
+
+    private final ThreadLocal<AtomicReference<T>> threadSlot = new ThreadLocal<AtomicReference<T>>() {
+        protected AtomicReference<T> initialValue() {
+            if (slots.size() >= maxSize) {
+                return null;
+            }
+            AtomicReference<T> slot = new AtomicReference<T>();
+            slots.add(slot);
+            return slot;
+        }
+    };
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong waitTime = new AtomicLong();
+
+    public NonBlockingPool(int initialSize, int maxSize, Factory<T> factory) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size of the pool must be at least 1, got [" + maxSize + "]");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        for (int i = 0; i < Math.min(initialSize, maxSize); i++) {
+            size.incrementAndGet();
+            push(factory.create());
+        }
+    }
+
+    /**
+     * Acquires an object from the pool, waiting for one to be released if the pool is exhausted.
+     * The object must be returned using {@link #release(Object)}.
+     */
+    public T acquire() throws InterruptedException {
+        T value = tryAcquire();
+        if (value != null) {
+            return value;
+        }
+        waitCount.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            long parkNanos = 1000;
+            while (true) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(parkNanos);
+                value = tryAcquire();
+                if (value != null) {
+                    return value;
+                }
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        } finally {
+            waitTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns an object acquired using {@link #acquire()} to the pool.
+     */
+    public void release(T value) {
+        AtomicReference<T> slot = threadSlot.get();
+        if (slot != null && slot.compareAndSet(null, value)) {
+            return;
+        }
+        push(value);
+    }
+
+    private T tryAcquire() {
+        AtomicReference<T> slot = threadSlot.get();
+        T value;
+        if (slot != null) {
+            value = slot.getAndSet(null);
+            if (value != null) {
+                return value;
+            }
+        }
+        value = pop();
+        if (value != null) {
+            return value;
+        }
+        while (true) {
+            int currentSize = size.get();
+            if (currentSize >= maxSize) {
+                break;
+            }
+            if (size.compareAndSet(currentSize, currentSize + 1)) {
+                return factory.create();
+            }
+        }
+        // steal from other threads slots
+        for (AtomicReference<T> otherSlot : slots) {
+            if (otherSlot.get() != null) {
+                value = otherSlot.getAndSet(null);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void push(T value) {
+        Node<T> node = new Node<T>(value);
+        while (true) {
+            Node<T> head = overflow.get();
+            node.next = head;
+            if (overflow.compareAndSet(head, node)) {
+                return;
+            }
+        }
+    }
+
+    private T pop() {
+        while (true) {
+            Node<T> head = overflow.get();
+            if (head == null) {
+                return null;
+            }
+            if (overflow.compareAndSet(head, head.next)) {
+                return head.value;
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of objects the pool will create.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of objects created by the pool.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of times a thread had to wait for an object to be released.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) threads waited for an object to be released.
+     */
+    public long getWaitTimeInNanos() {
+        return waitTime.get();
+    }
+
+    private static final class Node<T> {
+
+        final T value;
+
+        Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, array backed, single producer / single consumer queue.
+ *
+ * <p>The producer and the consumer each own a sequence (the tail and the head), and only read the sequence
+ * of the other side, so adding and draining entries do not lock and do not allocate. The consumer drains
+ * all the available entries in a single batch (see {@link #drainTo(java.util.Collection, int, long, java.util.concurrent.TimeUnit)}).
+ *
+ * <p>When the buffer is full (for the producer) or empty (for the consumer), the waiting side first spins
+ * and then parks until it is woken up by the other side. The number of spins adapts: it grows when spinning
+ * was enough and shrinks when the thread had to park anyway. The number of waits and the total wait time
+ * of each side are recorded.
+ *
+ * <p>Note, {@link #offer(Object, long, java.util.concurrent.TimeUnit)} must only be called by a single thread
+ * at a time, and the same goes for the drain operations.
+ *
+ * @author kimchy
+ */
+public class RingBuffer<T> {
+
+    private static final int MIN_SPINS = 16;
+
+    private static final int MAX_SPINS = 4096;
+
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    private final Object[] entries;
+
+    private final int mask;
+
+    private final int capacity;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile Thread waitingProducer;
+
+    private volatile Thread waitingConsumer;
+
+    private int producerSpins = MIN_SPINS;
+
+    private int consumerSpins = MIN_SPINS;
+
+    private final AtomicLong producerWaitCount = new AtomicLong();
+
+    private final AtomicLong producerWaitTime = new AtomicLong();
+
+    private final AtomicLong consumerWaitCount = new AtomicLong();
+
+    private final AtomicLong consumerWaitTime = new AtomicLong();
+
+    /**
+     * Creates a new ring buffer that can hold up to <code>capacity</code> entries.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity of the ring buffer must be at least 1, got [" + capacity + "]");
+        }
+        this.capacity = capacity;
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.entries = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the given value, waiting up to the given timeout if the buffer is full. Returns <code>false</code>
+     * if the value could not be added within the timeout.
+     */
+    public boolean offer(T value, long timeout, TimeUnit unit) throws InterruptedException {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        long currentTail = tail.get();
+        if (currentTail - head.get() >= capacity && !awaitSpace(currentTail, unit.toNanos(timeout))) {
+            return false;
+        }
+        entries[(int) currentTail & mask] = value;
+        tail.set(currentTail + 1);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Moves up to <code>maxEntries</code> available entries into the given collection, waiting up to the
+     * given timeout for at least one entry to be available. Returns the number of entries moved, <code>0</code>
+     * if the timeout elapsed or the consumer was woken up using {@link #wakeUpConsumer()}.
+     */
+    public int drainTo(Collection<? super T> c, int maxEntries, long timeout, TimeUnit unit) throws InterruptedException {
+        int drained = drainTo(c, maxEntries);
+        if (drained > 0 || timeout <= 0) {
+            return drained;
+        }
+        if (awaitEntries(unit.toNanos(timeout))) {
+            return drainTo(c, maxEntries);
+        }
+        return 0;
+    }
+
+    /**
+     * Moves up to <code>maxEntries</code> available entries into the given collection without waiting.
+     */
+    @SuppressWarnings({"unchecked"})
+    public int drainTo(Collection<? super T> c, int maxEntries) {
+        long currentHead = head.get();
+        int count = (int) Math.min(tail.get() - currentHead, maxEntries);
+        if (count <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = (int) (currentHead + i) & mask;
+            c.add((T) entries[index]);
+            entries[index] = null;
+        }
+        head.set(currentHead + count);
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        return count;
+    }
+
+    /**
+     * Wakes up the consumer if it is waiting for entries.
+     */
+    public void wakeUpConsumer() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean awaitSpace(long currentTail, long timeoutNanos) throws InterruptedException {
+        producerWaitCount.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < producerSpins; i++) {
+                if (currentTail - head.get() < capacity) {
+                    producerSpins = Math.min(producerSpins * 2, MAX_SPINS);
+                    return true;
+                }
+            }
+            producerSpins = Math.max(producerSpins / 2, MIN_SPINS);
+            waitingProducer = Thread.currentThread();
+            try {
+                long parkNanos = 1000;
+                while (currentTail - head.get() >= capacity) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    long remaining = timeoutNanos - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                }
+                return true;
+            } finally {
+                waitingProducer = null;
+            }
+        } finally {
+            producerWaitTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private boolean awaitEntries(long timeoutNanos) throws InterruptedException {
+        consumerWaitCount.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < consumerSpins; i++) {
+                if (tail.get() != head.get()) {
+                    consumerSpins = Math.min(consumerSpins * 2, MAX_SPINS);
+                    return true;
+                }
+            }
+            consumerSpins = Math.max(consumerSpins / 2, MIN_SPINS);
+            waitingConsumer = Thread.currentThread();
+            try {
+                // the producer unparks us once an entry is added (checked after waitingConsumer is set)
+                if (tail.get() != head.get()) {
+                    return true;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (remaining > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                return tail.get() != head.get();
+            } finally {
+                waitingConsumer = null;
+            }
+        } finally {
+            consumerWaitTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries the buffer can hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of entries currently waiting to be drained.
+     */
+    public int size() {
+        // read the head first, so the size is never negative
+        long currentHead = head.get();
+        return (int) (tail.get() - currentHead);
+    }
+
+    /**
+     * Returns the number of times the producer had to wait for space to become available.
+     */
+    public long getProducerWaitCount() {
+        return producerWaitCount.get();
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) the producer waited for space to become available.
+     */
+    public long getProducerWaitTimeInNanos() {
+        return producerWaitTime.get();
+    }
+
+    /**
+     * Returns the number of times the consumer had to wait for entries to become available.
+     */
+    public long getConsumerWaitCount() {
+        return consumerWaitCount.get();
+    }
+
+    /**
+     * Returns the total time (in nanoseconds) the consumer waited for entries to become available.
+     */
+    public long getConsumerWaitTimeInNanos() {
+        return consumerWaitTime.get();
+    }
+}
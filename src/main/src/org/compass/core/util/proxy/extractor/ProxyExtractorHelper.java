@@ -34,6 +34,11 @@ import org.compass.core.util.ClassUtils;
  */
 public class ProxyExtractorHelper implements CompassConfigurable {
 
+    /**
+     * Generated proxy subclasses (CGLIB, Hibernate javassist) include this in their class name.
+     */
+    private static final String PROXY_CLASS_SEPARATOR = "$$";
+
     private ProxyExtractor[] extractors;
 
     public void configure(CompassSettings settings) throws CompassException {
@@ -69,6 +74,22 @@ public class ProxyExtractorHelper implements CompassConfigurable {
         return objClass;
     }
 
+    /**
+     * Returns the user defined class for the given class. Unwraps generated proxy subclasses
+     * (such as CGLIB or Hibernate javassist proxies) to the class they extend, without requiring
+     * an instance and without initializing anything.
+     */
+    public static Class getUserClass(Class clazz) {
+        while (clazz.getName().indexOf(PROXY_CLASS_SEPARATOR) != -1) {
+            Class superClass = clazz.getSuperclass();
+            if (superClass == null || Object.class.equals(superClass)) {
+                break;
+            }
+            clazz = superClass;
+        }
+        return clazz;
+    }
+
     public Object initializeProxy(Object obj) {
         for (ProxyExtractor extractor : extractors) {
             obj = extractor.initalizeProxy(obj);
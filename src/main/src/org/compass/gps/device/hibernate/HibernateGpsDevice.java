@@ -52,8 +52,9 @@ import org.hibernate.SessionFactory;
  * used it the {@link org.compass.gps.device.hibernate.entities.DefaultHibernateEntitiesLocator}.
  *
  * <p>The indexing process itself is done through an implementation of
- * {@link HibernateIndexEntitiesIndexer}. It has two different implementation, the
- * {@link org.compass.gps.device.hibernate.indexer.PaginationHibernateIndexEntitiesIndexer} and the
+ * {@link HibernateIndexEntitiesIndexer}. It has three different implementation, the
+ * {@link org.compass.gps.device.hibernate.indexer.PaginationHibernateIndexEntitiesIndexer}, the
+ * {@link org.compass.gps.device.hibernate.indexer.KeysetHibernateIndexEntitiesIndexer} and the
  * {@link org.compass.gps.device.hibernate.indexer.ScrollableHibernateIndexEntitiesIndexer}. The default
  * used is the scrollable indexer.
  *
@@ -43,7 +43,11 @@ import org.compass.core.spi.InternalCompass;
 import org.compass.core.transaction.JTASyncTransactionFactory;
 import org.compass.core.transaction.LocalTransactionFactory;
 import org.compass.core.util.ClassUtils;
+import org.compass.gps.device.hibernate.lifecycle.HibernateAsyncMirrorEntitiesIndexer;
 import org.compass.gps.device.hibernate.lifecycle.HibernateMirrorFilter;
+import org.compass.gps.device.hibernate.lifecycle.HibernateMirrorOperationsCollector;
+import org.compass.gps.device.support.async.AsyncMirrorProcessor;
+import org.compass.gps.device.support.async.MirrorOperation;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.Environment;
@@ -119,6 +123,12 @@ import org.hibernate.transaction.JTATransactionFactory;
  * filter out mirror operations. In order to configure one, the <code>compass.hibernate.mirrorFilter</code>
  * can be used with the implementation class FQN.
  *
+ * <p>Setting <code>compass.hibernate.async</code> to <code>true</code> mirrors data changes asynchronously
+ * instead. During the transaction only the entity name and id of each changed entity is recorded, and once
+ * the transaction commits, a background thread reloads the changed entities in batches (of
+ * <code>compass.hibernate.async.batchSize</code>, defaults to <code>200</code>) and indexes them. See
+ * {@link org.compass.gps.device.support.async.AsyncMirrorProcessor}.
+ *
  * <p>In order to get the {@link Compass} instnace bounded to this Hibernate configuration, the
  * {@link HibernateHelper} can be used. This is mainly used in order to perform search operations on the
  * index and get a Compass Gps in order to reindex the database.
@@ -141,6 +151,10 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
 
     public static final String COMPASS_PROCESS_COLLECTIONS = "compass.hibernate.processCollections";
 
+    public static final String COMPASS_ASYNC = "compass.hibernate.async";
+
+    public static final String COMPASS_ASYNC_BATCH_SIZE = "compass.hibernate.async.batchSize";
+
     private static ThreadLocal<WeakHashMap<Configuration, CompassHolder>> contexts = new ThreadLocal<WeakHashMap<Configuration, CompassHolder>>();
 
     private CompassHolder compassHolder;
@@ -159,6 +173,17 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
         return this.compassHolder.indexSettings;
     }
 
+    /**
+     * Blocks until the data changes of all the transactions committed so far have been mirrored, when
+     * mirroring asynchronously.
+     */
+    public void flushAsyncMirror() {
+        AsyncMirrorProcessor mirrorProcessor = this.compassHolder.mirrorProcessor;
+        if (mirrorProcessor != null) {
+            mirrorProcessor.flush();
+        }
+    }
+
     public void onPostDelete(PostDeleteEvent event) {
         if (compassHolder == null) {
             return;
@@ -172,6 +197,11 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
                 return;
             }
         }
+        if (compassHolder.async) {
+            getMirrorOperationsCollector(event.getSession()).add(event.getSession(),
+                    MirrorOperation.delete(event.getPersister().getEntityName(), event.getId(), entity));
+            return;
+        }
         TransactionSyncHolder holder = getOrCreateHolder(event.getSession());
         if (log.isTraceEnabled()) {
             log.trace("Deleting [" + entity + "]");
@@ -193,6 +223,11 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
                 return;
             }
         }
+        if (compassHolder.async) {
+            getMirrorOperationsCollector(event.getSession()).add(event.getSession(),
+                    MirrorOperation.save(event.getPersister().getEntityName(), event.getId()));
+            return;
+        }
         TransactionSyncHolder holder = getOrCreateHolder(event.getSession());
         if (log.isTraceEnabled()) {
             log.trace("Creating [" + entity + "]");
@@ -226,6 +261,11 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
                 return;
             }
         }
+        if (compassHolder.async) {
+            getMirrorOperationsCollector(event.getSession()).add(event.getSession(),
+                    MirrorOperation.save(event.getPersister().getEntityName(), event.getId()));
+            return;
+        }
         TransactionSyncHolder holder = getOrCreateHolder(event.getSession());
         if (log.isTraceEnabled()) {
             log.trace("Updating [" + entity + "]");
@@ -292,6 +332,11 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
                 return;
             }
         }
+        if (compassHolder.async) {
+            getMirrorOperationsCollector(event.getSession()).add(event.getSession(),
+                    MirrorOperation.save(event.getAffectedOwnerEntityName(), id));
+            return;
+        }
         TransactionSyncHolder holder = getOrCreateHolder(event.getSession());
         if (log.isTraceEnabled()) {
             log.trace("Updating [" + entity + "]");
@@ -310,6 +355,18 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
         return id;
     }
 
+    private HibernateMirrorOperationsCollector getMirrorOperationsCollector(EventSource session) {
+        synchronized (compassHolder) {
+            if (compassHolder.mirrorOperationsCollector == null) {
+                compassHolder.mirrorProcessor = new AsyncMirrorProcessor("embedded", compassHolder.compass,
+                        new HibernateAsyncMirrorEntitiesIndexer(session.getFactory()), compassHolder.asyncBatchSize);
+                compassHolder.mirrorProcessor.start();
+                compassHolder.mirrorOperationsCollector = new HibernateMirrorOperationsCollector(compassHolder.mirrorProcessor);
+            }
+            return compassHolder.mirrorOperationsCollector;
+        }
+    }
+
     private TransactionSyncHolder getOrCreateHolder(EventSource session) {
         if (session.isTransactionInProgress()) {
             Transaction transaction = session.getTransaction();
@@ -435,6 +492,9 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
 
         compassHolder.commitBeforeCompletion = settings.getSettingAsBoolean(CompassEnvironment.Transaction.COMMIT_BEFORE_COMPLETION, false);
 
+        compassHolder.async = settings.getSettingAsBoolean(COMPASS_ASYNC, false);
+        compassHolder.asyncBatchSize = settings.getSettingAsInt(COMPASS_ASYNC_BATCH_SIZE, 200);
+
 
         String transactionFactory = (String) compassProperties.get(CompassEnvironment.Transaction.FACTORY);
         if (transactionFactory == null) {
@@ -514,6 +574,14 @@ public class CompassEventListener implements PostDeleteEventListener, PostInsert
 
         HibernateMirrorFilter mirrorFilter;
 
+        boolean async;
+
+        int asyncBatchSize;
+
+        volatile AsyncMirrorProcessor mirrorProcessor;
+
+        HibernateMirrorOperationsCollector mirrorOperationsCollector;
+
         Compass compass;
     }
 
@@ -85,6 +85,14 @@ public abstract class HibernateHelper {
         return findEventListener(sessionFactory).getIndexSettings();
     }
 
+    /**
+     * Blocks until the data changes of all the transactions committed so far have been mirrored, when
+     * embedded Compass is configured to mirror asynchronously (<code>compass.hibernate.async</code>).
+     */
+    public static void flushAsyncMirror(SessionFactory sessionFactory) {
+        findEventListener(sessionFactory).flushAsyncMirror();
+    }
+
     /**
      * Retruns a {@link org.compass.gps.CompassGps} based on the Compass instance associated with the
      * Hibernate session factory.
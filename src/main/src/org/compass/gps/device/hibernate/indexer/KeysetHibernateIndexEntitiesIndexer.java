@@ -0,0 +1,272 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.indexer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.CompassSession;
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.HibernateGpsDeviceException;
+import org.compass.gps.device.hibernate.entities.EntityInformation;
+import org.compass.gps.device.support.keyset.KeysetIndexPipelineFetcher;
+import org.compass.gps.device.support.keyset.KeysetPage;
+import org.compass.gps.device.support.keyset.KeysetPageLoader;
+import org.compass.gps.device.support.keyset.KeysetPagesIndexer;
+import org.compass.gps.device.support.parallel.IndexEntity;
+import org.compass.gps.device.support.parallel.IndexPipelineFetcher;
+import org.compass.gps.device.support.parallel.PipelinedIndexEntitiesIndexer;
+import org.hibernate.CacheMode;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.transaction.CMTTransactionFactory;
+import org.hibernate.transaction.JTATransactionFactory;
+import org.hibernate.transaction.TransactionFactory;
+
+/**
+ * A Hibernate indexer using keyset pagination. Each page is loaded using a <code>Criteria</code>
+ * restricted to ids greater than the last id of the previous page and ordered by the id
+ * (<code>where id > :lastId order by id</code>), so loading a page does not get slower the further it is
+ * in the table, as it does with <code>setFirstResult</code> (see {@link PaginationHibernateIndexEntitiesIndexer}).
+ *
+ * <p>By default, the next page is loaded by a separate thread while the current page is being indexed
+ * (see {@link #setPipelined(boolean)}). Pipelining is not used when Hibernate is configured with
+ * {@link JTATransactionFactory} or {@link CMTTransactionFactory}, since the transaction a page is loaded with
+ * is then bound to the loading thread and can not be completed by the indexing thread.
+ *
+ * <p>The indexer can also be used with {@link org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor}
+ * (except when Hibernate is configured with JTA or CMT transactions), in which case pages are marshalled and
+ * written by other threads.
+ *
+ * <p>Entities with a composite id, or with a query provider that does not create a <code>Criteria</code>
+ * (for example, when using a custom select query), are indexed using {@link PaginationHibernateIndexEntitiesIndexer}.
+ *
+ * @author kimchy
+ */
+public class KeysetHibernateIndexEntitiesIndexer implements HibernateIndexEntitiesIndexer, PipelinedIndexEntitiesIndexer {
+
+    private static final Log log = LogFactory.getLog(KeysetHibernateIndexEntitiesIndexer.class);
+
+    private HibernateGpsDevice device;
+
+    private boolean pipelined = true;
+
+    // entity name to the id property to page by, null if the entity can not use keyset pagination
+    private final Map<String, String> idPropertyNames = new HashMap<String, String>();
+
+    private PaginationHibernateIndexEntitiesIndexer paginationIndexer = new PaginationHibernateIndexEntitiesIndexer();
+
+    public void setHibernateGpsDevice(HibernateGpsDevice device) {
+        this.device = device;
+        paginationIndexer.setHibernateGpsDevice(device);
+    }
+
+    /**
+     * Should the next page be loaded by a separate thread while the current page is being
+     * indexed. Defaults to <code>true</code>.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public void performIndex(CompassSession session, IndexEntity[] entities) {
+        KeysetPagesIndexer pagesIndexer = new KeysetPagesIndexer(device, pipelined && !isJtaTransactionFactory());
+        for (IndexEntity entity : entities) {
+            if (!device.isRunning()) {
+                return;
+            }
+            EntityInformation entityInfo = (EntityInformation) entity;
+            String idPropertyName = getIdPropertyName(entityInfo);
+            if (idPropertyName == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug(device.buildMessage("Entity [" + entityInfo.getName() + "] does not support keyset pagination, using pagination"));
+                }
+                paginationIndexer.performIndex(session, new IndexEntity[]{entity});
+                continue;
+            }
+            try {
+                pagesIndexer.performIndex(session, new HibernateKeysetPageLoader(entityInfo, idPropertyName, device.getFetchCount()), device.getFetchCount());
+            } catch (Exception e) {
+                log.error(device.buildMessage("Failed to index the database"), e);
+                if (!(e instanceof HibernateGpsDeviceException)) {
+                    throw new HibernateGpsDeviceException(device.buildMessage("Failed to index the database"), e);
+                }
+                throw (HibernateGpsDeviceException) e;
+            }
+        }
+    }
+
+    public IndexPipelineFetcher createFetcher(IndexEntity entity) {
+        if (isJtaTransactionFactory()) {
+            return null;
+        }
+        EntityInformation entityInfo = (EntityInformation) entity;
+        String idPropertyName = getIdPropertyName(entityInfo);
+        if (idPropertyName == null) {
+            return null;
+        }
+        return new KeysetIndexPipelineFetcher(device, new HibernateKeysetPageLoader(entityInfo, idPropertyName, device.getFetchCount()), device.getFetchCount());
+    }
+
+    /**
+     * Returns <code>true</code> if Hibernate is configured to use JTA (or CMT) transactions, which are bound
+     * to the thread that began them.
+     */
+    private boolean isJtaTransactionFactory() {
+        SessionFactory sessionFactory = device.getSessionFactory();
+        if (!(sessionFactory instanceof SessionFactoryImplementor)) {
+            return false;
+        }
+        TransactionFactory transactionFactory = ((SessionFactoryImplementor) sessionFactory).getSettings().getTransactionFactory();
+        return transactionFactory instanceof JTATransactionFactory || transactionFactory instanceof CMTTransactionFactory;
+    }
+
+    /**
+     * Returns the id property to page by, or <code>null</code> if the entity can not use keyset pagination.
+     */
+    private String getIdPropertyName(EntityInformation entityInfo) {
+        synchronized (idPropertyNames) {
+            if (idPropertyNames.containsKey(entityInfo.getName())) {
+                return idPropertyNames.get(entityInfo.getName());
+            }
+            String idPropertyName = resolveIdPropertyName(entityInfo);
+            idPropertyNames.put(entityInfo.getName(), idPropertyName);
+            return idPropertyName;
+        }
+    }
+
+    private String resolveIdPropertyName(EntityInformation entityInfo) {
+        ClassMetadata metadata = device.getSessionFactory().getClassMetadata(entityInfo.getName());
+        if (metadata == null || metadata.getIdentifierPropertyName() == null || metadata.getIdentifierType().isComponentType()) {
+            return null;
+        }
+        Session hibernateSession = device.getSessionFactory().openSession();
+        try {
+            if (entityInfo.getQueryProvider().createCriteria(hibernateSession, entityInfo) == null) {
+                return null;
+            }
+        } finally {
+            hibernateSession.close();
+        }
+        return metadata.getIdentifierPropertyName();
+    }
+
+    private class HibernateKeysetPageLoader implements KeysetPageLoader {
+
+        private final EntityInformation entityInfo;
+
+        private final String idPropertyName;
+
+        private final int fetchCount;
+
+        private HibernateKeysetPageLoader(EntityInformation entityInfo, String idPropertyName, int fetchCount) {
+            this.entityInfo = entityInfo;
+            this.idPropertyName = idPropertyName;
+            this.fetchCount = fetchCount;
+        }
+
+        public KeysetPage loadPage(Object lastKey) throws Exception {
+            Session hibernateSession = device.getSessionFactory().openSession();
+            hibernateSession.setCacheMode(CacheMode.IGNORE);
+            Transaction hibernateTransaction = null;
+            try {
+                hibernateTransaction = hibernateSession.beginTransaction();
+                if (log.isDebugEnabled()) {
+                    log.debug(device.buildMessage("Indexing entity [" + entityInfo.getName() + "] after id [" + lastKey + "]"));
+                }
+                Criteria criteria = entityInfo.getQueryProvider().createCriteria(hibernateSession, entityInfo);
+                if (lastKey != null) {
+                    criteria.add(Restrictions.gt(idPropertyName, lastKey));
+                }
+                criteria.addOrder(Order.asc(idPropertyName));
+                criteria.setFetchSize(fetchCount);
+                criteria.setMaxResults(fetchCount);
+                List values = criteria.list();
+                Object newLastKey = null;
+                if (!values.isEmpty()) {
+                    newLastKey = hibernateSession.getIdentifier(values.get(values.size() - 1));
+                }
+                return new HibernateKeysetPage(hibernateSession, hibernateTransaction, values, newLastKey);
+            } catch (Exception e) {
+                rollback(hibernateTransaction);
+                hibernateSession.close();
+                throw e;
+            }
+        }
+    }
+
+    private class HibernateKeysetPage implements KeysetPage {
+
+        private final Session hibernateSession;
+
+        private final Transaction hibernateTransaction;
+
+        private final List values;
+
+        private final Object lastKey;
+
+        private HibernateKeysetPage(Session hibernateSession, Transaction hibernateTransaction, List values, Object lastKey) {
+            this.hibernateSession = hibernateSession;
+            this.hibernateTransaction = hibernateTransaction;
+            this.values = values;
+            this.lastKey = lastKey;
+        }
+
+        public List getValues() {
+            return values;
+        }
+
+        public Object getLastKey() {
+            return lastKey;
+        }
+
+        public void close() {
+            try {
+                hibernateTransaction.commit();
+            } finally {
+                hibernateSession.close();
+            }
+        }
+
+        public void closeOnError() {
+            try {
+                rollback(hibernateTransaction);
+            } finally {
+                hibernateSession.close();
+            }
+        }
+    }
+
+    private void rollback(Transaction hibernateTransaction) {
+        if (hibernateTransaction != null) {
+            try {
+                hibernateTransaction.rollback();
+            } catch (Exception e) {
+                log.warn("Failed to rollback Hibernate", e);
+            }
+        }
+    }
+}
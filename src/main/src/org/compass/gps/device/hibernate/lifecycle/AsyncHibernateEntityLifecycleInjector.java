@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.lifecycle;
+
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.HibernateGpsDeviceException;
+import org.compass.gps.device.support.async.AsyncMirrorProcessor;
+import org.hibernate.SessionFactory;
+
+/**
+ * Injects lifecycle listeners that mirror data changes asynchronously, after the Hibernate transaction
+ * commits. During the transaction, only the entity names and ids of changed entities are recorded (no
+ * marshalling or indexing is performed). Once the transaction commits, a background thread reloads the
+ * changed entities in batches (of the device fetch count) and indexes them. See {@link AsyncMirrorProcessor}.
+ *
+ * <p>Note, since the index is updated after the transaction commits, searches performed right after it
+ * might not see the changes yet. {@link #flush()} can be used to wait for the changes to be mirrored.
+ *
+ * <p>Requires Hibernate 3.2.6 and above (uses collection events).
+ *
+ * @author kimchy
+ */
+public class AsyncHibernateEntityLifecycleInjector extends DefaultHibernateEntityCollectionLifecycleInjector {
+
+    private int batchSize = -1;
+
+    private AsyncMirrorProcessor mirrorProcessor;
+
+    public AsyncHibernateEntityLifecycleInjector() {
+        super(false);
+    }
+
+    /**
+     * Sets the number of entities reloaded in a single query. Defaults to the device fetch count.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void injectLifecycle(SessionFactory sessionFactory, HibernateGpsDevice device) throws HibernateGpsDeviceException {
+        mirrorProcessor = new AsyncMirrorProcessor(device, new HibernateAsyncMirrorEntitiesIndexer(sessionFactory),
+                batchSize > 0 ? batchSize : device.getFetchCount());
+        mirrorProcessor.start();
+        super.injectLifecycle(sessionFactory, device);
+    }
+
+    public void removeLifecycle(SessionFactory sessionFactory, HibernateGpsDevice device) throws HibernateGpsDeviceException {
+        super.removeLifecycle(sessionFactory, device);
+        if (mirrorProcessor != null) {
+            mirrorProcessor.stop();
+            mirrorProcessor = null;
+        }
+    }
+
+    /**
+     * Blocks until the data changes of all the transactions committed so far have been mirrored.
+     */
+    public void flush() {
+        AsyncMirrorProcessor mirrorProcessor = this.mirrorProcessor;
+        if (mirrorProcessor != null) {
+            mirrorProcessor.flush();
+        }
+    }
+
+    protected Object doCreateListener(HibernateGpsDevice device) {
+        eventListener = new AsyncHibernateEventListener(device, new HibernateMirrorOperationsCollector(mirrorProcessor));
+        return eventListener;
+    }
+}
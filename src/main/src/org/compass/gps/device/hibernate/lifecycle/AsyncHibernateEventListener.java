@@ -0,0 +1,125 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.lifecycle;
+
+import java.io.Serializable;
+
+import org.compass.core.mapping.Cascade;
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.support.async.MirrorOperation;
+import org.compass.gps.spi.CompassGpsInterfaceDevice;
+import org.hibernate.engine.EntityEntry;
+import org.hibernate.event.AbstractCollectionEvent;
+import org.hibernate.event.PostCollectionRecreateEvent;
+import org.hibernate.event.PostCollectionRemoveEvent;
+import org.hibernate.event.PostCollectionUpdateEvent;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostUpdateEvent;
+
+/**
+ * A Hibernate event listener that only captures the entity name and id of changed entities
+ * during the transaction. The changes are mirrored in the background once the transaction
+ * commits (see {@link org.compass.gps.device.support.async.AsyncMirrorProcessor}).
+ *
+ * @author kimchy
+ * @see AsyncHibernateEntityLifecycleInjector
+ */
+public class AsyncHibernateEventListener extends HibernateCollectionEventListener {
+
+    private final HibernateMirrorOperationsCollector operationsCollector;
+
+    public AsyncHibernateEventListener(HibernateGpsDevice device, HibernateMirrorOperationsCollector operationsCollector) {
+        super(device, false, false, false);
+        this.operationsCollector = operationsCollector;
+    }
+
+    public void onPostInsert(PostInsertEvent postInsertEvent) {
+        if (!shouldMirror(postInsertEvent.getEntity(), Cascade.CREATE)) {
+            return;
+        }
+        if (mirrorFilter != null && mirrorFilter.shouldFilterInsert(postInsertEvent)) {
+            return;
+        }
+        operationsCollector.add(postInsertEvent.getSession(),
+                MirrorOperation.save(postInsertEvent.getPersister().getEntityName(), postInsertEvent.getId()));
+    }
+
+    public void onPostUpdate(PostUpdateEvent postUpdateEvent) {
+        if (!shouldMirror(postUpdateEvent.getEntity(), Cascade.SAVE)) {
+            return;
+        }
+        if (mirrorFilter != null && mirrorFilter.shouldFilterUpdate(postUpdateEvent)) {
+            return;
+        }
+        operationsCollector.add(postUpdateEvent.getSession(),
+                MirrorOperation.save(postUpdateEvent.getPersister().getEntityName(), postUpdateEvent.getId()));
+    }
+
+    public void onPostDelete(PostDeleteEvent postDeleteEvent) {
+        if (!shouldMirror(postDeleteEvent.getEntity(), Cascade.DELETE)) {
+            return;
+        }
+        if (mirrorFilter != null && mirrorFilter.shouldFilterDelete(postDeleteEvent)) {
+            return;
+        }
+        operationsCollector.add(postDeleteEvent.getSession(),
+                MirrorOperation.delete(postDeleteEvent.getPersister().getEntityName(), postDeleteEvent.getId(), postDeleteEvent.getEntity()));
+    }
+
+    public void onPostRecreateCollection(PostCollectionRecreateEvent postCollectionRecreateEvent) {
+        processCollectionEvent(postCollectionRecreateEvent);
+    }
+
+    public void onPostRemoveCollection(PostCollectionRemoveEvent postCollectionRemoveEvent) {
+        processCollectionEvent(postCollectionRemoveEvent);
+    }
+
+    public void onPostUpdateCollection(PostCollectionUpdateEvent postCollectionUpdateEvent) {
+        processCollectionEvent(postCollectionUpdateEvent);
+    }
+
+    private void processCollectionEvent(AbstractCollectionEvent event) {
+        Object entity = event.getAffectedOwnerOrNull();
+        if (entity == null) {
+            return;
+        }
+        if (!shouldMirror(entity, Cascade.SAVE)) {
+            return;
+        }
+        if (mirrorFilter != null && mirrorFilter.shouldFilterCollection(event)) {
+            return;
+        }
+        Serializable id = event.getAffectedOwnerIdOrNull();
+        if (id == null) {
+            EntityEntry entityEntry = event.getSession().getPersistenceContext().getEntry(entity);
+            id = entityEntry == null ? null : entityEntry.getId();
+        }
+        if (id == null) {
+            log.warn("Unable to reindex entity on collection change, id cannot be extracted: " + event.getAffectedOwnerEntityName());
+            return;
+        }
+        operationsCollector.add(event.getSession(), MirrorOperation.save(event.getAffectedOwnerEntityName(), id));
+    }
+
+    private boolean shouldMirror(Object entity, Cascade cascade) {
+        if (!device.shouldMirrorDataChanges() || device.isPerformingIndexOperation()) {
+            return false;
+        }
+        return ((CompassGpsInterfaceDevice) device.getGps()).hasMappingForEntityForMirror(entity.getClass(), cascade);
+    }
+}
@@ -32,7 +32,7 @@ import org.hibernate.impl.SessionFactoryImpl;
  */
 public class DefaultHibernateEntityCollectionLifecycleInjector extends DefaultHibernateEntityLifecycleInjector {
 
-    private Object eventListener;
+    protected Object eventListener;
 
     public DefaultHibernateEntityCollectionLifecycleInjector() {
         super();
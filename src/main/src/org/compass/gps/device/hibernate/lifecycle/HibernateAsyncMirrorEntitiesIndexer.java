@@ -0,0 +1,84 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.lifecycle;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.compass.core.CompassSession;
+import org.compass.gps.device.support.async.AsyncMirrorEntitiesIndexer;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+
+/**
+ * An {@link AsyncMirrorEntitiesIndexer} that reloads a batch of entities using a single Hibernate
+ * <code>Criteria</code> query restricted on the entity identifier (falling back to loading them one
+ * by one for entities without an identifier property, such as ones with embedded composite ids).
+ *
+ * @author kimchy
+ */
+public class HibernateAsyncMirrorEntitiesIndexer implements AsyncMirrorEntitiesIndexer {
+
+    private final SessionFactory sessionFactory;
+
+    public HibernateAsyncMirrorEntitiesIndexer(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void performMirror(CompassSession session, String entityName, List<Serializable> ids) throws Exception {
+        Session hibernateSession = sessionFactory.openSession();
+        hibernateSession.setCacheMode(CacheMode.IGNORE);
+        Transaction hibernateTransaction = null;
+        try {
+            hibernateTransaction = hibernateSession.beginTransaction();
+            ClassMetadata classMetadata = sessionFactory.getClassMetadata(entityName);
+            String idPropertyName = classMetadata == null ? null : classMetadata.getIdentifierPropertyName();
+            List entities;
+            if (idPropertyName != null) {
+                entities = hibernateSession.createCriteria(entityName).add(Restrictions.in(idPropertyName, ids)).list();
+            } else {
+                entities = new ArrayList();
+                for (Serializable id : ids) {
+                    Object entity = hibernateSession.get(entityName, id);
+                    if (entity != null) {
+                        entities.add(entity);
+                    }
+                }
+            }
+            for (Object entity : entities) {
+                session.save(entity);
+            }
+            hibernateTransaction.commit();
+        } catch (Exception e) {
+            if (hibernateTransaction != null) {
+                try {
+                    hibernateTransaction.rollback();
+                } catch (Exception e1) {
+                    // ignore
+                }
+            }
+            throw e;
+        } finally {
+            hibernateSession.close();
+        }
+    }
+}
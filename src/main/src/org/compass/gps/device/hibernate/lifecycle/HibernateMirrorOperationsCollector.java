@@ -0,0 +1,115 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.lifecycle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionManager;
+
+import org.compass.gps.device.hibernate.HibernateGpsDeviceException;
+import org.compass.gps.device.support.async.AsyncMirrorProcessor;
+import org.compass.gps.device.support.async.MirrorOperation;
+import org.hibernate.Transaction;
+import org.hibernate.event.EventSource;
+
+/**
+ * Collects the {@link MirrorOperation}s performed within a Hibernate transaction, and hands them over to
+ * an {@link AsyncMirrorProcessor} once the transaction has committed. Operations of rolled back transactions
+ * are discarded.
+ *
+ * <p>Registers with the Hibernate transaction if it is active, otherwise with the current JTA transaction
+ * (when a transaction manager is configured). Operations performed outside of a transaction were already
+ * committed, and are processed right away.
+ *
+ * @author kimchy
+ */
+public class HibernateMirrorOperationsCollector {
+
+    private final AsyncMirrorProcessor mirrorProcessor;
+
+    private final Map<Object, List<MirrorOperation>> operationsByTransaction =
+            Collections.synchronizedMap(new IdentityHashMap<Object, List<MirrorOperation>>());
+
+    public HibernateMirrorOperationsCollector(AsyncMirrorProcessor mirrorProcessor) {
+        this.mirrorProcessor = mirrorProcessor;
+    }
+
+    /**
+     * Adds an operation performed within the given session. Only appends the operation to the list
+     * of the current transaction.
+     */
+    public void add(EventSource session, MirrorOperation operation) throws HibernateGpsDeviceException {
+        Object transaction = null;
+        Transaction hibernateTransaction = session.getTransaction();
+        TransactionManager transactionManager = session.getFactory().getTransactionManager();
+        if (hibernateTransaction.isActive()) {
+            transaction = hibernateTransaction;
+        } else if (transactionManager != null) {
+            try {
+                transaction = transactionManager.getTransaction();
+            } catch (Exception e) {
+                throw new HibernateGpsDeviceException("Failed to get JTA transaction", e);
+            }
+        }
+        if (transaction == null) {
+            mirrorProcessor.process(Collections.singletonList(operation));
+            return;
+        }
+        List<MirrorOperation> operations = operationsByTransaction.get(transaction);
+        if (operations == null) {
+            operations = new ArrayList<MirrorOperation>();
+            operationsByTransaction.put(transaction, operations);
+            Synchronization synchronization = new ProcessOnCommit(transaction);
+            try {
+                if (transaction instanceof Transaction) {
+                    ((Transaction) transaction).registerSynchronization(synchronization);
+                } else {
+                    ((javax.transaction.Transaction) transaction).registerSynchronization(synchronization);
+                }
+            } catch (Exception e) {
+                operationsByTransaction.remove(transaction);
+                throw new HibernateGpsDeviceException("Failed to register transaction synchronization", e);
+            }
+        }
+        operations.add(operation);
+    }
+
+    private class ProcessOnCommit implements Synchronization {
+
+        private final Object transaction;
+
+        private ProcessOnCommit(Object transaction) {
+            this.transaction = transaction;
+        }
+
+        public void beforeCompletion() {
+        }
+
+        public void afterCompletion(int status) {
+            List<MirrorOperation> operations = operationsByTransaction.remove(transaction);
+            if (operations != null && status == Status.STATUS_COMMITTED) {
+                mirrorProcessor.process(operations);
+            }
+        }
+    }
+}
@@ -22,8 +22,16 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.compass.core.CompassException;
 import org.compass.core.CompassSession;
@@ -32,6 +40,7 @@ import org.compass.core.config.CommonMetaDataLookup;
 import org.compass.core.mapping.Cascade;
 import org.compass.core.spi.InternalCompass;
 import org.compass.core.spi.InternalCompassSession;
+import org.compass.core.util.concurrent.NamedThreadFactory;
 import org.compass.gps.CompassGpsException;
 import org.compass.gps.IndexPlan;
 import org.compass.gps.device.jdbc.mapping.AutoGenerateMapping;
@@ -68,6 +77,12 @@ import org.compass.gps.device.jdbc.snapshot.JdbcSnapshot;
  * The <code>autoDetectVersionColumnSqlType</code> setting (which defauls to
  * <code>true</code>) will automatically set the version column jdbc type for
  * mappings that support versioning.
+ * <p>
+ * Mappings are mirrored one after the other by default. Setting
+ * <code>mirrorThreads</code> to a value greater than <code>1</code> will mirror
+ * the mappings in parallel using a bounded pool of threads (each mapping using
+ * its own connection). The duration and number of changed rows of each mapping
+ * mirror cycle are available using {@link #getMirrorStatistics()}.
  *
  * @author kimchy
  * @see org.compass.gps.device.jdbc.mapping.ResultSetToResourceMapping
@@ -81,6 +96,12 @@ public class ResultSetJdbcGpsDevice extends AbstractJdbcActiveMirrorGpsDevice {
 
     private boolean autoDetectVersionColumnSqlType = true;
 
+    private int mirrorThreads = 1;
+
+    private ExecutorService mirrorExecutorService;
+
+    private final ConcurrentHashMap<String, MappingMirrorStatistics> mirrorStatistics = new ConcurrentHashMap<String, MappingMirrorStatistics>();
+
     protected JdbcSnapshot getJdbcSnapshot() {
         return this.snapshot;
     }
@@ -207,6 +228,10 @@ public class ResultSetJdbcGpsDevice extends AbstractJdbcActiveMirrorGpsDevice {
      * Saves the {@link JdbcSnapshot}.
      */
     protected void doStop() throws CompassGpsException {
+        if (mirrorExecutorService != null) {
+            mirrorExecutorService.shutdown();
+            mirrorExecutorService = null;
+        }
         getSnapshotPersister().save(snapshot);
         super.doStop();
     }
@@ -282,7 +307,8 @@ public class ResultSetJdbcGpsDevice extends AbstractJdbcActiveMirrorGpsDevice {
     }
 
     /**
-     * Performs the data change mirroring operation.
+     * Performs the data change mirroring operation. If <code>mirrorThreads</code> is greater than
+     * <code>1</code>, mappings are mirrored in parallel (each using its own connection).
      */
     public synchronized void performMirroring() throws JdbcGpsDeviceException {
         if (!shouldMirrorDataChanges() || isPerformingIndexOperation()) {
@@ -292,99 +318,189 @@ public class ResultSetJdbcGpsDevice extends AbstractJdbcActiveMirrorGpsDevice {
             throw new IllegalStateException(
                     buildMessage("Versioning data was not properly initialized, did you index the device or loaded the data?"));
         }
+        ArrayList<Callable<AliasMirrorResult>> tasks = new ArrayList<Callable<AliasMirrorResult>>();
+        for (Iterator it = mappings.iterator(); it.hasNext();) {
+            final ResultSetToResourceMapping mapping = (ResultSetToResourceMapping) it.next();
+            if (!mapping.supportsVersioning()) {
+                continue;
+            }
+            final JdbcAliasSnapshot oldAliasSnapshot = snapshot.getAliasSnapshot(mapping.getAlias());
+            if (oldAliasSnapshot == null) {
+                log.warn(buildMessage("No snapshot for alias [" + mapping.getAlias()
+                        + "] even though there should be support for versioning ignoring the alias"));
+                continue;
+            }
+            tasks.add(new Callable<AliasMirrorResult>() {
+                public AliasMirrorResult call() throws Exception {
+                    return performMirroring(mapping, oldAliasSnapshot);
+                }
+            });
+        }
+        if (mirrorThreads > 1 && mirrorExecutorService == null) {
+            mirrorExecutorService = Executors.newFixedThreadPool(mirrorThreads,
+                    new NamedThreadFactory("Compass Gps Jdbc Mirror [" + getName() + "]", true));
+        }
+        boolean dirtySnapshot = false;
+        JdbcGpsDeviceException failure = null;
+        if (mirrorThreads <= 1 || tasks.size() <= 1) {
+            for (Callable<AliasMirrorResult> task : tasks) {
+                AliasMirrorResult result;
+                try {
+                    result = task.call();
+                } catch (JdbcGpsDeviceException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new JdbcGpsDeviceException(buildMessage("Failed while mirroring data changes"), e);
+                }
+                dirtySnapshot |= result.dirty;
+                snapshot.putAliasSnapshot(result.aliasSnapshot);
+            }
+        } else {
+            List<Future<AliasMirrorResult>> futures;
+            try {
+                futures = mirrorExecutorService.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JdbcGpsDeviceException(buildMessage("Interrupted while mirroring data changes"), e);
+            }
+            // the snapshot is only changed by this thread, mappings that failed keep their old snapshot
+            for (Future<AliasMirrorResult> future : futures) {
+                try {
+                    AliasMirrorResult result = future.get();
+                    dirtySnapshot |= result.dirty;
+                    snapshot.putAliasSnapshot(result.aliasSnapshot);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JdbcGpsDeviceException(buildMessage("Interrupted while mirroring data changes"), e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof JdbcGpsDeviceException) {
+                            failure = (JdbcGpsDeviceException) cause;
+                        } else {
+                            failure = new JdbcGpsDeviceException(buildMessage("Failed while mirroring data changes"), cause);
+                        }
+                    } else {
+                        log.error(buildMessage("Failed while mirroring data changes"), e.getCause());
+                    }
+                }
+            }
+        }
+        if (isSaveSnapshotAfterMirror() && dirtySnapshot) {
+            getSnapshotPersister().save(snapshot);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Mirrors the data changes of a single mapping using its own connection.
+     */
+    private AliasMirrorResult performMirroring(ResultSetToResourceMapping mapping, JdbcAliasSnapshot oldAliasSnapshot)
+            throws JdbcGpsDeviceException {
+        long start = System.currentTimeMillis();
         Connection connection = JdbcUtils.getConnection(dataSource);
         PreparedStatement ps = null;
         ResultSet rs = null;
-        boolean dirtySnapshot = false;
         try {
-            for (Iterator it = mappings.iterator(); it.hasNext();) {
-                ResultSetToResourceMapping mapping = (ResultSetToResourceMapping) it.next();
-                if (!mapping.supportsVersioning()) {
-                    continue;
-                }
-                JdbcAliasSnapshot oldAliasSnapshot = snapshot.getAliasSnapshot(mapping.getAlias());
-                if (oldAliasSnapshot == null) {
-                    log.warn(buildMessage("No snapshot for alias [" + mapping.getAlias()
-                            + "] even though there should be support for versioning ignoring the alias"));
-                    continue;
-                }
-                JdbcAliasSnapshot newAliasSnapshot = new JdbcAliasSnapshot(mapping.getAlias());
-                ArrayList createdRows = new ArrayList();
-                ArrayList updatedRows = new ArrayList();
-                ArrayList deletedRows = new ArrayList();
-                if (log.isDebugEnabled()) {
-                    log.debug(buildMessage("Executing version query [" + mapping.getVersionQuery() + "]"));
-                }
-                ps = connection.prepareStatement(mapping.getVersionQuery());
-                if (getFetchSize() > 0) {
-                    ps.setFetchSize(getFetchSize());
-                }
-                rs = ps.executeQuery();
-                while (rs.next()) {
+            JdbcAliasSnapshot newAliasSnapshot = new JdbcAliasSnapshot(mapping.getAlias());
+            ArrayList createdRows = new ArrayList();
+            ArrayList updatedRows = new ArrayList();
+            ArrayList deletedRows = new ArrayList();
+            if (log.isDebugEnabled()) {
+                log.debug(buildMessage("Executing version query [" + mapping.getVersionQuery() + "]"));
+            }
+            ps = connection.prepareStatement(mapping.getVersionQuery());
+            if (getFetchSize() > 0) {
+                ps.setFetchSize(getFetchSize());
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
 
-                    if (log.isDebugEnabled()) {
-                        StringBuffer sb = new StringBuffer();
-                        sb.append(buildMessage("Version row with values "));
-                        ResultSetMetaData metaData = rs.getMetaData();
-                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                            sb.append("[").append(metaData.getColumnName(i)).append(":");
-                            String value = rs.getString(i);
-                            if (rs.wasNull()) {
-                                value = "(null)";
-                            }
-                            sb.append(value);
-                            sb.append("] ");
+                if (log.isDebugEnabled()) {
+                    StringBuffer sb = new StringBuffer();
+                    sb.append(buildMessage("Version row with values "));
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        sb.append("[").append(metaData.getColumnName(i)).append(":");
+                        String value = rs.getString(i);
+                        if (rs.wasNull()) {
+                            value = "(null)";
                         }
-                        log.debug(sb.toString());
+                        sb.append(value);
+                        sb.append("] ");
                     }
+                    log.debug(sb.toString());
+                }
 
-                    JdbcAliasRowSnapshot newRowSnapshot = new JdbcAliasRowSnapshot();
-                    ResultSetRowMarshallHelper marshallHelper = new ResultSetRowMarshallHelper(mapping, dialect,
-                            newRowSnapshot, compassGps.getMirrorCompass());
-                    marshallHelper.marshallResultSet(rs);
-
-                    // new and old have the same ids
-                    JdbcAliasRowSnapshot oldRowSnapshot = oldAliasSnapshot.getRow(newRowSnapshot);
+                JdbcAliasRowSnapshot newRowSnapshot = new JdbcAliasRowSnapshot();
+                ResultSetRowMarshallHelper marshallHelper = new ResultSetRowMarshallHelper(mapping, dialect,
+                        newRowSnapshot, compassGps.getMirrorCompass());
+                marshallHelper.marshallResultSet(rs);
 
-                    // new row or updated row
-                    if (oldRowSnapshot == null) {
-                        createdRows.add(newRowSnapshot);
-                    } else if (oldRowSnapshot.isOlderThan(newRowSnapshot)) {
-                        updatedRows.add(newRowSnapshot);
-                    }
+                // new and old have the same ids
+                JdbcAliasRowSnapshot oldRowSnapshot = oldAliasSnapshot.getRow(newRowSnapshot);
 
-                    newAliasSnapshot.putRow(newRowSnapshot);
-                }
-                for (Iterator oldRowIt = oldAliasSnapshot.rowSnapshotIt(); oldRowIt.hasNext();) {
-                    JdbcAliasRowSnapshot tmpRow = (JdbcAliasRowSnapshot) oldRowIt.next();
-                    // deleted row
-                    if (newAliasSnapshot.getRow(tmpRow) == null) {
-                        deletedRows.add(tmpRow);
-                    }
-                }
-                if (!createdRows.isEmpty() || !updatedRows.isEmpty()) {
-                    dirtySnapshot = true;
-                    getSnapshotEventListener().onCreateAndUpdate(
-                            new CreateAndUpdateSnapshotEvent(connection, dialect, mapping, createdRows, updatedRows,
-                                    compassGps));
+                // new row or updated row
+                if (oldRowSnapshot == null) {
+                    createdRows.add(newRowSnapshot);
+                } else if (oldRowSnapshot.isOlderThan(newRowSnapshot)) {
+                    updatedRows.add(newRowSnapshot);
                 }
-                if (!deletedRows.isEmpty()) {
-                    dirtySnapshot = true;
-                    getSnapshotEventListener().onDelete(
-                            new DeleteSnapshotEvent(connection, dialect, mapping, deletedRows, compassGps));
+
+                newAliasSnapshot.putRow(newRowSnapshot);
+            }
+            JdbcUtils.closeResultSet(rs);
+            rs = null;
+            JdbcUtils.closeStatement(ps);
+            ps = null;
+            for (Iterator oldRowIt = oldAliasSnapshot.rowSnapshotIt(); oldRowIt.hasNext();) {
+                JdbcAliasRowSnapshot tmpRow = (JdbcAliasRowSnapshot) oldRowIt.next();
+                // deleted row
+                if (newAliasSnapshot.getRow(tmpRow) == null) {
+                    deletedRows.add(tmpRow);
                 }
-                snapshot.putAliasSnapshot(newAliasSnapshot);
             }
+            if (!createdRows.isEmpty() || !updatedRows.isEmpty()) {
+                getSnapshotEventListener().onCreateAndUpdate(
+                        new CreateAndUpdateSnapshotEvent(connection, dialect, mapping, createdRows, updatedRows,
+                                compassGps));
+            }
+            if (!deletedRows.isEmpty()) {
+                getSnapshotEventListener().onDelete(
+                        new DeleteSnapshotEvent(connection, dialect, mapping, deletedRows, compassGps));
+            }
+            getMirrorStatistics(mapping.getAlias()).record(System.currentTimeMillis() - start,
+                    createdRows.size(), updatedRows.size(), deletedRows.size());
+            return new AliasMirrorResult(newAliasSnapshot,
+                    !createdRows.isEmpty() || !updatedRows.isEmpty() || !deletedRows.isEmpty());
         } catch (SQLException e) {
-            throw new JdbcGpsDeviceException(buildMessage("Failed while mirroring data changes"), e);
+            throw new JdbcGpsDeviceException(buildMessage("Failed while mirroring data changes for alias [" + mapping.getAlias() + "]"), e);
         } finally {
             JdbcUtils.closeResultSet(rs);
             JdbcUtils.closeStatement(ps);
             JdbcUtils.closeConnection(connection);
         }
-        if (isSaveSnapshotAfterMirror() && dirtySnapshot) {
-            getSnapshotPersister().save(snapshot);
+    }
+
+    private MappingMirrorStatistics getMirrorStatistics(String alias) {
+        MappingMirrorStatistics statistics = mirrorStatistics.get(alias);
+        if (statistics == null) {
+            statistics = new MappingMirrorStatistics(alias);
+            MappingMirrorStatistics existing = mirrorStatistics.putIfAbsent(alias, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
         }
+        return statistics;
+    }
+
+    /**
+     * Returns the mirroring statistics of each mapping (by its alias).
+     */
+    public Map<String, MappingMirrorStatistics> getMirrorStatistics() {
+        return Collections.unmodifiableMap(mirrorStatistics);
     }
 
     /**
@@ -416,4 +532,138 @@ public class ResultSetJdbcGpsDevice extends AbstractJdbcActiveMirrorGpsDevice {
     public void setAutoDetectVersionColumnSqlType(boolean autoDetectVersionColumnSqlType) {
         this.autoDetectVersionColumnSqlType = autoDetectVersionColumnSqlType;
     }
+
+    /**
+     * Returns the number of threads used to mirror the mappings in parallel.
+     */
+    public int getMirrorThreads() {
+        return mirrorThreads;
+    }
+
+    /**
+     * Sets the number of threads used to mirror the mappings in parallel (each using its own
+     * connection). Defaults to <code>1</code>, mirroring the mappings one after the other. Note,
+     * when set, the snapshot event listener must be thread safe.
+     */
+    public synchronized void setMirrorThreads(int mirrorThreads) {
+        if (mirrorThreads < 1) {
+            throw new IllegalArgumentException("mirrorThreads must be greater than 0");
+        }
+        this.mirrorThreads = mirrorThreads;
+        if (mirrorExecutorService != null) {
+            mirrorExecutorService.shutdown();
+            mirrorExecutorService = null;
+        }
+    }
+
+    private static class AliasMirrorResult {
+
+        final JdbcAliasSnapshot aliasSnapshot;
+
+        final boolean dirty;
+
+        AliasMirrorResult(JdbcAliasSnapshot aliasSnapshot, boolean dirty) {
+            this.aliasSnapshot = aliasSnapshot;
+            this.dirty = dirty;
+        }
+    }
+
+    /**
+     * Mirroring statistics of a single mapping.
+     */
+    public static class MappingMirrorStatistics {
+
+        private final String alias;
+
+        private long cycles;
+
+        private long lastCycleTime;
+
+        private long totalCycleTime;
+
+        private int lastCreatedRows;
+
+        private int lastUpdatedRows;
+
+        private int lastDeletedRows;
+
+        private long totalCreatedRows;
+
+        private long totalUpdatedRows;
+
+        private long totalDeletedRows;
+
+        MappingMirrorStatistics(String alias) {
+            this.alias = alias;
+        }
+
+        synchronized void record(long cycleTime, int createdRows, int updatedRows, int deletedRows) {
+            cycles++;
+            lastCycleTime = cycleTime;
+            totalCycleTime += cycleTime;
+            lastCreatedRows = createdRows;
+            lastUpdatedRows = updatedRows;
+            lastDeletedRows = deletedRows;
+            totalCreatedRows += createdRows;
+            totalUpdatedRows += updatedRows;
+            totalDeletedRows += deletedRows;
+        }
+
+        /**
+         * Returns the alias of the mapping.
+         */
+        public String getAlias() {
+            return alias;
+        }
+
+        /**
+         * Returns the number of mirror cycles performed.
+         */
+        public synchronized long getCycles() {
+            return cycles;
+        }
+
+        /**
+         * Returns the duration (in milliseconds) of the last mirror cycle.
+         */
+        public synchronized long getLastCycleTime() {
+            return lastCycleTime;
+        }
+
+        /**
+         * Returns the total duration (in milliseconds) of all the mirror cycles.
+         */
+        public synchronized long getTotalCycleTime() {
+            return totalCycleTime;
+        }
+
+        public synchronized int getLastCreatedRows() {
+            return lastCreatedRows;
+        }
+
+        public synchronized int getLastUpdatedRows() {
+            return lastUpdatedRows;
+        }
+
+        public synchronized int getLastDeletedRows() {
+            return lastDeletedRows;
+        }
+
+        public synchronized long getTotalCreatedRows() {
+            return totalCreatedRows;
+        }
+
+        public synchronized long getTotalUpdatedRows() {
+            return totalUpdatedRows;
+        }
+
+        public synchronized long getTotalDeletedRows() {
+            return totalDeletedRows;
+        }
+
+        public synchronized String toString() {
+            return "alias [" + alias + "] cycles [" + cycles + "] last cycle time [" + lastCycleTime + "ms] last created ["
+                    + lastCreatedRows + "] updated [" + lastUpdatedRows + "] deleted [" + lastDeletedRows + "]";
+        }
+    }
 }
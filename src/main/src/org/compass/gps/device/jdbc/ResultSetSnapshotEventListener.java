@@ -20,6 +20,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -47,6 +48,12 @@ import org.compass.gps.spi.CompassGpsInterfaceDevice;
  * {@link org.compass.gps.device.jdbc.ResultSetJdbcGpsDevice} and
  * performs the changes to the compass index after the change snapshots have
  * been detected by the device.
+ * <p>
+ * Created and updated rows are reloaded using the mapping select query
+ * restricted by the row ids. For mappings with a single id column, rows are
+ * reloaded <code>batchSize</code> rows at a time using an <code>IN</code>
+ * restriction. Created and updated rows of a mapping are applied within a
+ * single Compass transaction.
  *
  * @author kimchy
  */
@@ -56,15 +63,31 @@ public class ResultSetSnapshotEventListener implements JdbcSnapshotEventListener
 
     private HashMap<String, String> createAndUpdateQueries;
 
+    private HashMap<String, String> batchCreateAndUpdateQueries;
+
+    private int batchSize = 100;
+
+    /**
+     * Sets the number of rows reloaded using a single query for mappings with a single id
+     * column. Defaults to <code>100</code>. Set to <code>1</code> in order to reload each row
+     * using its own query. Must be set before the listener is configured, since the batch
+     * queries are built during configuration.
+     */
+    public void setBatchSize(int batchSize) {
+        if (createAndUpdateQueries != null) {
+            throw new IllegalStateException("Batch size must be set before the snapshot event listener is configured");
+        }
+        this.batchSize = batchSize;
+    }
+
     public void configure(ConfigureSnapshotEvent configureSnapshotEvent) throws JdbcGpsDeviceException {
         createAndUpdateQueries = new HashMap<String, String>();
+        batchCreateAndUpdateQueries = new HashMap<String, String>();
         for (Iterator it = configureSnapshotEvent.getMappings().iterator(); it.hasNext();) {
             ResultSetToResourceMapping mapping = (ResultSetToResourceMapping) it.next();
             if (!mapping.supportsVersioning()) {
                 continue;
             }
-            // TODO If there is only one id, need to check if select ID ... IN
-            // () is faster, need also to find how to do it in JDBC
             StringBuffer sb = new StringBuffer();
             String selectQuery = mapping.getSelectQuery();
             sb.append(selectQuery);
@@ -73,6 +96,7 @@ public class ResultSetSnapshotEventListener implements JdbcSnapshotEventListener
             } else {
                 sb.append(" where (");
             }
+            String restrictionPrefix = sb.toString();
             boolean first = true;
             for (Iterator idIt = mapping.idMappingsIt(); idIt.hasNext();) {
                 IdColumnToPropertyMapping idMapping = (IdColumnToPropertyMapping) idIt.next();
@@ -95,6 +119,23 @@ public class ResultSetSnapshotEventListener implements JdbcSnapshotEventListener
                 log.debug("Using create/update query [" + query + "] for alias [" + mapping.getAlias() + "]");
             }
             createAndUpdateQueries.put(mapping.getAlias(), query);
+            if (batchSize > 1 && mapping.idMappingsSize() == 1) {
+                IdColumnToPropertyMapping idMapping = (IdColumnToPropertyMapping) mapping.idMappingsIt().next();
+                sb = new StringBuffer(restrictionPrefix);
+                sb.append(idMapping.getColumnNameForVersion()).append(" in (");
+                for (int i = 0; i < batchSize; i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append("?");
+                }
+                sb.append("))");
+                query = sb.toString();
+                if (log.isDebugEnabled()) {
+                    log.debug("Using batch create/update query [" + query + "] for alias [" + mapping.getAlias() + "]");
+                }
+                batchCreateAndUpdateQueries.put(mapping.getAlias(), query);
+            }
         }
     }
 
@@ -119,52 +160,91 @@ public class ResultSetSnapshotEventListener implements JdbcSnapshotEventListener
 
     public void onCreateAndUpdate(final CreateAndUpdateSnapshotEvent createAndUpdateSnapshotEvent)
             throws JdbcGpsDeviceException {
-        doCreateAndUpdateFor(createAndUpdateSnapshotEvent.getCreateSnapshots(), createAndUpdateSnapshotEvent, true);
-        doCreateAndUpdateFor(createAndUpdateSnapshotEvent.getUpdateSnapshots(), createAndUpdateSnapshotEvent, false);
-    }
-
-    private void doCreateAndUpdateFor(final List snapshots,
-                                      final CreateAndUpdateSnapshotEvent createAndUpdateSnapshotEvent, final boolean useCreate)
-            throws JdbcGpsDeviceException {
-        final ResultSetToResourceMapping mapping = createAndUpdateSnapshotEvent.getMapping();
-        final JdbcDialect dialect = createAndUpdateSnapshotEvent.getDialect();
         CompassGpsInterfaceDevice compassGps = createAndUpdateSnapshotEvent.getCompassGps();
         compassGps.executeForMirror(new CompassCallbackWithoutResult() {
             protected void doInCompassWithoutResult(CompassSession session) throws CompassException {
-                String query = createAndUpdateQueries.get(mapping.getAlias());
-                PreparedStatement ps = null;
                 try {
-                    ps = createAndUpdateSnapshotEvent.getConnection().prepareStatement(query);
-                    for (Iterator it = snapshots.iterator(); it.hasNext();) {
-                        JdbcAliasRowSnapshot rowSnapshot = (JdbcAliasRowSnapshot) it.next();
-                        Resource resource = ((InternalCompassSession) session).getCompass().getResourceFactory().createResource(mapping.getAlias());
-                        ResultSetRowMarshallHelper marshallHelper = new ResultSetRowMarshallHelper(mapping, session,
-                                dialect, resource);
-                        ps.clearParameters();
-                        List ids = rowSnapshot.getIds();
-                        for (int i = 0; i < ids.size(); i++) {
-                            String idValue = (String) ids.get(i);
-                            dialect.setParameter(ps, i + 1, idValue);
-                        }
-                        ResultSet rs = ps.executeQuery();
-                        if (!rs.next()) {
-                            // it was deleted between the calls, do nothing
-                            continue;
-                        }
-                        marshallHelper.marshallResultSet(rs);
-                        if (useCreate) {
-                            session.create(resource);
-                        } else {
-                            session.save(resource);
-                        }
-                        session.evictAll();
-                    }
+                    doCreateAndUpdateFor(session, createAndUpdateSnapshotEvent.getCreateSnapshots(), createAndUpdateSnapshotEvent, true);
+                    doCreateAndUpdateFor(session, createAndUpdateSnapshotEvent.getUpdateSnapshots(), createAndUpdateSnapshotEvent, false);
                 } catch (SQLException e) {
                     throw new JdbcGpsDeviceException("Failed to execute query for create/update", e);
-                } finally {
-                    JdbcUtils.closeStatement(ps);
                 }
             }
         });
     }
+
+    private void doCreateAndUpdateFor(CompassSession session, List snapshots,
+                                      CreateAndUpdateSnapshotEvent createAndUpdateSnapshotEvent, boolean useCreate)
+            throws SQLException {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        ResultSetToResourceMapping mapping = createAndUpdateSnapshotEvent.getMapping();
+        JdbcDialect dialect = createAndUpdateSnapshotEvent.getDialect();
+        String batchQuery = batchCreateAndUpdateQueries.get(mapping.getAlias());
+        boolean batch = batchQuery != null && snapshots.size() > 1;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            if (batch) {
+                IdColumnToPropertyMapping idMapping = (IdColumnToPropertyMapping) mapping.idMappingsIt().next();
+                // a join select query might return several rows for the same id, only the first one is used
+                HashSet<String> processedIds = new HashSet<String>();
+                ps = createAndUpdateSnapshotEvent.getConnection().prepareStatement(batchQuery);
+                for (int i = 0; i < snapshots.size(); i += batchSize) {
+                    int end = Math.min(i + batchSize, snapshots.size());
+                    ps.clearParameters();
+                    for (int j = 0; j < batchSize; j++) {
+                        // pad the last batch with its last id, so the same statement can be used
+                        JdbcAliasRowSnapshot rowSnapshot = (JdbcAliasRowSnapshot) snapshots.get(Math.min(i + j, end - 1));
+                        dialect.setParameter(ps, j + 1, (String) rowSnapshot.getIds().get(0));
+                    }
+                    rs = ps.executeQuery();
+                    // rows deleted between the calls are simply not returned
+                    while (rs.next()) {
+                        if (!processedIds.add(dialect.getStringValue(rs, idMapping))) {
+                            continue;
+                        }
+                        marshallAndIndex(session, rs, mapping, dialect, useCreate);
+                    }
+                    JdbcUtils.closeResultSet(rs);
+                    rs = null;
+                }
+            } else {
+                ps = createAndUpdateSnapshotEvent.getConnection().prepareStatement(createAndUpdateQueries.get(mapping.getAlias()));
+                for (Iterator it = snapshots.iterator(); it.hasNext();) {
+                    JdbcAliasRowSnapshot rowSnapshot = (JdbcAliasRowSnapshot) it.next();
+                    ps.clearParameters();
+                    List ids = rowSnapshot.getIds();
+                    for (int i = 0; i < ids.size(); i++) {
+                        String idValue = (String) ids.get(i);
+                        dialect.setParameter(ps, i + 1, idValue);
+                    }
+                    rs = ps.executeQuery();
+                    // if it was deleted between the calls, do nothing
+                    if (rs.next()) {
+                        marshallAndIndex(session, rs, mapping, dialect, useCreate);
+                    }
+                    JdbcUtils.closeResultSet(rs);
+                    rs = null;
+                }
+            }
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(ps);
+        }
+    }
+
+    private void marshallAndIndex(CompassSession session, ResultSet rs, ResultSetToResourceMapping mapping,
+                                  JdbcDialect dialect, boolean useCreate) throws SQLException {
+        Resource resource = ((InternalCompassSession) session).getCompass().getResourceFactory().createResource(mapping.getAlias());
+        ResultSetRowMarshallHelper marshallHelper = new ResultSetRowMarshallHelper(mapping, session, dialect, resource);
+        marshallHelper.marshallResultSet(rs);
+        if (useCreate) {
+            session.create(resource);
+        } else {
+            session.save(resource);
+        }
+        session.evictAll();
+    }
 }
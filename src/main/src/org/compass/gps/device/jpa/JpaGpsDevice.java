@@ -59,7 +59,9 @@ import org.compass.gps.device.support.parallel.IndexEntity;
  * <p>The indexing process itself is done through an implementation of
  * {@link org.compass.gps.device.jpa.indexer.JpaIndexEntitiesIndexer}. There are several implemenations
  * for it including a default one that uses plain JPA APIs. Specific implementations (such as Hibernate
- * and OpenJPA) are used for better performance.
+ * and OpenJPA) are used for better performance. For large tables, the
+ * {@link org.compass.gps.device.jpa.indexer.KeysetJpaIndexEntitiesIndexer} pages by the ids of the entities
+ * instead of using <code>setFirstResult</code>.
  *
  * <p>Mirroring can be done in two ways. The first one is using JPA official API, implemeting
  * an Entity Lifecycle listener and specifing it for each entity class via annotations. Compass
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.jpa.indexer;
+
+import java.beans.Introspector;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EmbeddedId;
+import javax.persistence.EntityManager;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Query;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.CompassSession;
+import org.compass.gps.device.jpa.EntityManagerWrapper;
+import org.compass.gps.device.jpa.JpaGpsDevice;
+import org.compass.gps.device.jpa.JpaGpsDeviceException;
+import org.compass.gps.device.jpa.JtaEntityManagerWrapper;
+import org.compass.gps.device.jpa.entities.EntityInformation;
+import org.compass.gps.device.jpa.queryprovider.DefaultJpaQueryProvider;
+import org.compass.gps.device.support.keyset.KeysetIndexPipelineFetcher;
+import org.compass.gps.device.support.keyset.KeysetPage;
+import org.compass.gps.device.support.keyset.KeysetPageLoader;
+import org.compass.gps.device.support.keyset.KeysetPagesIndexer;
+import org.compass.gps.device.support.parallel.IndexEntity;
+import org.compass.gps.device.support.parallel.IndexPipelineFetcher;
+import org.compass.gps.device.support.parallel.PipelinedIndexEntitiesIndexer;
+
+/**
+ * A JPA indexer using keyset pagination. Each page is loaded using a query restricted to ids
+ * greater than the last id of the previous page and ordered by the id
+ * (<code>select x.id, x from entityName x where x.id > :lastId order by x.id</code>), so loading a page
+ * does not get slower the further it is in the table, as it does with <code>setFirstResult</code>
+ * (see {@link DefaultJpaIndexEntitiesIndexer}).
+ *
+ * <p>The id property is detected using the <code>@Id</code> annotation of the entity (or its super classes),
+ * and can be set explicitly using {@link #setIdPropertyName(String, String)} (for example, for entities mapped
+ * using <code>orm.xml</code>).
+ *
+ * <p>By default, the next page is loaded by a separate thread while the current page is being indexed
+ * (see {@link #setPipelined(boolean)}). Pipelining is not used when working with a {@link JtaEntityManagerWrapper}.
+ *
+ * <p>The indexer can also be used with {@link org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor}
+ * (except when working with a {@link JtaEntityManagerWrapper}), in which case pages are marshalled and written
+ * by other threads.
+ *
+ * <p>Entities with a composite id, or with a custom select query or query provider, are indexed
+ * using {@link DefaultJpaIndexEntitiesIndexer}.
+ *
+ * @author kimchy
+ */
+public class KeysetJpaIndexEntitiesIndexer implements JpaIndexEntitiesIndexer, PipelinedIndexEntitiesIndexer {
+
+    private static final Log log = LogFactory.getLog(KeysetJpaIndexEntitiesIndexer.class);
+
+    private JpaGpsDevice jpaGpsDevice;
+
+    private boolean pipelined = true;
+
+    private Map<String, String> idPropertyNames = new HashMap<String, String>();
+
+    private DefaultJpaIndexEntitiesIndexer paginationIndexer = new DefaultJpaIndexEntitiesIndexer();
+
+    public void setJpaGpsDevice(JpaGpsDevice jpaGpsDevice) {
+        this.jpaGpsDevice = jpaGpsDevice;
+        paginationIndexer.setJpaGpsDevice(jpaGpsDevice);
+    }
+
+    /**
+     * Should the next page be loaded by a separate thread while the current page is being
+     * indexed. Defaults to <code>true</code>.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Sets the id property used to page the given entity. Defaults to the property
+     * annotated with <code>@Id</code>.
+     */
+    public void setIdPropertyName(String entityName, String idPropertyName) {
+        idPropertyNames.put(entityName, idPropertyName);
+    }
+
+    public void performIndex(CompassSession session, IndexEntity[] entities) {
+        boolean pipeline = pipelined && !(jpaGpsDevice.getEntityManagerWrapper() instanceof JtaEntityManagerWrapper);
+        KeysetPagesIndexer pagesIndexer = new KeysetPagesIndexer(jpaGpsDevice, pipeline);
+        for (IndexEntity indexEntity : entities) {
+            EntityInformation entityInformation = (EntityInformation) indexEntity;
+            if (jpaGpsDevice.isFilteredForIndex(entityInformation.getName())) {
+                continue;
+            }
+            if (!jpaGpsDevice.isRunning()) {
+                return;
+            }
+            String idPropertyName = getIdPropertyName(entityInformation);
+            if (idPropertyName == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug(jpaGpsDevice.buildMessage("Entity [" + entityInformation.getName() + "] does not support keyset pagination, using pagination"));
+                }
+                paginationIndexer.performIndex(session, new IndexEntity[]{indexEntity});
+                continue;
+            }
+            try {
+                pagesIndexer.performIndex(session, new JpaKeysetPageLoader(entityInformation, idPropertyName, jpaGpsDevice.getFetchCount()), jpaGpsDevice.getFetchCount());
+            } catch (Exception e) {
+                log.error(jpaGpsDevice.buildMessage("Failed to index the database"), e);
+                if (!(e instanceof JpaGpsDeviceException)) {
+                    throw new JpaGpsDeviceException(jpaGpsDevice.buildMessage("Failed to index the database"), e);
+                }
+                throw (JpaGpsDeviceException) e;
+            }
+        }
+    }
+
+    public IndexPipelineFetcher createFetcher(IndexEntity entity) {
+        EntityInformation entityInformation = (EntityInformation) entity;
+        if (jpaGpsDevice.isFilteredForIndex(entityInformation.getName())
+                || jpaGpsDevice.getEntityManagerWrapper() instanceof JtaEntityManagerWrapper) {
+            return null;
+        }
+        String idPropertyName = getIdPropertyName(entityInformation);
+        if (idPropertyName == null) {
+            return null;
+        }
+        return new KeysetIndexPipelineFetcher(jpaGpsDevice, new JpaKeysetPageLoader(entityInformation, idPropertyName, jpaGpsDevice.getFetchCount()), jpaGpsDevice.getFetchCount());
+    }
+
+    /**
+     * Returns the id property to page by, or <code>null</code> if the entity can not use keyset pagination.
+     */
+    private String getIdPropertyName(EntityInformation entityInformation) {
+        if (!(entityInformation.getQueryProvider() instanceof DefaultJpaQueryProvider)
+                || !((DefaultJpaQueryProvider) entityInformation.getQueryProvider()).isUsingDefaultSelectQuery()) {
+            return null;
+        }
+        String idPropertyName = idPropertyNames.get(entityInformation.getName());
+        if (idPropertyName != null) {
+            return idPropertyName;
+        }
+        Class<?> clazz = entityInformation.getEntityClass();
+        while (clazz != null && clazz != Object.class) {
+            if (clazz.isAnnotationPresent(IdClass.class)) {
+                return null;
+            }
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(EmbeddedId.class)) {
+                    return null;
+                }
+                if (field.isAnnotationPresent(Id.class)) {
+                    return field.getName();
+                }
+            }
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(EmbeddedId.class)) {
+                    return null;
+                }
+                if (method.isAnnotationPresent(Id.class)) {
+                    String name = method.getName();
+                    if (name.startsWith("get") && name.length() > 3) {
+                        return Introspector.decapitalize(name.substring(3));
+                    }
+                    if (name.startsWith("is") && name.length() > 2) {
+                        return Introspector.decapitalize(name.substring(2));
+                    }
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return null;
+    }
+
+    private class JpaKeysetPageLoader implements KeysetPageLoader {
+
+        private final EntityInformation entityInformation;
+
+        private final String idPropertyName;
+
+        private final int fetchCount;
+
+        private JpaKeysetPageLoader(EntityInformation entityInformation, String idPropertyName, int fetchCount) {
+            this.entityInformation = entityInformation;
+            this.idPropertyName = idPropertyName;
+            this.fetchCount = fetchCount;
+        }
+
+        public KeysetPage loadPage(Object lastKey) throws Exception {
+            EntityManagerWrapper wrapper = jpaGpsDevice.getEntityManagerWrapper().newInstance();
+            try {
+                wrapper.open();
+                EntityManager entityManager = wrapper.getEntityManager();
+                if (log.isDebugEnabled()) {
+                    log.debug(jpaGpsDevice.buildMessage("Indexing entities [" + entityInformation.getName() + "] after id [" + lastKey + "]"));
+                }
+                StringBuilder queryString = new StringBuilder();
+                queryString.append("select x.").append(idPropertyName).append(", x from ").append(entityInformation.getName()).append(" x");
+                if (lastKey != null) {
+                    queryString.append(" where x.").append(idPropertyName).append(" > :lastKey");
+                }
+                queryString.append(" order by x.").append(idPropertyName);
+                Query query = entityManager.createQuery(queryString.toString());
+                if (lastKey != null) {
+                    query.setParameter("lastKey", lastKey);
+                }
+                query.setMaxResults(fetchCount);
+                List results = query.getResultList();
+                List<Object> values = new ArrayList<Object>(results.size());
+                Object newLastKey = null;
+                for (Object result : results) {
+                    Object[] row = (Object[]) result;
+                    newLastKey = row[0];
+                    values.add(row[1]);
+                }
+                return new JpaKeysetPage(wrapper, values, newLastKey);
+            } catch (Exception e) {
+                wrapper.closeOnError();
+                throw e;
+            }
+        }
+    }
+
+    private class JpaKeysetPage implements KeysetPage {
+
+        private final EntityManagerWrapper wrapper;
+
+        private final List values;
+
+        private final Object lastKey;
+
+        private JpaKeysetPage(EntityManagerWrapper wrapper, List values, Object lastKey) {
+            this.wrapper = wrapper;
+            this.values = values;
+            this.lastKey = lastKey;
+        }
+
+        public List getValues() {
+            return values;
+        }
+
+        public Object getLastKey() {
+            return lastKey;
+        }
+
+        public void close() {
+            wrapper.getEntityManager().clear();
+            wrapper.close();
+        }
+
+        public void closeOnError() {
+            wrapper.closeOnError();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.jpa.lifecycle;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.compass.core.mapping.Cascade;
+import org.compass.gps.device.hibernate.lifecycle.HibernateAsyncMirrorEntitiesIndexer;
+import org.compass.gps.device.hibernate.lifecycle.HibernateMirrorOperationsCollector;
+import org.compass.gps.device.jpa.JpaGpsDevice;
+import org.compass.gps.device.jpa.JpaGpsDeviceException;
+import org.compass.gps.device.support.async.AsyncMirrorProcessor;
+import org.compass.gps.device.support.async.MirrorOperation;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostUpdateEvent;
+
+/**
+ * Injects lifecycle listeners into Hibernate (used as the JPA implementation) that mirror data changes
+ * asynchronously, after the transaction commits. During the transaction, only the entity names and ids
+ * of changed entities are recorded. Once the transaction commits, a background thread reloads the changed
+ * entities in batches (of the device fetch count) and indexes them. See
+ * {@link org.compass.gps.device.support.async.AsyncMirrorProcessor}.
+ *
+ * <p>Note, since the index is updated after the transaction commits, searches performed right after it
+ * might not see the changes yet. {@link #flush()} can be used to wait for the changes to be mirrored.
+ *
+ * @author kimchy
+ */
+public class AsyncHibernateJpaEntityLifecycleInjector extends HibernateJpaEntityLifecycleInjector {
+
+    public static class AsyncHibernateEventListener extends HibernateEventListener {
+
+        private final HibernateMirrorOperationsCollector operationsCollector;
+
+        public AsyncHibernateEventListener(JpaGpsDevice device, HibernateMirrorOperationsCollector operationsCollector) {
+            super(device);
+            this.operationsCollector = operationsCollector;
+        }
+
+        public void onPostInsert(PostInsertEvent postInsertEvent) {
+            if (disable() || !hasMappingForEntity(postInsertEvent.getEntity().getClass(), Cascade.CREATE)) {
+                return;
+            }
+            operationsCollector.add(postInsertEvent.getSession(),
+                    MirrorOperation.save(postInsertEvent.getPersister().getEntityName(), postInsertEvent.getId()));
+        }
+
+        public void onPostUpdate(PostUpdateEvent postUpdateEvent) {
+            if (disable() || !hasMappingForEntity(postUpdateEvent.getEntity().getClass(), Cascade.SAVE)) {
+                return;
+            }
+            operationsCollector.add(postUpdateEvent.getSession(),
+                    MirrorOperation.save(postUpdateEvent.getPersister().getEntityName(), postUpdateEvent.getId()));
+        }
+
+        public void onPostDelete(PostDeleteEvent postDeleteEvent) {
+            if (disable() || !hasMappingForEntity(postDeleteEvent.getEntity().getClass(), Cascade.DELETE)) {
+                return;
+            }
+            operationsCollector.add(postDeleteEvent.getSession(),
+                    MirrorOperation.delete(postDeleteEvent.getPersister().getEntityName(), postDeleteEvent.getId(), postDeleteEvent.getEntity()));
+        }
+    }
+
+    private int batchSize = -1;
+
+    private AsyncMirrorProcessor mirrorProcessor;
+
+    public AsyncHibernateJpaEntityLifecycleInjector() {
+        super(false);
+    }
+
+    /**
+     * Sets the number of entities reloaded in a single query. Defaults to the device fetch count.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void injectLifecycle(EntityManagerFactory entityManagerFactory, JpaGpsDevice device) throws JpaGpsDeviceException {
+        HibernateEntityManagerFactory hibernateEntityManagerFactory = (HibernateEntityManagerFactory) entityManagerFactory;
+        mirrorProcessor = new AsyncMirrorProcessor(device, new HibernateAsyncMirrorEntitiesIndexer(hibernateEntityManagerFactory.getSessionFactory()),
+                batchSize > 0 ? batchSize : device.getFetchCount());
+        mirrorProcessor.start();
+        super.injectLifecycle(entityManagerFactory, device);
+    }
+
+    public void removeLifecycle(EntityManagerFactory entityManagerFactory, JpaGpsDevice device) throws JpaGpsDeviceException {
+        super.removeLifecycle(entityManagerFactory, device);
+        if (mirrorProcessor != null) {
+            mirrorProcessor.stop();
+            mirrorProcessor = null;
+        }
+    }
+
+    /**
+     * Blocks until the data changes of all the transactions committed so far have been mirrored.
+     */
+    public void flush() {
+        AsyncMirrorProcessor mirrorProcessor = this.mirrorProcessor;
+        if (mirrorProcessor != null) {
+            mirrorProcessor.flush();
+        }
+    }
+
+    protected Object doCreateListener(JpaGpsDevice device) {
+        return new AsyncHibernateEventListener(device, new HibernateMirrorOperationsCollector(mirrorProcessor));
+    }
+}
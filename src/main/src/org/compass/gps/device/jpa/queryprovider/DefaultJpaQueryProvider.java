@@ -66,7 +66,11 @@ public class DefaultJpaQueryProvider implements JpaQueryProvider {
         return entityManager.createQuery("select x from " + entityInformation.getName() + " x");
     }
 
-    protected boolean isUsingDefaultSelectQuery() {
+    /**
+     * Returns <code>true</code> if the select query was generated based on the entity name
+     * (and not explicitly provided).
+     */
+    public boolean isUsingDefaultSelectQuery() {
         return this.isUsingDefaultSelectQuery;
     }
 
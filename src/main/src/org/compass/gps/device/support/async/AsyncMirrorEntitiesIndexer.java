@@ -0,0 +1,41 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.async;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.compass.core.CompassSession;
+
+/**
+ * Loads a batch of entities by their ids and indexes them, used by the {@link AsyncMirrorProcessor}
+ * once the transaction that changed them has committed.
+ *
+ * @author kimchy
+ */
+public interface AsyncMirrorEntitiesIndexer {
+
+    /**
+     * Loads the entities with the given ids and saves them in the provided Compass session. Ids of
+     * entities that can no longer be found should be ignored.
+     *
+     * @param session    The Compass session to save the entities in
+     * @param entityName The entity name
+     * @param ids        The ids of the entities to load
+     */
+    void performMirror(CompassSession session, String entityName, List<Serializable> ids) throws Exception;
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.async;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.Compass;
+import org.compass.core.CompassCallbackWithoutResult;
+import org.compass.core.CompassException;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTemplate;
+import org.compass.core.util.concurrent.NamedThreadFactory;
+import org.compass.gps.CompassGpsException;
+import org.compass.gps.device.AbstractGpsDevice;
+import org.compass.gps.spi.CompassGpsInterfaceDevice;
+
+/**
+ * Mirrors data changes in the background, after the transaction that performed them has committed.
+ *
+ * <p>Lifecycle listeners only capture the entity name, id and operation type of each change
+ * (see {@link MirrorOperation}), and hand the operations of a transaction over to {@link #process(java.util.List)}
+ * once it has committed. A single background thread drains all the pending operations (possibly of several
+ * transactions), coalesces the operations performed on the same id (the last one wins), and mirrors
+ * the operations of each entity name within its own Compass transaction. Deleted entities are deleted directly,
+ * while created and updated ones are reloaded in batches of <code>batchSize</code> ids using the provided
+ * {@link AsyncMirrorEntitiesIndexer}.
+ *
+ * <p>Since mirroring happens after the transaction has committed, failures can not be propagated back to
+ * the transaction. When the operations of an entity name fail to be mirrored, they are split (in halves, each
+ * mirrored within its own transaction) until the failing ids are isolated, so only the operations of the
+ * failing ids are retried (up to <code>maxRetries</code> times, waiting <code>retryBackoff</code> milliseconds,
+ * doubled on each retry). A retried operation is dropped if a newer operation of the same id was mirrored in
+ * the meantime, so for example a stale delete never removes a newer save. Once the retries run out, the
+ * operations are logged as lost.
+ *
+ * @author kimchy
+ */
+public class AsyncMirrorProcessor {
+
+    private static final Log log = LogFactory.getLog(AsyncMirrorProcessor.class);
+
+    private final String name;
+
+    private final AbstractGpsDevice device;
+
+    private final Compass compass;
+
+    private final AsyncMirrorEntitiesIndexer entitiesIndexer;
+
+    private final int batchSize;
+
+    private volatile int maxRetries = 3;
+
+    private volatile long retryBackoff = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LinkedBlockingQueue<PendingOperations> pendingOperations = new LinkedBlockingQueue<PendingOperations>();
+
+    /**
+     * Guards draining, which happens both on the background thread and on calling threads (when not started
+     * or stopped concurrently), along with the scheduled retries.
+     */
+    private final Object drainMutex = new Object();
+
+    /**
+     * The sequence of the scheduled retry of each id, removed once a newer operation of the id is mirrored.
+     */
+    private final Map<OperationKey, Long> retries = new HashMap<OperationKey, Long>();
+
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    private volatile ScheduledExecutorService executorService;
+
+    /**
+     * Creates a new processor that mirrors the operations using the mirror Compass of the device gps.
+     */
+    public AsyncMirrorProcessor(AbstractGpsDevice device, AsyncMirrorEntitiesIndexer entitiesIndexer, int batchSize) {
+        this(device.getName(), device, null, entitiesIndexer, batchSize);
+    }
+
+    /**
+     * Creates a new processor that mirrors the operations using the given Compass instance.
+     */
+    public AsyncMirrorProcessor(String name, Compass compass, AsyncMirrorEntitiesIndexer entitiesIndexer, int batchSize) {
+        this(name, null, compass, entitiesIndexer, batchSize);
+    }
+
+    private AsyncMirrorProcessor(String name, AbstractGpsDevice device, Compass compass, AsyncMirrorEntitiesIndexer entitiesIndexer, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.name = name;
+        this.device = device;
+        this.compass = compass;
+        this.entitiesIndexer = entitiesIndexer;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of times an operation that failed to be mirrored is retried.
+     * Defaults to <code>3</code>.
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the time (in milliseconds) to wait before the first retry, doubled on each subsequent retry.
+     * Defaults to <code>1000</code>.
+     */
+    public void setRetryBackoff(long retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Starts the background mirroring thread.
+     */
+    public synchronized void start() {
+        if (executorService != null) {
+            return;
+        }
+        executorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Compass Gps Async Mirror [" + name + "]", true));
+    }
+
+    /**
+     * Stops the background mirroring thread, waiting for the pending operations (and scheduled retries)
+     * to be mirrored.
+     */
+    public synchronized void stop() {
+        if (executorService == null) {
+            return;
+        }
+        ScheduledExecutorService executorService = this.executorService;
+        this.executorService = null;
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn(buildMessage("Timed out waiting for pending async mirror operations"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // in case operations were added while stopping
+        drain();
+    }
+
+    /**
+     * Schedules the given operations (of a committed transaction) to be mirrored. If the processor
+     * is not started, the operations are mirrored on the calling thread (and are not retried).
+     */
+    public void process(List<MirrorOperation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        // sequences are assigned in the order operations are queued
+        synchronized (pendingOperations) {
+            pendingOperations.add(new PendingOperations(operations, sequence.incrementAndGet(), 0));
+        }
+        ScheduledExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            drain();
+            return;
+        }
+        try {
+            executorService.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            // stopped concurrently
+            drain();
+        }
+    }
+
+    /**
+     * Blocks until all the operations scheduled so far have been mirrored. Operations that failed and are
+     * scheduled to be retried are not waited for.
+     */
+    public void flush() throws CompassGpsException {
+        ScheduledExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            drain();
+            return;
+        }
+        try {
+            executorService.submit(drainTask).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompassGpsException(buildMessage("Interrupted while waiting for async mirror operations"), e);
+        } catch (ExecutionException e) {
+            throw new CompassGpsException(buildMessage("Failed while waiting for async mirror operations"), e.getCause());
+        } catch (RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        synchronized (drainMutex) {
+            List<PendingOperations> drained = new ArrayList<PendingOperations>();
+            pendingOperations.drainTo(drained);
+            if (drained.isEmpty()) {
+                return;
+            }
+            // retried operations are added back with their original sequence, so newer operations still win
+            Collections.sort(drained, new Comparator<PendingOperations>() {
+                public int compare(PendingOperations o1, PendingOperations o2) {
+                    return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+                }
+            });
+            Map<String, Map<Serializable, SequencedOperation>> operationsByEntity = new LinkedHashMap<String, Map<Serializable, SequencedOperation>>();
+            int count = 0;
+            for (PendingOperations pending : drained) {
+                for (MirrorOperation operation : pending.operations) {
+                    if (pending.attempts > 0 && !isRetryCurrent(operation, pending.sequence)) {
+                        if (log.isDebugEnabled()) {
+                            log.debug(buildMessage("Dropping retry of " + operation + ", a newer operation was mirrored"));
+                        }
+                        continue;
+                    }
+                    Map<Serializable, SequencedOperation> entityOperations = operationsByEntity.get(operation.getEntityName());
+                    if (entityOperations == null) {
+                        entityOperations = new LinkedHashMap<Serializable, SequencedOperation>();
+                        operationsByEntity.put(operation.getEntityName(), entityOperations);
+                    }
+                    entityOperations.put(operation.getId(), new SequencedOperation(operation, pending.sequence, pending.attempts));
+                    count++;
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(buildMessage("Mirroring [" + count + "] operations of [" + drained.size() + "] transactions"));
+            }
+            List<SequencedOperation> failed = new ArrayList<SequencedOperation>();
+            for (Map.Entry<String, Map<Serializable, SequencedOperation>> entry : operationsByEntity.entrySet()) {
+                mirror(entry.getKey(), new ArrayList<SequencedOperation>(entry.getValue().values()), failed);
+            }
+            if (!failed.isEmpty()) {
+                retry(failed);
+            }
+        }
+    }
+
+    /**
+     * Mirrors the given operations of an entity name within a single transaction. If it fails, the
+     * operations are split in halves and mirrored again, until the failing operations are isolated and
+     * added to the <code>failed</code> list.
+     */
+    private void mirror(String entityName, List<SequencedOperation> operations, List<SequencedOperation> failed) {
+        try {
+            mirror(entityName, operations);
+        } catch (Exception e) {
+            if (operations.size() == 1) {
+                SequencedOperation operation = operations.get(0);
+                operation.failure = e;
+                failed.add(operation);
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(buildMessage("Failed to mirror [" + operations.size() + "] operations of [" + entityName + "], splitting them"), e);
+            }
+            int half = operations.size() / 2;
+            mirror(entityName, operations.subList(0, half), failed);
+            mirror(entityName, operations.subList(half, operations.size()), failed);
+            return;
+        }
+        for (SequencedOperation operation : operations) {
+            OperationKey key = new OperationKey(operation.operation);
+            Long retrySequence = retries.get(key);
+            if (retrySequence != null && retrySequence <= operation.sequence) {
+                retries.remove(key);
+            }
+        }
+    }
+
+    private void mirror(final String entityName, final List<SequencedOperation> operations) {
+        CompassCallbackWithoutResult callback = new CompassCallbackWithoutResult() {
+            protected void doInCompassWithoutResult(CompassSession session) throws CompassException {
+                List<MirrorOperation> mirrorOperations = new ArrayList<MirrorOperation>(operations.size());
+                for (SequencedOperation operation : operations) {
+                    mirrorOperations.add(operation.operation);
+                }
+                mirror(session, entityName, mirrorOperations);
+            }
+        };
+        if (device != null) {
+            ((CompassGpsInterfaceDevice) device.getGps()).executeForMirror(callback);
+        } else {
+            new CompassTemplate(compass).execute(callback);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the given retried operation is still the latest scheduled retry of its
+     * id, <code>false</code> if a newer operation of the id was mirrored (or retried) since.
+     */
+    private boolean isRetryCurrent(MirrorOperation operation, long sequence) {
+        Long retrySequence = retries.get(new OperationKey(operation));
+        return retrySequence != null && retrySequence == sequence;
+    }
+
+    private void retry(List<SequencedOperation> failed) {
+        ScheduledExecutorService executorService = this.executorService;
+        // the retried operations, by the delay (based on their attempts) they are retried after
+        Map<Long, List<PendingOperations>> retriesByDelay = new LinkedHashMap<Long, List<PendingOperations>>();
+        for (SequencedOperation operation : failed) {
+            OperationKey key = new OperationKey(operation.operation);
+            int attempts = operation.attempts + 1;
+            String message = "Failed to mirror " + operation.operation;
+            if (executorService == null || attempts > maxRetries) {
+                log.error(buildMessage(message + " after [" + attempts + "] attempts, giving up"), operation.failure);
+                Long retrySequence = retries.get(key);
+                if (retrySequence != null && retrySequence <= operation.sequence) {
+                    retries.remove(key);
+                }
+                continue;
+            }
+            long delay = retryBackoff << (attempts - 1);
+            log.warn(buildMessage(message + ", retrying in [" + delay + "ms]"), operation.failure);
+            retries.put(key, operation.sequence);
+            List<PendingOperations> retried = retriesByDelay.get(delay);
+            if (retried == null) {
+                retried = new ArrayList<PendingOperations>();
+                retriesByDelay.put(delay, retried);
+            }
+            retried.add(new PendingOperations(Collections.singletonList(operation.operation), operation.sequence, attempts));
+        }
+        for (Map.Entry<Long, List<PendingOperations>> entry : retriesByDelay.entrySet()) {
+            final List<PendingOperations> retried = entry.getValue();
+            try {
+                executorService.schedule(new Runnable() {
+                    public void run() {
+                        pendingOperations.addAll(retried);
+                        drain();
+                    }
+                }, entry.getKey(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                for (PendingOperations pending : retried) {
+                    log.error(buildMessage("Processor stopped, giving up on " + pending.operations));
+                    retries.remove(new OperationKey(pending.operations.get(0)));
+                }
+            }
+        }
+    }
+
+    private void mirror(CompassSession session, String entityName, Iterable<MirrorOperation> operations) {
+        List<Serializable> saveIds = new ArrayList<Serializable>();
+        for (MirrorOperation operation : operations) {
+            if (operation.getType() == MirrorOperation.Type.DELETE) {
+                session.delete(operation.getEntity());
+            } else {
+                saveIds.add(operation.getId());
+            }
+        }
+        for (int i = 0; i < saveIds.size(); i += batchSize) {
+            List<Serializable> ids = saveIds.subList(i, Math.min(i + batchSize, saveIds.size()));
+            try {
+                entitiesIndexer.performMirror(session, entityName, ids);
+            } catch (CompassException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompassGpsException(buildMessage("Failed to mirror [" + entityName + "] with ids " + ids), e);
+            }
+        }
+    }
+
+    private String buildMessage(String message) {
+        return "{" + name + "}: " + message;
+    }
+
+    /**
+     * The operations of a committed transaction (or an operation to be retried), ordered by the sequence
+     * they were first scheduled with.
+     */
+    private static class PendingOperations {
+
+        final List<MirrorOperation> operations;
+
+        final long sequence;
+
+        final int attempts;
+
+        PendingOperations(List<MirrorOperation> operations, long sequence, int attempts) {
+            this.operations = operations;
+            this.sequence = sequence;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * An operation to be mirrored, along with the sequence it was first scheduled with.
+     */
+    private static class SequencedOperation {
+
+        final MirrorOperation operation;
+
+        final long sequence;
+
+        final int attempts;
+
+        Exception failure;
+
+        SequencedOperation(MirrorOperation operation, long sequence, int attempts) {
+            this.operation = operation;
+            this.sequence = sequence;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Identifies the entity an operation is performed on.
+     */
+    private static final class OperationKey {
+
+        private final String entityName;
+
+        private final Serializable id;
+
+        OperationKey(MirrorOperation operation) {
+            this.entityName = operation.getEntityName();
+            this.id = operation.getId();
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OperationKey)) {
+                return false;
+            }
+            OperationKey key = (OperationKey) o;
+            return entityName.equals(key.entityName) && id.equals(key.id);
+        }
+
+        public int hashCode() {
+            return 31 * entityName.hashCode() + id.hashCode();
+        }
+    }
+}
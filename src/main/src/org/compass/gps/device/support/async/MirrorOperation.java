@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.async;
+
+import java.io.Serializable;
+
+/**
+ * A data change captured during a transaction, to be mirrored once the transaction commits. Only
+ * holds the entity name and its id (the entity is reloaded when it is mirrored), except for
+ * deletes which keep the (already deleted) entity.
+ *
+ * @author kimchy
+ * @see AsyncMirrorProcessor
+ */
+public final class MirrorOperation {
+
+    /**
+     * The type of a mirror operation.
+     */
+    public static enum Type {
+        /**
+         * The entity was created or updated, it is reloaded and saved.
+         */
+        SAVE,
+        /**
+         * The entity was deleted.
+         */
+        DELETE
+    }
+
+    private final Type type;
+
+    private final String entityName;
+
+    private final Serializable id;
+
+    private final Object entity;
+
+    public static MirrorOperation save(String entityName, Serializable id) {
+        return new MirrorOperation(Type.SAVE, entityName, id, null);
+    }
+
+    public static MirrorOperation delete(String entityName, Serializable id, Object entity) {
+        return new MirrorOperation(Type.DELETE, entityName, id, entity);
+    }
+
+    private MirrorOperation(Type type, String entityName, Serializable id, Object entity) {
+        this.type = type;
+        this.entityName = entityName;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public Serializable getId() {
+        return id;
+    }
+
+    /**
+     * Returns the deleted entity, <code>null</code> for save operations.
+     */
+    public Object getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return type + " [" + entityName + "#" + id + "]";
+    }
+}
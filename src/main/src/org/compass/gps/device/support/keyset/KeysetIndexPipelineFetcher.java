@@ -0,0 +1,65 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.keyset;
+
+import org.compass.gps.device.AbstractGpsDevice;
+import org.compass.gps.device.support.parallel.IndexPipelineFetcher;
+import org.compass.gps.device.support.parallel.IndexPipelineSink;
+
+/**
+ * An {@link IndexPipelineFetcher} streaming the pages loaded by a {@link KeysetPageLoader}
+ * into the {@link org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor}. Each page
+ * is closed by the marshalling stage once its entities were marshalled (or by the fetcher, if it failed
+ * to hand it over).
+ *
+ * @author kimchy
+ */
+public class KeysetIndexPipelineFetcher implements IndexPipelineFetcher {
+
+    private final AbstractGpsDevice device;
+
+    private final KeysetPageLoader loader;
+
+    private final int fetchCount;
+
+    public KeysetIndexPipelineFetcher(AbstractGpsDevice device, KeysetPageLoader loader, int fetchCount) {
+        this.device = device;
+        this.loader = loader;
+        this.fetchCount = fetchCount;
+    }
+
+    public void fetch(IndexPipelineSink sink) throws Exception {
+        Object lastKey = null;
+        while (device.isRunning()) {
+            KeysetPage page = loader.loadPage(lastKey);
+            lastKey = page.getLastKey();
+            // read the size before handing over the page, it is closed by another thread
+            boolean hasMore = lastKey != null && page.getValues().size() >= fetchCount;
+            boolean put;
+            try {
+                put = sink.put(page);
+            } catch (Exception e) {
+                // interrupted while waiting for room in the pipeline, the page was not handed over
+                page.closeOnError();
+                throw e;
+            }
+            if (!put || !hasMore) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.keyset;
+
+import org.compass.gps.device.support.parallel.IndexPipelineBatch;
+
+/**
+ * A page of entities loaded using keyset pagination by a {@link KeysetPageLoader}. The page
+ * holds the resources (session, transaction) used to load it until it has been indexed, allowing
+ * to lazy load associations during the indexing process.
+ *
+ * <p>The page is an {@link IndexPipelineBatch}, so pages can be streamed into the
+ * {@link org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor} (see
+ * {@link KeysetIndexPipelineFetcher}).
+ *
+ * @author kimchy
+ */
+public interface KeysetPage extends IndexPipelineBatch {
+
+    /**
+     * Returns the key of the last entity of the page, used to load the next page.
+     * <code>null</code> if the page is empty.
+     */
+    Object getLastKey();
+}
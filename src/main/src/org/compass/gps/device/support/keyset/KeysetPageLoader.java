@@ -0,0 +1,38 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.keyset;
+
+/**
+ * Loads pages of entities using keyset pagination (<code>where key > :lastKey order by key</code>),
+ * instead of <code>setFirstResult</code> and <code>setMaxResults</code> which get slower the further
+ * the page is in the result set.
+ *
+ * <p>Pages might be loaded by a different thread than the one indexing them (see
+ * {@link KeysetPagesIndexer}).
+ *
+ * @author kimchy
+ */
+public interface KeysetPageLoader {
+
+    /**
+     * Loads the page of entities following the given key.
+     *
+     * @param lastKey The key of the last entity of the previous page, <code>null</code> for the first page
+     * @return The loaded page
+     */
+    KeysetPage loadPage(Object lastKey) throws Exception;
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.keyset;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.CompassSession;
+import org.compass.core.util.concurrent.NamedThreadFactory;
+import org.compass.gps.device.AbstractGpsDevice;
+
+/**
+ * Indexes all the pages loaded by a {@link KeysetPageLoader} into a Compass session.
+ *
+ * <p>When pipelined, the next page is loaded by a separate thread while the current page is
+ * being indexed, so the database and Compass work concurrently. Each page is loaded using its own
+ * resources (session and transaction), which are handed over to the indexing thread and released
+ * once the page has been indexed. Resources bound to the loading thread (such as JTA transactions)
+ * can not be used with a pipelined indexer.
+ *
+ * @author kimchy
+ */
+public class KeysetPagesIndexer {
+
+    private static final Log log = LogFactory.getLog(KeysetPagesIndexer.class);
+
+    private final AbstractGpsDevice device;
+
+    private final boolean pipelined;
+
+    public KeysetPagesIndexer(AbstractGpsDevice device, boolean pipelined) {
+        this.device = device;
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Indexes all the pages returned by the loader. Stops once a page has less than <code>fetchCount</code>
+     * entities, or once the device is stopped.
+     */
+    public void performIndex(CompassSession session, final KeysetPageLoader loader, int fetchCount) throws Exception {
+        ExecutorService executorService = null;
+        if (pipelined) {
+            executorService = Executors.newSingleThreadExecutor(new NamedThreadFactory("Compass Gps Keyset Loader [" + device.getName() + "]", true));
+        }
+        KeysetPage page = null;
+        Future<KeysetPage> nextPage = null;
+        try {
+            page = loader.loadPage(null);
+            while (true) {
+                final Object lastKey = page.getLastKey();
+                boolean hasMore = lastKey != null && page.getValues().size() >= fetchCount;
+                if (hasMore && executorService != null) {
+                    nextPage = executorService.submit(new Callable<KeysetPage>() {
+                        public KeysetPage call() throws Exception {
+                            return loader.loadPage(lastKey);
+                        }
+                    });
+                }
+                for (Object value : page.getValues()) {
+                    session.create(value);
+                }
+                session.evictAll();
+                KeysetPage indexedPage = page;
+                page = null;
+                indexedPage.close();
+                if (!hasMore || !device.isRunning()) {
+                    break;
+                }
+                if (nextPage != null) {
+                    Future<KeysetPage> future = nextPage;
+                    nextPage = null;
+                    page = getPage(future);
+                } else {
+                    page = loader.loadPage(lastKey);
+                }
+            }
+        } catch (Exception e) {
+            if (page != null) {
+                page.closeOnError();
+            }
+            throw e;
+        } finally {
+            if (nextPage != null) {
+                // the device was stopped or indexing failed while loading the next page
+                try {
+                    getPage(nextPage).closeOnError();
+                } catch (Exception e) {
+                    log.debug(device.buildMessage("Failed to load next page after indexing stopped, ignoring"), e);
+                }
+            }
+            if (executorService != null) {
+                executorService.shutdown();
+            }
+        }
+    }
+
+    private KeysetPage getPage(Future<KeysetPage> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+import java.util.List;
+
+/**
+ * A batch of objects fetched by an {@link IndexPipelineFetcher}, flowing from the fetch
+ * stage to the marshalling stage of the {@link PipelinedParallelIndexExecutor}.
+ *
+ * <p>The batch holds the resources used to fetch it (such as an ORM session) until its objects
+ * have been marshalled, allowing to lazy load associations during marshalling. A batch is fetched
+ * and marshalled by different threads, but never used by more than one thread at a time.
+ *
+ * @author kimchy
+ */
+public interface IndexPipelineBatch {
+
+    /**
+     * Returns the objects to index.
+     */
+    List getValues();
+
+    /**
+     * Releases the resources used to fetch the batch once its objects were marshalled.
+     */
+    void close();
+
+    /**
+     * Releases the resources used to fetch the batch when it failed to be marshalled, or when
+     * the pipeline was aborted.
+     */
+    void closeOnError();
+}
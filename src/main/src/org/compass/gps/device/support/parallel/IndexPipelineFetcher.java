@@ -0,0 +1,34 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+/**
+ * Fetches the objects of a single {@link IndexEntity} in batches, and streams them into
+ * the {@link PipelinedParallelIndexExecutor} using an {@link IndexPipelineSink}. Each fetcher
+ * runs in its own thread.
+ *
+ * @author kimchy
+ * @see PipelinedIndexEntitiesIndexer
+ */
+public interface IndexPipelineFetcher {
+
+    /**
+     * Fetches all the objects of the index entity, putting them into the sink in batches.
+     * Should stop once the sink does not accept a batch.
+     */
+    void fetch(IndexPipelineSink sink) throws Exception;
+}
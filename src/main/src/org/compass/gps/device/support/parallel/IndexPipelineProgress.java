@@ -0,0 +1,104 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+/**
+ * A snapshot of the progress of the {@link PipelinedParallelIndexExecutor}.
+ *
+ * @author kimchy
+ */
+public class IndexPipelineProgress {
+
+    private final long fetchedBatches;
+
+    private final long fetchedObjects;
+
+    private final long marshalledObjects;
+
+    private final long writtenObjects;
+
+    private final int pendingBatches;
+
+    private final long elapsedTime;
+
+    private final boolean finished;
+
+    public IndexPipelineProgress(long fetchedBatches, long fetchedObjects, long marshalledObjects, long writtenObjects,
+                                 int pendingBatches, long elapsedTime, boolean finished) {
+        this.fetchedBatches = fetchedBatches;
+        this.fetchedObjects = fetchedObjects;
+        this.marshalledObjects = marshalledObjects;
+        this.writtenObjects = writtenObjects;
+        this.pendingBatches = pendingBatches;
+        this.elapsedTime = elapsedTime;
+        this.finished = finished;
+    }
+
+    /**
+     * Returns the number of batches fetched so far.
+     */
+    public long getFetchedBatches() {
+        return fetchedBatches;
+    }
+
+    /**
+     * Returns the number of objects fetched so far.
+     */
+    public long getFetchedObjects() {
+        return fetchedObjects;
+    }
+
+    /**
+     * Returns the number of objects marshalled so far.
+     */
+    public long getMarshalledObjects() {
+        return marshalledObjects;
+    }
+
+    /**
+     * Returns the number of objects written to the index so far.
+     */
+    public long getWrittenObjects() {
+        return writtenObjects;
+    }
+
+    /**
+     * Returns the number of fetched batches waiting to be marshalled.
+     */
+    public int getPendingBatches() {
+        return pendingBatches;
+    }
+
+    /**
+     * Returns the time (in milliseconds) since the pipeline started.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns <code>true</code> if the pipeline finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public String toString() {
+        return "fetched batches [" + fetchedBatches + "] fetched [" + fetchedObjects + "] marshalled [" + marshalledObjects
+                + "] written [" + writtenObjects + "] pending batches [" + pendingBatches + "] elapsed [" + elapsedTime + "ms]";
+    }
+}
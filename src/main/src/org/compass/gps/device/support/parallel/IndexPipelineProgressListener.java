@@ -0,0 +1,31 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+/**
+ * Notified on the progress of the {@link PipelinedParallelIndexExecutor}. Called by several
+ * threads, so implementations must be thread safe.
+ *
+ * @author kimchy
+ */
+public interface IndexPipelineProgressListener {
+
+    /**
+     * Called after each marshalled batch, and once the pipeline finished.
+     */
+    void onProgress(IndexPipelineProgress progress);
+}
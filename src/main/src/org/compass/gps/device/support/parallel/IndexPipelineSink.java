@@ -0,0 +1,33 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+/**
+ * Accepts batches fetched by an {@link IndexPipelineFetcher}. The sink is bounded, putting a
+ * batch blocks while the marshalling stage is behind.
+ *
+ * @author kimchy
+ */
+public interface IndexPipelineSink {
+
+    /**
+     * Puts the batch into the pipeline, blocking if the pipeline is full. Returns <code>false</code>
+     * if the pipeline was aborted, in which case the batch was closed (using
+     * {@link IndexPipelineBatch#closeOnError()}) and the fetcher should stop.
+     */
+    boolean put(IndexPipelineBatch batch) throws InterruptedException;
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+/**
+ * An {@link IndexEntitiesIndexer} that can also fetch the objects of an index entity for
+ * the {@link PipelinedParallelIndexExecutor}, leaving the marshalling and writing of the objects
+ * to other threads.
+ *
+ * @author kimchy
+ */
+public interface PipelinedIndexEntitiesIndexer extends IndexEntitiesIndexer {
+
+    /**
+     * Creates a fetcher for the given index entity. Returns <code>null</code> if the entity can
+     * not be fetched by a pipeline, in which case it will be indexed using
+     * {@link #performIndex(org.compass.core.CompassSession, IndexEntity[])}.
+     */
+    IndexPipelineFetcher createFetcher(IndexEntity entity);
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.parallel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.compass.core.CompassCallbackWithoutResult;
+import org.compass.core.CompassException;
+import org.compass.core.CompassSession;
+import org.compass.core.Resource;
+import org.compass.core.config.CompassEnvironment;
+import org.compass.core.events.CompassEventManager;
+import org.compass.core.events.FilterOperation;
+import org.compass.core.mapping.Cascade;
+import org.compass.core.mapping.CascadeMapping;
+import org.compass.core.mapping.ResourceMapping;
+import org.compass.core.mapping.osem.ClassMapping;
+import org.compass.core.spi.InternalCompass;
+import org.compass.core.spi.InternalCompassSession;
+import org.compass.core.spi.InternalResource;
+import org.compass.core.util.concurrent.NamedThreadFactory;
+import org.compass.gps.CompassGpsException;
+import org.compass.gps.spi.CompassGpsInterfaceDevice;
+
+/**
+ * <p>Executes the indexing process using a staged pipeline, allowing to keep both the database
+ * and the CPU cores busy:
+ * <ul>
+ * <li>Fetch: one thread per index entity, fetching batches of objects using the {@link IndexPipelineFetcher}
+ * created by the {@link PipelinedIndexEntitiesIndexer}, into a bounded queue.</li>
+ * <li>Marshall: <code>marshallThreads</code> threads marshalling the objects of each batch into
+ * <code>Resource</code>s, and closing the batch.</li>
+ * <li>Write: one thread per sub index, writing the resources of the sub index using its own
+ * index session (so no two threads lock the same sub index).</li>
+ * </ul>
+ *
+ * <p>The queues between the stages are bounded by <code>queueSize</code> (batches), so a stage
+ * that is behind slows down the stages that feed it. A failure in any stage aborts the pipeline,
+ * and rolls back all the writers.
+ *
+ * <p>A fetched batch might hold a database connection until it has been marshalled (for example, the
+ * session and transaction of a keyset page, so lazy associations can be loaded while marshalling). Up to
+ * <code>queueSize</code> plus the number of fetch and marshall threads batches can be open at once, which
+ * should not exceed the connections available to the indexing process. Use <code>maxOpenBatches</code>
+ * to bound the queue between the fetch and marshall stages by such a budget.
+ *
+ * <p>Object level create event filters are applied by the marshalling stage, while resource level
+ * events and listeners, as well as object level post create listeners, are applied by the writers.
+ *
+ * <p>Index entities the indexer can not create a fetcher for (and indexers that are not
+ * {@link PipelinedIndexEntitiesIndexer}) are indexed once the pipeline finished, using
+ * {@link ConcurrentParallelIndexExecutor}. So are index entities whose mappings (or the mappings
+ * of their sub classes) cascade create operations, since cascaded objects might need to be loaded
+ * while the batch is open, and might be indexed into other sub indexes.
+ *
+ * @author kimchy
+ */
+public class PipelinedParallelIndexExecutor implements ParallelIndexExecutor {
+
+    private static final Log log = LogFactory.getLog(PipelinedParallelIndexExecutor.class);
+
+    private static final Object END = new Object();
+
+    private int fetchThreads = -1;
+
+    private int marshallThreads = Runtime.getRuntime().availableProcessors();
+
+    private int queueSize = 20;
+
+    private int maxOpenBatches = -1;
+
+    private IndexPipelineProgressListener progressListener;
+
+    private ParallelIndexExecutor parallelIndexExecutor = new ConcurrentParallelIndexExecutor();
+
+    /**
+     * Sets the number of threads fetching index entities. Defaults to <code>-1</code>, which
+     * means a thread per index entity.
+     */
+    public void setFetchThreads(int fetchThreads) {
+        if (fetchThreads < -1 || fetchThreads == 0) {
+            throw new IllegalArgumentException("fetchThreads must either be -1 or a value greater than 0");
+        }
+        this.fetchThreads = fetchThreads;
+    }
+
+    /**
+     * Sets the number of threads marshalling fetched objects. Defaults to the number of processors.
+     */
+    public void setMarshallThreads(int marshallThreads) {
+        if (marshallThreads < 1) {
+            throw new IllegalArgumentException("marshallThreads must be greater than 0");
+        }
+        this.marshallThreads = marshallThreads;
+    }
+
+    /**
+     * Sets the number of batches each queue between the stages can hold. Defaults to <code>20</code>.
+     */
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize must be greater than 0");
+        }
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Sets the maximum number of fetched batches open at once (being fetched, queued, or being marshalled),
+     * for example the number of database connections the pipeline may use. The queue between the fetch and
+     * marshall stages is bounded by it, less a batch per fetch and marshall thread (and by <code>queueSize</code>).
+     * Defaults to <code>-1</code>, which means up to <code>queueSize</code> plus the number of fetch and
+     * marshall threads.
+     */
+    public void setMaxOpenBatches(int maxOpenBatches) {
+        if (maxOpenBatches < -1 || maxOpenBatches == 0) {
+            throw new IllegalArgumentException("maxOpenBatches must either be -1 or a value greater than 0");
+        }
+        this.maxOpenBatches = maxOpenBatches;
+    }
+
+    /**
+     * Sets a listener notified on the progress of the pipeline.
+     */
+    public void setProgressListener(IndexPipelineProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets the index executor used for entities that can not be pipelined. Defaults to
+     * {@link ConcurrentParallelIndexExecutor}.
+     */
+    public void setParallelIndexExecutor(ParallelIndexExecutor parallelIndexExecutor) {
+        this.parallelIndexExecutor = parallelIndexExecutor;
+    }
+
+    public void performIndex(IndexEntity[][] entities, IndexEntitiesIndexer indexEntitiesIndexer,
+                             CompassGpsInterfaceDevice compassGps) throws CompassGpsException {
+        if (entities.length <= 0 || !(indexEntitiesIndexer instanceof PipelinedIndexEntitiesIndexer)) {
+            parallelIndexExecutor.performIndex(entities, indexEntitiesIndexer, compassGps);
+            return;
+        }
+        List<IndexPipelineFetcher> fetchers = new ArrayList<IndexPipelineFetcher>();
+        List<IndexEntity[]> notPipelinedEntities = new ArrayList<IndexEntity[]>();
+        for (IndexEntity[] group : entities) {
+            List<IndexEntity> notPipelinedGroup = new ArrayList<IndexEntity>();
+            for (IndexEntity entity : group) {
+                if (cascadesCreate(entity, compassGps)) {
+                    notPipelinedGroup.add(entity);
+                    continue;
+                }
+                IndexPipelineFetcher fetcher = ((PipelinedIndexEntitiesIndexer) indexEntitiesIndexer).createFetcher(entity);
+                if (fetcher == null) {
+                    notPipelinedGroup.add(entity);
+                } else {
+                    fetchers.add(fetcher);
+                }
+            }
+            if (!notPipelinedGroup.isEmpty()) {
+                notPipelinedEntities.add(notPipelinedGroup.toArray(new IndexEntity[notPipelinedGroup.size()]));
+            }
+        }
+        if (!fetchers.isEmpty()) {
+            int fetchThreads = this.fetchThreads == -1 ? fetchers.size() : this.fetchThreads;
+            new Pipeline(compassGps, fetchThreads, getBatchesQueueSize(fetchThreads)).run(fetchers);
+        }
+        if (!notPipelinedEntities.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Indexing [" + notPipelinedEntities.size() + "] entities groups that can not be pipelined");
+            }
+            parallelIndexExecutor.performIndex(notPipelinedEntities.toArray(new IndexEntity[notPipelinedEntities.size()][]),
+                    indexEntitiesIndexer, compassGps);
+        }
+    }
+
+    /**
+     * Returns the size of the queue between the fetch and marshall stages, bounded so that no more than
+     * <code>maxOpenBatches</code> batches are open at once (each fetch and marshall thread holding one).
+     */
+    private int getBatchesQueueSize(int fetchThreads) {
+        if (maxOpenBatches == -1) {
+            return queueSize;
+        }
+        int size = maxOpenBatches - fetchThreads - marshallThreads;
+        if (size < 1) {
+            log.warn("maxOpenBatches [" + maxOpenBatches + "] is lower than the number of fetch threads [" + fetchThreads
+                    + "] and marshall threads [" + marshallThreads + "] plus one, up to ["
+                    + (fetchThreads + marshallThreads + 1) + "] batches will be open at once");
+            size = 1;
+        }
+        return Math.min(queueSize, size);
+    }
+
+    /**
+     * Returns <code>true</code> if the mapping of the index entity, or the mapping of one of its sub classes,
+     * cascades create operations.
+     */
+    private boolean cascadesCreate(IndexEntity entity, CompassGpsInterfaceDevice compassGps) {
+        InternalCompass compass = (InternalCompass) compassGps.getIndexCompass();
+        if (compass.getSettings().getSettingAsBoolean(CompassEnvironment.Cascade.DISABLE, false)) {
+            return false;
+        }
+        ResourceMapping resourceMapping = compassGps.getMappingForEntityForIndex(entity.getName());
+        if (resourceMapping == null) {
+            return false;
+        }
+        if (cascadesCreate(resourceMapping)) {
+            return true;
+        }
+        if (resourceMapping instanceof ClassMapping) {
+            Class clazz = ((ClassMapping) resourceMapping).getClazz();
+            for (ResourceMapping rootMapping : compass.getMapping().getRootMappings()) {
+                if (rootMapping instanceof ClassMapping && clazz.isAssignableFrom(((ClassMapping) rootMapping).getClazz())
+                        && cascadesCreate(rootMapping)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean cascadesCreate(ResourceMapping resourceMapping) {
+        CascadeMapping[] cascadeMappings = resourceMapping.getCascadeMappings();
+        if (cascadeMappings == null) {
+            return false;
+        }
+        for (CascadeMapping cascadeMapping : cascadeMappings) {
+            if (cascadeMapping.shouldCascade(Cascade.CREATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A single run of the pipeline.
+     */
+    private class Pipeline implements IndexPipelineSink {
+
+        private final CompassGpsInterfaceDevice compassGps;
+
+        private final int fetchThreads;
+
+        private final BlockingQueue<Object> batches;
+
+        private final Map<String, Writer> writers = new HashMap<String, Writer>();
+
+        private final List<Future<Object>> writerFutures = new ArrayList<Future<Object>>();
+
+        private ExecutorService writerExecutorService;
+
+        private volatile Throwable failure;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final AtomicLong fetchedBatches = new AtomicLong();
+
+        private final AtomicLong fetchedObjects = new AtomicLong();
+
+        private final AtomicLong marshalledObjects = new AtomicLong();
+
+        private final AtomicLong writtenObjects = new AtomicLong();
+
+        private Pipeline(CompassGpsInterfaceDevice compassGps, int fetchThreads, int batchesQueueSize) {
+            this.compassGps = compassGps;
+            this.fetchThreads = fetchThreads;
+            this.batches = new ArrayBlockingQueue<Object>(batchesQueueSize);
+        }
+
+        public void run(List<IndexPipelineFetcher> fetchers) throws CompassGpsException {
+            ExecutorService fetchExecutorService = Executors.newFixedThreadPool(fetchThreads,
+                    new NamedThreadFactory("Compass Gps Index Fetch", false));
+            ExecutorService marshallExecutorService = Executors.newFixedThreadPool(marshallThreads,
+                    new NamedThreadFactory("Compass Gps Index Marshall", false));
+            writerExecutorService = Executors.newCachedThreadPool(new NamedThreadFactory("Compass Gps Index Writer", false));
+            try {
+                List<Future<Object>> fetchFutures = new ArrayList<Future<Object>>();
+                for (final IndexPipelineFetcher fetcher : fetchers) {
+                    fetchFutures.add(fetchExecutorService.submit(new Callable<Object>() {
+                        public Object call() throws Exception {
+                            fetcher.fetch(Pipeline.this);
+                            return null;
+                        }
+                    }));
+                }
+                List<Future<Object>> marshallFutures = new ArrayList<Future<Object>>();
+                for (int i = 0; i < marshallThreads; i++) {
+                    marshallFutures.add(marshallExecutorService.submit(new Marshaller()));
+                }
+                waitFor(fetchFutures);
+                // the marshallers drain the queue until they get the end marker, even when aborted
+                for (int i = 0; i < marshallThreads; i++) {
+                    putUninterruptibly(batches, END);
+                }
+                waitFor(marshallFutures);
+                List<Writer> writers;
+                synchronized (this.writers) {
+                    writers = new ArrayList<Writer>(this.writers.values());
+                }
+                for (Writer writer : writers) {
+                    putUninterruptibly(writer.queue, END);
+                }
+                waitFor(writerFutures);
+            } finally {
+                fetchExecutorService.shutdownNow();
+                marshallExecutorService.shutdownNow();
+                writerExecutorService.shutdownNow();
+            }
+            IndexPipelineProgress progress = reportProgress(true);
+            if (failure != null) {
+                throw new CompassGpsException("Failed to index, pipeline failure", failure);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Finished index pipeline, " + progress);
+            }
+        }
+
+        public boolean put(IndexPipelineBatch batch) throws InterruptedException {
+            if (failure != null) {
+                closeOnError(batch);
+                return false;
+            }
+            int size = batch.getValues().size();
+            batches.put(batch);
+            fetchedBatches.incrementAndGet();
+            fetchedObjects.addAndGet(size);
+            return true;
+        }
+
+        private void abort(Throwable t) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+            log.error("Failed to index, aborting index pipeline", t);
+        }
+
+        private void waitFor(List<Future<Object>> futures) {
+            for (Future<Object> future : futures) {
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        abort(e.getCause());
+                        break;
+                    }
+                }
+                if (interrupted) {
+                    abort(new InterruptedException("Interrupted while waiting for the index pipeline"));
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void putUninterruptibly(BlockingQueue<Object> queue, Object value) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    queue.put(value);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Writer getWriter(String subIndex) {
+            synchronized (writers) {
+                Writer writer = writers.get(subIndex);
+                if (writer == null) {
+                    writer = new Writer(subIndex);
+                    writers.put(subIndex, writer);
+                    writerFutures.add(writerExecutorService.submit(writer));
+                }
+                return writer;
+            }
+        }
+
+        private IndexPipelineProgress reportProgress(boolean finished) {
+            IndexPipelineProgress progress = new IndexPipelineProgress(fetchedBatches.get(), fetchedObjects.get(),
+                    marshalledObjects.get(), writtenObjects.get(), batches.size(), System.currentTimeMillis() - startTime, finished);
+            if (progressListener != null) {
+                try {
+                    progressListener.onProgress(progress);
+                } catch (Exception e) {
+                    log.warn("Progress listener failed, ignoring", e);
+                }
+            }
+            return progress;
+        }
+
+        private void closeOnError(IndexPipelineBatch batch) {
+            try {
+                batch.closeOnError();
+            } catch (Exception e) {
+                log.warn("Failed to close batch on error, ignoring", e);
+            }
+        }
+
+        /**
+         * Marshalls the objects of fetched batches into resources, grouping them by sub index.
+         */
+        private class Marshaller implements Callable<Object> {
+
+            public Object call() throws Exception {
+                InternalCompassSession session = null;
+                try {
+                    session = (InternalCompassSession) compassGps.getIndexCompass().openSession();
+                } catch (Throwable t) {
+                    abort(t);
+                }
+                try {
+                    // keep draining the queue when aborted, so the fetchers never block on it
+                    while (true) {
+                        Object item = batches.take();
+                        if (item == END) {
+                            break;
+                        }
+                        IndexPipelineBatch batch = (IndexPipelineBatch) item;
+                        if (failure != null || session == null) {
+                            closeOnError(batch);
+                            continue;
+                        }
+                        Map<String, List<MarshalledObject>> valuesBySubIndex;
+                        try {
+                            valuesBySubIndex = marshall(session, batch.getValues());
+                            batch.close();
+                        } catch (Throwable t) {
+                            abort(t);
+                            closeOnError(batch);
+                            continue;
+                        }
+                        for (Map.Entry<String, List<MarshalledObject>> entry : valuesBySubIndex.entrySet()) {
+                            putUninterruptibly(getWriter(entry.getKey()).queue, entry.getValue());
+                        }
+                        reportProgress(false);
+                    }
+                } finally {
+                    if (session != null) {
+                        session.close();
+                    }
+                }
+                return null;
+            }
+
+            private Map<String, List<MarshalledObject>> marshall(InternalCompassSession session, List values) {
+                InternalCompass compass = session.getCompass();
+                boolean cascadingDisabled = compass.getSettings().getSettingAsBoolean(CompassEnvironment.Cascade.DISABLE, false);
+                Map<String, List<MarshalledObject>> valuesBySubIndex = new HashMap<String, List<MarshalledObject>>();
+                for (Object value : values) {
+                    if (compass.getEventManager().onPreCreate(null, value) == FilterOperation.YES) {
+                        continue;
+                    }
+                    Resource resource = session.getMarshallingStrategy().marshall(value);
+                    // entities that cascade are not pipelined, this can only be an unexpected (sub) class
+                    if (resource == null || (!cascadingDisabled
+                            && cascadesCreate(session.getMapping().getRootMappingByAlias(resource.getAlias())))) {
+                        throw new CompassGpsException("Object [" + value.getClass().getName() + "] has no root mapping or "
+                                + "cascades create operations, and can not be indexed by the index pipeline");
+                    }
+                    String subIndex = ((InternalResource) resource).getSubIndex();
+                    List<MarshalledObject> subIndexValues = valuesBySubIndex.get(subIndex);
+                    if (subIndexValues == null) {
+                        subIndexValues = new ArrayList<MarshalledObject>();
+                        valuesBySubIndex.put(subIndex, subIndexValues);
+                    }
+                    subIndexValues.add(new MarshalledObject(value, resource));
+                    marshalledObjects.incrementAndGet();
+                }
+                return valuesBySubIndex;
+            }
+        }
+
+        /**
+         * Writes the resources of a single sub index using its own index session.
+         */
+        private class Writer implements Callable<Object> {
+
+            private final String subIndex;
+
+            private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueSize);
+
+            private boolean ended;
+
+            private Writer(String subIndex) {
+                this.subIndex = subIndex;
+            }
+
+            public Object call() throws Exception {
+                try {
+                    write();
+                } catch (Throwable t) {
+                    if (failure == null) {
+                        abort(t);
+                    }
+                    // failed before reaching the end marker, keep draining the queue
+                    while (!ended) {
+                        if (queue.take() == END) {
+                            ended = true;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            private void write() {
+                compassGps.executeForIndex(new CompassCallbackWithoutResult() {
+                    protected void doInCompassWithoutResult(CompassSession session) throws CompassException {
+                        InternalCompassSession internalSession = (InternalCompassSession) session;
+                        CompassEventManager eventManager = internalSession.getCompass().getEventManager();
+                        // keep draining the queue when aborted, so the marshallers never block on it
+                        while (true) {
+                            Object item;
+                            try {
+                                item = queue.take();
+                            } catch (InterruptedException e) {
+                                abort(e);
+                                ended = true;
+                                break;
+                            }
+                            if (item == END) {
+                                ended = true;
+                                break;
+                            }
+                            if (failure != null) {
+                                continue;
+                            }
+                            List values = (List) item;
+                            try {
+                                // object level create filters were already applied by the marshallers
+                                for (Object value : values) {
+                                    MarshalledObject marshalled = (MarshalledObject) value;
+                                    if (eventManager.onPreCreate(marshalled.resource) == FilterOperation.YES) {
+                                        continue;
+                                    }
+                                    internalSession.getSearchEngine().create(marshalled.resource);
+                                    eventManager.onPostCreate(marshalled.resource);
+                                    eventManager.onPostCreate(marshalled.resource.getAlias(), marshalled.object);
+                                }
+                                session.evictAll();
+                                writtenObjects.addAndGet(values.size());
+                            } catch (Throwable t) {
+                                abort(t);
+                            }
+                        }
+                        if (failure != null) {
+                            throw new CompassGpsException("Index pipeline aborted, rolling back sub index [" + subIndex + "]");
+                        }
+                        session.flush();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * An object and the resource it was marshalled into.
+     */
+    private static class MarshalledObject {
+
+        private final Object object;
+
+        private final Resource resource;
+
+        private MarshalledObject(Object object, Resource resource) {
+            this.object = object;
+            this.resource = resource;
+        }
+    }
+}
@@ -38,6 +38,10 @@ public abstract class AbstractCoherenceDirectoryStore extends AbstractDirectoryS
 
     public static final String FLUSH_RATE_PROP = "compass.engine.store.coherence.flushRate";
 
+    public static final String READ_AHEAD_BUCKETS_PROP = "compass.engine.store.coherence.readAheadBuckets";
+
+    public static final String BUCKET_CACHE_SIZE_PROP = "compass.engine.store.coherence.bucketCacheSize";
+
     private String indexName;
 
     private NamedCache cache;
@@ -46,6 +50,10 @@ public abstract class AbstractCoherenceDirectoryStore extends AbstractDirectoryS
 
     private int flushRate;
 
+    private int readAheadBuckets;
+
+    private int bucketCacheSize;
+
     public void configure(CompassSettings settings) throws CompassException {
         String connection = findConnection(settings.getSetting(CompassEnvironment.CONNECTION));
         int index = connection.indexOf(':');
@@ -57,6 +65,8 @@ public abstract class AbstractCoherenceDirectoryStore extends AbstractDirectoryS
 
         bucketSize = (int) settings.getSettingAsBytes(BUCKET_SIZE_PROP, DataGridCoherenceDirectory.DEFAULT_BUCKET_SIZE);
         flushRate = settings.getSettingAsInt(FLUSH_RATE_PROP, DataGridCoherenceDirectory.DEFAULT_FLUSH_RATE);
+        readAheadBuckets = settings.getSettingAsInt(READ_AHEAD_BUCKETS_PROP, DataGridCoherenceDirectory.DEFAULT_READ_AHEAD_BUCKETS);
+        bucketCacheSize = settings.getSettingAsInt(BUCKET_CACHE_SIZE_PROP, DataGridCoherenceDirectory.DEFAULT_BUCKET_CACHE_SIZE);
         cache = CacheFactory.getCache(cacheName);
     }
 
@@ -78,6 +88,15 @@ public abstract class AbstractCoherenceDirectoryStore extends AbstractDirectoryS
         return this.flushRate;
     }
 
+    /**
+     * Applies the read ahead and bucket cache settings to a newly opened directory.
+     */
+    protected Directory configureDirectory(DataGridCoherenceDirectory dir) {
+        dir.setReadAheadBuckets(readAheadBuckets);
+        dir.setBucketCacheSize(bucketCacheSize);
+        return dir;
+    }
+
     public void deleteIndex(Directory dir, String subContext, String subIndex) throws SearchEngineException {
         cleanIndex(dir, subContext, subIndex);
     }
@@ -25,5 +25,17 @@ public abstract class CoherenceDirectory extends Directory {
     abstract public int getFlushRate();
 
     abstract public Map<String, IndexOutput> getOnGoingIndexOutputs();
+
+    /**
+     * The maximum number of buckets fetched at once (using a single <code>getAll</code>) when
+     * an index input is detected to read a file sequentially.
+     */
+    abstract public int getReadAheadBuckets();
+
+    /**
+     * The local bucket cache shared by all index inputs of this directory. <code>null</code>
+     * if buckets are not cached.
+     */
+    abstract public FileBucketCache getBucketCache();
 }
 
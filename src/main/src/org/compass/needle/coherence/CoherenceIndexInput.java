@@ -17,10 +17,18 @@
 package org.compass.needle.coherence;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
 
 import org.apache.lucene.store.IndexInput;
 
 /**
+ * Reads a file stored in Coherence bucket by bucket. Detects sequential reads (moving from
+ * one bucket to the next one), in which case it fetches the next
+ * {@link CoherenceDirectory#getReadAheadBuckets()} buckets using a single <code>getAll</code>.
+ * Random access fetches a single bucket. Fetched buckets are also placed in the directory
+ * shared {@link FileBucketCache} (if enabled).
+ *
  * @author kimchy
  */
 class CoherenceIndexInput extends IndexInput {
@@ -39,6 +47,11 @@ class CoherenceIndexInput extends IndexInput {
 
     private int currentBucketPosition;
 
+    // buckets fetched ahead when reading sequentially, starting from readAheadFromBucket
+    private FileBucketValue[] readAheadBuckets;
+
+    private long readAheadFromBucket;
+
     public CoherenceIndexInput(CoherenceDirectory dir, FileHeaderKey fileHeaderKey, FileHeaderValue fileHeaderValue) {
         this.dir = dir;
         this.fileHeaderKey = fileHeaderKey;
@@ -131,12 +144,38 @@ class CoherenceIndexInput extends IndexInput {
         if (bucketIndex == fileBucketKey.getBucketIndex()) {
             return;
         }
+        boolean sequential = bucketIndex == fileBucketKey.getBucketIndex() + 1;
         fileBucketKey = new FileBucketKey(fileHeaderKey.getIndexName(), fileHeaderKey.getFileName(), bucketIndex);
-        try {
-            fileBucketValue = (FileBucketValue) dir.getCache().get(fileBucketKey);
-        } catch (Exception e) {
-            throw new CoherenceDirectoryException(fileBucketKey.getIndexName(), fileBucketKey.getFileName(),
-                    "Failed to read bucket [" + bucketIndex + "]", e);
+        // check if it was already read ahead by us
+        fileBucketValue = null;
+        if (readAheadBuckets != null) {
+            long readAheadIndex = bucketIndex - readAheadFromBucket;
+            if (readAheadIndex >= 0 && readAheadIndex < readAheadBuckets.length) {
+                fileBucketValue = readAheadBuckets[(int) readAheadIndex];
+            }
+        }
+        FileBucketCache bucketCache = dir.getBucketCache();
+        if (fileBucketValue == null && bucketCache != null) {
+            fileBucketValue = bucketCache.get(fileHeaderValue, fileBucketKey);
+        }
+        if (fileBucketValue == null) {
+            // when reading sequentially, fetch the next buckets as well using a single round trip
+            long lastBucketIndex = (fileHeaderValue.getSize() - 1) / dir.getBucketSize();
+            int readAhead = sequential ? (int) Math.min(dir.getReadAheadBuckets(), lastBucketIndex - bucketIndex + 1) : 1;
+            try {
+                if (readAhead <= 1) {
+                    fileBucketValue = (FileBucketValue) dir.getCache().get(fileBucketKey);
+                    if (fileBucketValue != null && bucketCache != null) {
+                        bucketCache.put(fileHeaderValue, fileBucketKey, fileBucketValue);
+                    }
+                } else {
+                    fetchBuckets(bucketIndex, readAhead, bucketCache);
+                    fileBucketValue = readAheadBuckets[0];
+                }
+            } catch (Exception e) {
+                throw new CoherenceDirectoryException(fileBucketKey.getIndexName(), fileBucketKey.getFileName(),
+                        "Failed to read bucket [" + bucketIndex + "]", e);
+            }
         }
         if (fileBucketValue == null) {
             throw new CoherenceDirectoryException(fileBucketKey.getIndexName(), fileBucketKey.getFileName(), "Bucket [" + bucketIndex
@@ -144,6 +183,24 @@ class CoherenceIndexInput extends IndexInput {
         }
     }
 
+    private void fetchBuckets(long fromBucketIndex, int count, FileBucketCache bucketCache) {
+        ArrayList<FileBucketKey> keys = new ArrayList<FileBucketKey>(count);
+        keys.add(fileBucketKey);
+        for (int i = 1; i < count; i++) {
+            keys.add(new FileBucketKey(fileHeaderKey.getIndexName(), fileHeaderKey.getFileName(), fromBucketIndex + i));
+        }
+        Map values = dir.getCache().getAll(keys);
+        FileBucketValue[] buckets = new FileBucketValue[count];
+        for (int i = 0; i < count; i++) {
+            buckets[i] = (FileBucketValue) values.get(keys.get(i));
+            if (buckets[i] != null && bucketCache != null) {
+                bucketCache.put(fileHeaderValue, keys.get(i), buckets[i]);
+            }
+        }
+        readAheadFromBucket = fromBucketIndex;
+        readAheadBuckets = buckets;
+    }
+
     public Object clone() {
         CoherenceIndexInput indexInput = (CoherenceIndexInput) super.clone();
         indexInput.fileBucketKey = new FileBucketKey(fileHeaderKey.getIndexName(), fileHeaderKey.getFileName(), -1);
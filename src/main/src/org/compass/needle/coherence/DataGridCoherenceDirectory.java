@@ -54,6 +54,10 @@ public class DataGridCoherenceDirectory extends CoherenceDirectory {
 
     public static final int DEFAULT_FLUSH_RATE = 50;
 
+    public static final int DEFAULT_READ_AHEAD_BUCKETS = 10;
+
+    public static final int DEFAULT_BUCKET_CACHE_SIZE = 100;
+
     private String indexName;
 
     private NamedCache cache;
@@ -62,6 +66,10 @@ public class DataGridCoherenceDirectory extends CoherenceDirectory {
 
     private int flushRate = DEFAULT_FLUSH_RATE;
 
+    private int readAheadBuckets = DEFAULT_READ_AHEAD_BUCKETS;
+
+    private FileBucketCache bucketCache = new FileBucketCache(DEFAULT_BUCKET_CACHE_SIZE);
+
     private boolean closeCache = false;
 
     private ValueExtractor indexNameKeyExtractor = new KeyExtractor("getIndexName");
@@ -141,6 +149,31 @@ public class DataGridCoherenceDirectory extends CoherenceDirectory {
         return onGoingIndexOutputs;
     }
 
+    public int getReadAheadBuckets() {
+        return readAheadBuckets;
+    }
+
+    /**
+     * Sets the maximum number of buckets fetched at once when reading a file sequentially.
+     * Set to <code>1</code> to disable read ahead. Defaults to {@link #DEFAULT_READ_AHEAD_BUCKETS}.
+     */
+    public void setReadAheadBuckets(int readAheadBuckets) {
+        this.readAheadBuckets = readAheadBuckets;
+    }
+
+    public FileBucketCache getBucketCache() {
+        return bucketCache;
+    }
+
+    /**
+     * Sets the number of buckets locally cached by this directory (shared by all its index
+     * inputs). Set to <code>0</code> to disable local caching of buckets. Defaults to
+     * {@link #DEFAULT_BUCKET_CACHE_SIZE}.
+     */
+    public void setBucketCacheSize(int bucketCacheSize) {
+        this.bucketCache = bucketCacheSize > 0 ? new FileBucketCache(bucketCacheSize) : null;
+    }
+
     public ValueExtractor getIndexNameKeyExtractor() {
         return indexNameKeyExtractor;
     }
@@ -221,6 +254,9 @@ public class DataGridCoherenceDirectory extends CoherenceDirectory {
     }
 
     public void deleteContent() {
+        if (bucketCache != null) {
+            bucketCache.clear();
+        }
         Set keys = getCache().keySet(indexNameEqualsFilter);
         for (Iterator it = keys.iterator(); it.hasNext();) {
             // a bit crappy, we need to remove each one and it returns the old content
@@ -15,6 +15,6 @@ public class DataGridCoherenceDirectoryStore extends AbstractCoherenceDirectoryS
     }
 
     public Directory open(String subContext, String subIndex) throws SearchEngineException {
-        return new DataGridCoherenceDirectory(getCache(), getIndexName() + "/" + subContext + "/" + subIndex, getBucketSize(), getFlushRate());
+        return configureDirectory(new DataGridCoherenceDirectory(getCache(), getIndexName() + "/" + subContext + "/" + subIndex, getBucketSize(), getFlushRate()));
     }
 }
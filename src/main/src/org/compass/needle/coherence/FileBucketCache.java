@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.needle.coherence;
+
+import org.apache.lucene.index.LuceneFileNames;
+import org.compass.core.util.concurrent.ConcurrentLinkedHashMap;
+
+/**
+ * A small, bounded, local cache of file buckets shared by all the index inputs of a
+ * {@link org.compass.needle.coherence.CoherenceDirectory}. Buckets are cached by the
+ * {@link FileHeaderValue#getGeneration() generation} of the file they belong to, so once a file
+ * is deleted or re-created (by this or any other node) its cached buckets are simply never looked
+ * up again, and are evicted as the cache fills up. Static files are never cached.
+ *
+ * @author kimchy
+ */
+public class FileBucketCache {
+
+    private final ConcurrentLinkedHashMap<CacheKey, FileBucketValue> buckets;
+
+    /**
+     * Creates a new bucket cache holding up to the given number of buckets.
+     */
+    public FileBucketCache(int maxBuckets) {
+        this.buckets = new ConcurrentLinkedHashMap<CacheKey, FileBucketValue>(ConcurrentLinkedHashMap.EvictionPolicy.SECOND_CHANCE, maxBuckets);
+    }
+
+    /**
+     * Returns the cached bucket of the given version of the file, <code>null</code> if not cached.
+     */
+    public FileBucketValue get(FileHeaderValue fileHeaderValue, FileBucketKey key) {
+        return buckets.get(new CacheKey(key, fileHeaderValue.getGeneration()));
+    }
+
+    public void put(FileHeaderValue fileHeaderValue, FileBucketKey key, FileBucketValue value) {
+        if (LuceneFileNames.isStaticFile(key.getFileName())) {
+            return;
+        }
+        buckets.put(new CacheKey(key, fileHeaderValue.getGeneration()), value);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    private static final class CacheKey {
+
+        private final FileBucketKey key;
+
+        private final long generation;
+
+        private CacheKey(FileBucketKey key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return generation == other.generation && key.equals(other.key);
+        }
+
+        public int hashCode() {
+            return 31 * key.hashCode() + (int) (generation ^ (generation >>> 32));
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.compass.needle.coherence;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Random;
 
 import com.tangosol.io.ExternalizableLite;
 
@@ -29,10 +30,18 @@ import com.tangosol.io.ExternalizableLite;
  */
 public class FileHeaderValue implements ExternalizableLite {
 
+    private static final Random generations = new Random();
+
+    // written first in the externalized form. Headers written before the generation was added
+    // start with the (never negative) size, and are read with a 0 generation
+    private static final long VERSION_MARKER = -1;
+
     private long lastModified;
 
     private long size;
 
+    private long generation;
+
     // just here for serialization
     public FileHeaderValue() {
     }
@@ -40,6 +49,7 @@ public class FileHeaderValue implements ExternalizableLite {
     public FileHeaderValue(long lastModified, long size) {
         this.lastModified = lastModified;
         this.size = size;
+        this.generation = generations.nextLong();
     }
 
     public long getLastModified() {
@@ -50,6 +60,15 @@ public class FileHeaderValue implements ExternalizableLite {
         return this.size;
     }
 
+    /**
+     * Returns a random value identifying this version of the file content. A file re-created
+     * with the same name gets a new generation, so buckets cached using it are never served
+     * for the new content (on any node).
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
     public void touch() {
         // we are using currentTime here, which should be sync between nodes (though some
         // minor difference won't matter that much with Lucene).
@@ -57,12 +76,25 @@ public class FileHeaderValue implements ExternalizableLite {
     }
 
     public void readExternal(DataInput in) throws IOException {
+        long first = in.readLong();
+        if (first >= 0) {
+            size = first;
+            lastModified = in.readLong();
+            generation = 0;
+            return;
+        }
+        if (first != VERSION_MARKER) {
+            throw new IOException("Unknown file header version [" + first + "]");
+        }
         size = in.readLong();
         lastModified = in.readLong();
+        generation = in.readLong();
     }
 
     public void writeExternal(DataOutput out) throws IOException {
+        out.writeLong(VERSION_MARKER);
         out.writeLong(size);
         out.writeLong(lastModified);
+        out.writeLong(generation);
     }
 }
\ No newline at end of file
@@ -52,6 +52,9 @@ public class InvocableCoherenceDirectory extends DataGridCoherenceDirectory {
     }
 
     public void deleteContent() {
+        if (getBucketCache() != null) {
+            getBucketCache().clear();
+        }
         getCache().invokeAll(getIndexNameEqualsFilter(), new ConditionalRemove(AlwaysFilter.INSTANCE, false));
     }
 }
@@ -270,10 +270,13 @@ public class TerracottaTransactionProcessorFactory implements TransactionProcess
                                 return false;
                             }
                             try {
+                                // coalesce jobs of the same resource from different transactions
+                                TransactionJobs mergedJobs = new TransactionJobs();
                                 for (TransactionJobs xJobs : jobsList) {
-                                    for (TransactionJob job : xJobs.getJobs()) {
-                                        job.execute(writer, searchEngineFactory);
-                                    }
+                                    mergedJobs.addAll(xJobs);
+                                }
+                                for (TransactionJob job : mergedJobs.getJobs()) {
+                                    job.execute(writer, searchEngineFactory);
                                 }
                                 writer.commit();
                             } catch (Exception e) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.lucene.index;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.store.RAMDirectory;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.executor.DefaultExecutorManager;
+import org.compass.core.lucene.engine.manager.SearchLoad;
+import org.compass.core.transaction.TransactionException;
+import org.compass.core.transaction.context.TransactionContext;
+import org.compass.core.transaction.context.TransactionContextCallback;
+import org.compass.core.transaction.context.TransactionContextCallbackWithTr;
+
+/**
+ * @author kimchy
+ */
+public class AdaptiveMergeSchedulerTests extends TestCase {
+
+    private SearchLoad searchLoad;
+
+    private AdaptiveMergeScheduler mergeScheduler;
+
+    protected void setUp() throws Exception {
+        searchLoad = new SearchLoad();
+        mergeScheduler = new AdaptiveMergeScheduler(null, null, searchLoad);
+        // run all merges on the calling thread
+        mergeScheduler.setMaxConcurrentMerges(0);
+        mergeScheduler.setLargeMergeSize(1);
+    }
+
+    public void testLargeMergeHours() {
+        assertTrue(mergeScheduler.isLargeMergeAllowed(12));
+        mergeScheduler.setLargeMergeHours(2, 6);
+        assertTrue(mergeScheduler.isLargeMergeAllowed(2));
+        assertTrue(mergeScheduler.isLargeMergeAllowed(5));
+        assertFalse(mergeScheduler.isLargeMergeAllowed(6));
+        assertFalse(mergeScheduler.isLargeMergeAllowed(1));
+        mergeScheduler.setLargeMergeHours(22, 6);
+        assertTrue(mergeScheduler.isLargeMergeAllowed(23));
+        assertTrue(mergeScheduler.isLargeMergeAllowed(0));
+        assertFalse(mergeScheduler.isLargeMergeAllowed(6));
+        assertFalse(mergeScheduler.isLargeMergeAllowed(12));
+    }
+
+    public void testSearchSaturation() {
+        mergeScheduler.setMaxSearchConcurrency(2);
+        mergeScheduler.setMaxConcurrentMerges(3);
+        assertFalse(mergeScheduler.isSearchSaturated());
+        assertEquals(3, mergeScheduler.getCurrentMaxConcurrentMerges());
+        searchLoad.searchStarted();
+        searchLoad.searchStarted();
+        assertEquals(2, searchLoad.getActiveSearches());
+        assertTrue(mergeScheduler.isSearchSaturated());
+        assertEquals(1, mergeScheduler.getCurrentMaxConcurrentMerges());
+        searchLoad.searchEnded();
+        assertFalse(mergeScheduler.isSearchSaturated());
+    }
+
+    public void testLargeMergesDeferredOutsideOfAllowedHours() throws Exception {
+        int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+        mergeScheduler.setLargeMergeHours((hour + 1) % 24, (hour + 2) % 24);
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = createWriter(dir);
+        addDocs(writer, 20);
+        writer.close();
+        assertEquals(10, countSegments(dir));
+
+        // explicit optimize is never deferred
+        writer = createWriter(dir);
+        writer.optimize();
+        writer.close();
+        assertEquals(1, countSegments(dir));
+    }
+
+    public void testLargeMergesWithinAllowedHours() throws Exception {
+        int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+        mergeScheduler.setLargeMergeHours(hour, (hour + 1) % 24);
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = createWriter(dir);
+        addDocs(writer, 20);
+        writer.close();
+        assertTrue(countSegments(dir) < 10);
+    }
+
+    public void testForegroundMergesNotPausedWhenSearchIsSaturated() throws Exception {
+        mergeScheduler.setMaxSearchConcurrency(1);
+        mergeScheduler.setMaxPauseTime(60000);
+        searchLoad.searchStarted();
+        assertTrue(mergeScheduler.isSearchSaturated());
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = createWriter(dir);
+        long start = System.currentTimeMillis();
+        addDocs(writer, 20);
+        writer.close();
+        assertTrue(System.currentTimeMillis() - start < 30000);
+        assertTrue(countSegments(dir) < 10);
+        searchLoad.searchEnded();
+    }
+
+    public void testNoForegroundMergesWhenSearchIsSaturated() throws Exception {
+        DefaultExecutorManager executorManager = new DefaultExecutorManager();
+        executorManager.configure(new CompassSettings());
+        final AtomicInteger foregroundMerges = new AtomicInteger();
+        mergeScheduler = new AdaptiveMergeScheduler(executorManager, new NoTransactionContext(), searchLoad) {
+            protected void doForegroundMerge(IndexWriter writer, MergePolicy.OneMerge merge) throws IOException {
+                foregroundMerges.incrementAndGet();
+                super.doForegroundMerge(writer, merge);
+            }
+        };
+        mergeScheduler.setMaxConcurrentMerges(3);
+        mergeScheduler.setLargeMergeSize(0);
+        mergeScheduler.setMaxSearchConcurrency(1);
+        searchLoad.searchStarted();
+        try {
+            RAMDirectory dir = new RAMDirectory();
+            IndexWriter writer = createWriter(dir);
+            addDocs(writer, 200);
+            writer.close();
+            assertEquals(0, foregroundMerges.get());
+            assertTrue(countSegments(dir) < 100);
+        } finally {
+            searchLoad.searchEnded();
+            executorManager.close();
+        }
+    }
+
+    private IndexWriter createWriter(RAMDirectory dir) throws Exception {
+        IndexWriter writer = new IndexWriter(dir, new SimpleAnalyzer(), IndexWriter.MaxFieldLength.UNLIMITED);
+        writer.setMergeScheduler(mergeScheduler);
+        writer.setMaxBufferedDocs(2);
+        writer.setMergeFactor(2);
+        return writer;
+    }
+
+    private void addDocs(IndexWriter writer, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Document doc = new Document();
+            doc.add(new Field("value", "test" + i, Field.Store.YES, Field.Index.NOT_ANALYZED));
+            writer.addDocument(doc);
+        }
+    }
+
+    private int countSegments(RAMDirectory dir) throws Exception {
+        SegmentInfos infos = new SegmentInfos();
+        infos.read(dir);
+        return infos.size();
+    }
+
+    private static class NoTransactionContext implements TransactionContext {
+
+        public <T> T execute(TransactionContextCallback<T> callback) throws TransactionException {
+            return callback.doInTransaction();
+        }
+
+        public <T> T execute(TransactionContextCallbackWithTr<T> callback) throws TransactionException {
+            return callback.doInTransaction(null);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.store.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.jdbc.datasource.DataSourceUtils;
+import org.apache.lucene.store.jdbc.handler.ActualDeleteFileEntryHandler;
+import org.apache.lucene.store.jdbc.support.JdbcTable;
+
+/**
+ * Tests prepared statements caching and batch inserts of the jdbc directory.
+ *
+ * @author kimchy
+ */
+public class JdbcDirectoryBatchTests extends AbstractJdbcDirectoryTests {
+
+    private JdbcDirectory jdbcDirectory;
+
+    private JdbcDirectory otherJdbcDirectory;
+
+    private Connection con;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        JdbcDirectorySettings settings = new JdbcDirectorySettings();
+        settings.getDefaultFileEntrySettings().setClassSetting(
+                JdbcFileEntrySettings.FILE_ENTRY_HANDLER_TYPE, ActualDeleteFileEntryHandler.class);
+        settings.setBatchInserts(true);
+        jdbcDirectory = new JdbcDirectory(dataSource, new JdbcTable(settings, createDialect(), "TEST"));
+
+        JdbcDirectorySettings otherSettings = new JdbcDirectorySettings();
+        otherSettings.setCacheStatements(false);
+        otherJdbcDirectory = new JdbcDirectory(dataSource, new JdbcTable(otherSettings, createDialect(), "TEST"));
+
+        con = DataSourceUtils.getConnection(dataSource);
+        jdbcDirectory.create();
+    }
+
+    protected void tearDown() throws Exception {
+        DataSourceUtils.rollbackConnectionIfPossible(con);
+        DataSourceUtils.releaseConnection(con);
+        jdbcDirectory.close();
+        otherJdbcDirectory.close();
+        super.tearDown();
+    }
+
+    public void testStatementsReusedWithinConnection() throws Exception {
+        writeFile(otherJdbcDirectory, "_1.cfs", "TEST1");
+        long preparedBefore = jdbcDirectory.getJdbcTemplate().getPreparedStatementsCount();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(jdbcDirectory.fileExists("_1.cfs"));
+        }
+        assertEquals(preparedBefore + 1, jdbcDirectory.getJdbcTemplate().getPreparedStatementsCount());
+        assertEquals(9, jdbcDirectory.getJdbcTemplate().getReusedStatementsCount());
+
+        // caching disabled
+        preparedBefore = otherJdbcDirectory.getJdbcTemplate().getPreparedStatementsCount();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(otherJdbcDirectory.fileExists("_1.cfs"));
+        }
+        assertEquals(preparedBefore + 10, otherJdbcDirectory.getJdbcTemplate().getPreparedStatementsCount());
+        assertEquals(0, otherJdbcDirectory.getJdbcTemplate().getReusedStatementsCount());
+    }
+
+    public void testPendingFilesInsertedInBatch() throws Exception {
+        writeFile(jdbcDirectory, "_1.fdt", "TEST1");
+        writeFile(jdbcDirectory, "_1.fdx", "TEST2");
+        writeFile(jdbcDirectory, "_1.fnm", "TEST3");
+        assertEquals(3, jdbcDirectory.getPendingOutputsCount());
+        assertFalse(otherJdbcDirectory.fileExists("_1.fdt"));
+
+        long preparedBefore = jdbcDirectory.getJdbcTemplate().getPreparedStatementsCount();
+        assertTrue(jdbcDirectory.fileExists("_1.fdt"));
+        assertEquals(0, jdbcDirectory.getPendingOutputsCount());
+        // a single insert statement for all the files, and the exists query
+        assertEquals(preparedBefore + 2, jdbcDirectory.getJdbcTemplate().getPreparedStatementsCount());
+
+        assertTrue(otherJdbcDirectory.fileExists("_1.fdx"));
+        assertTrue(otherJdbcDirectory.fileExists("_1.fnm"));
+        assertEquals("TEST2", readFile(jdbcDirectory, "_1.fdx"));
+    }
+
+    public void testSegmentsFileFlushesPendingFiles() throws Exception {
+        writeFile(jdbcDirectory, "_1.cfs", "TEST1");
+        assertEquals(1, jdbcDirectory.getPendingOutputsCount());
+        writeFile(jdbcDirectory, "segments_1", "TEST2");
+        assertEquals(0, jdbcDirectory.getPendingOutputsCount());
+        assertTrue(otherJdbcDirectory.fileExists("_1.cfs"));
+        assertTrue(otherJdbcDirectory.fileExists("segments_1"));
+    }
+
+    public void testSyncFlushesFilesWrittenByOtherThreads() throws Exception {
+        final IOException[] failure = new IOException[1];
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    writeFile(jdbcDirectory, "_1.cfs", "TEST1");
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNull(failure[0]);
+        assertEquals(1, jdbcDirectory.getPendingOutputsCount());
+        jdbcDirectory.sync("segments_1");
+        assertEquals(0, jdbcDirectory.getPendingOutputsCount());
+        assertTrue(otherJdbcDirectory.fileExists("_1.cfs"));
+    }
+
+    public void testDeletePendingFile() throws Exception {
+        writeFile(jdbcDirectory, "_1.cfs", "TEST1");
+        writeFile(jdbcDirectory, "_2.cfs", "TEST2");
+        jdbcDirectory.deleteFile("_1.cfs");
+        assertEquals(1, jdbcDirectory.getPendingOutputsCount());
+        jdbcDirectory.flushPendingOutputs();
+        assertFalse(otherJdbcDirectory.fileExists("_1.cfs"));
+        assertTrue(otherJdbcDirectory.fileExists("_2.cfs"));
+    }
+
+    public void testDeleteFilesInBatch() throws Exception {
+        writeFile(jdbcDirectory, "_1.cfs", "TEST1");
+        writeFile(jdbcDirectory, "_2.cfs", "TEST2");
+        writeFile(jdbcDirectory, "_3.cfs", "TEST3");
+        jdbcDirectory.flushPendingOutputs();
+        List names = new ArrayList(Arrays.asList(new String[]{"_1.cfs", "_2.cfs"}));
+        jdbcDirectory.deleteFiles(names);
+        assertFalse(otherJdbcDirectory.fileExists("_1.cfs"));
+        assertFalse(otherJdbcDirectory.fileExists("_2.cfs"));
+        assertTrue(otherJdbcDirectory.fileExists("_3.cfs"));
+    }
+
+    public void testIndexWriter() throws Exception {
+        IndexWriter writer = new IndexWriter(jdbcDirectory, new SimpleAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+        writer.setUseCompoundFile(false);
+        for (int i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new Field("value", "test" + i, Field.Store.YES, Field.Index.NOT_ANALYZED));
+            writer.addDocument(doc);
+        }
+        writer.close();
+        assertEquals(0, jdbcDirectory.getPendingOutputsCount());
+
+        IndexSearcher searcher = new IndexSearcher(otherJdbcDirectory);
+        assertEquals(1, searcher.search(new TermQuery(new Term("value", "test5")), null, 10).totalHits);
+        searcher.close();
+    }
+
+    private void writeFile(JdbcDirectory dir, String name, String value) throws IOException {
+        IndexOutput indexOutput = dir.createOutput(name);
+        indexOutput.writeString(value);
+        indexOutput.close();
+    }
+
+    private String readFile(JdbcDirectory dir, String name) throws IOException {
+        IndexInput indexInput = dir.openInput(name);
+        try {
+            return indexInput.readString();
+        } finally {
+            indexInput.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.store.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.jdbc.datasource.DataSourceUtils;
+import org.apache.lucene.store.jdbc.handler.ActualDeleteFileEntryHandler;
+import org.apache.lucene.store.jdbc.support.JdbcTable;
+
+/**
+ * @author kimchy
+ */
+public class JdbcFileMetadataCacheTests extends AbstractJdbcDirectoryTests {
+
+    private JdbcDirectory jdbcDirectory;
+
+    private JdbcDirectory otherJdbcDirectory;
+
+    private Connection con;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        jdbcDirectory = createCachingDirectory(60 * 1000);
+
+        // simulates another process working on the same table
+        JdbcDirectorySettings otherSettings = new JdbcDirectorySettings();
+        otherSettings.getDefaultFileEntrySettings().setClassSetting(
+                JdbcFileEntrySettings.FILE_ENTRY_HANDLER_TYPE, ActualDeleteFileEntryHandler.class);
+        otherJdbcDirectory = new JdbcDirectory(dataSource, new JdbcTable(otherSettings, createDialect(), "TEST"));
+
+        con = DataSourceUtils.getConnection(dataSource);
+        jdbcDirectory.create();
+    }
+
+    protected void tearDown() throws Exception {
+        DataSourceUtils.rollbackConnectionIfPossible(con);
+        DataSourceUtils.releaseConnection(con);
+        jdbcDirectory.close();
+        otherJdbcDirectory.close();
+        super.tearDown();
+    }
+
+    private JdbcDirectory createCachingDirectory(long revalidateInterval) throws Exception {
+        JdbcDirectorySettings settings = new JdbcDirectorySettings();
+        settings.getDefaultFileEntrySettings().setClassSetting(
+                JdbcFileEntrySettings.FILE_ENTRY_HANDLER_TYPE, ActualDeleteFileEntryHandler.class);
+        settings.setCacheFileMetadata(true);
+        settings.setFileMetadataRevalidateInterval(revalidateInterval);
+        return new JdbcDirectory(dataSource, new JdbcTable(settings, createDialect(), "TEST"));
+    }
+
+    public void testMetadataFromSnapshot() throws Exception {
+        writeSegmentsGen(jdbcDirectory, 1);
+        writeFile(jdbcDirectory, "_1.cfs", "TEST STRING");
+        assertNotNull(jdbcDirectory.getFileMetadataCache());
+
+        List list = Arrays.asList(jdbcDirectory.list());
+        assertEquals(2, list.size());
+        assertTrue(list.contains("_1.cfs"));
+        assertTrue(jdbcDirectory.fileExists("_1.cfs"));
+        long length = otherJdbcDirectory.fileLength("_1.cfs");
+        assertEquals(length, jdbcDirectory.fileLength("_1.cfs"));
+        assertEquals(otherJdbcDirectory.fileModified("_1.cfs"), jdbcDirectory.fileModified("_1.cfs"));
+        assertFalse(jdbcDirectory.fileExists("_2.cfs"));
+
+        // deleted by another process, segments.gen did not change, so the snapshot is used
+        otherJdbcDirectory.deleteFile("_1.cfs");
+        assertTrue(jdbcDirectory.fileExists("_1.cfs"));
+        assertEquals(2, jdbcDirectory.list().length);
+
+        // new file by another process is not in the snapshot, so it is looked up in the database
+        writeFile(otherJdbcDirectory, "_2.cfs", "TEST");
+        assertTrue(jdbcDirectory.fileExists("_2.cfs"));
+        assertEquals(otherJdbcDirectory.fileLength("_2.cfs"), jdbcDirectory.fileLength("_2.cfs"));
+
+        // the segments generation changed (within the same second of the last modified column), the snapshot is reloaded
+        writeSegmentsGen(otherJdbcDirectory, 2);
+        list = Arrays.asList(jdbcDirectory.list());
+        assertEquals(2, list.size());
+        assertTrue(list.contains("_2.cfs"));
+        assertFalse(jdbcDirectory.fileExists("_1.cfs"));
+    }
+
+    public void testRevalidatedWithoutList() throws Exception {
+        JdbcDirectory revalidatingDirectory = createCachingDirectory(0);
+        try {
+            writeSegmentsGen(revalidatingDirectory, 1);
+            writeFile(revalidatingDirectory, "_1.cfs", "TEST STRING");
+            assertEquals(2, revalidatingDirectory.list().length);
+            assertTrue(revalidatingDirectory.fileExists("_1.cfs"));
+
+            // committed and deleted by another process, picked up without listing the files
+            otherJdbcDirectory.deleteFile("_1.cfs");
+            writeSegmentsGen(otherJdbcDirectory, 2);
+            assertFalse(revalidatingDirectory.fileExists("_1.cfs"));
+        } finally {
+            revalidatingDirectory.close();
+        }
+    }
+
+    public void testWritesByDirectory() throws Exception {
+        writeSegmentsGen(jdbcDirectory, 1);
+        assertEquals(1, jdbcDirectory.list().length);
+
+        writeFile(jdbcDirectory, "_1.cfs", "TEST STRING");
+        assertTrue(Arrays.asList(jdbcDirectory.list()).contains("_1.cfs"));
+        assertTrue(jdbcDirectory.fileExists("_1.cfs"));
+        assertEquals(otherJdbcDirectory.fileLength("_1.cfs"), jdbcDirectory.fileLength("_1.cfs"));
+
+        jdbcDirectory.renameFile("_1.cfs", "_2.cfs");
+        List list = Arrays.asList(jdbcDirectory.list());
+        assertFalse(list.contains("_1.cfs"));
+        assertTrue(list.contains("_2.cfs"));
+        assertFalse(jdbcDirectory.fileExists("_1.cfs"));
+        assertTrue(jdbcDirectory.fileExists("_2.cfs"));
+
+        jdbcDirectory.deleteFile("_2.cfs");
+        assertFalse(jdbcDirectory.fileExists("_2.cfs"));
+        assertEquals(1, jdbcDirectory.list().length);
+
+        jdbcDirectory.deleteContent();
+        assertEquals(0, jdbcDirectory.list().length);
+    }
+
+    private void writeSegmentsGen(JdbcDirectory dir, long generation) throws IOException {
+        IndexOutput indexOutput = dir.createOutput("segments.gen");
+        indexOutput.writeInt(-2);
+        indexOutput.writeLong(generation);
+        indexOutput.writeLong(generation);
+        indexOutput.close();
+    }
+
+    private void writeFile(JdbcDirectory dir, String name, String value) throws IOException {
+        IndexOutput indexOutput = dir.createOutput(name);
+        indexOutput.writeString(value);
+        indexOutput.close();
+    }
+}
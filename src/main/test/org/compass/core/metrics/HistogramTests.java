@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.metrics;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kimchy
+ */
+public class HistogramTests extends TestCase {
+
+    public void testRecord() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        // values 32 to 63 fall in the same bucket
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    public void testDisabledMetrics() {
+        CompassMetrics metrics = new CompassMetrics(false);
+        Histogram histogram = metrics.getHistogram(CompassMetrics.Group.COMMIT, "test");
+        assertSame(Histogram.NOOP, histogram);
+        histogram.record(10);
+        assertEquals(0, histogram.getCount());
+        assertTrue(metrics.getHistograms(CompassMetrics.Group.COMMIT).isEmpty());
+    }
+
+    public void testSameHistogramPerKey() {
+        CompassMetrics metrics = new CompassMetrics(true);
+        Histogram histogram = metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, "a");
+        assertSame(histogram, metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, "a"));
+        assertNotSame(histogram, metrics.getHistogram(CompassMetrics.Group.QUERY_TOUCHING_SUB_INDEX, "a"));
+        assertEquals(1, metrics.getHistograms(CompassMetrics.Group.QUERY_ALIAS).size());
+    }
+}
@@ -16,13 +16,21 @@
 
 package org.compass.core.test.analyzerfilter;
 
+import java.io.StringReader;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenStream;
 import org.compass.core.CompassException;
 import org.compass.core.CompassHits;
 import org.compass.core.CompassSession;
 import org.compass.core.CompassTransaction;
 import org.compass.core.config.CompassSettings;
 import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
+import org.compass.core.lucene.engine.analyzer.synonym.SynonymFilter;
 import org.compass.core.lucene.engine.analyzer.synonym.SynonymLookupProvider;
+import org.compass.core.spi.InternalCompass;
 import org.compass.core.test.AbstractTestCase;
 
 /**
@@ -84,4 +92,30 @@ public class AnalyzerFilterTests extends AbstractTestCase {
         tr.commit();
         session.close();
     }
+
+    public void testReusableTokenStreamWithSynonyms() throws Exception {
+        Analyzer analyzer = ((LuceneSearchEngineFactory) ((InternalCompass) getCompass()).getSearchEngineFactory())
+                .getAnalyzerManager().getDefaultAnalyzer();
+
+        TokenStream tokenStream = analyzer.reusableTokenStream("value", new StringReader("quick fox"));
+        assertTokens(tokenStream, new String[]{"quick", "fast", "fox"});
+
+        // the same chain is reused and reset, the synonyms of the last token are not kept
+        assertSame(tokenStream, analyzer.reusableTokenStream("value", new StringReader("dogs quick")));
+        assertTokens(tokenStream, new String[]{"dogs", "quick", "fast"});
+    }
+
+    private void assertTokens(TokenStream tokenStream, String[] expected) throws Exception {
+        Token reusableToken = new Token();
+        for (String term : expected) {
+            Token token = tokenStream.next(reusableToken);
+            assertNotNull(token);
+            assertEquals(term, token.term());
+            if (term.equals("fast")) {
+                assertEquals(0, token.getPositionIncrement());
+                assertEquals(SynonymFilter.TOKEN_TYPE_SYNONYM, token.type());
+            }
+        }
+        assertNull(tokenStream.next(reusableToken));
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.analyzerfilter;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.WhitespaceTokenizer;
+import org.compass.core.lucene.engine.analyzer.synonym.SynonymMap;
+import org.compass.core.lucene.engine.analyzer.synonym.SynonymMapFilter;
+
+/**
+ * @author kimchy
+ */
+public class SynonymMapFilterTests extends TestCase {
+
+    private static final String RULES = "# comment\n" +
+            "\n" +
+            "quick, fast\n" +
+            "usa, united states, united states of america\n" +
+            "colour => color\n";
+
+    public void testParse() throws Exception {
+        SynonymMap synonymMap = SynonymMap.parse(new StringReader(RULES));
+        assertEquals(6, synonymMap.size());
+        assertSynonyms(synonymMap.getSynonyms("quick"), new String[]{"fast"});
+        assertSynonyms(synonymMap.getSynonyms("united states"), new String[]{"usa", "united states of america"});
+        assertSynonyms(synonymMap.getSynonyms("colour"), new String[]{"color"});
+        assertNull(synonymMap.getSynonyms("color"));
+        assertNull(synonymMap.getSynonyms("united"));
+        assertNull(synonymMap.getSynonyms("slow"));
+    }
+
+    public void testSingleTokenSynonyms() throws Exception {
+        SynonymMap synonymMap = SynonymMap.parse(new StringReader(RULES));
+        assertTokens(synonymMap, "the quick colour", new String[]{"the:1", "quick:1", "fast:0", "colour:1", "color:0"});
+    }
+
+    public void testMultiTokenSynonyms() throws Exception {
+        SynonymMap synonymMap = SynonymMap.parse(new StringReader(RULES));
+        // longest match wins
+        assertTokens(synonymMap, "in united states of america now", new String[]{"in:1",
+                "united:1", "usa:0", "united:0", "states:1", "states:0", "of:1", "america:1", "now:1"});
+        // partial match of a longer key falls back to the shorter one
+        assertTokens(synonymMap, "united states of", new String[]{"united:1", "usa:0", "united:0",
+                "states:1", "states:0", "of:0", "america:0", "of:1"});
+        // no match for a prefix only
+        assertTokens(synonymMap, "united we stand", new String[]{"united:1", "we:1", "stand:1"});
+        assertTokens(synonymMap, "usa", new String[]{"usa:1", "united:0", "united:0", "states:0", "states:0",
+                "of:0", "america:0"});
+    }
+
+    public void testReset() throws Exception {
+        SynonymMap synonymMap = SynonymMap.parse(new StringReader(RULES));
+        WhitespaceTokenizer tokenizer = new WhitespaceTokenizer(new StringReader("quick united"));
+        SynonymMapFilter filter = new SynonymMapFilter(tokenizer, synonymMap);
+        Token token = filter.next(new Token());
+        assertEquals("quick", token.term());
+
+        tokenizer.reset(new StringReader("colour"));
+        filter.reset();
+        assertEquals(new String[]{"colour:1", "color:0"}, collect(filter));
+    }
+
+    private void assertTokens(SynonymMap synonymMap, String text, String[] expected) throws Exception {
+        TokenStream tokenStream = new SynonymMapFilter(new WhitespaceTokenizer(new StringReader(text)), synonymMap);
+        assertEquals(expected, collect(tokenStream));
+    }
+
+    private void assertEquals(String[] expected, String[] actual) {
+        ArrayList<String> expectedList = new ArrayList<String>();
+        ArrayList<String> actualList = new ArrayList<String>();
+        for (String value : expected) {
+            expectedList.add(value);
+        }
+        for (String value : actual) {
+            actualList.add(value);
+        }
+        assertEquals(expectedList, actualList);
+    }
+
+    private String[] collect(TokenStream tokenStream) throws Exception {
+        ArrayList<String> tokens = new ArrayList<String>();
+        Token reusableToken = new Token();
+        for (Token token = tokenStream.next(reusableToken); token != null; token = tokenStream.next(reusableToken)) {
+            tokens.add(token.term() + ":" + token.getPositionIncrement());
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    private void assertSynonyms(char[][][] synonyms, String[] expected) {
+        assertNotNull(synonyms);
+        String[] actual = new String[synonyms.length];
+        for (int i = 0; i < synonyms.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (char[] word : synonyms[i]) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(word);
+            }
+            actual[i] = sb.toString();
+        }
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.cascade.reindex;
+
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.config.CompassConfiguration;
+import org.compass.core.mapping.MappingException;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class ReindexCascadeTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"cascade/reindex/mapping.cpm.xml"};
+    }
+
+    public void testNotStoredMappingIsRejected() {
+        CompassConfiguration conf = new CompassConfiguration()
+                .configure("/org/compass/core/test/compass.cfg.xml");
+        conf.addResource("org/compass/core/test/cascade/reindex/not-stored.cpm.xml", AbstractTestCase.class.getClassLoader());
+        try {
+            conf.buildCompass();
+            fail();
+        } catch (MappingException e) {
+            // all the properties of a mapping with a reindex cascade must be stored
+        }
+    }
+
+    public void testReindexComponent() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        B b = new B();
+        b.id = 1;
+        b.value = "oldvalue";
+        session.save(b);
+
+        A a = new A();
+        a.id = 1;
+        a.value = "avalue";
+        a.b = b;
+        session.save(a);
+
+        assertEquals(1, session.find("a.b.value:oldvalue").length());
+
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+
+        b = new B();
+        b.id = 1;
+        b.value = "newvalue";
+        // saving B re-indexes A, which embeds it
+        session.save(b);
+
+        assertEquals(0, session.find("a.b.value:oldvalue").length());
+        assertEquals(1, session.find("a.b.value:newvalue").length());
+
+        tr.commit();
+
+        a = session.load(A.class, 1);
+        assertEquals("newvalue", a.b.value);
+        assertEquals("avalue", a.value);
+
+        session.close();
+    }
+
+    public void testReindexComponentArray() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        B b1 = new B();
+        b1.id = 1;
+        b1.value = "value1";
+        session.save(b1);
+        B b2 = new B();
+        b2.id = 2;
+        b2.value = "value2";
+        session.save(b2);
+
+        for (int i = 1; i <= 3; i++) {
+            A a = new A();
+            a.id = i;
+            a.value = "avalue";
+            a.bs = new B[]{b1, b2};
+            session.save(a);
+        }
+
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+
+        b2 = new B();
+        b2.id = 2;
+        b2.value = "changed";
+        session.save(b2);
+
+        tr.commit();
+
+        assertEquals(0, session.find("a.bs.value:value2").length());
+        assertEquals(3, session.find("a.bs.value:changed").length());
+        assertEquals(3, session.find("a.bs.value:value1").length());
+
+        A a = session.load(A.class, 3);
+        assertEquals("value1", a.bs[0].value);
+        assertEquals("changed", a.bs[1].value);
+
+        session.close();
+    }
+
+    public void testReindexOnDelete() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        B b1 = new B();
+        b1.id = 1;
+        b1.value = "value1";
+        session.save(b1);
+        B b2 = new B();
+        b2.id = 2;
+        b2.value = "value2";
+        session.save(b2);
+
+        A a = new A();
+        a.id = 1;
+        a.value = "avalue";
+        a.b = b2;
+        a.bs = new B[]{b1, b2};
+        session.save(a);
+
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+
+        // deleting B re-indexes A without it
+        session.delete(B.class, 2);
+
+        tr.commit();
+
+        assertEquals(0, session.find("a.b.value:value2").length());
+        assertEquals(0, session.find("a.bs.value:value2").length());
+        assertEquals(1, session.find("a.bs.value:value1").length());
+
+        a = session.load(A.class, 1);
+        assertNull(a.b);
+        assertEquals(1, a.bs.length);
+        assertEquals("value1", a.bs[0].value);
+        assertEquals("avalue", a.value);
+
+        session.close();
+    }
+
+    public void testNoReindexWithoutDependants() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        B b = new B();
+        b.id = 1;
+        b.value = "value";
+        session.save(b);
+
+        assertEquals(1, session.find("value").length());
+
+        tr.commit();
+        session.close();
+    }
+}
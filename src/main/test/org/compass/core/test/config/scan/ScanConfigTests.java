@@ -18,6 +18,7 @@ package org.compass.core.test.config.scan;
 
 import org.compass.core.Compass;
 import org.compass.core.config.CompassConfiguration;
+import org.compass.core.config.CompassEnvironment;
 import org.compass.core.spi.InternalCompass;
 import org.compass.core.test.AbstractTestCase;
 
@@ -42,6 +43,19 @@ public class ScanConfigTests extends AbstractTestCase {
         compass.close();
     }
 
+    public void testSimpleScanWithSingleThread() throws Exception {
+        CompassConfiguration conf = buildConf();
+        conf.getSettings().setIntSetting(CompassEnvironment.Scanner.CONCURRENCY, 1);
+        conf.addScan("org/compass/core/test/config/scan");
+        Compass compass = conf.buildCompass();
+
+        assertNotNull(((InternalCompass) compass).getMapping().getRootMappingByClass(A.class));
+        assertNotNull(((InternalCompass) compass).getMapping().getRootMappingByClass(B.class));
+        assertNotNull(((InternalCompass) compass).getMapping().getRootMappingByClass(C.class));
+
+        compass.close();
+    }
+
     public void testMatcherScan() throws Exception {
         CompassConfiguration conf = buildConf();
         conf.addScan("org/compass/core/test", "config/sca*/A**");
@@ -16,12 +16,16 @@
 
 package org.compass.core.test.dynamic.mvel;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Calendar;
 
 import org.compass.core.CompassSession;
 import org.compass.core.CompassTransaction;
 import org.compass.core.Resource;
+import org.compass.core.converter.dynamic.AbstractDynamicConverter;
+import org.compass.core.converter.dynamic.MVELDynamicConverter;
+import org.compass.core.spi.InternalCompass;
 import org.compass.core.test.AbstractTestCase;
 
 /**
@@ -50,6 +54,50 @@ public class MVELDynamicTests extends AbstractTestCase {
         session.close();
     }
 
+    public void testEvaluationStatistics() throws Exception {
+        AbstractDynamicConverter converter = (AbstractDynamicConverter) ((InternalCompass) getCompass()).getMapping()
+                .getRootMappingByAlias("a1").getResourcePropertyMapping("test").getConverter();
+        long count = converter.getEvaluationCount();
+
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        A a = new A();
+        a.setId(new Long(1));
+        a.setValue("value");
+        a.setValue2("value2");
+        session.save("a1", a);
+
+        tr.commit();
+        session.close();
+
+        assertEquals(count + 1, converter.getEvaluationCount());
+        assertTrue(converter.getEvaluationTimeInNanos() > 0);
+    }
+
+    public void testDiscardedConverterNotKeptByEvaluatingThread() throws Exception {
+        EvaluatingMVELDynamicConverter converter = new EvaluatingMVELDynamicConverter();
+        converter.setExpression("@{data.value}");
+        A a = new A();
+        a.setValue("value");
+        assertEquals("value", converter.evaluate(a));
+        WeakReference<MVELDynamicConverter> ref = new WeakReference<MVELDynamicConverter>(converter);
+        converter = null;
+        for (int i = 0; i < 10 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // the current thread evaluated using the converter and is still alive
+        assertNull(ref.get());
+    }
+
+    private static class EvaluatingMVELDynamicConverter extends MVELDynamicConverter {
+
+        public Object evaluate(Object o) {
+            return evaluate(o, null);
+        }
+    }
+
     public void testExpressionWithFormat() throws Exception {
         CompassSession session = openSession();
         CompassTransaction tr = session.beginTransaction();
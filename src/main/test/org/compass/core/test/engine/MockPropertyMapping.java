@@ -25,7 +25,9 @@ import org.compass.core.mapping.ExcludeFromAll;
 import org.compass.core.mapping.Mapping;
 import org.compass.core.mapping.ResourcePropertyMapping;
 import org.compass.core.mapping.ReverseType;
+import org.compass.core.mapping.Sortable;
 import org.compass.core.mapping.SpellCheck;
+import org.compass.core.mapping.WildcardIndex;
 
 /**
  * @author kimchy
@@ -158,6 +160,10 @@ public class MockPropertyMapping implements ResourcePropertyMapping {
         return ReverseType.NO;
     }
 
+    public WildcardIndex getWildcardIndex() {
+        return WildcardIndex.NO;
+    }
+
     public String getConverterName() {
         return null;
     }
@@ -193,4 +199,8 @@ public class MockPropertyMapping implements ResourcePropertyMapping {
     public void setSpellCheck(SpellCheck spellCheck) {
         this.spellCheck = spellCheck;
     }
+
+    public Sortable getSortable() {
+        return Sortable.DEFAULT;
+    }
 }
@@ -251,6 +251,22 @@ public class MockResourceMapping extends AbstractMultipleMapping implements Inte
         return "$uid";
     }
 
+    public void setDependantsPath(String dependantsPath) {
+        throw new IllegalStateException("Should not be called, just for testing");
+    }
+
+    public String getDependantsPath() {
+        return null;
+    }
+
+    public void addDependantAlias(String dependantAlias) {
+        throw new IllegalStateException("Should not be called, just for testing");
+    }
+
+    public String[] getDependantAliases() {
+        return null;
+    }
+
     public void setAnalyzer(String analyzer) {
     }
 
@@ -385,6 +385,39 @@ public abstract class AbstractTransactionEngineTests extends AbstractLuceneEngin
         getSearchEngine().commit(true);
     }
 
+    public void testRepeatedOperationsOnSameResource() throws Exception {
+        getSearchEngine().begin();
+        getSearchEngine().create(createSingleIdResource(getSearchEngine()));
+        getSearchEngine().save(createUpdatedSingleIdResource(getSearchEngine()));
+        getSearchEngine().create(createMultiIdResource(getSearchEngine()));
+        getSearchEngine().delete(createMultiIdResource(getSearchEngine()));
+        getSearchEngine().commit(true);
+
+        sleepForChangesToOccur();
+
+        getSearchEngine().begin();
+        assertSingleIdResourceExists(getSearchEngine());
+        assertSingleIdResourceUpdated(getSearchEngine());
+        assertMulitIdResourceNotExists(getSearchEngine());
+        getSearchEngine().commit(true);
+
+        sleepForChangesToOccur();
+
+        getSearchEngine().begin();
+        getSearchEngine().delete(createSingleIdResource(getSearchEngine()));
+        getSearchEngine().create(createSingleIdResource(getSearchEngine()));
+        getSearchEngine().commit(true);
+
+        sleepForChangesToOccur();
+
+        getSearchEngine().begin();
+        assertSingleIdResourceExists(getSearchEngine());
+        assertSingleIdResourceOriginal(getSearchEngine());
+        SearchEngineHits hits = getSearchEngine().queryBuilder().queryString(PROPERTY_VAL1 + ":" + VALUE_VAL1).toQuery().hits(getSearchEngine());
+        assertEquals(1, hits.getLength());
+        getSearchEngine().commit(true);
+    }
+
     public void testDeleteResource2WithCommit() {
         getSearchEngine().begin();
         assertSingleIdResourceNotExists(getSearchEngine());
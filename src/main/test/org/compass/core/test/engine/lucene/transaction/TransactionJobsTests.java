@@ -0,0 +1,84 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.engine.lucene.transaction;
+
+import org.compass.core.lucene.engine.transaction.support.job.CreateTransactionJob;
+import org.compass.core.lucene.engine.transaction.support.job.DeleteByQueryTransactionJob;
+import org.compass.core.lucene.engine.transaction.support.job.DeleteTransactionJob;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.lucene.engine.transaction.support.job.UpdateTransactionJob;
+import org.compass.core.spi.InternalResource;
+import org.compass.core.test.engine.lucene.AbstractLuceneEngineTests;
+
+/**
+ * @author kimchy
+ */
+public class TransactionJobsTests extends AbstractLuceneEngineTests {
+
+    public void testLastUpdateWins() {
+        InternalResource original = (InternalResource) createSingleIdResource(getSearchEngine());
+        InternalResource updated = (InternalResource) createUpdatedSingleIdResource(getSearchEngine());
+        TransactionJobs jobs = new TransactionJobs();
+        jobs.add(new UpdateTransactionJob(original));
+        jobs.add(new UpdateTransactionJob(updated));
+        assertEquals(1, jobs.getJobs().size());
+        assertSame(updated, ((UpdateTransactionJob) jobs.getJobs().get(0)).getResource());
+    }
+
+    public void testCreateAndDeleteResultsInDelete() {
+        InternalResource resource = (InternalResource) createSingleIdResource(getSearchEngine());
+        TransactionJobs jobs = new TransactionJobs();
+        jobs.add(new CreateTransactionJob(resource));
+        jobs.add(new UpdateTransactionJob(resource));
+        jobs.add(new DeleteTransactionJob(resource.getResourceKey()));
+        assertEquals(1, jobs.getJobs().size());
+        assertTrue(jobs.getJobs().get(0) instanceof DeleteTransactionJob);
+    }
+
+    public void testDeleteAndCreateResultsInUpdate() {
+        InternalResource resource = (InternalResource) createSingleIdResource(getSearchEngine());
+        InternalResource other = (InternalResource) createMultiIdResource(getSearchEngine());
+        TransactionJobs jobs = new TransactionJobs();
+        jobs.add(new DeleteTransactionJob(resource.getResourceKey()));
+        jobs.add(new CreateTransactionJob(other));
+        jobs.add(new CreateTransactionJob(resource));
+        assertEquals(2, jobs.getJobs().size());
+        assertTrue(jobs.getJobs().get(0) instanceof UpdateTransactionJob);
+        assertTrue(jobs.getJobs().get(1) instanceof CreateTransactionJob);
+    }
+
+    public void testNoCoalescingAcrossDeleteByQuery() {
+        InternalResource resource = (InternalResource) createSingleIdResource(getSearchEngine());
+        TransactionJobs jobs = new TransactionJobs();
+        jobs.add(new CreateTransactionJob(resource));
+        jobs.add(new DeleteByQueryTransactionJob(null, resource.getSubIndex()));
+        jobs.add(new CreateTransactionJob(resource));
+        assertEquals(3, jobs.getJobs().size());
+    }
+
+    public void testAddAllCoalescesAcrossTransactions() {
+        TransactionJobs jobs1 = new TransactionJobs();
+        jobs1.add(new CreateTransactionJob((InternalResource) createSingleIdResource(getSearchEngine())));
+        TransactionJobs jobs2 = new TransactionJobs();
+        jobs2.add(new UpdateTransactionJob((InternalResource) createUpdatedSingleIdResource(getSearchEngine())));
+        TransactionJobs merged = new TransactionJobs();
+        merged.addAll(jobs1);
+        merged.addAll(jobs2);
+        assertEquals(1, merged.getJobs().size());
+        assertTrue(merged.getJobs().get(0) instanceof UpdateTransactionJob);
+    }
+}
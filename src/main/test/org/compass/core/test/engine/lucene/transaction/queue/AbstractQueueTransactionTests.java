@@ -0,0 +1,126 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.engine.lucene.transaction.queue;
+
+import org.apache.lucene.index.IndexWriter;
+import org.compass.core.Resource;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.LuceneSearchEngineFactory;
+import org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessor;
+import org.compass.core.lucene.engine.transaction.queue.QueueTransactionProcessorFactory;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJob;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.spi.InternalResource;
+import org.compass.core.test.engine.lucene.transaction.AbstractTransactionEngineTests;
+
+/**
+ * @author kimchy
+ */
+public abstract class AbstractQueueTransactionTests extends AbstractTransactionEngineTests {
+
+    public void testQueueSetting() {
+        assertEquals(LuceneEnvironment.Transaction.Processor.Queue.NAME, getSettings().getSetting(LuceneEnvironment.Transaction.Processor.TYPE));
+    }
+
+    public void testSearchEngineTransactionProcessorInstance() {
+        getSearchEngine().begin();
+        assertTrue(getLuceneSearchEngine().getTransactionProcessor() instanceof QueueTransactionProcessor);
+        getSearchEngine().rollback();
+    }
+
+    public void testFailingTransactionOnlyDismissesItself() {
+        getSearchEngine().begin();
+        Resource singleId = createSingleIdResource(getSearchEngine());
+        getSearchEngine().create(singleId);
+        getSearchEngine().commit(true);
+
+        // added directly to the queue, most probably claimed along with the transactions before and after it
+        TransactionJobs failingJobs = new TransactionJobs();
+        failingJobs.add(new FailingTransactionJob(((InternalResource) singleId).getSubIndex()));
+        QueueTransactionProcessorFactory processorFactory = (QueueTransactionProcessorFactory) ((LuceneSearchEngineFactory) getSearchEngine().getSearchEngineFactory())
+                .getTransactionProcessorManager().getProcessorFactory(LuceneEnvironment.Transaction.Processor.Queue.NAME);
+        processorFactory.add(failingJobs);
+
+        getSearchEngine().begin();
+        getSearchEngine().create(createSingleIdResource2(getSearchEngine()));
+        getSearchEngine().commit(true);
+
+        sleepForChangesToOccur();
+
+        getSearchEngine().begin();
+        assertSingleIdResourceExists(getSearchEngine());
+        assertSingleIdResource2Exists(getSearchEngine());
+        getSearchEngine().rollback();
+    }
+
+    @Override
+    protected CompassSettings buildCompassSettings() {
+        CompassSettings settings = super.buildCompassSettings();
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.TYPE, LuceneEnvironment.Transaction.Processor.Queue.NAME);
+        // the queue processor is not registered by default
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.PREFIX + LuceneEnvironment.Transaction.Processor.Queue.NAME + "." + LuceneEnvironment.Transaction.Processor.CONFIG_TYPE,
+                LuceneEnvironment.Transaction.Processor.Queue.NAME);
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.POLL_INTERVAL, "50");
+        return settings;
+    }
+
+    /**
+     * Waits until the queue has no pending (added or claimed) jobs, which means all of them were committed
+     * to the index.
+     */
+    @Override
+    protected void sleepForChangesToOccur() {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pendingJobs() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Queue still has [" + pendingJobs() + "] pending jobs");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of jobs added to the queue and not yet processed.
+     */
+    protected abstract int pendingJobs();
+
+    private static class FailingTransactionJob implements TransactionJob {
+
+        private final String subIndex;
+
+        private FailingTransactionJob(String subIndex) {
+            this.subIndex = subIndex;
+        }
+
+        public String getSubIndex() {
+            return subIndex;
+        }
+
+        public String getResourceUID() {
+            return null;
+        }
+
+        public void execute(IndexWriter writer, LuceneSearchEngineFactory sessionFactory) throws Exception {
+            throw new IllegalStateException("Failing job");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.engine.lucene.transaction.queue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.transaction.queue.FSTransactionJobsQueue;
+import org.compass.core.lucene.engine.transaction.queue.QueuedTransactionJobs;
+import org.compass.core.lucene.engine.transaction.support.job.TransactionJobs;
+import org.compass.core.util.FileSystemUtils;
+
+/**
+ * @author kimchy
+ */
+public class FSQueueTransactionTests extends AbstractQueueTransactionTests {
+
+    private static final File QUEUE_PATH = new File("target/test-queue");
+
+    @Override
+    protected CompassSettings buildCompassSettings() {
+        CompassSettings settings = super.buildCompassSettings();
+        FileSystemUtils.deleteRecursively(QUEUE_PATH);
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.JOBS_QUEUE, "fs");
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.FS.PATH, QUEUE_PATH.getPath());
+        return settings;
+    }
+
+    public void testTimedOutClaimIsClaimedAgain() throws Exception {
+        File path = new File("target/test-queue-claims");
+        FileSystemUtils.deleteRecursively(path);
+        CompassSettings settings = new CompassSettings();
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.FS.PATH, path.getPath());
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.CLAIM_TIMEOUT, "0");
+        FSTransactionJobsQueue queue = new FSTransactionJobsQueue();
+        queue.configure(settings);
+
+        Map<String, TransactionJobs> jobs = new HashMap<String, TransactionJobs>();
+        jobs.put("a", new TransactionJobs());
+        queue.add(jobs);
+        List<QueuedTransactionJobs> first = queue.claim("a", 10);
+        assertEquals(1, first.size());
+
+        // the claim times out right away, so it can be claimed again once the clock moves
+        long deadline = System.currentTimeMillis() + 10000;
+        List<QueuedTransactionJobs> second = queue.claim("a", 10);
+        while (second.isEmpty() && System.currentTimeMillis() < deadline) {
+            second = queue.claim("a", 10);
+        }
+        assertEquals(1, second.size());
+        assertFalse(first.get(0).getId().equals(second.get(0).getId()));
+
+        // the first (timed out) claim must not remove the jobs claimed again
+        queue.processed("a", first);
+        assertEquals(1, new File(path, "a").list().length);
+        queue.processed("a", second);
+        assertEquals(0, new File(path, "a").list().length);
+        queue.close();
+    }
+
+    protected int pendingJobs() {
+        int count = 0;
+        File[] subIndexPaths = QUEUE_PATH.listFiles();
+        if (subIndexPaths == null) {
+            return count;
+        }
+        for (File subIndexPath : subIndexPaths) {
+            String[] names = subIndexPath.list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.endsWith(".job") || name.endsWith(".claimed")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
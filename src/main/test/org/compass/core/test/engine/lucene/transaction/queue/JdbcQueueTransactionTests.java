@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.engine.lucene.transaction.queue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+
+/**
+ * @author kimchy
+ */
+public class JdbcQueueTransactionTests extends AbstractQueueTransactionTests {
+
+    private String url;
+
+    @Override
+    protected CompassSettings buildCompassSettings() {
+        CompassSettings settings = super.buildCompassSettings();
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.JOBS_QUEUE, "jdbc");
+        // a new database for each test, so no jobs are left from previous tests
+        url = "jdbc:hsqldb:mem:queue" + System.currentTimeMillis();
+        settings.setSetting(LuceneEnvironment.Transaction.Processor.Queue.Jdbc.CONNECTION, url);
+        settings.setSetting(LuceneEnvironment.JdbcStore.Connection.DRIVER_CLASS, "org.hsqldb.jdbcDriver");
+        settings.setSetting(LuceneEnvironment.JdbcStore.Connection.USERNAME, "sa");
+        settings.setSetting(LuceneEnvironment.JdbcStore.Connection.PASSWORD, "");
+        return settings;
+    }
+
+    protected int pendingJobs() {
+        try {
+            Connection connection = DriverManager.getConnection(url, "sa", "");
+            try {
+                ResultSet rs = connection.createStatement().executeQuery("select count(*) from compass_queue");
+                rs.next();
+                return rs.getInt(1);
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to count pending jobs", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.test.facets;
+
+import java.util.Date;
+
+/**
+ * @author kimchy
+ */
+public class A {
+
+    Long id;
+
+    String category;
+
+    int price;
+
+    Date date;
+
+    String[] tags;
+
+    A() {
+    }
+
+    public A(Long id, String category, int price, Date date) {
+        this.id = id;
+        this.category = category;
+        this.price = price;
+        this.date = date;
+    }
+
+    public A(Long id, String category, int price, Date date, String[] tags) {
+        this(id, category, price, date);
+        this.tags = tags;
+    }
+}
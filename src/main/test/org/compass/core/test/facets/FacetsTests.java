@@ -0,0 +1,133 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.test.facets;
+
+import java.util.Date;
+
+import org.compass.core.CompassFacet;
+import org.compass.core.CompassFacetEntry;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class FacetsTests extends AbstractTestCase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    protected String[] getMappings() {
+        return new String[]{"facets/facets.cpm.xml"};
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        session.save(new A(new Long(1), "books", 5, new Date(DAY * 10), new String[]{"new", "sale"}));
+        session.save(new A(new Long(2), "books", 15, new Date(DAY * 10 + 100), new String[]{"sale"}));
+        session.save(new A(new Long(3), "music", 25, new Date(DAY * 11)));
+        tr.commit();
+        session.close();
+
+        // add another segment
+        session = openSession();
+        tr = session.beginTransaction();
+        session.save(new A(new Long(4), "books", 12, new Date(DAY * 12), new String[]{"new", "sale"}));
+        session.save(new A(new Long(5), "games", 50, new Date(DAY * 12 + 5)));
+        tr.commit();
+        session.close();
+    }
+
+    public void testTermFacet() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassFacet[] facets = session.queryBuilder().matchAll().facetsBuilder().addTermFacet("category").toFacets();
+        assertEquals(1, facets.length);
+        assertEquals(CompassFacet.Type.TERM, facets[0].getType());
+        assertEntries(facets[0], new Object[]{"books", "games", "music"}, new long[]{3, 1, 1});
+
+        facets = session.queryBuilder().matchAll().facetsBuilder().addTermFacet("category", 1).toFacets();
+        assertEntries(facets[0], new Object[]{"books"}, new long[]{3});
+
+        facets = session.queryBuilder().term("category", "music").facetsBuilder().addTermFacet("category").toFacets();
+        assertEntries(facets[0], new Object[]{"music"}, new long[]{1});
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testMultiValuedTermFacet() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassFacet[] facets = session.queryBuilder().matchAll().facetsBuilder().addTermFacet("tags").toFacets();
+        assertEntries(facets[0], new Object[]{"sale", "new"}, new long[]{3, 2});
+
+        facets = session.queryBuilder().term("tags", "new").facetsBuilder().addTermFacet("tags").addTermFacet("category").toFacets();
+        assertEntries(facets[0], new Object[]{"new", "sale"}, new long[]{2, 2});
+        assertEntries(facets[1], new Object[]{"books"}, new long[]{2});
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testMultipleFacets() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassFacet[] facets = session.queryBuilder().term("category", "books").facetsBuilder()
+                .addTermFacet("category")
+                .addRangeFacet("price", 0, 10, 20, 100)
+                .addDateHistogramFacet("date", DAY)
+                .toFacets();
+        assertEquals(3, facets.length);
+        assertEntries(facets[0], new Object[]{"books"}, new long[]{3});
+        assertEquals(CompassFacet.Type.RANGE, facets[1].getType());
+        assertEntries(facets[1], new Object[]{0.0, 10.0, 20.0}, new long[]{1, 2, 0});
+        assertEquals(CompassFacet.Type.DATE_HISTOGRAM, facets[2].getType());
+        assertEntries(facets[2], new Object[]{new Date(DAY * 10), new Date(DAY * 12)}, new long[]{2, 1});
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testFacetsAfterDelete() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        session.delete(A.class, new Long(5));
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        CompassFacet[] facets = session.queryBuilder().matchAll().facetsBuilder().addTermFacet("category").toFacets();
+        assertEntries(facets[0], new Object[]{"books", "music"}, new long[]{3, 1});
+        tr.commit();
+        session.close();
+    }
+
+    private void assertEntries(CompassFacet facet, Object[] values, long[] counts) {
+        CompassFacetEntry[] entries = facet.getEntries();
+        assertEquals(values.length, entries.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], entries[i].getValue());
+            assertEquals(counts[i], entries[i].getCount());
+        }
+    }
+}
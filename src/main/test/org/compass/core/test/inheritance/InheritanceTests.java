@@ -18,6 +18,8 @@ package org.compass.core.test.inheritance;
 
 import java.util.HashSet;
 
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.NoOp;
 import org.compass.core.CompassHits;
 import org.compass.core.CompassSession;
 import org.compass.core.CompassTransaction;
@@ -26,6 +28,7 @@ import org.compass.core.config.CompassEnvironment;
 import org.compass.core.config.CompassSettings;
 import org.compass.core.mapping.AliasMapping;
 import org.compass.core.mapping.CompassMapping;
+import org.compass.core.mapping.ResourceMapping;
 import org.compass.core.spi.InternalCompass;
 import org.compass.core.test.AbstractTestCase;
 
@@ -52,6 +55,23 @@ public class InheritanceTests extends AbstractTestCase {
         }
     }
 
+    public void testProxyClassMappingResolution() {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(BaseA.class);
+        enhancer.setCallback(NoOp.INSTANCE);
+        Class proxyClass = enhancer.create().getClass();
+        assertNotSame(BaseA.class, proxyClass);
+
+        CompassMapping compassMapping = ((InternalCompass) getCompass()).getMapping();
+        ResourceMapping resourceMapping = compassMapping.getRootMappingByClass(BaseA.class);
+        assertNotNull(resourceMapping);
+        assertSame(resourceMapping, compassMapping.getRootMappingByClass(proxyClass));
+        // cached
+        assertSame(resourceMapping, compassMapping.getRootMappingByClass(proxyClass));
+        assertNull(compassMapping.getRootMappingByClass(Object.class));
+        assertNull(compassMapping.getRootMappingByClass(Object.class));
+    }
+
     public void testPolyQuery() throws Exception {
         CompassSession session = openSession();
         CompassTransaction tr = session.beginTransaction();
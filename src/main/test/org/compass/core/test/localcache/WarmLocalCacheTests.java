@@ -0,0 +1,107 @@
+package org.compass.core.test.localcache;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LuceneFileNames;
+import org.compass.core.CompassHits;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.store.localcache.LocalDirectoryCache;
+import org.compass.core.lucene.util.LuceneHelper;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.HitRatio;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class WarmLocalCacheTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"localcache/A.cpm.xml"};
+    }
+
+    protected void addSettings(CompassSettings settings) {
+        settings.setGroupSettings(LuceneEnvironment.LocalCache.PREFIX, "a",
+                new String[]{LuceneEnvironment.LocalCache.CONNECTION, LuceneEnvironment.LocalCache.WARM},
+                new String[]{"ram://", "true"});
+        // new commit points are only published by the scheduled refresh
+        settings.setBooleanSetting(LuceneEnvironment.Transaction.CLEAR_CACHE_ON_COMMIT, false);
+        settings.setLongSetting(LuceneEnvironment.SearchEngineIndex.CACHE_INTERVAL_INVALIDATION, 50);
+    }
+
+    public void testWarmFetchesCommitFiles() throws Exception {
+        for (long i = 1; i <= 3; i++) {
+            CompassSession session = openSession();
+            CompassTransaction tr = session.beginTransaction();
+            A a = new A();
+            a.id = i;
+            a.value = "test";
+            session.save(a);
+            tr.commit();
+            session.close();
+        }
+
+        LocalDirectoryCache dir = (LocalDirectoryCache) LuceneHelper.getDirectory(getCompass(), "a");
+        assertTrue(dir.isWarm());
+        dir.clearWrapper();
+        dir.warm();
+
+        HitRatio hitRatio = getCompass().getMetrics().getHitRatio(CompassMetrics.RatioGroup.LOCAL_CACHE, "a");
+        hitRatio.reset();
+        IndexReader reader = IndexReader.open(dir, true);
+        try {
+            assertEquals(3, reader.numDocs());
+        } finally {
+            reader.close();
+        }
+        assertTrue(LuceneFileNames.getCommitFiles(dir).size() > 0);
+        assertEquals(0, hitRatio.getMisses());
+        assertTrue(hitRatio.getHits() > 0);
+
+        getCompass().getSearchEngineIndexManager().refreshCache();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        CompassHits hits = session.queryBuilder().matchAll().hits();
+        assertEquals(3, hits.length());
+        tr.commit();
+        session.close();
+    }
+
+    public void testBackgroundWarmPublishesNewReader() throws Exception {
+        // a reader is open, new commit points are warmed in the background and then published
+        save(1);
+        assertHitsEventually(1);
+        save(2);
+        assertHitsEventually(2);
+    }
+
+    private void assertHitsEventually(int length) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (countHits() != length && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20);
+        }
+        assertEquals(length, countHits());
+    }
+
+    private void save(long id) {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        A a = new A();
+        a.id = id;
+        a.value = "test";
+        session.save(a);
+        tr.commit();
+        session.close();
+    }
+
+    private int countHits() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        int length = session.queryBuilder().matchAll().hits().length();
+        tr.commit();
+        session.close();
+        return length;
+    }
+}
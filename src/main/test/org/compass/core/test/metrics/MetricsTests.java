@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.test.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.compass.core.CompassHits;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.config.CompassEnvironment;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class MetricsTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"metrics/A.cpm.xml"};
+    }
+
+    protected void addSettings(CompassSettings settings) {
+        settings.setSetting(CompassEnvironment.NAME, "metricsTests");
+        settings.setSetting(CompassEnvironment.Metrics.JMX, "true");
+        settings.setGroupSettings(LuceneEnvironment.LocalCache.PREFIX, "a",
+                new String[]{LuceneEnvironment.LocalCache.CONNECTION}, new String[]{"memory://"});
+    }
+
+    public void testMetrics() throws Exception {
+        CompassMetrics metrics = getCompass().getMetrics();
+        assertTrue(metrics.isEnabled());
+
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        A a = new A();
+        a.id = new Long(1);
+        a.value = "test";
+        session.save(a);
+        tr.commit();
+        session.close();
+
+        assertEquals(1, metrics.getHistogram(CompassMetrics.Group.MARSHALL, "A").getCount());
+        assertTrue(metrics.getHistogram(CompassMetrics.Group.COMMIT, LuceneEnvironment.Transaction.Processor.ReadCommitted.NAME).getCount() > 0);
+
+        session = openSession();
+        tr = session.beginTransaction();
+        CompassHits hits = session.queryBuilder().matchAll().setAliases("A").hits();
+        assertEquals(1, hits.length());
+        assertNotNull(hits.data(0));
+        tr.commit();
+        session.close();
+
+        assertEquals(1, metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, "A").getCount());
+        assertEquals(1, metrics.getHistogram(CompassMetrics.Group.QUERY_TOUCHING_SUB_INDEX, "a").getCount());
+        assertEquals(1, metrics.getHistogram(CompassMetrics.Group.HITS, CompassMetrics.ALL).getCount());
+        assertEquals(1, metrics.getHistogram(CompassMetrics.Group.UNMARSHALL, "A").getCount());
+        assertTrue(metrics.getHistogram(CompassMetrics.Group.READER_REFRESH, "a").getCount() > 0);
+        assertTrue(metrics.getHitRatio(CompassMetrics.RatioGroup.LOCAL_CACHE, "a").getHits() +
+                metrics.getHitRatio(CompassMetrics.RatioGroup.LOCAL_CACHE, "a").getMisses() > 0);
+
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("org.compass:type=Metrics,name=" + ObjectName.quote("metricsTests"));
+        assertTrue(mbeanServer.isRegistered(objectName));
+        assertEquals(new Long(1), mbeanServer.getAttribute(objectName, "query.alias.A.count"));
+        mbeanServer.invoke(objectName, "reset", new Object[0], new String[0]);
+        assertEquals(0, metrics.getHistogram(CompassMetrics.Group.QUERY_ALIAS, "A").getCount());
+    }
+}
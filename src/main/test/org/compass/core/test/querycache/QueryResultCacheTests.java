@@ -0,0 +1,150 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.querycache;
+
+import java.util.Collections;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.compass.core.CompassHits;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.config.CompassSettings;
+import org.compass.core.lucene.LuceneEnvironment;
+import org.compass.core.lucene.engine.manager.LuceneIndexHolder;
+import org.compass.core.lucene.engine.manager.QueryResultCache;
+import org.compass.core.lucene.util.LuceneHelper;
+import org.compass.core.metrics.CompassMetrics;
+import org.compass.core.metrics.HitRatio;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class QueryResultCacheTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"querycache/A.cpm.xml"};
+    }
+
+    protected void addSettings(CompassSettings settings) {
+        settings.setIntSetting(LuceneEnvironment.QueryResultCache.SIZE, 10);
+        settings.setIntSetting(LuceneEnvironment.QueryResultCache.MAX_DOCS, 2);
+        settings.setGroupSettings(LuceneEnvironment.QueryParser.PREFIX, LuceneEnvironment.QueryParser.DEFAULT_GROUP,
+                new String[]{LuceneEnvironment.QueryParser.DEFAULT_PARSER_CACHE_SIZE}, new String[]{"10"});
+    }
+
+    public void testCachedResults() throws Exception {
+        for (long i = 1; i <= 3; i++) {
+            save(i);
+        }
+
+        HitRatio resultHitRatio = getCompass().getMetrics().getHitRatio(CompassMetrics.RatioGroup.QUERY_RESULT_CACHE, CompassMetrics.ALL);
+        HitRatio parserHitRatio = getCompass().getMetrics().getHitRatio(CompassMetrics.RatioGroup.QUERY_PARSER_CACHE, CompassMetrics.ALL);
+        resultHitRatio.reset();
+        parserHitRatio.reset();
+
+        assertHits(3);
+        assertEquals(0, resultHitRatio.getHits());
+        assertEquals(1, resultHitRatio.getMisses());
+        assertEquals(0, parserHitRatio.getHits());
+
+        // same query against the same readers, answered from the cache (including hits beyond the cached ones)
+        assertHits(3);
+        assertEquals(1, resultHitRatio.getHits());
+        assertEquals(1, parserHitRatio.getHits());
+
+        // a new reader is used after the commit, the results are not answered from the cache
+        save(4);
+        assertHits(4);
+        assertEquals(1, resultHitRatio.getHits());
+        assertEquals(2, resultHitRatio.getMisses());
+    }
+
+    public void testCachedParsedQueryIsCopied() throws Exception {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        BooleanQuery query = parse(session, "value:test OR value:other");
+        // changing the returned query must not change the cached one
+        query.getClauses()[0].getQuery().setBoost(5.0f);
+        query.getClauses()[1].setOccur(BooleanClause.Occur.MUST_NOT);
+        BooleanQuery cached = parse(session, "value:test OR value:other");
+        assertNotSame(query, cached);
+        assertEquals(1.0f, cached.getClauses()[0].getQuery().getBoost(), 0.0f);
+        assertEquals(BooleanClause.Occur.SHOULD, cached.getClauses()[1].getOccur());
+        tr.commit();
+        session.close();
+    }
+
+    public void testCachedKeyIsCopied() throws Exception {
+        QueryResultCache cache = new QueryResultCache(10, 2, new HitRatio());
+        BooleanQuery query = createQuery();
+        QueryResultCache.Key key = cache.createKey(query, null, null, Collections.<LuceneIndexHolder>emptyList());
+        cache.put(key, new TopDocs(0, new ScoreDoc[0], 0.0f));
+        // changing the executed query must not change the cached key
+        query.getClauses()[0].getQuery().setBoost(5.0f);
+        query.getClauses()[1].setOccur(BooleanClause.Occur.MUST_NOT);
+        assertNull(cache.get(cache.createKey(query, null, null, Collections.<LuceneIndexHolder>emptyList())));
+        assertNotNull(cache.get(cache.createKey(createQuery(), null, null, Collections.<LuceneIndexHolder>emptyList())));
+        assertEquals(1, cache.getSize());
+
+        // queries that can not be copied safely are not cached
+        FilteredQuery filteredQuery = new FilteredQuery(createQuery(), new QueryWrapperFilter(createQuery()));
+        assertNull(cache.createKey(filteredQuery, null, null, Collections.<LuceneIndexHolder>emptyList()));
+    }
+
+    private BooleanQuery createQuery() {
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term("value", "test")), BooleanClause.Occur.SHOULD);
+        query.add(new TermQuery(new Term("value", "other")), BooleanClause.Occur.SHOULD);
+        return query;
+    }
+
+    private BooleanQuery parse(CompassSession session, String queryString) {
+        return (BooleanQuery) LuceneHelper.getLuceneSearchEngineQuery(session.queryBuilder().queryString(queryString).toQuery()).getQuery();
+    }
+
+    private void save(long id) {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        A a = new A();
+        a.id = new Long(id);
+        a.value = "test";
+        session.save(a);
+        tr.commit();
+        session.close();
+    }
+
+    private void assertHits(int length) {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        CompassHits hits = session.find("value:test");
+        assertEquals(length, hits.length());
+        for (int i = 0; i < length; i++) {
+            assertNotNull(hits.data(i));
+            assertTrue(hits.score(i) > 0);
+        }
+        tr.commit();
+        session.close();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.compass.core.test.sort.columnar;
+
+import org.compass.core.CompassHits;
+import org.compass.core.CompassQuery.SortDirection;
+import org.compass.core.CompassQuery.SortPropertyType;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.mapping.Sortable;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class ColumnarSortTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"sort/columnar/columnar.cpm.xml"};
+    }
+
+    public void testMapping() {
+        assertEquals(Sortable.COLUMNAR, getCompass().getMapping().getResourcePropertyMappingByPath("a.value").getSortable());
+    }
+
+    public void testSortLong() {
+        saveInitialData();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassHits hits = session.queryBuilder().matchAll().addSort("intValue", SortPropertyType.INT).hits();
+        assertAIds(hits, 4, 1, 2, 3);
+
+        hits = session.queryBuilder().matchAll().addSort("intValue", SortPropertyType.INT, SortDirection.REVERSE).hits();
+        assertAIds(hits, 3, 2, 1, 4);
+
+        hits = session.queryBuilder().matchAll().addSort("intValue").hits();
+        assertAIds(hits, 4, 1, 2, 3);
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testSortDouble() {
+        saveInitialData();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassHits hits = session.queryBuilder().matchAll().addSort("doubleValue", SortPropertyType.DOUBLE).hits();
+        assertAIds(hits, 3, 2, 1, 4);
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testSortString() {
+        saveInitialData();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassHits hits = session.queryBuilder().matchAll().addSort("value", SortPropertyType.STRING).hits();
+        assertAIds(hits, 1, 2, 3, 4);
+
+        hits = session.queryBuilder().matchAll().addSort("value", SortDirection.REVERSE).hits();
+        assertAIds(hits, 4, 3, 2, 1);
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testSortAfterIndexChanges() {
+        saveInitialData();
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        CompassHits hits = session.queryBuilder().matchAll().addSort("value", SortPropertyType.STRING).hits();
+        assertAIds(hits, 1, 2, 3, 4);
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        session.save(new A(new Long(5), "aaa", 0, 0.0));
+        session.delete(A.class, new Long(2));
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        hits = session.queryBuilder().matchAll().addSort("value", SortPropertyType.STRING).hits();
+        assertAIds(hits, 5, 1, 3, 4);
+        hits = session.queryBuilder().matchAll().addSort("intValue", SortPropertyType.INT).hits();
+        assertAIds(hits, 4, 5, 1, 3);
+        tr.commit();
+        session.close();
+    }
+
+    private void saveInitialData() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        session.save(new A(new Long(1), "aab", 1, 1.1));
+        session.save(new A(new Long(2), "aac", 2, 1.0));
+        session.save(new A(new Long(3), "bbc", 10, -1.0));
+        session.save(new A(new Long(4), "zx", -10, 1.3));
+        tr.commit();
+        session.close();
+    }
+
+    private void assertAIds(CompassHits hits, long... ids) {
+        assertEquals(ids.length, hits.length());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], ((A) hits.data(i)).id.longValue());
+        }
+    }
+}
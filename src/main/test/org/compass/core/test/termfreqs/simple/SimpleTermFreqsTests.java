@@ -20,6 +20,7 @@ import org.compass.core.CompassSession;
 import org.compass.core.CompassTermFreq;
 import org.compass.core.CompassTermFreqsBuilder;
 import org.compass.core.CompassTransaction;
+import org.compass.core.Resource;
 import org.compass.core.test.AbstractTestCase;
 
 /**
@@ -93,6 +94,120 @@ public class SimpleTermFreqsTests extends AbstractTestCase {
         session.close();
     }
 
+    public void testFreqsAfterIndexChanges() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        session.save(new A(1, "bbb"));
+        session.save(new A(2, "aaa"));
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        CompassTermFreq[] termFreqs = session.termFreqsBuilder("value").toTermFreqs();
+        assertEquals(2, termFreqs.length);
+        assertEquals(1, (int) termFreqs[0].getFreq());
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        session.save(new A(3, "bbb"));
+        tr.commit();
+        session.close();
+
+        // the reader was refreshed, the term freqs are recomputed
+        session = openSession();
+        tr = session.beginTransaction();
+        termFreqs = session.termFreqsBuilder("value").toTermFreqs();
+        assertEquals(2, termFreqs.length);
+        assertEquals("bbb", termFreqs[0].getTerm());
+        assertEquals(2, (int) termFreqs[0].getFreq());
+        tr.commit();
+        session.close();
+    }
+
+    public void testNewTermFreqsAfterBackgroundRefresh() throws Exception {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        session.save(new A(1, "bbb"));
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        CompassTermFreq[] termFreqs = session.termFreqsBuilder("value").toTermFreqs();
+        assertEquals(1, termFreqs.length);
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        session.save(new A(2, "ccc"));
+        session.save(new A(3, "ccc"));
+        tr.commit();
+        session.close();
+
+        // the new term is only known once the top terms of the new reader are loaded in the background
+        for (int i = 0; i < 100; i++) {
+            session = openSession();
+            tr = session.beginTransaction();
+            termFreqs = session.termFreqsBuilder("value").toTermFreqs();
+            tr.commit();
+            session.close();
+            if (termFreqs.length == 2) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(2, termFreqs.length);
+        assertEquals("ccc", termFreqs[0].getTerm());
+        assertEquals(2, (int) termFreqs[0].getFreq());
+        assertEquals("bbb", termFreqs[1].getTerm());
+        assertEquals(1, (int) termFreqs[1].getFreq());
+    }
+
+    public void testFreqsAcrossSubIndexes() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        // sub index "a" has more terms than its cached top terms, "common" is the one not cached
+        for (int i = 0; i < 200; i++) {
+            session.save(new A(i, "t" + (100 + i % 100)));
+        }
+        session.save(new A(200, "common"));
+        for (int i = 0; i < 2; i++) {
+            Resource r = getResourceFactory().createResource("b");
+            r.addProperty("id", i);
+            r.addProperty("value", "common");
+            session.save(r);
+        }
+        tr.commit();
+        session.close();
+
+        session = openSession();
+        tr = session.beginTransaction();
+        CompassTermFreq[] termFreqs = session.termFreqsBuilder("value").setSize(1).toTermFreqs();
+        assertEquals(1, termFreqs.length);
+        assertEquals("common", termFreqs[0].getTerm());
+        assertEquals(3, (int) termFreqs[0].getFreq());
+        tr.commit();
+        session.close();
+    }
+
+    public void testSimpleFreqsWithLargeSize() {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        session.save(new A(1, "test"));
+        session.save(new A(2, "test1"));
+
+        CompassTermFreq[] termFreqs = session.termFreqsBuilder("value").setSize(Integer.MAX_VALUE).toTermFreqs();
+        assertEquals(2, termFreqs.length);
+
+        tr.commit();
+        session.close();
+    }
+
     public void testSimpleFreqsSortTerm() {
         CompassSession session = openSession();
         CompassTransaction tr = session.beginTransaction();
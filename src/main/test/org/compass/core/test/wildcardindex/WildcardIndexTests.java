@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.test.wildcardindex;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.compass.core.CompassHits;
+import org.compass.core.CompassQuery;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.lucene.search.ConstantScorePrefixQuery;
+import org.compass.core.lucene.util.LuceneHelper;
+import org.compass.core.test.AbstractTestCase;
+
+/**
+ * @author kimchy
+ */
+public class WildcardIndexTests extends AbstractTestCase {
+
+    protected String[] getMappings() {
+        return new String[]{"wildcardindex/A.cpm.xml"};
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        save(1, "the running dog", "abc-123", "the running dog");
+        save(2, "a sleeping cat", "xyz-123", "a sleeping cat");
+        save(3, "empty here", "abc-456", "empty here");
+    }
+
+    public void testNgramSuffixAndInfix() throws Exception {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        assertEquals(2, session.find("value:*ing").length());
+        assertEquals(2, session.find("value:*in*").length());
+        assertEquals(1, session.find("value:*unn*").length());
+        assertEquals(1, session.find("value:*e?pi*").length());
+        assertEquals(0, session.find("value:*xyz*").length());
+        // the same results as a plain wildcard query
+        assertEquals(2, session.find("plain:*ing").length());
+        assertEquals(2, session.find("plain:*in*").length());
+
+        assertRewrite(session.queryBuilder().wildcard("value", "*ing"), TermQuery.class);
+        assertRewrite(session.queryBuilder().wildcard("value", "*in*"), ConstantScorePrefixQuery.class);
+        assertRewrite(session.queryBuilder().wildcard("plain", "*in*"), WildcardQuery.class);
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testReverseSuffix() throws Exception {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        assertEquals(2, session.find("code:*-123").length());
+        assertEquals(1, session.find("code:*c-4?6").length());
+        assertEquals(3, session.queryBuilder().wildcard("code", "*?-???").hits().length());
+        // ends with a wildcard, falls back to a plain wildcard query
+        assertEquals(2, session.queryBuilder().wildcard("code", "*bc*").hits().length());
+
+        assertRewrite(session.queryBuilder().wildcard("code", "*-123"), ConstantScorePrefixQuery.class);
+        assertRewrite(session.queryBuilder().wildcard("code", "*bc*"), WildcardQuery.class);
+
+        tr.commit();
+        session.close();
+    }
+
+    public void testUpdateReplacesCompanionField() throws Exception {
+        save(1, "a walking horse", "abc-123", "a walking horse");
+
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+
+        CompassHits hits = session.find("value:*unn*");
+        assertEquals(0, hits.length());
+        hits = session.find("value:*alk*");
+        assertEquals(1, hits.length());
+
+        tr.commit();
+        session.close();
+    }
+
+    private void assertRewrite(CompassQuery query, Class expected) {
+        Query luceneQuery = LuceneHelper.getLuceneSearchEngineQuery(query).getQuery();
+        assertTrue("Expected [" + expected.getName() + "] got [" + luceneQuery + "]", containsQuery(luceneQuery, expected));
+    }
+
+    private boolean containsQuery(Query query, Class expected) {
+        if (expected.isInstance(query)) {
+            return true;
+        }
+        if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).getClauses()) {
+                if (containsQuery(clause.getQuery(), expected)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void save(long id, String value, String code, String plain) {
+        CompassSession session = openSession();
+        CompassTransaction tr = session.beginTransaction();
+        A a = new A();
+        a.id = id;
+        a.value = value;
+        a.code = code;
+        a.plain = plain;
+        session.save(a);
+        tr.commit();
+        session.close();
+    }
+}
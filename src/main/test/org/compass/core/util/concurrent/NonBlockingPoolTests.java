@@ -0,0 +1,148 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.core.util.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kimchy
+ */
+public class NonBlockingPoolTests extends TestCase {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private NonBlockingPool<Object> createPool(int initialSize, int maxSize) {
+        return new NonBlockingPool<Object>(initialSize, maxSize, new NonBlockingPool.Factory<Object>() {
+            public Object create() {
+                created.incrementAndGet();
+                return new Object();
+            }
+        });
+    }
+
+    public void testThreadAffinity() throws Exception {
+        NonBlockingPool<Object> pool = createPool(2, 5);
+        assertEquals(2, created.get());
+        Object o = pool.acquire();
+        pool.release(o);
+        for (int i = 0; i < 10; i++) {
+            Object o1 = pool.acquire();
+            assertSame(o, o1);
+            pool.release(o1);
+        }
+        assertEquals(2, pool.getSize());
+        assertEquals(0, pool.getWaitCount());
+    }
+
+    public void testMaxSize() throws Exception {
+        NonBlockingPool<Object> pool = createPool(0, 3);
+        Object o1 = pool.acquire();
+        Object o2 = pool.acquire();
+        Object o3 = pool.acquire();
+        assertNotSame(o1, o2);
+        assertNotSame(o2, o3);
+        assertEquals(3, created.get());
+        pool.release(o1);
+        pool.release(o2);
+        pool.release(o3);
+        pool.acquire();
+        pool.acquire();
+        pool.acquire();
+        assertEquals(3, created.get());
+    }
+
+    public void testWaitForRelease() throws Exception {
+        final NonBlockingPool<Object> pool = createPool(0, 1);
+        final Object o = pool.acquire();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Object[] result = new Object[1];
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    result[0] = pool.acquire();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        thread.start();
+        Thread.sleep(50);
+        assertEquals(1, acquired.getCount());
+        pool.release(o);
+        thread.join(5000);
+        assertEquals(0, acquired.getCount());
+        assertSame(o, result[0]);
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getWaitTimeInNanos() > 0);
+    }
+
+    public void testStealFromIdleThread() throws Exception {
+        final NonBlockingPool<Object> pool = createPool(0, 1);
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    pool.release(pool.acquire());
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        // the only object is parked in the other thread slot
+        assertNotNull(pool.acquire());
+        assertEquals(1, created.get());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final NonBlockingPool<Object> pool = createPool(2, 4);
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            Object o = pool.acquire();
+                            int current = inUse.incrementAndGet();
+                            if (current > maxInUse.get()) {
+                                maxInUse.set(current);
+                            }
+                            inUse.decrementAndGet();
+                            pool.release(o);
+                        }
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(created.get() <= 4);
+        assertTrue(maxInUse.get() <= 4);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.compass.core.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kimchy
+ */
+public class RingBufferTests extends TestCase {
+
+    public void testOfferAndDrain() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<Integer>(5);
+        assertEquals(5, buffer.getCapacity());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i, 0, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(5, buffer.size());
+        // full
+        assertFalse(buffer.offer(5, 10, TimeUnit.MILLISECONDS));
+        assertEquals(1, buffer.getProducerWaitCount());
+
+        ArrayList<Integer> batch = new ArrayList<Integer>();
+        assertEquals(3, buffer.drainTo(batch, 3));
+        assertEquals(3, batch.size());
+        assertEquals(0, batch.get(0).intValue());
+        assertEquals(2, batch.get(2).intValue());
+        assertEquals(2, buffer.size());
+
+        // wraps around the end of the array
+        for (int i = 5; i < 8; i++) {
+            assertTrue(buffer.offer(i, 0, TimeUnit.MILLISECONDS));
+        }
+        batch.clear();
+        assertEquals(5, buffer.drainTo(batch, Integer.MAX_VALUE));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 3, batch.get(i).intValue());
+        }
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.drainTo(batch, Integer.MAX_VALUE));
+    }
+
+    public void testDrainTimeout() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<Integer>(2);
+        long start = System.currentTimeMillis();
+        assertEquals(0, buffer.drainTo(new ArrayList<Integer>(), 10, 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 40);
+        assertEquals(1, buffer.getConsumerWaitCount());
+    }
+
+    public void testWakeUpConsumer() throws Exception {
+        final RingBuffer<Integer> buffer = new RingBuffer<Integer>(2);
+        final AtomicLong drained = new AtomicLong(-1);
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    drained.set(buffer.drainTo(new ArrayList<Integer>(), 10, 10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        buffer.wakeUpConsumer();
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(0, drained.get());
+    }
+
+    public void testProducerConsumer() throws Exception {
+        final RingBuffer<Integer> buffer = new RingBuffer<Integer>(16);
+        final int count = 100000;
+        final long[] sum = new long[1];
+        final int[] received = new int[1];
+        final boolean[] ordered = new boolean[]{true};
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                ArrayList<Integer> batch = new ArrayList<Integer>();
+                int expected = 0;
+                try {
+                    while (received[0] < count) {
+                        buffer.drainTo(batch, Integer.MAX_VALUE, 100, TimeUnit.MILLISECONDS);
+                        for (Integer value : batch) {
+                            if (value != expected++) {
+                                ordered[0] = false;
+                            }
+                            sum[0] += value;
+                            received[0]++;
+                        }
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            assertTrue(buffer.offer(i, 10, TimeUnit.SECONDS));
+        }
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertEquals(count, received[0]);
+        assertTrue(ordered[0]);
+        assertEquals(((long) count) * (count - 1) / 2, sum[0]);
+    }
+}
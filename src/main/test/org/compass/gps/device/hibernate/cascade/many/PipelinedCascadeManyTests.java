@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.cascade.many;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import org.compass.core.Compass;
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.core.config.CompassConfiguration;
+import org.compass.core.config.CompassEnvironment;
+import org.compass.core.events.FilterOperation;
+import org.compass.core.events.PreCreateEventListener;
+import org.compass.gps.CompassGpsDevice;
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.indexer.KeysetHibernateIndexEntitiesIndexer;
+import org.compass.gps.device.support.parallel.IndexPipelineProgress;
+import org.compass.gps.device.support.parallel.IndexPipelineProgressListener;
+import org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor;
+import org.compass.gps.impl.SingleCompassGps;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.classic.Session;
+
+/**
+ * Indexes entities mapped with a cascade using the {@link PipelinedParallelIndexExecutor}.
+ *
+ * @author kimchy
+ */
+public class PipelinedCascadeManyTests extends TestCase {
+
+    private SessionFactory sessionFactory;
+
+    private Compass compass;
+
+    private SingleCompassGps compassGps;
+
+    private final AtomicInteger preCreateEvents = new AtomicInteger();
+
+    private volatile IndexPipelineProgress lastProgress;
+
+    protected void setUp() throws Exception {
+        Configuration conf = new Configuration().configure("/org/compass/gps/device/hibernate/cascade/many/hibernate.cfg.xml")
+                .setProperty(Environment.HBM2DDL_AUTO, "create");
+        sessionFactory = conf.buildSessionFactory();
+
+        CompassConfiguration cpConf = new CompassConfiguration()
+                .configure("/org/compass/gps/device/hibernate/cascade/many/compass-cascade.cfg.xml");
+        cpConf.getSettings().setGroupSettings(CompassEnvironment.Event.PREFIX_PRE_CREATE, "count",
+                new String[]{CompassEnvironment.Event.TYPE},
+                new Object[]{new PreCreateEventListener() {
+                    public FilterOperation onPreCreate(String alias, Object obj) {
+                        preCreateEvents.incrementAndGet();
+                        return FilterOperation.NO;
+                    }
+                }});
+        compass = cpConf.buildCompass();
+        compass.getSearchEngineIndexManager().deleteIndex();
+        compass.getSearchEngineIndexManager().verifyIndex();
+
+        Session s = sessionFactory.openSession();
+        Transaction tx = s.beginTransaction();
+        User u1 = new User();
+        u1.setName("barcho");
+        for (int i = 0; i < 2; i++) {
+            Album album = new Album();
+            album.setTitle("album " + i);
+            album.setOwner(u1);
+            u1.getAlbums().add(album);
+        }
+        s.save(u1);
+        tx.commit();
+        s.close();
+    }
+
+    protected void tearDown() throws Exception {
+        if (compassGps != null) {
+            compassGps.stop();
+        }
+        compass.close();
+        sessionFactory.close();
+        compass.getSearchEngineIndexManager().deleteIndex();
+    }
+
+    public void testCascadingEntityIsNotPipelined() throws Exception {
+        // the albums of the user are lazy, and are only loaded when cascading
+        startGps(true);
+        compassGps.index();
+
+        assertEquals(1, numIndexed(User.class));
+        // indexed once as entities, and once cascading from their owner (as without the pipeline)
+        assertEquals(4, numIndexed(Album.class));
+        // only the albums went through the pipeline
+        assertEquals(2, lastProgress.getWrittenObjects());
+    }
+
+    public void testPreCreateEventsAppliedOncePerObject() throws Exception {
+        startGps(false);
+        compassGps.index();
+
+        assertEquals(1, numIndexed(User.class));
+        assertEquals(2, numIndexed(Album.class));
+        assertEquals(3, lastProgress.getWrittenObjects());
+        assertEquals(3, preCreateEvents.get());
+    }
+
+    private void startGps(boolean cascading) {
+        HibernateGpsDevice device = new HibernateGpsDevice();
+        device.setName("hibernate");
+        device.setSessionFactory(sessionFactory);
+        device.setMirrorDataChanges(false);
+        device.setFetchCount(1);
+        device.setEntitiesIndexer(new KeysetHibernateIndexEntitiesIndexer());
+        PipelinedParallelIndexExecutor indexExecutor = new PipelinedParallelIndexExecutor();
+        indexExecutor.setProgressListener(new IndexPipelineProgressListener() {
+            public void onProgress(IndexPipelineProgress progress) {
+                lastProgress = progress;
+            }
+        });
+        device.setParallelIndexExecutor(indexExecutor);
+
+        compassGps = new SingleCompassGps(compass);
+        // cascading is disabled by default when indexing
+        Properties indexSettings = new Properties();
+        indexSettings.setProperty(CompassEnvironment.Cascade.DISABLE, String.valueOf(!cascading));
+        compassGps.setIndexSettings(indexSettings);
+        compassGps.setGpsDevices(new CompassGpsDevice[]{device});
+        compassGps.start();
+    }
+
+    private int numIndexed(Class type) {
+        CompassSession session = compass.openSession();
+        CompassTransaction tr = session.beginTransaction();
+        try {
+            return session.queryBuilder().matchAll().setTypes(new Class[]{type}).hits().length();
+        } finally {
+            tr.commit();
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.simple;
+
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.lifecycle.AsyncHibernateEntityLifecycleInjector;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * @author kimchy
+ */
+public class AsyncMirrorSimpleHibernateGpsDeviceTests extends AbstractSimpleHibernateGpsDeviceTests {
+
+    private AsyncHibernateEntityLifecycleInjector lifecycleInjector;
+
+    protected void addDeviceSettings(HibernateGpsDevice device) {
+        lifecycleInjector = new AsyncHibernateEntityLifecycleInjector();
+        device.setLifecycleInjector(lifecycleInjector);
+    }
+
+    protected void setUpDB() {
+        super.setUpDB();
+        // don't let the mirroring of the initial data run concurrently with the tests index operation
+        lifecycleInjector.flush();
+    }
+
+    public void testMirrorWithCommit() throws Exception {
+        compassGps.index();
+
+        Session session = sessionFactory.openSession();
+        Transaction tr = session.beginTransaction();
+
+        // insert a new one
+        Simple simple = new Simple();
+        simple.setId(4);
+        simple.setValue("value4");
+        session.save("simple", simple);
+
+        // delete the second one
+        simple = (Simple) session.load("simple", 2);
+        session.delete(simple);
+
+        // update the first one twice
+        simple = (Simple) session.load("simple", 1);
+        simple.setValue("updatedValue1");
+        session.save(simple);
+        session.flush();
+        simple.setValue("updatedAgainValue1");
+        session.save(simple);
+
+        session.flush();
+
+        tr.commit();
+        session.close();
+
+        lifecycleInjector.flush();
+
+        CompassSession sess = compass.openSession();
+        CompassTransaction compassTransaction = sess.beginTransaction();
+
+        simple = sess.load(Simple.class, 4);
+        assertEquals("value4", simple.getValue());
+
+        simple = sess.get(Simple.class, 2);
+        assertNull(simple);
+
+        simple = sess.load(Simple.class, 1);
+        assertEquals("updatedAgainValue1", simple.getValue());
+
+        compassTransaction.commit();
+        sess.close();
+    }
+
+    public void testMirrorWithRollback() throws Exception {
+        compassGps.index();
+
+        Session session = sessionFactory.openSession();
+        Transaction tr = session.beginTransaction();
+
+        Simple simple = new Simple();
+        simple.setId(4);
+        simple.setValue("value4");
+        session.save("simple", simple);
+
+        simple = (Simple) session.load("simple", 2);
+        session.delete(simple);
+
+        session.flush();
+
+        tr.rollback();
+        session.close();
+
+        lifecycleInjector.flush();
+
+        CompassSession sess = compass.openSession();
+        CompassTransaction compassTransaction = sess.beginTransaction();
+
+        assertNull(sess.get(Simple.class, 4));
+        assertNotNull(sess.get(Simple.class, 2));
+
+        compassTransaction.commit();
+        sess.close();
+    }
+}
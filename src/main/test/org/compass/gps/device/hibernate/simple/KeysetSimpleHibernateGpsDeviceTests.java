@@ -0,0 +1,32 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.simple;
+
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.indexer.KeysetHibernateIndexEntitiesIndexer;
+
+/**
+ * @author kimchy
+ */
+public class KeysetSimpleHibernateGpsDeviceTests extends AbstractSimpleHibernateGpsDeviceTests {
+
+    protected void addDeviceSettings(HibernateGpsDevice device) {
+        // small fetch count so several (pipelined) pages are loaded
+        device.setFetchCount(1);
+        device.setEntitiesIndexer(new KeysetHibernateIndexEntitiesIndexer());
+    }
+}
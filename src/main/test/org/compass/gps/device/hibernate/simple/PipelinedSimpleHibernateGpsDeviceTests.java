@@ -0,0 +1,200 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.simple;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.compass.core.CompassSession;
+import org.compass.gps.CompassGpsException;
+import org.compass.gps.device.hibernate.HibernateGpsDevice;
+import org.compass.gps.device.hibernate.indexer.KeysetHibernateIndexEntitiesIndexer;
+import org.compass.gps.device.support.parallel.GenericIndexEntity;
+import org.compass.gps.device.support.parallel.IndexEntity;
+import org.compass.gps.device.support.parallel.IndexPipelineBatch;
+import org.compass.gps.device.support.parallel.IndexPipelineFetcher;
+import org.compass.gps.device.support.parallel.IndexPipelineProgress;
+import org.compass.gps.device.support.parallel.IndexPipelineSink;
+import org.compass.gps.device.support.parallel.IndexPipelineProgressListener;
+import org.compass.gps.device.support.parallel.PipelinedIndexEntitiesIndexer;
+import org.compass.gps.device.support.parallel.PipelinedParallelIndexExecutor;
+import org.compass.gps.spi.CompassGpsInterfaceDevice;
+
+/**
+ * @author kimchy
+ */
+public class PipelinedSimpleHibernateGpsDeviceTests extends AbstractSimpleHibernateGpsDeviceTests {
+
+    private volatile IndexPipelineProgress lastProgress;
+
+    protected void addDeviceSettings(HibernateGpsDevice device) {
+        // small fetch count and queues so several batches go through the stages
+        device.setFetchCount(1);
+        device.setEntitiesIndexer(new KeysetHibernateIndexEntitiesIndexer());
+        PipelinedParallelIndexExecutor indexExecutor = new PipelinedParallelIndexExecutor();
+        indexExecutor.setMarshallThreads(2);
+        indexExecutor.setQueueSize(1);
+        indexExecutor.setProgressListener(new IndexPipelineProgressListener() {
+            public void onProgress(IndexPipelineProgress progress) {
+                lastProgress = progress;
+            }
+        });
+        device.setParallelIndexExecutor(indexExecutor);
+    }
+
+    public void testProgress() throws Exception {
+        compassGps.index();
+
+        IndexPipelineProgress progress = lastProgress;
+        assertNotNull(progress);
+        assertTrue(progress.isFinished());
+        // simple (3) and SimpleBase (2, including SimpleExtend)
+        assertEquals(5, progress.getFetchedObjects());
+        assertEquals(5, progress.getMarshalledObjects());
+        assertEquals(5, progress.getWrittenObjects());
+        assertEquals(0, progress.getPendingBatches());
+    }
+
+    public void testFailureAbortsPipeline() throws Exception {
+        final AtomicInteger putBatches = new AtomicInteger();
+        final AtomicInteger closedBatches = new AtomicInteger();
+        PipelinedIndexEntitiesIndexer indexer = new PipelinedIndexEntitiesIndexer() {
+            public IndexPipelineFetcher createFetcher(final IndexEntity entity) {
+                return new IndexPipelineFetcher() {
+                    public void fetch(IndexPipelineSink sink) throws Exception {
+                        if (entity.getName().equals("failing")) {
+                            throw new IllegalStateException("failed to fetch");
+                        }
+                        for (int i = 0; i < 10; i++) {
+                            putBatches.incrementAndGet();
+                            if (!sink.put(new CountingBatch(closedBatches))) {
+                                return;
+                            }
+                        }
+                    }
+                };
+            }
+
+            public void performIndex(CompassSession session, IndexEntity[] entities) {
+                fail("all entities should be pipelined");
+            }
+        };
+        PipelinedParallelIndexExecutor indexExecutor = new PipelinedParallelIndexExecutor();
+        indexExecutor.setQueueSize(1);
+        try {
+            indexExecutor.performIndex(new IndexEntity[][]{{
+                    new GenericIndexEntity("working", new String[]{"a"}),
+                    new GenericIndexEntity("failing", new String[]{"a"})}},
+                    indexer, (CompassGpsInterfaceDevice) compassGps);
+            fail("the pipeline should fail");
+        } catch (CompassGpsException e) {
+            // all is well
+        }
+        // every batch put into the pipeline was released, even when rejected
+        assertEquals(putBatches.get(), closedBatches.get());
+    }
+
+    public void testMaxOpenBatches() throws Exception {
+        final AtomicInteger openBatches = new AtomicInteger();
+        final AtomicInteger maxOpenBatches = new AtomicInteger();
+        PipelinedIndexEntitiesIndexer indexer = new PipelinedIndexEntitiesIndexer() {
+            public IndexPipelineFetcher createFetcher(final IndexEntity entity) {
+                return new IndexPipelineFetcher() {
+                    public void fetch(IndexPipelineSink sink) throws Exception {
+                        for (int i = 0; i < 10; i++) {
+                            if (!sink.put(new OpenBatch(openBatches, maxOpenBatches))) {
+                                return;
+                            }
+                        }
+                    }
+                };
+            }
+
+            public void performIndex(CompassSession session, IndexEntity[] entities) {
+                fail("all entities should be pipelined");
+            }
+        };
+        PipelinedParallelIndexExecutor indexExecutor = new PipelinedParallelIndexExecutor();
+        indexExecutor.setMarshallThreads(2);
+        // 3 fetch threads and 2 marshall threads leave room for a single queued batch
+        indexExecutor.setMaxOpenBatches(6);
+        indexExecutor.performIndex(new IndexEntity[][]{{
+                new GenericIndexEntity("a", new String[]{"simple"}),
+                new GenericIndexEntity("b", new String[]{"simple"}),
+                new GenericIndexEntity("c", new String[]{"simple"})}},
+                indexer, (CompassGpsInterfaceDevice) compassGps);
+        assertEquals(0, openBatches.get());
+        assertTrue("max open batches [" + maxOpenBatches.get() + "]", maxOpenBatches.get() <= 6);
+    }
+
+    /**
+     * An empty batch (nothing to write), tracking the number of open batches.
+     */
+    private static class OpenBatch implements IndexPipelineBatch {
+
+        private final AtomicInteger openBatches;
+
+        private OpenBatch(AtomicInteger openBatches, AtomicInteger maxOpenBatches) {
+            this.openBatches = openBatches;
+            int open = openBatches.incrementAndGet();
+            synchronized (maxOpenBatches) {
+                maxOpenBatches.set(Math.max(maxOpenBatches.get(), open));
+            }
+        }
+
+        public List getValues() {
+            return Collections.EMPTY_LIST;
+        }
+
+        public void close() {
+            // slow marshalling stage, so the fetchers fill the queue
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            openBatches.decrementAndGet();
+        }
+
+        public void closeOnError() {
+            openBatches.decrementAndGet();
+        }
+    }
+
+    private static class CountingBatch implements IndexPipelineBatch {
+
+        private final AtomicInteger closedBatches;
+
+        private CountingBatch(AtomicInteger closedBatches) {
+            this.closedBatches = closedBatches;
+        }
+
+        public List getValues() {
+            return Arrays.asList("value");
+        }
+
+        public void close() {
+            closedBatches.incrementAndGet();
+        }
+
+        public void closeOnError() {
+            closedBatches.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.hibernate.simple.embedded;
+
+import org.compass.core.CompassSession;
+import org.compass.core.CompassTransaction;
+import org.compass.gps.device.hibernate.embedded.HibernateHelper;
+import org.compass.gps.device.hibernate.simple.Simple;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * @author kimchy
+ */
+public class AsyncEmbeddedHibernateTests extends EmbeddedHibernateTests {
+
+    protected String getHiberanteCfgLocation() {
+        return "/org/compass/gps/device/hibernate/simple/embedded/async-hibernate.cfg.xml";
+    }
+
+    protected void setUpDB() {
+        super.setUpDB();
+        // don't let the mirroring of the initial data run concurrently with the tests index operation
+        HibernateHelper.flushAsyncMirror(sessionFactory);
+    }
+
+    public void testMirrorWithCommit() throws Exception {
+        compassGps.index();
+
+        Session session = sessionFactory.openSession();
+        Transaction tr = session.beginTransaction();
+
+        // insert a new one
+        Simple simple = new Simple();
+        simple.setId(4);
+        simple.setValue("value4");
+        session.save("simple", simple);
+
+        // delete the second one
+        simple = (Simple) session.load("simple", 2);
+        session.delete(simple);
+
+        // update the first one
+        simple = (Simple) session.load("simple", 1);
+        simple.setValue("updatedValue1");
+        session.save(simple);
+
+        session.flush();
+
+        tr.commit();
+        session.close();
+
+        HibernateHelper.flushAsyncMirror(sessionFactory);
+
+        CompassSession sess = compass.openSession();
+        CompassTransaction compassTransaction = sess.beginTransaction();
+
+        simple = sess.load(Simple.class, 4);
+        assertEquals("value4", simple.getValue());
+
+        simple = sess.get(Simple.class, 2);
+        assertNull(simple);
+
+        simple = sess.load(Simple.class, 1);
+        assertEquals("updatedValue1", simple.getValue());
+
+        compassTransaction.commit();
+        sess.close();
+    }
+}
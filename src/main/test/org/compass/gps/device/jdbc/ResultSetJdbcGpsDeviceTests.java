@@ -18,6 +18,7 @@ package org.compass.gps.device.jdbc;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.Statement;
 
 import org.compass.core.Compass;
 import org.compass.core.CompassDetachedHits;
@@ -350,4 +351,53 @@ public class ResultSetJdbcGpsDeviceTests extends AbstractJdbcGpsDeviceTests {
         r = compassTemplate.getResource("result-set", "999", "0");
         assertNull(r);
     }
+
+    public void testJoinMappingWithSingleIdMirrorCreatesOneResourcePerId() throws Exception {
+        ResultSetToResourceMapping mapping = new ResultSetToResourceMapping();
+        mapping.setAlias("result-set");
+        mapping.setSelectQuery("select "
+                + "p.id as parent_id, p.first_name as parent_first_name, p.version as parent_version, "
+                + "c.first_name as child_first_name "
+                + "from parent p left join child c on p.id = c.parent_id");
+        mapping.setVersionQuery("select p.id as parent_id, p.version as parent_version from parent p");
+        mapping.addIdMapping(new IdColumnToPropertyMapping("parent_id", "parent_id", "p.id"));
+        mapping.addDataMapping(new DataColumnToPropertyMapping("parent_first_name", "parent_first_name"));
+        mapping.addDataMapping(new DataColumnToPropertyMapping("child_first_name", "child_first_name"));
+        mapping.addVersionMapping(new VersionColumnMapping("parent_version"));
+
+        CompassConfiguration conf = new CompassConfiguration().setSetting(CompassEnvironment.CONNECTION,
+                "target/testindex");
+        conf.addMappingResolver(new ResultSetResourceMappingResolver(mapping, this.dataSource));
+        compass = conf.buildCompass();
+        fileHandlerMonitor = FileHandlerMonitor.getFileHandlerMonitor(compass);
+        compass.getSearchEngineIndexManager().deleteIndex();
+        compass.getSearchEngineIndexManager().verifyIndex();
+        compassTemplate = new CompassTemplate(compass);
+
+        gpsDevice = new ResultSetJdbcGpsDevice();
+        gpsDevice.setDataSource(dataSource);
+        gpsDevice.setName("resultSetJdbcDevice");
+        gpsDevice.setMirrorDataChanges(true);
+        gpsDevice.addMapping(mapping);
+        gps = new SingleCompassGps(compass);
+        gps.addGpsDevice(gpsDevice);
+        gps.start();
+
+        // two new parents, each joined with two children, reloaded using a single batch
+        Connection con = JdbcUtils.getConnection(dataSource);
+        Statement stmt = con.createStatement();
+        stmt.execute("INSERT INTO parent VALUES (998, 'parent first 998', 'last 998', 1);");
+        stmt.execute("INSERT INTO parent VALUES (999, 'parent first 999', 'last 999', 1);");
+        stmt.execute("INSERT INTO child VALUES (100, 998, 'child first 998 1', 'last 998 1', 1);");
+        stmt.execute("INSERT INTO child VALUES (101, 998, 'child first 998 2', 'last 998 2', 1);");
+        stmt.execute("INSERT INTO child VALUES (102, 999, 'child first 999 1', 'last 999 1', 1);");
+        stmt.execute("INSERT INTO child VALUES (103, 999, 'child first 999 2', 'last 999 2', 1);");
+        stmt.close();
+        con.commit();
+        con.close();
+
+        gpsDevice.performMirroring();
+        assertEquals(1, compassTemplate.findWithDetach("parent_id:998").getLength());
+        assertEquals(1, compassTemplate.findWithDetach("parent_id:999").getLength());
+    }
 }
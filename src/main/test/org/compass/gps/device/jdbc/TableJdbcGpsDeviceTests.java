@@ -205,4 +205,54 @@ public class TableJdbcGpsDeviceTests extends AbstractJdbcGpsDeviceTests {
         r = compassTemplate.getResource("parent", "999");
         assertNull(r);
     }
+
+    public void testParallelMirroringWithStatistics() throws Exception {
+        setUpAutomaticMapping();
+        gpsDevice.setMirrorDataChanges(true);
+        gpsDevice.setMirrorThreads(2);
+        gps.index();
+
+        Connection con = JdbcUtils.getConnection(dataSource);
+        PreparedStatement ps = con.prepareStatement("INSERT INTO parent VALUES (997, 'parent first 997', 'last 997', 1);");
+        ps.execute();
+        ps.close();
+        ps = con.prepareStatement("INSERT INTO parent VALUES (998, 'parent first 998', 'last 998', 1);");
+        ps.execute();
+        ps.close();
+        ps = con.prepareStatement("INSERT INTO parent VALUES (999, 'parent first 999', 'last 999', 1);");
+        ps.execute();
+        ps.close();
+        ps = con.prepareStatement("update child set first_name = 'new first name', version = 2 where id = 1");
+        ps.execute();
+        ps.close();
+        ps = con.prepareStatement("delete from child where id = 6");
+        ps.execute();
+        ps.close();
+        con.commit();
+        con.close();
+
+        gpsDevice.performMirroring();
+        compassTemplate.loadResource("parent", "997");
+        compassTemplate.loadResource("parent", "998");
+        compassTemplate.loadResource("parent", "999");
+        Resource r = compassTemplate.loadResource("child", "1");
+        assertEquals("new first name", r.getValue("FIRST_NAME"));
+        assertNull(compassTemplate.getResource("child", "6"));
+
+        ResultSetJdbcGpsDevice.MappingMirrorStatistics parentStatistics = gpsDevice.getMirrorStatistics().get("parent");
+        assertEquals(1, parentStatistics.getCycles());
+        assertEquals(3, parentStatistics.getLastCreatedRows());
+        assertEquals(0, parentStatistics.getLastUpdatedRows());
+        assertEquals(0, parentStatistics.getLastDeletedRows());
+        ResultSetJdbcGpsDevice.MappingMirrorStatistics childStatistics = gpsDevice.getMirrorStatistics().get("child");
+        assertEquals(1, childStatistics.getCycles());
+        assertEquals(0, childStatistics.getLastCreatedRows());
+        assertEquals(1, childStatistics.getLastUpdatedRows());
+        assertEquals(1, childStatistics.getLastDeletedRows());
+
+        gpsDevice.performMirroring();
+        assertEquals(2, parentStatistics.getCycles());
+        assertEquals(0, parentStatistics.getLastCreatedRows());
+        assertEquals(3, parentStatistics.getTotalCreatedRows());
+    }
 }
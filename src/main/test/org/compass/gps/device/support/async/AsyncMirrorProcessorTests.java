@@ -0,0 +1,141 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.gps.device.support.async;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.compass.core.Compass;
+import org.compass.core.CompassSession;
+import org.compass.core.config.CompassConfiguration;
+
+/**
+ * @author kimchy
+ */
+public class AsyncMirrorProcessorTests extends TestCase {
+
+    private Compass compass;
+
+    private MockEntitiesIndexer entitiesIndexer;
+
+    private AsyncMirrorProcessor mirrorProcessor;
+
+    protected void setUp() throws Exception {
+        compass = new CompassConfiguration().setConnection("ram://test").buildCompass();
+        entitiesIndexer = new MockEntitiesIndexer();
+        mirrorProcessor = new AsyncMirrorProcessor("test", compass, entitiesIndexer, 10);
+        mirrorProcessor.setRetryBackoff(10);
+        mirrorProcessor.start();
+    }
+
+    protected void tearDown() throws Exception {
+        mirrorProcessor.stop();
+        compass.close();
+    }
+
+    public void testFailedEntityIsRetriedWithoutDiscardingOthers() throws Exception {
+        entitiesIndexer.failures = 2;
+        mirrorProcessor.process(Arrays.asList(MirrorOperation.save("a", 1), MirrorOperation.save("b", 2)));
+        waitForCalls("a", 3);
+        mirrorProcessor.flush();
+        assertEquals(3, entitiesIndexer.calls("a"));
+        assertEquals(1, entitiesIndexer.calls("b"));
+    }
+
+    public void testRetriesRunOut() throws Exception {
+        mirrorProcessor.setMaxRetries(1);
+        entitiesIndexer.failures = Integer.MAX_VALUE;
+        mirrorProcessor.process(Arrays.asList(MirrorOperation.save("a", 1)));
+        waitForCalls("a", 2);
+        Thread.sleep(100);
+        assertEquals(2, entitiesIndexer.calls("a"));
+    }
+
+    public void testFailingIdIsIsolated() throws Exception {
+        mirrorProcessor.setMaxRetries(0);
+        entitiesIndexer.failingIds.add(2);
+        mirrorProcessor.process(Arrays.asList(MirrorOperation.save("c", 1), MirrorOperation.save("c", 2), MirrorOperation.save("c", 3)));
+        mirrorProcessor.flush();
+        assertTrue(entitiesIndexer.mirrored.contains(1));
+        assertTrue(entitiesIndexer.mirrored.contains(3));
+        assertFalse(entitiesIndexer.mirrored.contains(2));
+    }
+
+    public void testRetryIsDroppedOnceNewerOperationIsMirrored() throws Exception {
+        mirrorProcessor.setRetryBackoff(200);
+        entitiesIndexer.failures = 1;
+        mirrorProcessor.process(Arrays.asList(MirrorOperation.save("a", 1)));
+        mirrorProcessor.flush();
+        assertEquals(1, entitiesIndexer.calls("a"));
+        // a newer operation of the same id is mirrored before the retry
+        mirrorProcessor.process(Arrays.asList(MirrorOperation.save("a", 1)));
+        mirrorProcessor.flush();
+        assertEquals(2, entitiesIndexer.calls("a"));
+        Thread.sleep(400);
+        mirrorProcessor.flush();
+        assertEquals(2, entitiesIndexer.calls("a"));
+    }
+
+    private void waitForCalls(String entityName, int calls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (entitiesIndexer.calls(entityName) < calls) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected [" + calls + "] calls for [" + entityName + "], got [" + entitiesIndexer.calls(entityName) + "]");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static class MockEntitiesIndexer implements AsyncMirrorEntitiesIndexer {
+
+        private final List<String> calls = new ArrayList<String>();
+
+        final Set<Serializable> failingIds = new HashSet<Serializable>();
+
+        final Set<Serializable> mirrored = new HashSet<Serializable>();
+
+        volatile int failures;
+
+        public synchronized void performMirror(CompassSession session, String entityName, List<Serializable> ids) throws Exception {
+            calls.add(entityName);
+            if (entityName.equals("a") && failures-- > 0) {
+                throw new Exception("failure");
+            }
+            for (Serializable id : ids) {
+                if (failingIds.contains(id)) {
+                    throw new Exception("failure of [" + id + "]");
+                }
+            }
+            mirrored.addAll(ids);
+        }
+
+        synchronized int calls(String entityName) {
+            int count = 0;
+            for (String call : calls) {
+                if (call.equals(entityName)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -102,6 +102,35 @@ public abstract class AbstractCoherenceDirectoryTests extends TestCase {
         verifyData(dir, "segments");
     }
 
+    public void testRecreatedFileIsNotServedFromOtherNodeBucketCache() throws Exception {
+        // two directories over the same cache simulate two nodes, each with its own local bucket cache
+        CoherenceDirectory dir1 = doCreateDirectory("test", 4);
+        CoherenceDirectory dir2 = doCreateDirectory("test", 4);
+        insertBytes(dir1, "value1", (byte) 1, 10);
+        verifyBytes(dir2, "value1", (byte) 1, 10);
+
+        dir1.deleteFile("value1");
+        insertBytes(dir1, "value1", (byte) 2, 10);
+        verifyBytes(dir2, "value1", (byte) 2, 10);
+    }
+
+    private void insertBytes(CoherenceDirectory dir, String fileName, byte value, int length) throws IOException {
+        IndexOutput indexOutput = dir.createOutput(fileName);
+        for (int i = 0; i < length; i++) {
+            indexOutput.writeByte(value);
+        }
+        indexOutput.close();
+    }
+
+    private void verifyBytes(CoherenceDirectory dir, String fileName, byte value, int length) throws IOException {
+        assertEquals(length, dir.fileLength(fileName));
+        IndexInput indexInput = dir.openInput(fileName);
+        for (int i = 0; i < length; i++) {
+            assertEquals(value, indexInput.readByte());
+        }
+        indexInput.close();
+    }
+
     private void insertData(CoherenceDirectory dir, String fileName) throws IOException {
         byte[] test = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
         IndexOutput indexOutput = dir.createOutput(fileName);
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.needle.coherence;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kimchy
+ */
+public class FileBucketCacheTests extends TestCase {
+
+    public void testBucketsAreKeyedByFileGeneration() {
+        FileBucketCache cache = new FileBucketCache(10);
+        FileHeaderValue header = new FileHeaderValue(System.currentTimeMillis(), 10);
+        FileBucketKey key = new FileBucketKey("test", "_1.cfs", 0);
+        FileBucketValue value = new FileBucketValue(new byte[]{1});
+        cache.put(header, key, value);
+        assertSame(value, cache.get(header, key));
+
+        header.touch();
+        assertSame(value, cache.get(header, key));
+
+        FileHeaderValue recreated = new FileHeaderValue(header.getLastModified(), header.getSize());
+        assertNull(cache.get(recreated, key));
+    }
+
+    public void testStaticFilesAreNotCached() {
+        FileBucketCache cache = new FileBucketCache(10);
+        FileHeaderValue header = new FileHeaderValue(System.currentTimeMillis(), 10);
+        FileBucketKey key = new FileBucketKey("test", "segments.gen", 0);
+        cache.put(header, key, new FileBucketValue(new byte[]{1}));
+        assertNull(cache.get(header, key));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compass.needle.coherence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kimchy
+ */
+public class FileHeaderValueTests extends TestCase {
+
+    public void testExternalizedFormKeepsGeneration() throws Exception {
+        FileHeaderValue header = new FileHeaderValue(1000, 10);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        header.writeExternal(new DataOutputStream(bytes));
+
+        FileHeaderValue read = new FileHeaderValue();
+        read.readExternal(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(10, read.getSize());
+        assertEquals(1000, read.getLastModified());
+        assertEquals(header.getGeneration(), read.getGeneration());
+    }
+
+    public void testReadHeaderWrittenWithoutGeneration() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(10);
+        out.writeLong(1000);
+
+        FileHeaderValue read = new FileHeaderValue();
+        read.readExternal(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(10, read.getSize());
+        assertEquals(1000, read.getLastModified());
+        assertEquals(0, read.getGeneration());
+    }
+}